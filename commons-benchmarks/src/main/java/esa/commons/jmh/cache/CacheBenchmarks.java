@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.jmh.cache;
+
+import esa.commons.cache.Cache;
+import esa.commons.cache.Caches;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link Cache} with the plain {@link ConcurrentHashMap} under the zipfian-like distribution.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 10, time = 5)
+@Threads(4)
+public class CacheBenchmarks {
+
+    private static final int SIZE = 1 << 16;
+    private static final int MASK = SIZE - 1;
+
+    @Param({"Cache", "ConcurrentHashMap"})
+    private String type;
+
+    private Integer[] keys;
+    private Cache<Integer, Integer> cache;
+    private Map<Integer, Integer> map;
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        int index = new Random().nextInt(SIZE);
+    }
+
+    @Setup
+    public void setUp() {
+        keys = new Integer[SIZE];
+        final Random random = new Random(7L);
+        for (int i = 0; i < SIZE; i++) {
+            // skewed keys which makes a few keys hot
+            keys[i] = (int) Math.pow(2048, random.nextDouble());
+        }
+        cache = Caches.builder().maximumSize(SIZE).build();
+        map = new ConcurrentHashMap<>();
+        for (Integer key : keys) {
+            cache.put(key, key);
+            map.put(key, key);
+        }
+    }
+
+    @Benchmark
+    public Integer read(ThreadState state) {
+        final Integer key = keys[state.index++ & MASK];
+        return "Cache".equals(type) ? cache.getIfPresent(key) : map.get(key);
+    }
+
+    @Benchmark
+    public Integer readWrite(ThreadState state) {
+        final int i = state.index++;
+        final Integer key = keys[i & MASK];
+        if ((i & 7) == 0) {
+            if ("Cache".equals(type)) {
+                cache.put(key, key);
+            } else {
+                map.put(key, key);
+            }
+            return key;
+        }
+        return "Cache".equals(type) ? cache.getIfPresent(key) : map.get(key);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.jmh.collection;
+
+import esa.commons.collection.ArrayMultiValueMap;
+import esa.commons.collection.HashMultiValueMap;
+import esa.commons.collection.LinkedMultiValueMap;
+import esa.commons.collection.MultiValueMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 10, time = 5)
+public class MultiValueMapBenchmarks {
+
+    @Param({"Array", "Linked", "Hash"})
+    private String type;
+
+    @Param({"3", "10", "32"})
+    private int size;
+
+    private String[] keys;
+    private MultiValueMap<String, String> map;
+
+    @Setup
+    public void setUp() {
+        keys = new String[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = "param" + i;
+        }
+        map = newMap();
+        fill(map);
+    }
+
+    @Benchmark
+    public MultiValueMap<String, String> add() {
+        final MultiValueMap<String, String> m = newMap();
+        fill(m);
+        return m;
+    }
+
+    @Benchmark
+    public void getFirst(Blackhole blackhole) {
+        for (String key : keys) {
+            blackhole.consume(map.getFirst(key));
+        }
+    }
+
+    @Benchmark
+    public void iterate(Blackhole blackhole) {
+        for (Map.Entry<String, List<String>> e : map.entrySet()) {
+            blackhole.consume(e.getKey());
+            for (String value : e.getValue()) {
+                blackhole.consume(value);
+            }
+        }
+    }
+
+    private MultiValueMap<String, String> newMap() {
+        if ("Array".equals(type)) {
+            return new ArrayMultiValueMap<>();
+        } else if ("Linked".equals(type)) {
+            return new LinkedMultiValueMap<>();
+        } else if ("Hash".equals(type)) {
+            return new HashMultiValueMap<>();
+        } else {
+            throw new Error();
+        }
+    }
+
+    private void fill(MultiValueMap<String, String> m) {
+        for (String key : keys) {
+            m.add(key, "value");
+        }
+    }
+}
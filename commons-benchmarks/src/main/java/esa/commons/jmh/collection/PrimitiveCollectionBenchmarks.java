@@ -0,0 +1,179 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.jmh.collection;
+
+import esa.commons.collection.IntHashSet;
+import esa.commons.collection.IntObjectHashMap;
+import esa.commons.concurrent.ConcurrentIntObjectHashMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the primitive-keyed collections with the boxed ones of the JDK.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 10, time = 5)
+public class PrimitiveCollectionBenchmarks {
+
+    @Param({"16", "1024", "65536"})
+    private int size;
+
+    private int[] keys;
+
+    private IntObjectHashMap<String> primitiveMap;
+    private Map<Integer, String> boxedMap;
+    private ConcurrentIntObjectHashMap<String> primitiveConcurrentMap;
+    private Map<Integer, String> boxedConcurrentMap;
+    private IntHashSet primitiveSet;
+    private Set<Integer> boxedSet;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(7L);
+        keys = new int[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = random.nextInt();
+        }
+        primitiveMap = new IntObjectHashMap<>();
+        boxedMap = new HashMap<>();
+        primitiveConcurrentMap = new ConcurrentIntObjectHashMap<>();
+        boxedConcurrentMap = new ConcurrentHashMap<>();
+        primitiveSet = new IntHashSet();
+        boxedSet = new HashSet<>();
+        for (int key : keys) {
+            primitiveMap.put(key, "value");
+            boxedMap.put(key, "value");
+            primitiveConcurrentMap.put(key, "value");
+            boxedConcurrentMap.put(key, "value");
+            primitiveSet.add(key);
+            boxedSet.add(key);
+        }
+    }
+
+    @Benchmark
+    public IntObjectHashMap<String> primitiveMapPut() {
+        final IntObjectHashMap<String> m = new IntObjectHashMap<>();
+        for (int key : keys) {
+            m.put(key, "value");
+        }
+        return m;
+    }
+
+    @Benchmark
+    public Map<Integer, String> boxedMapPut() {
+        final Map<Integer, String> m = new HashMap<>();
+        for (int key : keys) {
+            m.put(key, "value");
+        }
+        return m;
+    }
+
+    @Benchmark
+    public void primitiveMapGet(Blackhole blackhole) {
+        for (int key : keys) {
+            blackhole.consume(primitiveMap.get(key));
+        }
+    }
+
+    @Benchmark
+    public void boxedMapGet(Blackhole blackhole) {
+        for (int key : keys) {
+            blackhole.consume(boxedMap.get(key));
+        }
+    }
+
+    @Benchmark
+    public void primitiveMapForEach(Blackhole blackhole) {
+        primitiveMap.forEach((v, k) -> {
+            blackhole.consume(k);
+            blackhole.consume(v);
+        });
+    }
+
+    @Benchmark
+    public void boxedMapForEach(Blackhole blackhole) {
+        for (Map.Entry<Integer, String> e : boxedMap.entrySet()) {
+            blackhole.consume(e.getKey().intValue());
+            blackhole.consume(e.getValue());
+        }
+    }
+
+    @Benchmark
+    public void primitiveConcurrentMapGet(Blackhole blackhole) {
+        for (int key : keys) {
+            blackhole.consume(primitiveConcurrentMap.get(key));
+        }
+    }
+
+    @Benchmark
+    public void boxedConcurrentMapGet(Blackhole blackhole) {
+        for (int key : keys) {
+            blackhole.consume(boxedConcurrentMap.get(key));
+        }
+    }
+
+    @Benchmark
+    public IntHashSet primitiveSetAdd() {
+        final IntHashSet s = new IntHashSet();
+        for (int key : keys) {
+            s.add(key);
+        }
+        return s;
+    }
+
+    @Benchmark
+    public Set<Integer> boxedSetAdd() {
+        final Set<Integer> s = new HashSet<>();
+        for (int key : keys) {
+            s.add(key);
+        }
+        return s;
+    }
+
+    @Benchmark
+    public void primitiveSetContains(Blackhole blackhole) {
+        for (int key : keys) {
+            blackhole.consume(primitiveSet.contains(key));
+        }
+    }
+
+    @Benchmark
+    public void boxedSetContains(Blackhole blackhole) {
+        for (int key : keys) {
+            blackhole.consume(boxedSet.contains(key));
+        }
+    }
+}
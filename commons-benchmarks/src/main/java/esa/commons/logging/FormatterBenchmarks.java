@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.logging;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link Formatter} which is placed in the same package because it is not public.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 10, time = 5)
+public class FormatterBenchmarks {
+
+    private static final String TEMPLATE = "Request {} of user {} completed with status {} in {} ms";
+    private final Object[] args = {"/foo/bar", "esa", 200, 15L};
+    private final int[] ints = {1, 2, 3, 4, 5, 6, 7, 8};
+    private final Object[] objects = {"a", "b", "c", "d"};
+    private String dynamic;
+
+    @Benchmark
+    public String formatVarargs() {
+        return Formatter.format(TEMPLATE, args);
+    }
+
+    @Benchmark
+    public String formatFixedArity() {
+        return Formatter.format(TEMPLATE, args[0], args[1], args[2], args[3]);
+    }
+
+    @Benchmark
+    public String formatPrimitive() {
+        return Formatter.format("Processed {} events", 1024L);
+    }
+
+    @Benchmark
+    public String formatDynamicTemplate() {
+        // a new format string each time which would never hit the template cache
+        dynamic = new String(TEMPLATE);
+        return Formatter.format(dynamic, args);
+    }
+
+    @Benchmark
+    public String formatPrimitiveArray() {
+        return Formatter.format("ints: {}", ints);
+    }
+
+    @Benchmark
+    public String formatObjectArray() {
+        return Formatter.format("objects: {}", objects);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.concurrencytest;
+
+import esa.commons.collection.AttributeKey;
+import esa.commons.collection.ConcurrentAttributeMap;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.I_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * ConcurrentAttributeMapRemoveTest
+ */
+@JCStressTest
+@Outcome(id = "1", expect = ACCEPTABLE, desc = "Set after the removal")
+@Outcome(id = "-1", expect = ACCEPTABLE, desc = "Set before the removal or to the attribute got before the removal")
+@Outcome(expect = FORBIDDEN)
+@State
+public class ConcurrentAttributeMapRemoveTest {
+
+    private static final AttributeKey<Integer> KEY = AttributeKey.valueOf("key");
+
+    private final ConcurrentAttributeMap attrs = new ConcurrentAttributeMap();
+
+    public ConcurrentAttributeMapRemoveTest() {
+        attrs.attr(KEY).set(0);
+    }
+
+    @Actor
+    public void actor1() {
+        attrs.attr(KEY).remove();
+    }
+
+    @Actor
+    public void actor2() {
+        attrs.attr(KEY).set(1);
+    }
+
+    @Arbiter
+    public void arbiter(I_Result r) {
+        if (attrs.hasAttr(KEY)) {
+            final Integer value = attrs.attr(KEY).get();
+            r.r1 = value == null ? 0 : value;
+        } else {
+            r.r1 = -1;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.concurrencytest;
+
+import esa.commons.collection.AttributeKey;
+import esa.commons.collection.ConcurrentAttributeMap;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.ZI_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * ConcurrentAttributeMapTest
+ */
+@JCStressTest
+@Outcome(id = "true, 2", expect = ACCEPTABLE, desc = "No attribute or update lost")
+@Outcome(expect = FORBIDDEN)
+@State
+public class ConcurrentAttributeMapTest {
+
+    private static final AttributeKey<Integer> KEY1 = AttributeKey.valueOf("key1");
+    private static final AttributeKey<Integer> KEY2 = AttributeKey.valueOf("key2");
+    private static final AttributeKey<Integer> SHARED = AttributeKey.valueOf("shared");
+
+    private final ConcurrentAttributeMap attrs = new ConcurrentAttributeMap();
+
+    @Actor
+    public void actor1() {
+        attrs.attr(KEY1).set(1);
+        attrs.attr(SHARED).accumulateAndGet(1, ConcurrentAttributeMapTest::sum);
+    }
+
+    @Actor
+    public void actor2() {
+        attrs.attr(KEY2).set(2);
+        attrs.attr(SHARED).accumulateAndGet(1, ConcurrentAttributeMapTest::sum);
+    }
+
+    @Arbiter
+    public void arbiter(ZI_Result r) {
+        r.r1 = attrs.size() == 3 && attrs.hasAttr(KEY1) && attrs.hasAttr(KEY2);
+        r.r2 = attrs.attr(SHARED).get();
+    }
+
+    private static Integer sum(Integer prev, Integer x) {
+        return prev == null ? x : prev + x;
+    }
+}
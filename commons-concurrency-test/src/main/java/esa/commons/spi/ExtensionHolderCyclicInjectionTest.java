@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.spi;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.ZZ_Result;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * Two extensions inject each other and are got by two threads at the same time, which mirrors how {@link SpiLoader}
+ * resolves the circular references by the early objects of the creating thread and shares a creation lock between the
+ * extensions of a cycle. The creations must neither deadlock nor create any extension twice.
+ */
+@JCStressTest
+@Outcome(id = "true, true", expect = ACCEPTABLE, desc = "Both created once and injected each other")
+@Outcome(expect = FORBIDDEN)
+@State
+public class ExtensionHolderCyclicInjectionTest {
+
+    private final ThreadLocal<Map<String, Extension>> earlyObjects = ThreadLocal.withInitial(HashMap::new);
+    private final ExtensionHolder<Extension> x = new ExtensionHolder<>(this, () -> create("x", "y"));
+    private final ExtensionHolder<Extension> y = new ExtensionHolder<>(this, () -> create("y", "x"));
+
+    private Extension x1;
+    private Extension y2;
+
+    @Actor
+    public void getX() {
+        x1 = x.get();
+    }
+
+    @Actor
+    public void getY() {
+        y2 = y.get();
+    }
+
+    @Arbiter
+    public void arbiter(ZZ_Result r) {
+        r.r1 = x1 == x.get() && y2 == y.get();
+        r.r2 = x1.injected == y2 && y2.injected == x1;
+    }
+
+    private Extension create(String name, String dependency) {
+        final Map<String, Extension> early = earlyObjects.get();
+        final Extension ext = new Extension();
+        early.put(name, ext);
+        try {
+            final Extension injected = early.get(dependency);
+            ext.injected = injected != null ? injected : ("x".equals(dependency) ? x : y).get();
+            return ext;
+        } finally {
+            early.remove(name);
+        }
+    }
+
+    private static final class Extension {
+        private Extension injected;
+    }
+}
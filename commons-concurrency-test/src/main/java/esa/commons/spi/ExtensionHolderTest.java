@@ -0,0 +1,64 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.spi;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.ZI_Result;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * ExtensionHolderTest, which is placed in the package of {@link ExtensionHolder} to access it.
+ */
+@JCStressTest
+@Outcome(id = "true, 1", expect = ACCEPTABLE, desc = "Created once and shared")
+@Outcome(expect = FORBIDDEN)
+@State
+public class ExtensionHolderTest {
+
+    private final AtomicInteger created = new AtomicInteger();
+    private final ExtensionHolder<Object> holder = new ExtensionHolder<>(this, () -> {
+        created.incrementAndGet();
+        return new Object();
+    });
+
+    private Object o1;
+    private Object o2;
+
+    @Actor
+    public void get1() {
+        o1 = holder.get();
+    }
+
+    @Actor
+    public void get2() {
+        o2 = holder.get();
+    }
+
+    @Arbiter
+    public void arbiter(ZI_Result r) {
+        r.r1 = o1 != null && o1 == o2;
+        r.r2 = created.get();
+    }
+
+}
@@ -0,0 +1,811 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.cache;
+
+import esa.commons.Checks;
+import esa.commons.concurrent.Buffer;
+import esa.commons.concurrent.MpscArrayBuffer;
+import esa.commons.concurrent.MpscArrayQueue;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * Implementation of {@link Cache} which keeps the entries in a {@link ConcurrentHashMap} and applies the policies of
+ * eviction and expiration in an amortized way.
+ * <p>
+ * Reading an entry does not touch the policy directly, instead, the entry is recorded into a striped lossy {@link
+ * MpscArrayBuffer}. Writing an entry updates the map at first and then records the entry into a bounded {@link
+ * MpscArrayQueue}. Both of the buffers are replayed by a maintenance task submitted to the {@link Executor} under the
+ * eviction lock, so that the readers and writers never contend on the policy.
+ * <p>
+ * The eviction policy is the W-TinyLFU, the entries are placed into an admission window of LRU at first, and the
+ * ones evicted from the window are candidates to enter the main space which is a segmented LRU of probation and
+ * protected. The candidate is admitted only if its frequency estimated by the {@link FrequencySketch} is greater than
+ * the victim of the probation.
+ */
+final class BoundedCache<K, V> implements Cache<K, V> {
+
+    static final double WINDOW_PERCENT = 0.01d;
+    static final double PROTECTED_PERCENT = 0.8d;
+    static final int READ_BUFFER_SIZE = 32;
+    static final int WRITE_BUFFER_SIZE = 1024;
+    private static final int WRITE_BUFFER_RETRIES = 100;
+    /**
+     * The candidate whose frequency is not lower than this threshold may be admitted randomly even if it is not more
+     * popular than the victim, so that an attacker could not keep a victim alive by hash collisions.
+     */
+    private static final int ADMIT_HASHDOS_THRESHOLD = 6;
+
+    private static final int IDLE = 0;
+    private static final int REQUIRED = 1;
+    private static final int PROCESSING_TO_IDLE = 2;
+    private static final int PROCESSING_TO_REQUIRED = 3;
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<BoundedCache> DRAIN_STATUS_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(BoundedCache.class, "drainStatus");
+
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final long maximum;
+    private final boolean evicts;
+    private final ToIntBiFunction<? super K, ? super V> weigher;
+    private final long expireAfterWriteNanos;
+    private final long expireAfterAccessNanos;
+    private final boolean expiresAfterWrite;
+    private final boolean expiresAfterAccess;
+    private final Executor executor;
+    private final LongSupplier ticker;
+    private final boolean recordStats;
+
+    private final Buffer<Node<K, V>> readBuffer;
+    private final MpscArrayQueue<Node<K, V>> writeBuffer = new MpscArrayQueue<>(WRITE_BUFFER_SIZE);
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final Runnable drainTask = this::cleanUp;
+    private final Consumer<Node<K, V>> onAccess = this::onAccess;
+    private final Consumer<Node<K, V>> onWrite = this::onWrite;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder loadSuccessCount = new LongAdder();
+    private final LongAdder loadFailureCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder evictionWeight = new LongAdder();
+
+    // guarded by evictionLock
+    private final FrequencySketch sketch;
+    private final NodeDeque<K, V> window = new NodeDeque<>(false);
+    private final NodeDeque<K, V> probation = new NodeDeque<>(false);
+    private final NodeDeque<K, V> protectedDeque = new NodeDeque<>(false);
+    private final NodeDeque<K, V> writeOrder = new NodeDeque<>(true);
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private long weightedSize;
+    private long windowWeightedSize;
+    private long protectedWeightedSize;
+
+    private volatile int drainStatus = IDLE;
+
+    BoundedCache(long maximum,
+                 ToIntBiFunction<? super K, ? super V> weigher,
+                 long expireAfterWriteNanos,
+                 long expireAfterAccessNanos,
+                 Executor executor,
+                 LongSupplier ticker,
+                 boolean recordStats) {
+        this.evicts = maximum >= 0L;
+        this.maximum = evicts ? maximum : Long.MAX_VALUE;
+        this.weigher = weigher;
+        this.expiresAfterWrite = expireAfterWriteNanos >= 0L;
+        this.expiresAfterAccess = expireAfterAccessNanos >= 0L;
+        this.expireAfterWriteNanos = expireAfterWriteNanos;
+        this.expireAfterAccessNanos = expireAfterAccessNanos;
+        this.executor = executor;
+        this.ticker = ticker;
+        this.recordStats = recordStats;
+        // reads are recorded only if they would reorder the entries
+        this.readBuffer = evicts || expiresAfterAccess ? new MpscArrayBuffer<>(READ_BUFFER_SIZE) : null;
+        if (evicts) {
+            // the sketch of the weighted cache grows along with the number of the entries
+            this.sketch = new FrequencySketch(weigher == null ? this.maximum : 0L);
+            this.windowMaximum = Math.min(this.maximum, Math.max(1L, (long) (this.maximum * WINDOW_PERCENT)));
+            this.protectedMaximum = (long) ((this.maximum - windowMaximum) * PROTECTED_PERCENT);
+        } else {
+            this.sketch = null;
+            this.windowMaximum = Long.MAX_VALUE;
+            this.protectedMaximum = 0L;
+        }
+    }
+
+    @Override
+    public V getIfPresent(K key) {
+        Checks.checkNotNull(key, "key");
+        final Node<K, V> node = data.get(key);
+        if (node == null) {
+            recordMiss();
+            return null;
+        }
+        final long now = now();
+        final V value = node.value;
+        if (hasExpired(node, now)) {
+            recordMiss();
+            scheduleDrain();
+            return null;
+        }
+        recordHit();
+        afterRead(node, now);
+        return value;
+    }
+
+    @Override
+    public V get(K key, Function<? super K, ? extends V> mappingFunction) {
+        Checks.checkNotNull(key, "key");
+        Checks.checkNotNull(mappingFunction, "mappingFunction");
+        final long now = now();
+        final Node<K, V> present = data.get(key);
+        if (present != null) {
+            final V value = present.value;
+            if (!hasExpired(present, now)) {
+                recordHit();
+                afterRead(present, now);
+                return value;
+            }
+        }
+
+        final Loader loader = new Loader(mappingFunction, now);
+        final Node<K, V> node = data.compute(key, loader);
+        if (loader.hit) {
+            // loaded by another thread
+            afterRead(node, now);
+            return loader.value;
+        }
+        if (loader.removed != null) {
+            afterWrite(loader.removed);
+        }
+        if (node != null) {
+            afterWrite(node);
+        }
+        return loader.value;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        Checks.checkNotNull(key, "key");
+        Checks.checkNotNull(value, "value");
+        final int weight = weigh(key, value);
+        final long now = now();
+        final Node<K, V> node = data.compute(key, (k, prior) -> {
+            if (prior == null) {
+                return new Node<>(k, value, weight, now);
+            }
+            prior.update(value, weight, now);
+            return prior;
+        });
+        afterWrite(node);
+    }
+
+    @Override
+    public V remove(K key) {
+        Checks.checkNotNull(key, "key");
+        final Node<K, V> node = data.remove(key);
+        if (node == null) {
+            return null;
+        }
+        node.retired = true;
+        final V value = node.value;
+        final boolean expired = hasExpired(node, now());
+        afterWrite(node);
+        return expired ? null : value;
+    }
+
+    @Override
+    public void clear() {
+        evictionLock.lock();
+        try {
+            maintenance();
+            for (Node<K, V> node : data.values()) {
+                if (data.remove(node.key, node)) {
+                    node.retired = true;
+                    unlink(node);
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public long estimatedSize() {
+        return data.mappingCount();
+    }
+
+    @Override
+    public CacheStats stats() {
+        return new CacheStats(hitCount.sum(),
+                missCount.sum(),
+                loadSuccessCount.sum(),
+                loadFailureCount.sum(),
+                evictionCount.sum(),
+                evictionWeight.sum());
+    }
+
+    @Override
+    public void cleanUp() {
+        evictionLock.lock();
+        try {
+            maintenance();
+        } finally {
+            evictionLock.unlock();
+        }
+        if (drainStatus == REQUIRED) {
+            // writes arrived during the maintenance
+            scheduleDrain();
+        }
+    }
+
+    private void afterRead(Node<K, V> node, long now) {
+        if (expiresAfterAccess) {
+            node.accessTime = now;
+        }
+        if (readBuffer != null) {
+            // the read would be dropped if the buffer is full or contended, which is tolerable for the policy
+            final boolean delayable = readBuffer.offer(node);
+            final int status = drainStatus;
+            if (status == REQUIRED || (status == IDLE && !delayable)) {
+                scheduleDrain();
+            }
+        }
+    }
+
+    private void afterWrite(Node<K, V> node) {
+        for (int i = 0; i < WRITE_BUFFER_RETRIES; i++) {
+            if (writeBuffer.offer(node)) {
+                scheduleAfterWrite();
+                return;
+            }
+            scheduleDrain();
+        }
+        // the maintenance falls behind, apply the write by the current thread as the back pressure
+        evictionLock.lock();
+        try {
+            maintenance();
+            onWrite(node);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void scheduleAfterWrite() {
+        for (; ; ) {
+            final int status = drainStatus;
+            if (status == IDLE) {
+                DRAIN_STATUS_UPDATER.compareAndSet(this, IDLE, REQUIRED);
+                scheduleDrain();
+                return;
+            } else if (status == REQUIRED) {
+                scheduleDrain();
+                return;
+            } else if (status == PROCESSING_TO_REQUIRED
+                    || DRAIN_STATUS_UPDATER.compareAndSet(this, PROCESSING_TO_IDLE, PROCESSING_TO_REQUIRED)) {
+                // the running maintenance would be repeated
+                return;
+            }
+        }
+    }
+
+    private void scheduleDrain() {
+        if (drainStatus >= PROCESSING_TO_IDLE || !evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            if (drainStatus >= PROCESSING_TO_IDLE) {
+                return;
+            }
+            drainStatus = PROCESSING_TO_IDLE;
+            executor.execute(drainTask);
+        } catch (Throwable t) {
+            // rejected by the executor
+            maintenance();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Replays the buffered reads and writes, and then expires and evicts the entries, which must be called with the
+     * eviction lock held.
+     */
+    private void maintenance() {
+        drainStatus = PROCESSING_TO_IDLE;
+        try {
+            if (readBuffer != null) {
+                readBuffer.drain(onAccess);
+            }
+            writeBuffer.drain(onWrite);
+            expireEntries();
+            evictEntries();
+        } finally {
+            if (drainStatus != PROCESSING_TO_IDLE
+                    || !DRAIN_STATUS_UPDATER.compareAndSet(this, PROCESSING_TO_IDLE, IDLE)) {
+                drainStatus = REQUIRED;
+            }
+        }
+    }
+
+    private void onAccess(Node<K, V> node) {
+        if (evicts) {
+            sketch.increment(node.key);
+        }
+        switch (node.queueType) {
+            case Node.WINDOW:
+                window.moveToBack(node);
+                break;
+            case Node.PROBATION:
+                // promote the entry which is accessed again
+                probation.remove(node);
+                protectedDeque.addLast(node);
+                node.queueType = Node.PROTECTED;
+                protectedWeightedSize += node.policyWeight;
+                break;
+            case Node.PROTECTED:
+                protectedDeque.moveToBack(node);
+                break;
+            default:
+                // removed
+                break;
+        }
+    }
+
+    private void onWrite(Node<K, V> node) {
+        if (node.retired) {
+            unlink(node);
+            return;
+        }
+        final int weight = node.weight;
+        if (node.queueType == Node.NONE) {
+            node.policyWeight = weight;
+            node.queueType = Node.WINDOW;
+            weightedSize += weight;
+            windowWeightedSize += weight;
+            window.addLast(node);
+            if (expiresAfterWrite) {
+                writeOrder.addLast(node);
+            }
+            if (evicts) {
+                if (weigher != null) {
+                    sketch.ensureCapacity(data.mappingCount());
+                }
+                sketch.increment(node.key);
+            }
+        } else {
+            final int delta = weight - node.policyWeight;
+            node.policyWeight = weight;
+            weightedSize += delta;
+            if (node.queueType == Node.WINDOW) {
+                windowWeightedSize += delta;
+            } else if (node.queueType == Node.PROTECTED) {
+                protectedWeightedSize += delta;
+            }
+            if (expiresAfterWrite) {
+                writeOrder.moveToBack(node);
+            }
+            onAccess(node);
+        }
+    }
+
+    private void unlink(Node<K, V> node) {
+        switch (node.queueType) {
+            case Node.WINDOW:
+                window.remove(node);
+                windowWeightedSize -= node.policyWeight;
+                break;
+            case Node.PROBATION:
+                probation.remove(node);
+                break;
+            case Node.PROTECTED:
+                protectedDeque.remove(node);
+                protectedWeightedSize -= node.policyWeight;
+                break;
+            default:
+                // not linked yet or already unlinked
+                return;
+        }
+        if (expiresAfterWrite) {
+            writeOrder.remove(node);
+        }
+        weightedSize -= node.policyWeight;
+        node.queueType = Node.NONE;
+    }
+
+    private void expireEntries() {
+        if (!expiresAfterAccess && !expiresAfterWrite) {
+            return;
+        }
+        final long now = now();
+        if (expiresAfterAccess) {
+            expireAccessOrder(window, now);
+            expireAccessOrder(probation, now);
+            expireAccessOrder(protectedDeque, now);
+        }
+        if (expiresAfterWrite) {
+            expireDeque(writeOrder, now);
+        }
+    }
+
+    private void expireAccessOrder(NodeDeque<K, V> deque, long now) {
+        // the access order is approximate since the reads might be dropped, so just expire the heads
+        Node<K, V> node;
+        while ((node = deque.peekFirst()) != null && now - node.accessTime >= expireAfterAccessNanos) {
+            if (!evict(node, true, now)) {
+                return;
+            }
+        }
+    }
+
+    private void expireDeque(NodeDeque<K, V> deque, long now) {
+        Node<K, V> node;
+        while ((node = deque.peekFirst()) != null && now - node.writeTime >= expireAfterWriteNanos) {
+            if (!evict(node, true, now)) {
+                return;
+            }
+        }
+    }
+
+    private void evictEntries() {
+        if (!evicts) {
+            return;
+        }
+        demoteFromProtected();
+        evictFromMain(evictFromWindow());
+    }
+
+    private void demoteFromProtected() {
+        Node<K, V> node;
+        while (protectedWeightedSize > protectedMaximum && (node = protectedDeque.peekFirst()) != null) {
+            protectedDeque.remove(node);
+            probation.addLast(node);
+            node.queueType = Node.PROBATION;
+            protectedWeightedSize -= node.policyWeight;
+        }
+    }
+
+    /**
+     * Moves the overflowed entries from the window to the tail of the probation as the candidates.
+     *
+     * @return the first candidate or {@code null} if nothing moved
+     */
+    private Node<K, V> evictFromWindow() {
+        Node<K, V> first = null;
+        Node<K, V> node = window.peekFirst();
+        while (windowWeightedSize > windowMaximum && node != null) {
+            final Node<K, V> next = node.nextInAccessOrder;
+            if (node.policyWeight != 0) {
+                window.remove(node);
+                probation.addLast(node);
+                node.queueType = Node.PROBATION;
+                windowWeightedSize -= node.policyWeight;
+                if (first == null) {
+                    first = node;
+                }
+            }
+            node = next;
+        }
+        return first;
+    }
+
+    /**
+     * Evicts the entries from the main space until the limit is satisfied, each candidate competes with the victim
+     * at the head of the probation and the less popular one is evicted.
+     */
+    private void evictFromMain(Node<K, V> candidate) {
+        while (weightedSize > maximum) {
+            final Node<K, V> victim = probation.peekFirst();
+            if (victim == null || candidate == null || victim == candidate) {
+                // nothing to compete, evict in the LRU order
+                Node<K, V> node = victim;
+                if (node == null && (node = protectedDeque.peekFirst()) == null
+                        && (node = window.peekFirst()) == null) {
+                    return;
+                }
+                if (node == candidate) {
+                    candidate = candidate.nextInAccessOrder;
+                }
+                evict(node, false, 0L);
+                continue;
+            }
+            final Node<K, V> next = candidate.nextInAccessOrder;
+            if (candidate.policyWeight > maximum || !admit(candidate.key, victim.key)) {
+                evict(candidate, false, 0L);
+            } else {
+                evict(victim, false, 0L);
+            }
+            candidate = next;
+        }
+    }
+
+    private boolean admit(K candidateKey, K victimKey) {
+        final int victimFrequency = sketch.frequency(victimKey);
+        final int candidateFrequency = sketch.frequency(candidateKey);
+        if (candidateFrequency > victimFrequency) {
+            return true;
+        }
+        if (candidateFrequency >= ADMIT_HASHDOS_THRESHOLD) {
+            return (ThreadLocalRandom.current().nextInt() & 127) == 0;
+        }
+        return false;
+    }
+
+    /**
+     * Removes the given {@code node} from both the map and the policy.
+     *
+     * @return {@code false} if it has not been evicted because it is no longer expired
+     */
+    private boolean evict(Node<K, V> node, boolean expired, long now) {
+        node.evicted = false;
+        data.compute(node.key, (k, n) -> {
+            if (n != node) {
+                // removed already but the removal has not been replayed
+                node.retired = true;
+                return n;
+            }
+            if (expired && !hasExpired(n, now)) {
+                return n;
+            }
+            n.retired = true;
+            n.evicted = true;
+            return null;
+        });
+        if (!node.retired) {
+            return false;
+        }
+        final int weight = node.policyWeight;
+        unlink(node);
+        if (node.evicted && recordStats) {
+            evictionCount.increment();
+            evictionWeight.add(weight);
+        }
+        return true;
+    }
+
+    private boolean hasExpired(Node<K, V> node, long now) {
+        return (expiresAfterAccess && now - node.accessTime >= expireAfterAccessNanos)
+                || (expiresAfterWrite && now - node.writeTime >= expireAfterWriteNanos);
+    }
+
+    private long now() {
+        return expiresAfterAccess || expiresAfterWrite ? ticker.getAsLong() : 0L;
+    }
+
+    private int weigh(K key, V value) {
+        if (weigher == null) {
+            return 1;
+        }
+        final int weight = weigher.applyAsInt(key, value);
+        Checks.checkArg(weight >= 0, "weight must be non-negative");
+        return weight;
+    }
+
+    private void recordHit() {
+        if (recordStats) {
+            hitCount.increment();
+        }
+    }
+
+    private void recordMiss() {
+        if (recordStats) {
+            missCount.increment();
+        }
+    }
+
+    private void recordLoad(boolean success) {
+        if (recordStats) {
+            (success ? loadSuccessCount : loadFailureCount).increment();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BoundedCache{" +
+                "estimatedSize=" + estimatedSize() +
+                ", maximum=" + (evicts ? maximum : "unbounded") +
+                '}';
+    }
+
+    /**
+     * Function to load the value inside of {@link ConcurrentHashMap#compute(Object, BiFunction)}, which also records
+     * what happened.
+     */
+    private final class Loader implements BiFunction<K, Node<K, V>, Node<K, V>> {
+
+        private final Function<? super K, ? extends V> mappingFunction;
+        private final long now;
+        private boolean hit;
+        private V value;
+        private Node<K, V> removed;
+
+        private Loader(Function<? super K, ? extends V> mappingFunction, long now) {
+            this.mappingFunction = mappingFunction;
+            this.now = now;
+        }
+
+        @Override
+        public Node<K, V> apply(K key, Node<K, V> prior) {
+            if (prior != null) {
+                final V v = prior.value;
+                if (!hasExpired(prior, now)) {
+                    recordHit();
+                    hit = true;
+                    value = v;
+                    return prior;
+                }
+            }
+            recordMiss();
+            final V loaded;
+            try {
+                loaded = mappingFunction.apply(key);
+            } catch (RuntimeException | Error e) {
+                recordLoad(false);
+                throw e;
+            }
+            value = loaded;
+            if (loaded == null) {
+                recordLoad(false);
+                if (prior != null) {
+                    prior.retired = true;
+                    removed = prior;
+                }
+                return null;
+            }
+            recordLoad(true);
+            final int weight = weigh(key, loaded);
+            if (prior == null) {
+                return new Node<>(key, loaded, weight, now);
+            }
+            prior.update(loaded, weight, now);
+            return prior;
+        }
+    }
+
+    static final class Node<K, V> {
+
+        static final int NONE = 0;
+        static final int WINDOW = 1;
+        static final int PROBATION = 2;
+        static final int PROTECTED = 3;
+
+        final K key;
+        volatile V value;
+        volatile int weight;
+        volatile long accessTime;
+        volatile long writeTime;
+        /**
+         * Whether this node has been removed from the map, it would never be linked again once retired.
+         */
+        volatile boolean retired;
+
+        // guarded by evictionLock
+        boolean evicted;
+        int policyWeight;
+        int queueType = NONE;
+        Node<K, V> prevInAccessOrder;
+        Node<K, V> nextInAccessOrder;
+        Node<K, V> prevInWriteOrder;
+        Node<K, V> nextInWriteOrder;
+
+        Node(K key, V value, int weight, long now) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.accessTime = now;
+            this.writeTime = now;
+        }
+
+        void update(V value, int weight, long now) {
+            this.value = value;
+            this.weight = weight;
+            this.accessTime = now;
+            this.writeTime = now;
+        }
+    }
+
+    /**
+     * Doubly-linked deque which links the nodes directly by either the access order or the write order links of the
+     * nodes, a node must be contained when it is removed or moved.
+     */
+    static final class NodeDeque<K, V> {
+
+        private final boolean writeOrder;
+        private Node<K, V> first;
+        private Node<K, V> last;
+
+        NodeDeque(boolean writeOrder) {
+            this.writeOrder = writeOrder;
+        }
+
+        Node<K, V> peekFirst() {
+            return first;
+        }
+
+        void addLast(Node<K, V> node) {
+            final Node<K, V> l = last;
+            setPrev(node, l);
+            setNext(node, null);
+            last = node;
+            if (l == null) {
+                first = node;
+            } else {
+                setNext(l, node);
+            }
+        }
+
+        void remove(Node<K, V> node) {
+            final Node<K, V> prev = getPrev(node);
+            final Node<K, V> next = getNext(node);
+            if (prev == null) {
+                first = next;
+            } else {
+                setNext(prev, next);
+            }
+            if (next == null) {
+                last = prev;
+            } else {
+                setPrev(next, prev);
+            }
+            setPrev(node, null);
+            setNext(node, null);
+        }
+
+        void moveToBack(Node<K, V> node) {
+            if (node != last) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        private Node<K, V> getPrev(Node<K, V> node) {
+            return writeOrder ? node.prevInWriteOrder : node.prevInAccessOrder;
+        }
+
+        private Node<K, V> getNext(Node<K, V> node) {
+            return writeOrder ? node.nextInWriteOrder : node.nextInAccessOrder;
+        }
+
+        private void setPrev(Node<K, V> node, Node<K, V> prev) {
+            if (writeOrder) {
+                node.prevInWriteOrder = prev;
+            } else {
+                node.prevInAccessOrder = prev;
+            }
+        }
+
+        private void setNext(Node<K, V> node, Node<K, V> next) {
+            if (writeOrder) {
+                node.nextInWriteOrder = next;
+            } else {
+                node.nextInAccessOrder = next;
+            }
+        }
+    }
+}
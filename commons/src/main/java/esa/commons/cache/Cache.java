@@ -0,0 +1,97 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.cache;
+
+import java.util.function.Function;
+
+/**
+ * Semi-persistent mapping from keys to values, which is thread-safe and bounded by the policies configured by {@link
+ * Caches#builder()}. Entries are either stored by {@link #put(Object, Object)} or loaded by {@link #get(Object,
+ * Function)}, and they could be evicted automatically at any time.
+ * <p>
+ * Neither {@code null} keys nor {@code null} values are allowed.
+ *
+ * @param <K> type of key
+ * @param <V> type of value
+ */
+public interface Cache<K, V> {
+
+    /**
+     * Gets the value of the given {@code key}.
+     *
+     * @param key key
+     *
+     * @return value, or {@code null} if absent or expired.
+     */
+    V getIfPresent(K key);
+
+    /**
+     * Gets the value of the given {@code key}, or loads it by the given {@code mappingFunction} if absent or expired.
+     * The whole loading is performed atomically, which means the {@code mappingFunction} is called at most once per
+     * key, and other threads trying to load the same key are blocked until the loading is completed, so it should be
+     * short and must not attempt to update any other mappings of this cache.
+     *
+     * @param key             key
+     * @param mappingFunction function to load the value
+     *
+     * @return current or loaded value, or {@code null} if the loaded value is {@code null}.
+     */
+    V get(K key, Function<? super K, ? extends V> mappingFunction);
+
+    /**
+     * Associates the given {@code value} with the given {@code key}, the previous one would be replaced if present.
+     *
+     * @param key   key
+     * @param value value
+     */
+    void put(K key, V value);
+
+    /**
+     * Removes the value of the given {@code key}.
+     *
+     * @param key key
+     *
+     * @return removed value, or {@code null} if absent or expired.
+     */
+    V remove(K key);
+
+    /**
+     * Removes all of the entries.
+     */
+    void clear();
+
+    /**
+     * Returns the approximate number of the entries, which may include the entries which are expired or to be evicted
+     * but have not been cleaned up.
+     *
+     * @return size
+     */
+    long estimatedSize();
+
+    /**
+     * Returns a snapshot of the statistics of this cache, all of the counters would be always {@code 0} if it is not
+     * enabled by {@link Caches.Builder#recordStats()}.
+     *
+     * @return statistics
+     */
+    CacheStats stats();
+
+    /**
+     * Performs the pending maintenance, such as replaying the recorded reads and writes, expiring and evicting, which
+     * is usually performed asynchronously in an amortized way.
+     */
+    void cleanUp();
+}
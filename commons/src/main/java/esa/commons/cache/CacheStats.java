@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.cache;
+
+/**
+ * Immutable snapshot of the statistics of a {@link Cache}.
+ */
+public final class CacheStats {
+
+    private final long hitCount;
+    private final long missCount;
+    private final long loadSuccessCount;
+    private final long loadFailureCount;
+    private final long evictionCount;
+    private final long evictionWeight;
+
+    public CacheStats(long hitCount,
+                      long missCount,
+                      long loadSuccessCount,
+                      long loadFailureCount,
+                      long evictionCount,
+                      long evictionWeight) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.loadSuccessCount = loadSuccessCount;
+        this.loadFailureCount = loadFailureCount;
+        this.evictionCount = evictionCount;
+        this.evictionWeight = evictionWeight;
+    }
+
+    /**
+     * Number of the lookups which returned a present value.
+     */
+    public long hitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Number of the lookups which found nothing and had to load a value if possible.
+     */
+    public long missCount() {
+        return missCount;
+    }
+
+    /**
+     * Number of the lookups, which is the sum of {@link #hitCount()} and {@link #missCount()}.
+     */
+    public long requestCount() {
+        return hitCount + missCount;
+    }
+
+    /**
+     * Ratio of {@link #hitCount()} to {@link #requestCount()}, or {@code 1.0} if there's no request.
+     */
+    public double hitRate() {
+        final long requestCount = requestCount();
+        return requestCount == 0L ? 1.0d : (double) hitCount / requestCount;
+    }
+
+    /**
+     * Ratio of {@link #missCount()} to {@link #requestCount()}, or {@code 0.0} if there's no request.
+     */
+    public double missRate() {
+        final long requestCount = requestCount();
+        return requestCount == 0L ? 0.0d : (double) missCount / requestCount;
+    }
+
+    /**
+     * Number of the values loaded successfully.
+     */
+    public long loadSuccessCount() {
+        return loadSuccessCount;
+    }
+
+    /**
+     * Number of the loadings which threw an exception or returned {@code null}.
+     */
+    public long loadFailureCount() {
+        return loadFailureCount;
+    }
+
+    /**
+     * Number of the entries evicted because of either the size (weight) or the expiration.
+     */
+    public long evictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Sum of the weights of the evicted entries.
+     */
+    public long evictionWeight() {
+        return evictionWeight;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{" +
+                "hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", loadSuccessCount=" + loadSuccessCount +
+                ", loadFailureCount=" + loadFailureCount +
+                ", evictionCount=" + evictionCount +
+                ", evictionWeight=" + evictionWeight +
+                '}';
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.cache;
+
+import esa.commons.Checks;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * Unity class for building a {@link Cache}.
+ * <pre>{@code
+ * Cache<String, MimeType> cache = Caches.builder()
+ *         .maximumSize(1024)
+ *         .expireAfterAccess(10, TimeUnit.MINUTES)
+ *         .recordStats()
+ *         .build();
+ * MimeType mimeType = cache.get(value, MimeType::parseMimeType);
+ * }</pre>
+ */
+public final class Caches {
+
+    public static Builder<Object, Object> builder() {
+        return new Builder<>();
+    }
+
+    private Caches() {
+    }
+
+    public static final class Builder<K, V> {
+
+        private static final long UNSET = -1L;
+
+        private long maximumSize = UNSET;
+        private long maximumWeight = UNSET;
+        private ToIntBiFunction<? super K, ? super V> weigher;
+        private long expireAfterWriteNanos = UNSET;
+        private long expireAfterAccessNanos = UNSET;
+        private Executor executor;
+        private LongSupplier ticker;
+        private boolean recordStats;
+
+        private Builder() {
+        }
+
+        /**
+         * Limits the number of the entries, the entries would be evicted by the W-TinyLFU policy once the limit is
+         * exceeded, which admits a new entry only if it is estimated to be more popular than the one to evict. The
+         * cache may exceed the limit temporarily before the eviction is performed.
+         *
+         * @param maximumSize maximum number of the entries
+         *
+         * @return this builder
+         */
+        public Builder<K, V> maximumSize(long maximumSize) {
+            Checks.checkArg(maximumSize >= 0L, "maximumSize must be non-negative");
+            Checks.checkState(this.maximumWeight == UNSET, "maximumWeight was already set");
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * Limits the sum of the weights of the entries, which must be used along with {@link
+         * #weigher(ToIntBiFunction)}, see {@link #maximumSize(long)}.
+         *
+         * @param maximumWeight maximum weight of the entries
+         *
+         * @return this builder
+         */
+        public Builder<K, V> maximumWeight(long maximumWeight) {
+            Checks.checkArg(maximumWeight >= 0L, "maximumWeight must be non-negative");
+            Checks.checkState(this.maximumSize == UNSET, "maximumSize was already set");
+            this.maximumWeight = maximumWeight;
+            return this;
+        }
+
+        /**
+         * Sets the function to compute the non-negative weight of each entry once it is written.
+         *
+         * @param weigher weigher
+         *
+         * @return this builder
+         */
+        @SuppressWarnings("unchecked")
+        public <K1 extends K, V1 extends V> Builder<K1, V1> weigher(ToIntBiFunction<? super K1, ? super V1> weigher) {
+            Checks.checkNotNull(weigher, "weigher");
+            final Builder<K1, V1> self = (Builder<K1, V1>) this;
+            self.weigher = weigher;
+            return self;
+        }
+
+        /**
+         * Expires the entries after the given {@code duration} since they are written.
+         *
+         * @param duration duration
+         * @param unit     unit of duration
+         *
+         * @return this builder
+         */
+        public Builder<K, V> expireAfterWrite(long duration, TimeUnit unit) {
+            Checks.checkArg(duration >= 0L, "duration must be non-negative");
+            Checks.checkNotNull(unit, "unit");
+            this.expireAfterWriteNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * Expires the entries after the given {@code duration} since they are written or read.
+         *
+         * @param duration duration
+         * @param unit     unit of duration
+         *
+         * @return this builder
+         */
+        public Builder<K, V> expireAfterAccess(long duration, TimeUnit unit) {
+            Checks.checkArg(duration >= 0L, "duration must be non-negative");
+            Checks.checkNotNull(unit, "unit");
+            this.expireAfterAccessNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * Sets the executor to perform the maintenance, which is {@link ForkJoinPool#commonPool()} by default.
+         *
+         * @param executor executor
+         *
+         * @return this builder
+         */
+        public Builder<K, V> executor(Executor executor) {
+            this.executor = Checks.checkNotNull(executor, "executor");
+            return this;
+        }
+
+        /**
+         * Sets the time source in nanoseconds for the expiration, which is {@link System#nanoTime()} by default.
+         *
+         * @param ticker time source
+         *
+         * @return this builder
+         */
+        public Builder<K, V> ticker(LongSupplier ticker) {
+            this.ticker = Checks.checkNotNull(ticker, "ticker");
+            return this;
+        }
+
+        /**
+         * Enables recording the statistics which could be obtained by {@link Cache#stats()}.
+         *
+         * @return this builder
+         */
+        public Builder<K, V> recordStats() {
+            this.recordStats = true;
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        public <K1 extends K, V1 extends V> Cache<K1, V1> build() {
+            Checks.checkState(weigher == null || maximumWeight != UNSET, "weigher requires maximumWeight");
+            Checks.checkState(maximumWeight == UNSET || weigher != null, "maximumWeight requires weigher");
+            final long maximum = maximumSize != UNSET ? maximumSize : maximumWeight;
+            return new BoundedCache<>(maximum,
+                    (ToIntBiFunction<? super K1, ? super V1>) weigher,
+                    expireAfterWriteNanos,
+                    expireAfterAccessNanos,
+                    executor == null ? ForkJoinPool.commonPool() : executor,
+                    ticker == null ? System::nanoTime : ticker,
+                    recordStats);
+        }
+    }
+}
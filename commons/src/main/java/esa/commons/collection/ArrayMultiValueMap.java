@@ -0,0 +1,535 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.collection;
+
+import esa.commons.Checks;
+import esa.commons.MathUtils;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Implementation of {@link MultiValueMap} which keeps the keys and values in parallel flat arrays in insertion order,
+ * aimed at the small maps(such as headers or parameters of a request) which usually contain a few keys with a single
+ * value.
+ * <p>
+ * A single value of a key is stored directly in the array without any wrapping {@link List}, and the list is only
+ * allocated when a key has more than one value. Keys are located by scanning the arrays linearly if there're no more
+ * than {@value #LINEAR_SCAN_THRESHOLD} keys, otherwise by an open-addressing hash index built over the arrays.
+ * <p>
+ * Note that the {@link List} returned by {@link #get(Object)} and the entries is a view of the values of the key,
+ * which reflects and writes through this map, and {@link #put(Object, List)} copies the values of the given list.
+ * This is not thread-safe.
+ */
+public class ArrayMultiValueMap<K, V> extends AbstractMap<K, List<V>> implements MultiValueMap<K, V> {
+
+    static final int LINEAR_SCAN_THRESHOLD = 8;
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private Object[] keys;
+    private int[] hashes;
+    /**
+     * Value of the key at the same index, which is either the single value or a {@link Values} of all the values.
+     */
+    private Object[] values;
+    private int size;
+    /**
+     * Open-addressing index which holds the {@code index + 1} of the keys, {@code null} if the map is small enough to
+     * be scanned linearly.
+     */
+    private int[] index;
+    private EntrySet entrySet;
+
+    public ArrayMultiValueMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ArrayMultiValueMap(int initialCapacity) {
+        Checks.checkArg(initialCapacity >= 0, "initialCapacity must be non-negative");
+        this.keys = new Object[initialCapacity];
+        this.hashes = new int[initialCapacity];
+        this.values = new Object[initialCapacity];
+    }
+
+    public <T extends K, U extends V> ArrayMultiValueMap(MultiValueMap<T, U> map) {
+        this(map.size());
+        for (Map.Entry<T, List<U>> e : map.entrySet()) {
+            addAll(e.getKey(), e.getValue());
+        }
+    }
+
+    @Override
+    public void add(K key, V value) {
+        final int hash = hash(key);
+        final int i = find(key, hash);
+        if (i < 0) {
+            append(key, hash, value);
+        } else {
+            valuesAt(i, 1).add(value);
+        }
+    }
+
+    @Override
+    public void addAll(K key, Iterable<? extends V> values) {
+        final int hash = hash(key);
+        int i = find(key, hash);
+        for (V value : values) {
+            if (i < 0) {
+                i = append(key, hash, value);
+            } else {
+                valuesAt(i, 1).add(value);
+            }
+        }
+        if (i < 0) {
+            // keep the key with no value as what the other MultiValueMaps do
+            append(key, hash, new Values(0));
+        }
+    }
+
+    @Override
+    public void addFirst(K key, V value) {
+        final int hash = hash(key);
+        final int i = find(key, hash);
+        if (i < 0) {
+            append(key, hash, value);
+        } else {
+            valuesAt(i, 1).add(0, value);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V getFirst(K key) {
+        final int i = find(key, hash(key));
+        if (i < 0) {
+            return null;
+        }
+        final Object v = values[i];
+        if (v instanceof Values) {
+            final Values vs = (Values) v;
+            return vs.isEmpty() ? null : (V) vs.get(0);
+        }
+        return (V) v;
+    }
+
+    @Override
+    public void putSingle(K key, V value) {
+        final int hash = hash(key);
+        final int i = find(key, hash);
+        if (i < 0) {
+            append(key, hash, value);
+        } else {
+            values[i] = value;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Map<K, V> toSingleValueMap() {
+        final LinkedHashMap<K, V> singleValueMap = new LinkedHashMap<>(MathUtils.nextPowerOfTwo(size << 1));
+        for (int i = 0; i < size; i++) {
+            final Object v = values[i];
+            if (v instanceof Values) {
+                final Values vs = (Values) v;
+                singleValueMap.put((K) keys[i], vs.isEmpty() ? null : (V) vs.get(0));
+            } else {
+                singleValueMap.put((K) keys[i], (V) v);
+            }
+        }
+        return singleValueMap;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return find(key, hash(key)) >= 0;
+    }
+
+    @Override
+    public List<V> get(Object key) {
+        final int i = find(key, hash(key));
+        return i < 0 ? null : new ValueList(keys[i], i);
+    }
+
+    @Override
+    public List<V> put(K key, List<V> value) {
+        Checks.checkNotNull(value, "value");
+        final Object v = value.size() == 1 ? value.get(0) : new Values(value);
+        final int hash = hash(key);
+        final int i = find(key, hash);
+        if (i < 0) {
+            append(key, hash, v);
+            return null;
+        }
+        final List<V> prev = copyOf(values[i]);
+        values[i] = v;
+        return prev;
+    }
+
+    @Override
+    public List<V> remove(Object key) {
+        final int i = find(key, hash(key));
+        if (i < 0) {
+            return null;
+        }
+        final List<V> prev = copyOf(values[i]);
+        removeAt(i);
+        return prev;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+        index = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void forEach(BiConsumer<? super K, ? super List<V>> action) {
+        Checks.checkNotNull(action, "action");
+        for (int i = 0; i < size; i++) {
+            action.accept((K) keys[i], new ValueList(keys[i], i));
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<K, List<V>>> entrySet() {
+        EntrySet es = entrySet;
+        if (es == null) {
+            entrySet = es = new EntrySet();
+        }
+        return es;
+    }
+
+    private int find(Object key, int hash) {
+        final int[] idx = index;
+        if (idx == null) {
+            final int[] hs = hashes;
+            final Object[] ks = keys;
+            for (int i = 0; i < size; i++) {
+                if (hs[i] == hash && Objects.equals(ks[i], key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        final int mask = idx.length - 1;
+        int p = hash & mask;
+        int i;
+        while ((i = idx[p] - 1) >= 0) {
+            if (hashes[i] == hash && Objects.equals(keys[i], key)) {
+                return i;
+            }
+            p = (p + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int append(Object key, int hash, Object value) {
+        if (size == keys.length) {
+            final int newCapacity = Math.max(DEFAULT_CAPACITY, size << 1);
+            keys = Arrays.copyOf(keys, newCapacity);
+            hashes = Arrays.copyOf(hashes, newCapacity);
+            values = Arrays.copyOf(values, newCapacity);
+            if (index != null) {
+                rebuildIndex();
+            }
+        }
+        final int i = size++;
+        keys[i] = key;
+        hashes[i] = hash;
+        values[i] = value;
+        if (index != null) {
+            indexAt(i);
+        } else if (size > LINEAR_SCAN_THRESHOLD) {
+            rebuildIndex();
+        }
+        return i;
+    }
+
+    private void removeAt(int i) {
+        final int moved = size - i - 1;
+        if (moved > 0) {
+            System.arraycopy(keys, i + 1, keys, i, moved);
+            System.arraycopy(hashes, i + 1, hashes, i, moved);
+            System.arraycopy(values, i + 1, values, i, moved);
+        }
+        size--;
+        keys[size] = null;
+        values[size] = null;
+        if (index != null) {
+            if (size > LINEAR_SCAN_THRESHOLD) {
+                // indexes of the following keys are all changed
+                rebuildIndex();
+            } else {
+                index = null;
+            }
+        }
+    }
+
+    private void rebuildIndex() {
+        // keep the load factor of index no more than 0.5
+        index = new int[MathUtils.nextPowerOfTwo(keys.length << 1)];
+        for (int i = 0; i < size; i++) {
+            indexAt(i);
+        }
+    }
+
+    private void indexAt(int i) {
+        final int[] idx = index;
+        final int mask = idx.length - 1;
+        int p = hashes[i] & mask;
+        while (idx[p] != 0) {
+            p = (p + 1) & mask;
+        }
+        idx[p] = i + 1;
+    }
+
+    /**
+     * Returns the values of the key at given index as a {@link Values}, which would be converted from the single value
+     * if necessary.
+     */
+    private Values valuesAt(int i, int extra) {
+        final Object v = values[i];
+        if (v instanceof Values) {
+            return (Values) v;
+        }
+        final Values vs = new Values(1 + extra);
+        vs.add(v);
+        values[i] = vs;
+        return vs;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<V> copyOf(Object v) {
+        if (v instanceof Values) {
+            return new ArrayList<>((List<V>) v);
+        }
+        final List<V> list = new ArrayList<>(1);
+        list.add((V) v);
+        return list;
+    }
+
+    private static int hash(Object key) {
+        if (key == null) {
+            return 0;
+        }
+        final int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Values of a key which has more than one value, or has no value. It is private so that could be distinguished from
+     * the single value.
+     */
+    private static final class Values extends ArrayList<Object> {
+
+        private static final long serialVersionUID = 8431632165371573389L;
+
+        private Values(int initialCapacity) {
+            super(initialCapacity);
+        }
+
+        private Values(List<?> values) {
+            super(values);
+        }
+    }
+
+    /**
+     * View of the values of a key, which checks the index of the key every time it's accessed since it would be
+     * changed after removing other keys.
+     */
+    private final class ValueList extends AbstractList<V> implements RandomAccess {
+
+        private final Object key;
+        private int slot;
+
+        private ValueList(Object key, int slot) {
+            this.key = key;
+            this.slot = slot;
+        }
+
+        private int slot() {
+            final int i = slot;
+            if (i >= 0 && i < size && keys[i] == key) {
+                return i;
+            }
+            return slot = find(key, hash(key));
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public V get(int i) {
+            final int slot = slot();
+            final Object v = slot < 0 ? null : values[slot];
+            if (v instanceof Values) {
+                return (V) ((Values) v).get(i);
+            }
+            if (slot < 0 || i != 0) {
+                throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + (slot < 0 ? 0 : 1));
+            }
+            return (V) v;
+        }
+
+        @Override
+        public int size() {
+            final int slot = slot();
+            if (slot < 0) {
+                return 0;
+            }
+            final Object v = values[slot];
+            return v instanceof Values ? ((Values) v).size() : 1;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public V set(int i, V value) {
+            final int slot = slot();
+            final Object v = slot < 0 ? null : values[slot];
+            if (v instanceof Values) {
+                return (V) ((Values) v).set(i, value);
+            }
+            if (slot < 0 || i != 0) {
+                throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + (slot < 0 ? 0 : 1));
+            }
+            values[slot] = value;
+            return (V) v;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void add(int i, V value) {
+            final int slot = slot();
+            if (slot < 0) {
+                if (i != 0) {
+                    throw new IndexOutOfBoundsException("Index: " + i + ", Size: 0");
+                }
+                ArrayMultiValueMap.this.add((K) key, value);
+            } else {
+                valuesAt(slot, 1).add(i, value);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public V remove(int i) {
+            final int slot = slot();
+            if (slot < 0) {
+                throw new IndexOutOfBoundsException("Index: " + i + ", Size: 0");
+            }
+            return (V) valuesAt(slot, 0).remove(i);
+        }
+
+        @Override
+        public void clear() {
+            final int slot = slot();
+            if (slot >= 0) {
+                values[slot] = new Values(0);
+            }
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<K, List<V>>> {
+
+        @Override
+        public Iterator<Map.Entry<K, List<V>>> iterator() {
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            final List<V> values = get(e.getKey());
+            return values != null && values.equals(e.getValue());
+        }
+
+        @Override
+        public void clear() {
+            ArrayMultiValueMap.this.clear();
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<K, List<V>>> {
+
+        private int next;
+        private int last = -1;
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Map.Entry<K, List<V>> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = next++;
+            final K key = (K) keys[last];
+            return new SimpleEntry<K, List<V>>(key, new ValueList(key, last)) {
+
+                private static final long serialVersionUID = -4290453525040745447L;
+
+                @Override
+                public List<V> setValue(List<V> value) {
+                    return put(key, value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            removeAt(last);
+            next = last;
+            last = -1;
+        }
+    }
+}
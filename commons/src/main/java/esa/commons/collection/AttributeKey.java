@@ -29,6 +29,18 @@ public interface AttributeKey<V> {
         return DefaultAttributeKey.create(name);
     }
 
+    /**
+     * Returns a new {@link AttributeKey} whose {@link #id()} is a dense global id assigned to the given name, which
+     * makes it the fastest key for {@link CompactAttributeMap}.
+     * <p>
+     * Note that the names are retained forever once they are assigned with ids, so this should only be used for a
+     * bounded set of names such as constant keys. Keys returned by this method are never equal to the keys returned
+     * by {@link #valueOf(String)} even if they have the same name.
+     */
+    static <V> AttributeKey<V> compact(String name) {
+        return CompactAttributeKey.create(name);
+    }
+
     /**
      * Returns a new {@link AttributeKey} for String valued attributes.
      */
@@ -43,6 +55,7 @@ public interface AttributeKey<V> {
 
     /**
      * The identifier of this instance. it could be a hint for improving performance in some special implementations.
+     * Keys which are equal to each other must have the same identifier.
      */
     default int id() {
         return hashCode();
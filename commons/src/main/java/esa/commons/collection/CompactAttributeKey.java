@@ -0,0 +1,89 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.collection;
+
+import esa.commons.Checks;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Implementation of {@link AttributeKey} whose {@link #id()} is a dense global id, see
+ * {@link AttributeKey#compact(String)}.
+ * <p>
+ * Each name is assigned with an id in the order of creation and keys with the same name always share the same id, so
+ * that the ids could be used as indexes directly, see {@link CompactAttributeMap}. The names are retained forever
+ * once they are assigned with ids.
+ */
+final class CompactAttributeKey<V> implements AttributeKey<V> {
+
+    private static final ConcurrentMap<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    private final String name;
+    private final int id;
+
+    static <V> CompactAttributeKey<V> create(String name) {
+        Checks.checkNotEmptyArg(name, "name");
+        return new CompactAttributeKey<>(name);
+    }
+
+    private CompactAttributeKey(String name) {
+        this.name = name;
+        this.id = idOf(name);
+    }
+
+    private static int idOf(String name) {
+        Integer id = IDS.get(name);
+        if (id == null) {
+            id = IDS.computeIfAbsent(name, k -> NEXT_ID.getAndIncrement());
+        }
+        return id;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public int id() {
+        return id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        CompactAttributeKey<?> that = (CompactAttributeKey<?>) o;
+        return this.name.equals(that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return name();
+    }
+}
@@ -0,0 +1,449 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.collection;
+
+import esa.commons.Checks;
+import esa.commons.MathUtils;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.UnaryOperator;
+
+/**
+ * Compact implementation of {@link Attributes} which keeps the attributes in a single open-addressing array indexed by
+ * the {@link AttributeKey#id()}, instead of allocating a {@link HashMap} table and a node for each attribute.
+ * <p>
+ * Keys created by {@link AttributeKey#compact(String)} are assigned with dense global ids, so that looking up them
+ * needs neither hashing the names nor probing more than once in most cases. Other keys are located by their ids with
+ * linear probing and then compared by {@link Object#equals(Object)}.
+ * <p>
+ * The {@link Map} returned by {@link #asMap()} is a view of this instance which supports removing but not putting.
+ * This is not thread-safe.
+ */
+public class CompactAttributeMap implements Attributes {
+
+    private static final int DEFAULT_CAPACITY = 8;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * Marks a removed slot, which could not be cleared directly because it may be in the middle of a probe sequence.
+     */
+    private static final AttributeImpl<?> REMOVED = new AttributeImpl<>(null, null);
+
+    private AttributeImpl<?>[] table;
+    private int size;
+    /**
+     * Number of the slots which are occupied by attributes or marked as removed.
+     */
+    private int used;
+    private MapView map;
+
+    public CompactAttributeMap() {
+        this(DEFAULT_CAPACITY >> 1);
+    }
+
+    public CompactAttributeMap(int initCapacity) {
+        Checks.checkArg(initCapacity >= 0, "initCapacity must be non-negative");
+        this.table = new AttributeImpl<?>[tableSizeFor(initCapacity)];
+    }
+
+    public CompactAttributeMap(Attributes attributes) {
+        this(attributes.size());
+        attributes.forEach((k, v) -> setValue(attr(k), v.get()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> void setValue(Attribute<V> attr, Object value) {
+        attr.set((V) value);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <V> Attribute<V> attr(AttributeKey<V> key) {
+        Checks.checkNotNull(key, "key");
+        AttributeImpl<?>[] tab = table;
+        int mask = tab.length - 1;
+        int i = hash(key) & mask;
+        int removed = -1;
+        AttributeImpl<?> e;
+        while ((e = tab[i]) != null) {
+            if (e == REMOVED) {
+                if (removed < 0) {
+                    removed = i;
+                }
+            } else if (e.key == key || e.key.equals(key)) {
+                return (Attribute<V>) e;
+            }
+            i = (i + 1) & mask;
+        }
+
+        final AttributeImpl<V> attr = new AttributeImpl<>(key, this);
+        if (removed >= 0) {
+            tab[removed] = attr;
+        } else {
+            if ((used + 1) << 1 > tab.length) {
+                rehash();
+                tab = table;
+                mask = tab.length - 1;
+                i = hash(key) & mask;
+                while (tab[i] != null) {
+                    i = (i + 1) & mask;
+                }
+            }
+            tab[i] = attr;
+            used++;
+        }
+        size++;
+        return attr;
+    }
+
+    @Override
+    public boolean hasAttr(AttributeKey<?> key) {
+        return key != null && indexOf(key) >= 0;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super AttributeKey<?>, ? super Attribute<?>> consumer) {
+        Checks.checkNotNull(consumer, "consumer");
+        // attributes may be removed by the consumer which only marks the slots, so it's safe to iterate the table
+        final AttributeImpl<?>[] tab = table;
+        for (AttributeImpl<?> e : tab) {
+            if (e != null && e != REMOVED) {
+                consumer.accept(e.key, e);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public Map<AttributeKey<?>, Attribute<?>> asMap() {
+        MapView m = map;
+        if (m == null) {
+            map = m = new MapView();
+        }
+        return m;
+    }
+
+    private int indexOf(Object key) {
+        final AttributeImpl<?>[] tab = table;
+        final int mask = tab.length - 1;
+        int i = hash((AttributeKey<?>) key) & mask;
+        AttributeImpl<?> e;
+        while ((e = tab[i]) != null) {
+            if (e != REMOVED && (e.key == key || e.key.equals(key))) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void remove(AttributeImpl<?> attr) {
+        final AttributeImpl<?>[] tab = table;
+        final int mask = tab.length - 1;
+        int i = hash(attr.key) & mask;
+        AttributeImpl<?> e;
+        while ((e = tab[i]) != null) {
+            if (e == attr) {
+                removeAt(i);
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    private void removeAt(int i) {
+        final AttributeImpl<?>[] tab = table;
+        tab[i].attrs = null;
+        size--;
+        if (tab[(i + 1) & (tab.length - 1)] == null) {
+            // the end of a probe sequence, which could be cleared directly
+            tab[i] = null;
+            used--;
+        } else {
+            tab[i] = REMOVED;
+        }
+    }
+
+    private void rehash() {
+        final AttributeImpl<?>[] old = table;
+        // just drop the removed slots instead of growing if they take up more than half of the used ones
+        final int capacity = size >= (used >> 1) && old.length < MAXIMUM_CAPACITY ? old.length << 1 : old.length;
+        final AttributeImpl<?>[] tab = new AttributeImpl<?>[capacity];
+        final int mask = tab.length - 1;
+        for (AttributeImpl<?> e : old) {
+            if (e != null && e != REMOVED) {
+                int i = hash(e.key) & mask;
+                while (tab[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                tab[i] = e;
+            }
+        }
+        this.table = tab;
+        this.used = size;
+    }
+
+    private static int hash(AttributeKey<?> key) {
+        final int h = key.id();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the size of table which keeps the load factor no more than 0.5.
+     */
+    private static int tableSizeFor(int capacity) {
+        if (capacity >= MAXIMUM_CAPACITY >> 1) {
+            return MAXIMUM_CAPACITY;
+        }
+        return Math.max(DEFAULT_CAPACITY, MathUtils.nextPowerOfTwo(capacity << 1));
+    }
+
+    private final class MapView extends AbstractMap<AttributeKey<?>, Attribute<?>> {
+
+        private EntrySet entrySet;
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof AttributeKey && indexOf(key) >= 0;
+        }
+
+        @Override
+        public Attribute<?> get(Object key) {
+            if (!(key instanceof AttributeKey)) {
+                return null;
+            }
+            final int i = indexOf(key);
+            return i < 0 ? null : table[i];
+        }
+
+        @Override
+        public Attribute<?> remove(Object key) {
+            if (!(key instanceof AttributeKey)) {
+                return null;
+            }
+            final int i = indexOf(key);
+            if (i < 0) {
+                return null;
+            }
+            final AttributeImpl<?> e = table[i];
+            removeAt(i);
+            return e;
+        }
+
+        @Override
+        public void clear() {
+            final AttributeImpl<?>[] tab = table;
+            for (int i = 0; i < tab.length; i++) {
+                if (tab[i] != null && tab[i] != REMOVED) {
+                    tab[i].attrs = null;
+                }
+                tab[i] = null;
+            }
+            size = 0;
+            used = 0;
+        }
+
+        @Override
+        public Set<Entry<AttributeKey<?>, Attribute<?>>> entrySet() {
+            EntrySet es = entrySet;
+            if (es == null) {
+                entrySet = es = new EntrySet();
+            }
+            return es;
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<AttributeKey<?>, Attribute<?>>> {
+
+        @Override
+        public Iterator<Map.Entry<AttributeKey<?>, Attribute<?>>> iterator() {
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            asMap().clear();
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<AttributeKey<?>, Attribute<?>>> {
+
+        private final AttributeImpl<?>[] tab = table;
+        private int next = advance(0);
+        private AttributeImpl<?> last;
+
+        private int advance(int from) {
+            for (int i = from; i < tab.length; i++) {
+                if (tab[i] != null && tab[i] != REMOVED) {
+                    return i;
+                }
+            }
+            return tab.length;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < tab.length;
+        }
+
+        @Override
+        public Map.Entry<AttributeKey<?>, Attribute<?>> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final AttributeImpl<?> e = last = tab[next];
+            next = advance(next + 1);
+            return new AbstractMap.SimpleImmutableEntry<>(e.key, e);
+        }
+
+        @Override
+        public void remove() {
+            final AttributeImpl<?> e = last;
+            if (e == null) {
+                throw new IllegalStateException();
+            }
+            last = null;
+            // removing never moves the other attributes, so it's safe to go on iterating
+            if (e.attrs == CompactAttributeMap.this) {
+                CompactAttributeMap.this.remove(e);
+            }
+        }
+    }
+
+    private static class AttributeImpl<V> implements Attribute<V> {
+
+        private final AttributeKey<V> key;
+        private CompactAttributeMap attrs;
+        private V value;
+
+        private AttributeImpl(AttributeKey<V> key, CompactAttributeMap attrs) {
+            this.key = key;
+            this.attrs = attrs;
+        }
+
+        @Override
+        public AttributeKey<V> key() {
+            return key;
+        }
+
+        @Override
+        public V get() {
+            return value;
+        }
+
+        @Override
+        public V getOrDefault(V def) {
+            return value == null ? def : value;
+        }
+
+        @Override
+        public void set(V newValue) {
+            this.value = newValue;
+        }
+
+        @Override
+        public void lazySet(V newValue) {
+            this.value = newValue;
+        }
+
+        @Override
+        public boolean compareAndSet(V expect, V update) {
+            if (this.value == expect) {
+                this.value = update;
+                return true;
+            } else {
+                return false;
+            }
+        }
+
+        @Override
+        public V getAndSet(V newValue) {
+            V old = this.value;
+            this.value = newValue;
+            return old;
+        }
+
+        @Override
+        public V getAndUpdate(UnaryOperator<V> updateFunction) {
+            V prev = this.value;
+            this.value = updateFunction.apply(prev);
+            return prev;
+        }
+
+        @Override
+        public V updateAndGet(UnaryOperator<V> updateFunction) {
+            return this.value = updateFunction.apply(this.value);
+        }
+
+        @Override
+        public V getAndAccumulate(V x, BinaryOperator<V> accumulatorFunction) {
+            V prev = this.value;
+            this.value = accumulatorFunction.apply(prev, x);
+            return prev;
+        }
+
+        @Override
+        public V accumulateAndGet(V x, BinaryOperator<V> accumulatorFunction) {
+            return this.value = accumulatorFunction.apply(this.value, x);
+        }
+
+        @Override
+        public void remove() {
+            CompactAttributeMap currentMap = this.attrs;
+            set(null);
+            if (currentMap != null) {
+                currentMap.remove(this);
+            }
+        }
+
+        @Override
+        public V getAndRemove() {
+            CompactAttributeMap currentMap = this.attrs;
+            V v = getAndSet(null);
+            if (currentMap != null) {
+                currentMap.remove(this);
+            }
+            return v;
+        }
+    }
+}
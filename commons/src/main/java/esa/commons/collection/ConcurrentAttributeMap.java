@@ -0,0 +1,344 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.collection;
+
+import esa.commons.Checks;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.BiConsumer;
+
+/**
+ * Thread-safe implementation of {@link Attributes}, in which all the operations of {@link Attribute} are atomic.
+ * <p>
+ * The attributes are kept in a copy-on-write array sorted by {@link AttributeKey#id()}, so that looking up an
+ * attribute is a lock-free binary search over a volatile snapshot, and only adding or removing an attribute needs to
+ * replace the array by CAS. It fits the case that attributes are mostly created once and then shared by several
+ * threads.
+ * <p>
+ * The {@link Map} returned by {@link #asMap()} is a view of this instance which supports removing but not putting,
+ * and its iterators traverse the snapshot when they are created.
+ */
+public class ConcurrentAttributeMap implements Attributes {
+
+    private static final AttributeImpl<?>[] EMPTY = new AttributeImpl<?>[0];
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<ConcurrentAttributeMap, AttributeImpl[]> ATTRIBUTES_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(ConcurrentAttributeMap.class, AttributeImpl[].class, "attributes");
+
+    private volatile AttributeImpl<?>[] attributes = EMPTY;
+    private volatile MapView map;
+
+    public ConcurrentAttributeMap() {
+    }
+
+    public ConcurrentAttributeMap(Attributes attributes) {
+        Checks.checkNotNull(attributes, "attributes");
+        attributes.forEach((k, v) -> setValue(attr(k), v.get()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> void setValue(Attribute<V> attr, Object value) {
+        attr.set((V) value);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <V> Attribute<V> attr(AttributeKey<V> key) {
+        Checks.checkNotNull(key, "key");
+        final int id = key.id();
+        AttributeImpl<V> attr = null;
+        for (; ; ) {
+            final AttributeImpl<?>[] attrs = this.attributes;
+            final int i = indexOf(attrs, key, id);
+            if (i >= 0 && attrs[i].attrs != null) {
+                return (Attribute<V>) attrs[i];
+            }
+            if (attr == null) {
+                attr = new AttributeImpl<>(key, id, this);
+            }
+            if (i >= 0) {
+                // the existing one has been detached by a concurrent removal, replace it by a new one
+                final AttributeImpl<?>[] newAttrs = attrs.clone();
+                newAttrs[i] = attr;
+                if (ATTRIBUTES_UPDATER.compareAndSet(this, attrs, newAttrs)) {
+                    return attr;
+                }
+                continue;
+            }
+            final int insertion = -(i + 1);
+            final AttributeImpl<?>[] newAttrs = new AttributeImpl<?>[attrs.length + 1];
+            System.arraycopy(attrs, 0, newAttrs, 0, insertion);
+            newAttrs[insertion] = attr;
+            System.arraycopy(attrs, insertion, newAttrs, insertion + 1, attrs.length - insertion);
+            if (ATTRIBUTES_UPDATER.compareAndSet(this, attrs, newAttrs)) {
+                return attr;
+            }
+        }
+    }
+
+    @Override
+    public boolean hasAttr(AttributeKey<?> key) {
+        return key != null && indexOf(attributes, key, key.id()) >= 0;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super AttributeKey<?>, ? super Attribute<?>> consumer) {
+        Checks.checkNotNull(consumer, "consumer");
+        for (AttributeImpl<?> attr : attributes) {
+            consumer.accept(attr.key, attr);
+        }
+    }
+
+    @Override
+    public int size() {
+        return attributes.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return attributes.length == 0;
+    }
+
+    @Override
+    public Map<AttributeKey<?>, Attribute<?>> asMap() {
+        MapView m = map;
+        if (m == null) {
+            // it doesn't matter if the view is created more than once
+            map = m = new MapView();
+        }
+        return m;
+    }
+
+    private AttributeImpl<?> get(Object key) {
+        if (!(key instanceof AttributeKey)) {
+            return null;
+        }
+        final AttributeKey<?> k = (AttributeKey<?>) key;
+        final AttributeImpl<?>[] attrs = this.attributes;
+        final int i = indexOf(attrs, k, k.id());
+        return i < 0 ? null : attrs[i];
+    }
+
+    private void removeIfMatch(AttributeImpl<?> attr) {
+        for (; ; ) {
+            final AttributeImpl<?>[] attrs = this.attributes;
+            final int i = indexOf(attrs, attr.key, attr.id);
+            if (i < 0 || attrs[i] != attr) {
+                return;
+            }
+            final AttributeImpl<?>[] newAttrs;
+            if (attrs.length == 1) {
+                newAttrs = EMPTY;
+            } else {
+                newAttrs = new AttributeImpl<?>[attrs.length - 1];
+                System.arraycopy(attrs, 0, newAttrs, 0, i);
+                System.arraycopy(attrs, i + 1, newAttrs, i, attrs.length - i - 1);
+            }
+            if (ATTRIBUTES_UPDATER.compareAndSet(this, attrs, newAttrs)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Searches the attribute of given key in the sorted array.
+     *
+     * @return index of the attribute if found, otherwise {@code -(insertion point) - 1}
+     */
+    private static int indexOf(AttributeImpl<?>[] attrs, AttributeKey<?> key, int id) {
+        int low = 0;
+        int high = attrs.length - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int midId = attrs[mid].id;
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                // different keys may have the same id, scan all of them
+                int i = mid;
+                while (i > 0 && attrs[i - 1].id == id) {
+                    i--;
+                }
+                for (; i < attrs.length && attrs[i].id == id; i++) {
+                    final AttributeKey<?> k = attrs[i].key;
+                    if (k == key || k.equals(key)) {
+                        return i;
+                    }
+                }
+                return -(i + 1);
+            }
+        }
+        return -(low + 1);
+    }
+
+    private final class MapView extends AbstractMap<AttributeKey<?>, Attribute<?>> {
+
+        private final EntrySet entrySet = new EntrySet();
+
+        @Override
+        public int size() {
+            return ConcurrentAttributeMap.this.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return ConcurrentAttributeMap.this.get(key) != null;
+        }
+
+        @Override
+        public Attribute<?> get(Object key) {
+            return ConcurrentAttributeMap.this.get(key);
+        }
+
+        @Override
+        public Attribute<?> remove(Object key) {
+            final AttributeImpl<?> attr = ConcurrentAttributeMap.this.get(key);
+            return attr != null && attr.detach() ? attr : null;
+        }
+
+        @Override
+        public void clear() {
+            for (AttributeImpl<?> attr : attributes) {
+                attr.detach();
+            }
+        }
+
+        @Override
+        public Set<Entry<AttributeKey<?>, Attribute<?>>> entrySet() {
+            return entrySet;
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<AttributeKey<?>, Attribute<?>>> {
+
+        @Override
+        public Iterator<Map.Entry<AttributeKey<?>, Attribute<?>>> iterator() {
+            return new EntryIterator(attributes);
+        }
+
+        @Override
+        public int size() {
+            return ConcurrentAttributeMap.this.size();
+        }
+
+        @Override
+        public void clear() {
+            asMap().clear();
+        }
+    }
+
+    private static final class EntryIterator implements Iterator<Map.Entry<AttributeKey<?>, Attribute<?>>> {
+
+        private final AttributeImpl<?>[] snapshot;
+        private int next;
+        private AttributeImpl<?> last;
+
+        private EntryIterator(AttributeImpl<?>[] snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < snapshot.length;
+        }
+
+        @Override
+        public Map.Entry<AttributeKey<?>, Attribute<?>> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final AttributeImpl<?> attr = last = snapshot[next++];
+            return new AbstractMap.SimpleImmutableEntry<>(attr.key, attr);
+        }
+
+        @Override
+        public void remove() {
+            final AttributeImpl<?> attr = last;
+            if (attr == null) {
+                throw new IllegalStateException();
+            }
+            last = null;
+            attr.detach();
+        }
+    }
+
+    private static final class AttributeImpl<V> extends AtomicReference<V> implements Attribute<V> {
+
+        private static final long serialVersionUID = -2661411462200283011L;
+
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<AttributeImpl, ConcurrentAttributeMap> MAP_UPDATER =
+                AtomicReferenceFieldUpdater.newUpdater(AttributeImpl.class, ConcurrentAttributeMap.class, "attrs");
+
+        private final AttributeKey<V> key;
+        private final int id;
+        private volatile ConcurrentAttributeMap attrs;
+
+        private AttributeImpl(AttributeKey<V> key, int id, ConcurrentAttributeMap attrs) {
+            this.key = key;
+            this.id = id;
+            this.attrs = attrs;
+        }
+
+        @Override
+        public AttributeKey<V> key() {
+            return key;
+        }
+
+        @Override
+        public V getOrDefault(V def) {
+            final V value = get();
+            return value == null ? def : value;
+        }
+
+        @Override
+        public void remove() {
+            set(null);
+            detach();
+        }
+
+        @Override
+        public V getAndRemove() {
+            final V v = getAndSet(null);
+            detach();
+            return v;
+        }
+
+        /**
+         * Removes this attribute from the map it belongs to.
+         *
+         * @return {@code true} if this attribute is removed by current call.
+         */
+        private boolean detach() {
+            final ConcurrentAttributeMap currentMap = this.attrs;
+            if (currentMap != null && MAP_UPDATER.compareAndSet(this, currentMap, null)) {
+                currentMap.removeIfMatch(this);
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.collection;
+
+import esa.commons.Checks;
+
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Thread-safe implementation of {@link MultiValueMap} for the read-mostly cases, in which all the reading operations
+ * are served by an immutable snapshot(see {@link MultiMaps#immutableCopyOf(Map)}) without any lock, and every
+ * modification makes a new copy of the whole map and then publishes it as the new snapshot.
+ * <p>
+ * Note that the {@link List}s, entries and views returned by this map are unmodifiable and would not reflect the
+ * later modifications of this map. Use {@link #update(Consumer)} to apply several modifications by a single copy.
+ */
+public class CopyOnWriteMultiValueMap<K, V> extends AbstractMap<K, List<V>> implements MultiValueMap<K, V> {
+
+    private final Object lock = new Object();
+    private volatile MultiValueMap<K, V> snapshot;
+
+    public CopyOnWriteMultiValueMap() {
+        this.snapshot = MultiMaps.emptyMultiMap();
+    }
+
+    public CopyOnWriteMultiValueMap(Map<? extends K, ? extends Collection<? extends V>> map) {
+        this.snapshot = MultiMaps.immutableCopyOf(map);
+    }
+
+    /**
+     * Returns current immutable snapshot of this map.
+     */
+    public MultiValueMap<K, V> snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Applies the given {@code updater} to a mutable copy of current snapshot and then publishes the copy atomically.
+     *
+     * @param updater updater
+     */
+    public void update(Consumer<? super MultiValueMap<K, V>> updater) {
+        Checks.checkNotNull(updater, "updater");
+        write(m -> {
+            updater.accept(m);
+            return null;
+        });
+    }
+
+    private <R> R write(Function<? super MultiValueMap<K, V>, ? extends R> writer) {
+        synchronized (lock) {
+            final MultiValueMap<K, V> copy = new ArrayMultiValueMap<>(snapshot);
+            final R r = writer.apply(copy);
+            snapshot = MultiMaps.immutableCopyOf(copy);
+            return r;
+        }
+    }
+
+    /**
+     * Applies the given {@code writer} just like {@link #write(Function)} and returns the value of given {@code key} in
+     * the published snapshot instead of the one in the mutable copy, which would be thrown away after publishing.
+     */
+    private List<V> writeAndGet(K key, Consumer<? super MultiValueMap<K, V>> writer) {
+        synchronized (lock) {
+            final MultiValueMap<K, V> copy = new ArrayMultiValueMap<>(snapshot);
+            writer.accept(copy);
+            final MultiValueMap<K, V> published = MultiMaps.immutableCopyOf(copy);
+            snapshot = published;
+            return published.get(key);
+        }
+    }
+
+    @Override
+    public void add(K key, V value) {
+        write(m -> {
+            m.add(key, value);
+            return null;
+        });
+    }
+
+    @Override
+    public void addAll(K key, Iterable<? extends V> values) {
+        write(m -> {
+            m.addAll(key, values);
+            return null;
+        });
+    }
+
+    @Override
+    public void addFirst(K key, V value) {
+        write(m -> {
+            m.addFirst(key, value);
+            return null;
+        });
+    }
+
+    @Override
+    public V getFirst(K key) {
+        return snapshot.getFirst(key);
+    }
+
+    @Override
+    public void putSingle(K key, V value) {
+        write(m -> {
+            m.putSingle(key, value);
+            return null;
+        });
+    }
+
+    @Override
+    public Map<K, V> toSingleValueMap() {
+        return snapshot.toSingleValueMap();
+    }
+
+    @Override
+    public int size() {
+        return snapshot.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return snapshot.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return snapshot.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return snapshot.containsValue(value);
+    }
+
+    @Override
+    public List<V> get(Object key) {
+        return snapshot.get(key);
+    }
+
+    @Override
+    public List<V> put(K key, List<V> value) {
+        return write(m -> m.put(key, value));
+    }
+
+    @Override
+    public List<V> remove(Object key) {
+        if (!snapshot.containsKey(key)) {
+            return null;
+        }
+        return write(m -> m.remove(key));
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends List<V>> map) {
+        write(m -> {
+            m.putAll(map);
+            return null;
+        });
+    }
+
+    @Override
+    public void clear() {
+        synchronized (lock) {
+            snapshot = MultiMaps.emptyMultiMap();
+        }
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super List<V>> action) {
+        snapshot.forEach(action);
+    }
+
+    @Override
+    public List<V> putIfAbsent(K key, List<V> value) {
+        return write(m -> m.putIfAbsent(key, value));
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        return write(m -> m.remove(key, value));
+    }
+
+    @Override
+    public boolean replace(K key, List<V> oldValue, List<V> newValue) {
+        return write(m -> m.replace(key, oldValue, newValue));
+    }
+
+    @Override
+    public List<V> replace(K key, List<V> value) {
+        return write(m -> m.replace(key, value));
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super List<V>, ? extends List<V>> function) {
+        write(m -> {
+            m.replaceAll(function);
+            return null;
+        });
+    }
+
+    @Override
+    public List<V> computeIfAbsent(K key, Function<? super K, ? extends List<V>> mappingFunction) {
+        return writeAndGet(key, m -> m.computeIfAbsent(key, mappingFunction));
+    }
+
+    @Override
+    public List<V> computeIfPresent(K key,
+                                    BiFunction<? super K, ? super List<V>, ? extends List<V>> remappingFunction) {
+        return writeAndGet(key, m -> m.computeIfPresent(key, remappingFunction));
+    }
+
+    @Override
+    public List<V> compute(K key, BiFunction<? super K, ? super List<V>, ? extends List<V>> remappingFunction) {
+        return writeAndGet(key, m -> m.compute(key, remappingFunction));
+    }
+
+    @Override
+    public List<V> merge(K key, List<V> value,
+                         BiFunction<? super List<V>, ? super List<V>, ? extends List<V>> remappingFunction) {
+        return writeAndGet(key, m -> m.merge(key, value, remappingFunction));
+    }
+
+    @Override
+    public Set<Entry<K, List<V>>> entrySet() {
+        return snapshot.entrySet();
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return snapshot.keySet();
+    }
+
+    @Override
+    public Collection<List<V>> values() {
+        return snapshot.values();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o == this || snapshot.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return snapshot.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return snapshot.toString();
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.collection;
+
+import esa.commons.Checks;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * Open-addressing hash set of primitive {@code long} values, which needs neither boxing the values nor allocating a
+ * node for each element like {@link java.util.HashSet}. Collisions are resolved by linear probing, and removing an
+ * element shifts the following elements of the same cluster back instead of leaving a tombstone. {@code 0} is used to
+ * mark the empty slots and it is tracked by a flag when it is contained.
+ * <p>
+ * Iterating by {@link #forEach(LongConsumer)} and {@link #removeIf(LongPredicate)} is allocation free.
+ * This is not thread-safe, see {@link esa.commons.concurrent.ConcurrentLongHashSet} for the thread-safe one.
+ */
+public class LongHashSet {
+
+    private final float loadFactor;
+    private long[] keys;
+    private boolean containsZero;
+    private int size;
+    private int threshold;
+
+    public LongHashSet() {
+        this(LongObjectHashMap.DEFAULT_CAPACITY, LongObjectHashMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    public LongHashSet(int initialCapacity) {
+        this(initialCapacity, LongObjectHashMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    public LongHashSet(int initialCapacity, float loadFactor) {
+        Checks.checkArg(initialCapacity >= 0, "initialCapacity must be non-negative");
+        Checks.checkArg(loadFactor > 0f && loadFactor < 1f, "loadFactor must be in (0, 1)");
+        this.loadFactor = loadFactor;
+        final int capacity = LongObjectHashMap.capacityFor(initialCapacity, loadFactor);
+        this.keys = new long[capacity];
+        this.threshold = thresholdOf(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(long key) {
+        if (key == 0) {
+            return containsZero;
+        }
+        final long[] ks = keys;
+        final int mask = ks.length - 1;
+        int i = LongObjectHashMap.hash(key) & mask;
+        long k;
+        // probe the whole table at most, which also bounds the probing of an optimistic read racing with a
+        // concurrent writing
+        for (int probes = 0; probes <= mask && (k = ks[i]) != 0; probes++) {
+            if (k == key) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Adds the given {@code key}.
+     *
+     * @return {@code true} if it was absent
+     */
+    public boolean add(long key) {
+        if (key == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        final long[] ks = keys;
+        final int mask = ks.length - 1;
+        int i = LongObjectHashMap.hash(key) & mask;
+        long k;
+        while ((k = ks[i]) != 0) {
+            if (k == key) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        ks[i] = key;
+        if (++size - (containsZero ? 1 : 0) > threshold) {
+            resize();
+        }
+        return true;
+    }
+
+    /**
+     * Removes the given {@code key}.
+     *
+     * @return {@code true} if it was present
+     */
+    public boolean remove(long key) {
+        if (key == 0) {
+            if (containsZero) {
+                containsZero = false;
+                size--;
+                return true;
+            }
+            return false;
+        }
+        final long[] ks = keys;
+        final int mask = ks.length - 1;
+        int i = LongObjectHashMap.hash(key) & mask;
+        long k;
+        while ((k = ks[i]) != 0) {
+            if (k == key) {
+                removeAt(i);
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Removes all of the elements which satisfy the given {@code filter}.
+     *
+     * @return {@code true} if any element is removed
+     */
+    public boolean removeIf(LongPredicate filter) {
+        Checks.checkNotNull(filter, "filter");
+        boolean removed = false;
+        if (containsZero && filter.test(0)) {
+            containsZero = false;
+            size--;
+            removed = true;
+        }
+        if (size == 0) {
+            return removed;
+        }
+        final long[] ks = keys;
+        final int mask = ks.length - 1;
+        // iterate backward from an empty slot, so that no cluster crosses the start and the elements shifted by
+        // removing are always the visited ones
+        int start = 0;
+        while (ks[start] != 0) {
+            start++;
+        }
+        for (int n = 1; n <= mask; n++) {
+            final int i = (start - n) & mask;
+            final long k = ks[i];
+            if (k != 0 && filter.test(k)) {
+                removeAt(i);
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Performs the given {@code action} for each element. The {@code action} should not modify this set.
+     */
+    public void forEach(LongConsumer action) {
+        Checks.checkNotNull(action, "action");
+        if (containsZero) {
+            action.accept(0);
+        }
+        for (long k : keys) {
+            if (k != 0) {
+                action.accept(k);
+            }
+        }
+    }
+
+    /**
+     * Returns a new array of all the elements.
+     */
+    public long[] toArray() {
+        final long[] result = new long[size];
+        // leave the zero at the beginning if it's contained
+        int n = containsZero ? 1 : 0;
+        for (long k : keys) {
+            if (k != 0) {
+                result[n++] = k;
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, 0);
+            containsZero = false;
+            size = 0;
+        }
+    }
+
+    private void removeAt(int i) {
+        final long[] ks = keys;
+        final int mask = ks.length - 1;
+        size--;
+        int hole = i;
+        int j = (i + 1) & mask;
+        long k;
+        while ((k = ks[j]) != 0) {
+            // move the element to the hole if the hole is between its ideal slot and current slot
+            if (((j - (LongObjectHashMap.hash(k) & mask)) & mask) >= ((j - hole) & mask)) {
+                ks[hole] = k;
+                hole = j;
+            }
+            j = (j + 1) & mask;
+        }
+        ks[hole] = 0;
+    }
+
+    private void resize() {
+        final long[] oldKeys = keys;
+        if (oldKeys.length == LongObjectHashMap.MAXIMUM_CAPACITY) {
+            if (size - (containsZero ? 1 : 0) == oldKeys.length - 1) {
+                throw new IllegalStateException("Max capacity reached at size=" + size);
+            }
+            return;
+        }
+        final int capacity = oldKeys.length << 1;
+        final int mask = capacity - 1;
+        final long[] ks = new long[capacity];
+        for (long k : oldKeys) {
+            if (k != 0) {
+                int j = LongObjectHashMap.hash(k) & mask;
+                while (ks[j] != 0) {
+                    j = (j + 1) & mask;
+                }
+                ks[j] = k;
+            }
+        }
+        this.keys = ks;
+        this.threshold = thresholdOf(capacity);
+    }
+
+    private int thresholdOf(int capacity) {
+        // keep at least one empty slot to terminate the probing
+        return Math.min(capacity - 1, (int) (capacity * loadFactor));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LongHashSet)) {
+            return false;
+        }
+        final LongHashSet that = (LongHashSet) o;
+        if (size != that.size || containsZero != that.containsZero) {
+            return false;
+        }
+        for (long k : keys) {
+            if (k != 0 && !that.contains(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = 0;
+        for (long k : keys) {
+            h += Long.hashCode(k);
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        if (size == 0) {
+            return "[]";
+        }
+        final StringBuilder sb = new StringBuilder(size << 3).append('[');
+        if (containsZero) {
+            sb.append('0');
+        }
+        for (long k : keys) {
+            if (k != 0) {
+                if (sb.length() > 1) {
+                    sb.append(", ");
+                }
+                sb.append(k);
+            }
+        }
+        return sb.append(']').toString();
+    }
+}
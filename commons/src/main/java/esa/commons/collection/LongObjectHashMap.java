@@ -0,0 +1,376 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.collection;
+
+import esa.commons.Checks;
+import esa.commons.MathUtils;
+import esa.commons.function.ObjLongPredicate;
+
+import java.util.Arrays;
+import java.util.function.LongFunction;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Open-addressing hash map with primitive {@code long} keys, which needs neither boxing the keys nor allocating a node
+ * for each entry like {@link java.util.HashMap}. Collisions are resolved by linear probing, and removing an entry
+ * shifts the following entries of the same cluster back instead of leaving a tombstone.
+ * <p>
+ * {@code null} values are not allowed. Iterating by {@link #forEach(ObjLongConsumer)} and {@link
+ * #removeIf(ObjLongPredicate)} is allocation free.
+ * This is not thread-safe, see {@link esa.commons.concurrent.ConcurrentLongObjectHashMap} for the thread-safe one.
+ *
+ * @param <V> type of value
+ */
+public class LongObjectHashMap<V> {
+
+    static final int DEFAULT_CAPACITY = 8;
+    static final float DEFAULT_LOAD_FACTOR = 0.5f;
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    private final float loadFactor;
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int threshold;
+
+    public LongObjectHashMap() {
+        this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    public LongObjectHashMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    public LongObjectHashMap(int initialCapacity, float loadFactor) {
+        Checks.checkArg(initialCapacity >= 0, "initialCapacity must be non-negative");
+        Checks.checkArg(loadFactor > 0f && loadFactor < 1f, "loadFactor must be in (0, 1)");
+        this.loadFactor = loadFactor;
+        final int capacity = capacityFor(initialCapacity, loadFactor);
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.threshold = thresholdOf(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        final long[] ks = keys;
+        final Object[] vs = values;
+        final int mask = vs.length - 1;
+        int i = hash(key) & mask;
+        Object v;
+        // probe the whole table at most, which also bounds the probing of an optimistic read racing with a
+        // concurrent writing
+        for (int probes = 0; probes <= mask && (v = vs[i]) != null; probes++) {
+            if (ks[i] == key) {
+                return (V) v;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    public V getOrDefault(long key, V defaultValue) {
+        final V v = get(key);
+        return v == null ? defaultValue : v;
+    }
+
+    /**
+     * Associates the given {@code value} with the given {@code key}.
+     *
+     * @return the previous value or {@code null} if absent
+     */
+    public V put(long key, V value) {
+        return put(key, value, false);
+    }
+
+    /**
+     * Associates the given {@code value} with the given {@code key} if absent.
+     *
+     * @return the current value or {@code null} if absent
+     */
+    public V putIfAbsent(long key, V value) {
+        return put(key, value, true);
+    }
+
+    /**
+     * Returns the value of the given {@code key}, or associates it with the value computed by the given {@code
+     * mappingFunction} if absent. Nothing would be associated if the computed value is {@code null}.
+     *
+     * @return the current or computed value
+     */
+    public V computeIfAbsent(long key, LongFunction<? extends V> mappingFunction) {
+        Checks.checkNotNull(mappingFunction, "mappingFunction");
+        V v = get(key);
+        if (v == null && (v = mappingFunction.apply(key)) != null) {
+            put(key, v, false);
+        }
+        return v;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V put(long key, V value, boolean onlyIfAbsent) {
+        Checks.checkNotNull(value, "value");
+        final long[] ks = keys;
+        final Object[] vs = values;
+        final int mask = vs.length - 1;
+        int i = hash(key) & mask;
+        Object v;
+        while ((v = vs[i]) != null) {
+            if (ks[i] == key) {
+                if (!onlyIfAbsent) {
+                    vs[i] = value;
+                }
+                return (V) v;
+            }
+            i = (i + 1) & mask;
+        }
+        ks[i] = key;
+        vs[i] = value;
+        if (++size > threshold) {
+            resize();
+        }
+        return null;
+    }
+
+    /**
+     * Removes the value of the given {@code key}.
+     *
+     * @return the removed value or {@code null} if absent
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        final long[] ks = keys;
+        final Object[] vs = values;
+        final int mask = vs.length - 1;
+        int i = hash(key) & mask;
+        Object v;
+        while ((v = vs[i]) != null) {
+            if (ks[i] == key) {
+                removeAt(i);
+                return (V) v;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Removes all of the entries which satisfy the given {@code filter}, which accepts the value and the key.
+     *
+     * @return {@code true} if any entry is removed
+     */
+    @SuppressWarnings("unchecked")
+    public boolean removeIf(ObjLongPredicate<? super V> filter) {
+        Checks.checkNotNull(filter, "filter");
+        if (size == 0) {
+            return false;
+        }
+        final Object[] vs = values;
+        final int mask = vs.length - 1;
+        // iterate backward from an empty slot, so that no cluster crosses the start and the entries shifted by
+        // removing are always the visited ones
+        int start = 0;
+        while (vs[start] != null) {
+            start++;
+        }
+        boolean removed = false;
+        for (int n = 1; n <= mask; n++) {
+            final int i = (start - n) & mask;
+            final Object v = vs[i];
+            if (v != null && filter.test((V) v, keys[i])) {
+                removeAt(i);
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Performs the given {@code action} for each entry, which accepts the value and the key. The {@code action}
+     * should not modify this map.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(ObjLongConsumer<? super V> action) {
+        Checks.checkNotNull(action, "action");
+        final long[] ks = keys;
+        final Object[] vs = values;
+        for (int i = 0; i < vs.length; i++) {
+            final Object v = vs[i];
+            if (v != null) {
+                action.accept((V) v, ks[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns a new array of all the keys.
+     */
+    public long[] keys() {
+        final long[] result = new long[size];
+        final long[] ks = keys;
+        final Object[] vs = values;
+        int n = 0;
+        for (int i = 0; i < vs.length; i++) {
+            if (vs[i] != null) {
+                result[n++] = ks[i];
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(values, null);
+            size = 0;
+        }
+    }
+
+    private void removeAt(int i) {
+        final long[] ks = keys;
+        final Object[] vs = values;
+        final int mask = vs.length - 1;
+        size--;
+        int hole = i;
+        int j = (i + 1) & mask;
+        Object v;
+        while ((v = vs[j]) != null) {
+            // move the entry to the hole if the hole is between its ideal slot and current slot
+            if (((j - (hash(ks[j]) & mask)) & mask) >= ((j - hole) & mask)) {
+                ks[hole] = ks[j];
+                vs[hole] = v;
+                hole = j;
+            }
+            j = (j + 1) & mask;
+        }
+        vs[hole] = null;
+    }
+
+    private void resize() {
+        final long[] oldKeys = keys;
+        final Object[] oldValues = values;
+        if (oldValues.length == MAXIMUM_CAPACITY) {
+            if (size == MAXIMUM_CAPACITY - 1) {
+                throw new IllegalStateException("Max capacity reached at size=" + size);
+            }
+            return;
+        }
+        final int capacity = oldValues.length << 1;
+        final int mask = capacity - 1;
+        final long[] ks = new long[capacity];
+        final Object[] vs = new Object[capacity];
+        for (int i = 0; i < oldValues.length; i++) {
+            final Object v = oldValues[i];
+            if (v != null) {
+                final long k = oldKeys[i];
+                int j = hash(k) & mask;
+                while (vs[j] != null) {
+                    j = (j + 1) & mask;
+                }
+                ks[j] = k;
+                vs[j] = v;
+            }
+        }
+        this.keys = ks;
+        this.values = vs;
+        this.threshold = thresholdOf(capacity);
+    }
+
+    private int thresholdOf(int capacity) {
+        // keep at least one empty slot to terminate the probing
+        return Math.min(capacity - 1, (int) (capacity * loadFactor));
+    }
+
+    static int capacityFor(int expectedSize, float loadFactor) {
+        final long capacity = (long) Math.ceil(expectedSize / (double) loadFactor) + 1L;
+        if (capacity >= MAXIMUM_CAPACITY) {
+            return MAXIMUM_CAPACITY;
+        }
+        return Math.max(2, MathUtils.nextPowerOfTwo((int) capacity));
+    }
+
+    static int hash(long key) {
+        // spread the bits since the keys are usually sequential or have the same low bits
+        final long h = key * 0x9E3779B97F4A7C15L;
+        final int x = (int) (h ^ (h >>> 32));
+        return x ^ (x >>> 16);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LongObjectHashMap)) {
+            return false;
+        }
+        final LongObjectHashMap<?> that = (LongObjectHashMap<?>) o;
+        if (size != that.size) {
+            return false;
+        }
+        final long[] ks = keys;
+        final Object[] vs = values;
+        for (int i = 0; i < vs.length; i++) {
+            if (vs[i] != null && !vs[i].equals(that.get(ks[i]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = 0;
+        final long[] ks = keys;
+        final Object[] vs = values;
+        for (int i = 0; i < vs.length; i++) {
+            if (vs[i] != null) {
+                h += Long.hashCode(ks[i]) ^ vs[i].hashCode();
+            }
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        if (size == 0) {
+            return "{}";
+        }
+        final StringBuilder sb = new StringBuilder(size << 3).append('{');
+        final long[] ks = keys;
+        final Object[] vs = values;
+        for (int i = 0; i < vs.length; i++) {
+            if (vs[i] != null) {
+                if (sb.length() > 1) {
+                    sb.append(", ");
+                }
+                sb.append(ks[i]).append('=').append(vs[i] == this ? "(this Map)" : vs[i]);
+            }
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -16,13 +16,21 @@
 package esa.commons.collection;
 
 import esa.commons.Checks;
+import esa.commons.MathUtils;
 
 import java.io.Serializable;
+import java.util.AbstractList;
 import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
 import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
@@ -40,6 +48,33 @@ public final class MultiMaps {
         return (MultiValueMap<K, V>) EMPTY;
     }
 
+    /**
+     * Returns an immutable copy of given {@code map}, which is optimized for reading and would be a good choice for the
+     * multi-maps which are shared by many threads and rarely changed.
+     * <p>
+     * All the values are kept in a single flat array without any {@link List} instance per key, and the keys are
+     * located by a hash index which is collision free in most cases. The {@link List}s returned by the copy are
+     * unmodifiable views of the flat array, and any modification of the copy results in an {@link
+     * UnsupportedOperationException}.
+     *
+     * @param map map to copy
+     * @param <K> type of key
+     * @param <V> type of value
+     * @return immutable copy
+     */
+    public static <K, V> MultiValueMap<K, V> immutableCopyOf(Map<? extends K, ? extends Collection<? extends V>> map) {
+        Checks.checkNotNull(map, "map");
+        if (map instanceof ImmutableMultiValueMap) {
+            @SuppressWarnings("unchecked")
+            final MultiValueMap<K, V> immutable = (MultiValueMap<K, V>) map;
+            return immutable;
+        }
+        if (map.isEmpty()) {
+            return emptyMultiMap();
+        }
+        return new ImmutableMultiValueMap<>(map);
+    }
+
     private static class EmptyMultiValueMap<K, V>
             extends AbstractMap<K, List<V>> implements MultiValueMap<K, V>, Serializable {
 
@@ -189,6 +224,261 @@ public final class MultiMaps {
         }
     }
 
+    private static final class ImmutableMultiValueMap<K, V>
+            extends AbstractMap<K, List<V>> implements MultiValueMap<K, V>, Serializable {
+
+        private static final long serialVersionUID = 4236584069528440307L;
+
+        private final Object[] keys;
+        private final int[] hashes;
+        /**
+         * Values of the key at {@code i} are the elements of {@link #values} from {@code offsets[i]}(inclusive) to
+         * {@code offsets[i + 1]}(exclusive).
+         */
+        private final int[] offsets;
+        private final Object[] values;
+        /**
+         * Open-addressing index which holds the {@code index + 1} of the keys.
+         */
+        private final int[] table;
+        /**
+         * Whether there's no collision in the {@link #table}, which means a missing key could be found by one probe.
+         */
+        private final boolean perfect;
+        private transient EntrySet entrySet;
+
+        private ImmutableMultiValueMap(Map<? extends K, ? extends Collection<? extends V>> map) {
+            final int size = map.size();
+            int total = 0;
+            for (Collection<? extends V> vs : map.values()) {
+                Checks.checkNotNull(vs, "values");
+                total += vs.size();
+            }
+            this.keys = new Object[size];
+            this.hashes = new int[size];
+            this.offsets = new int[size + 1];
+            final Object[] values = new Object[total];
+            int i = 0;
+            int off = 0;
+            for (Map.Entry<? extends K, ? extends Collection<? extends V>> e : map.entrySet()) {
+                keys[i] = e.getKey();
+                hashes[i] = hash(e.getKey());
+                offsets[i++] = off;
+                for (V v : e.getValue()) {
+                    values[off++] = v;
+                }
+            }
+            offsets[size] = off;
+            this.values = values;
+
+            // try to find a collision free table by enlarging it at most 4 times
+            int capacity = MathUtils.nextPowerOfTwo(Math.max(2, size << 1));
+            final int maxCapacity = capacity << 2;
+            int[] table;
+            boolean collided;
+            do {
+                table = new int[capacity];
+                collided = false;
+                final int mask = capacity - 1;
+                for (int k = 0; k < size; k++) {
+                    int p = hashes[k] & mask;
+                    while (table[p] != 0) {
+                        collided = true;
+                        p = (p + 1) & mask;
+                    }
+                    table[p] = k + 1;
+                }
+                capacity <<= 1;
+            } while (collided && capacity <= maxCapacity);
+            this.table = table;
+            this.perfect = !collided;
+        }
+
+        private int find(Object key) {
+            final int h = hash(key);
+            final int[] tab = table;
+            final int mask = tab.length - 1;
+            int p = h & mask;
+            int i;
+            while ((i = tab[p] - 1) >= 0) {
+                if (hashes[i] == h && Objects.equals(keys[i], key)) {
+                    return i;
+                }
+                if (perfect) {
+                    return -1;
+                }
+                p = (p + 1) & mask;
+            }
+            return -1;
+        }
+
+        private static int hash(Object key) {
+            if (key == null) {
+                return 0;
+            }
+            final int h = key.hashCode();
+            return h ^ (h >>> 16);
+        }
+
+        @Override
+        public void add(K key, V value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void addAll(K key, Iterable<? extends V> values) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void addFirst(K key, V value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public V getFirst(K key) {
+            final int i = find(key);
+            return i < 0 || offsets[i] == offsets[i + 1] ? null : (V) values[offsets[i]];
+        }
+
+        @Override
+        public void putSingle(K key, V value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Map<K, V> toSingleValueMap() {
+            final Map<K, V> singleValueMap = new LinkedHashMap<>(MathUtils.nextPowerOfTwo(keys.length << 1));
+            for (int i = 0; i < keys.length; i++) {
+                singleValueMap.put((K) keys[i], offsets[i] == offsets[i + 1] ? null : (V) values[offsets[i]]);
+            }
+            return singleValueMap;
+        }
+
+        @Override
+        public int size() {
+            return keys.length;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return keys.length == 0;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return find(key) >= 0;
+        }
+
+        @Override
+        public List<V> get(Object key) {
+            final int i = find(key);
+            return i < 0 ? null : new ValueList<>(values, offsets[i], offsets[i + 1]);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void forEach(BiConsumer<? super K, ? super List<V>> action) {
+            Checks.checkNotNull(action, "action");
+            for (int i = 0; i < keys.length; i++) {
+                action.accept((K) keys[i], new ValueList<>(values, offsets[i], offsets[i + 1]));
+            }
+        }
+
+        @Override
+        public List<V> put(K key, List<V> value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<V> remove(Object key) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void putAll(Map<? extends K, ? extends List<V>> m) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void clear() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Set<Entry<K, List<V>>> entrySet() {
+            EntrySet es = entrySet;
+            if (es == null) {
+                entrySet = es = new EntrySet();
+            }
+            return es;
+        }
+
+        private final class EntrySet extends AbstractSet<Entry<K, List<V>>> {
+
+            @Override
+            public Iterator<Entry<K, List<V>>> iterator() {
+                return new Iterator<Entry<K, List<V>>>() {
+
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < keys.length;
+                    }
+
+                    @SuppressWarnings("unchecked")
+                    @Override
+                    public Entry<K, List<V>> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        final int i = next++;
+                        return new SimpleImmutableEntry<>((K) keys[i],
+                                new ValueList<>(values, offsets[i], offsets[i + 1]));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return keys.length;
+            }
+        }
+    }
+
+    /**
+     * Unmodifiable view of a range of the flat values array.
+     */
+    private static final class ValueList<V> extends AbstractList<V> implements RandomAccess {
+
+        private final Object[] values;
+        private final int from;
+        private final int to;
+
+        private ValueList(Object[] values, int from, int to) {
+            this.values = values;
+            this.from = from;
+            this.to = to;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public V get(int index) {
+            if (index < 0 || index >= to - from) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (to - from));
+            }
+            return (V) values[from + index];
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+
     private MultiMaps() {
     }
 
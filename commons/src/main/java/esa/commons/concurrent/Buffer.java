@@ -54,4 +54,18 @@ public interface Buffer<E> {
      */
     int drain(Consumer<E> c);
 
+    /**
+     * Removes at most {@code limit} available elements from this buffer and apply them to the given consumer. The
+     * default implementation could not stop in the middle of {@link #drain(Consumer)}, so it transfers all the
+     * available elements and the implementations are expected to override it.
+     *
+     * @param c     consumer
+     * @param limit max number of elements to transfer
+     *
+     * @return the number of elements transferred
+     */
+    default int drain(Consumer<E> c, int limit) {
+        return drain(c);
+    }
+
 }
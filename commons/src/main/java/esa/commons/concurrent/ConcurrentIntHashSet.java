@@ -0,0 +1,200 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.concurrent;
+
+import esa.commons.Checks;
+import esa.commons.MathUtils;
+import esa.commons.Platforms;
+import esa.commons.collection.IntHashSet;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Thread-safe hash set of primitive {@code int} values, which is composed of the segments of {@link IntHashSet}
+ * guarded by {@link StampedLock}s, see {@link ConcurrentIntObjectHashMap}.
+ * <p>
+ * {@link #size()} is an estimate if the set is being modified concurrently.
+ */
+public class ConcurrentIntHashSet {
+
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final int segmentMask;
+
+    public ConcurrentIntHashSet() {
+        this(16);
+    }
+
+    public ConcurrentIntHashSet(int initialCapacity) {
+        this(initialCapacity, Platforms.cpuNum() << 1);
+    }
+
+    public ConcurrentIntHashSet(int initialCapacity, int concurrencyLevel) {
+        Checks.checkArg(initialCapacity >= 0, "initialCapacity must be non-negative");
+        Checks.checkArg(concurrencyLevel > 0, "concurrencyLevel must be positive");
+        final int n = Math.min(1 << 16, MathUtils.nextPowerOfTwo(concurrencyLevel));
+        this.segments = new Segment[n];
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(n);
+        this.segmentMask = n - 1;
+        final int capacity = (initialCapacity + n - 1) / n;
+        for (int i = 0; i < n; i++) {
+            segments[i] = new Segment(capacity);
+        }
+    }
+
+    public int size() {
+        long size = 0L;
+        for (Segment s : segments) {
+            size += s.set.size();
+        }
+        return (int) Math.min(Integer.MAX_VALUE, size);
+    }
+
+    public boolean isEmpty() {
+        for (Segment s : segments) {
+            if (!s.set.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean contains(int key) {
+        final Segment s = segmentFor(key);
+        long stamp = s.tryOptimisticRead();
+        if (stamp != 0L) {
+            try {
+                final boolean contains = s.set.contains(key);
+                if (s.validate(stamp)) {
+                    return contains;
+                }
+            } catch (RuntimeException ignored) {
+                // inconsistent state caused by a concurrent writing, retry with the read lock
+            }
+        }
+        stamp = s.readLock();
+        try {
+            return s.set.contains(key);
+        } finally {
+            s.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @see IntHashSet#add(int)
+     */
+    public boolean add(int key) {
+        final Segment s = segmentFor(key);
+        final long stamp = s.writeLock();
+        try {
+            return s.set.add(key);
+        } finally {
+            s.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @see IntHashSet#remove(int)
+     */
+    public boolean remove(int key) {
+        final Segment s = segmentFor(key);
+        final long stamp = s.writeLock();
+        try {
+            return s.set.remove(key);
+        } finally {
+            s.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes all of the elements which satisfy the given {@code filter} segment by segment. The {@code filter} is
+     * called with the segment locked, so it must not modify this set.
+     *
+     * @see IntHashSet#removeIf(IntPredicate)
+     */
+    public boolean removeIf(IntPredicate filter) {
+        Checks.checkNotNull(filter, "filter");
+        boolean removed = false;
+        for (Segment s : segments) {
+            final long stamp = s.writeLock();
+            try {
+                removed |= s.set.removeIf(filter);
+            } finally {
+                s.unlockWrite(stamp);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Performs the given {@code action} for each element segment by segment. The {@code action} is called with the
+     * segment read-locked, so it must not modify this set.
+     *
+     * @see IntHashSet#forEach(IntConsumer)
+     */
+    public void forEach(IntConsumer action) {
+        Checks.checkNotNull(action, "action");
+        for (Segment s : segments) {
+            final long stamp = s.readLock();
+            try {
+                s.set.forEach(action);
+            } finally {
+                s.unlockRead(stamp);
+            }
+        }
+    }
+
+    public void clear() {
+        for (Segment s : segments) {
+            final long stamp = s.writeLock();
+            try {
+                s.set.clear();
+            } finally {
+                s.unlockWrite(stamp);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder().append('[');
+        forEach(k -> {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(k);
+        });
+        return sb.append(']').toString();
+    }
+
+    private Segment segmentFor(int key) {
+        // Fibonacci hashing which takes the high bits, while the segment takes the low bits to locate the slot
+        return segments[((key * 0x9E3779B9) >>> segmentShift) & segmentMask];
+    }
+
+    private static final class Segment extends StampedLock {
+
+        private static final long serialVersionUID = -3528396741285562874L;
+
+        private final IntHashSet set;
+
+        private Segment(int initialCapacity) {
+            this.set = new IntHashSet(initialCapacity);
+        }
+    }
+}
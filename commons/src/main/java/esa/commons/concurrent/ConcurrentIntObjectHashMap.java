@@ -0,0 +1,258 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.concurrent;
+
+import esa.commons.Checks;
+import esa.commons.MathUtils;
+import esa.commons.Platforms;
+import esa.commons.collection.IntObjectHashMap;
+import esa.commons.function.ObjIntPredicate;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Thread-safe hash map with primitive {@code int} keys, which is composed of the segments of {@link
+ * IntObjectHashMap} guarded by {@link StampedLock}s.
+ * <p>
+ * Reading tries an optimistic read of the segment at first, which is lock free and succeeds as long as the segment is
+ * not modified at the same time, otherwise it falls back to the read lock. Writing locks the segment only, so the
+ * writes to different segments never contend.
+ * <p>
+ * {@code null} values are not allowed. {@link #size()} is an estimate if the map is being modified concurrently.
+ *
+ * @param <V> type of value
+ */
+public class ConcurrentIntObjectHashMap<V> {
+
+    private final Segment<V>[] segments;
+    private final int segmentShift;
+    private final int segmentMask;
+
+    public ConcurrentIntObjectHashMap() {
+        this(16);
+    }
+
+    public ConcurrentIntObjectHashMap(int initialCapacity) {
+        this(initialCapacity, Platforms.cpuNum() << 1);
+    }
+
+    public ConcurrentIntObjectHashMap(int initialCapacity, int concurrencyLevel) {
+        Checks.checkArg(initialCapacity >= 0, "initialCapacity must be non-negative");
+        Checks.checkArg(concurrencyLevel > 0, "concurrencyLevel must be positive");
+        final int n = Math.min(1 << 16, MathUtils.nextPowerOfTwo(concurrencyLevel));
+        this.segments = newSegments(n);
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(n);
+        this.segmentMask = n - 1;
+        final int capacity = (initialCapacity + n - 1) / n;
+        for (int i = 0; i < n; i++) {
+            segments[i] = new Segment<>(capacity);
+        }
+    }
+
+    public int size() {
+        long size = 0L;
+        for (Segment<V> s : segments) {
+            size += s.map.size();
+        }
+        return (int) Math.min(Integer.MAX_VALUE, size);
+    }
+
+    public boolean isEmpty() {
+        for (Segment<V> s : segments) {
+            if (!s.map.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    public V get(int key) {
+        final Segment<V> s = segmentFor(key);
+        long stamp = s.tryOptimisticRead();
+        if (stamp != 0L) {
+            try {
+                final V v = s.map.get(key);
+                if (s.validate(stamp)) {
+                    return v;
+                }
+            } catch (RuntimeException ignored) {
+                // inconsistent state caused by a concurrent writing, retry with the read lock
+            }
+        }
+        stamp = s.readLock();
+        try {
+            return s.map.get(key);
+        } finally {
+            s.unlockRead(stamp);
+        }
+    }
+
+    public V getOrDefault(int key, V defaultValue) {
+        final V v = get(key);
+        return v == null ? defaultValue : v;
+    }
+
+    /**
+     * @see IntObjectHashMap#put(int, Object)
+     */
+    public V put(int key, V value) {
+        Checks.checkNotNull(value, "value");
+        final Segment<V> s = segmentFor(key);
+        final long stamp = s.writeLock();
+        try {
+            return s.map.put(key, value);
+        } finally {
+            s.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @see IntObjectHashMap#putIfAbsent(int, Object)
+     */
+    public V putIfAbsent(int key, V value) {
+        Checks.checkNotNull(value, "value");
+        final Segment<V> s = segmentFor(key);
+        final long stamp = s.writeLock();
+        try {
+            return s.map.putIfAbsent(key, value);
+        } finally {
+            s.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Returns the value of the given {@code key}, or associates it with the value computed by the given {@code
+     * mappingFunction} atomically if absent. The {@code mappingFunction} is called with the segment locked, so it
+     * should be short and must not modify this map.
+     *
+     * @see IntObjectHashMap#computeIfAbsent(int, IntFunction)
+     */
+    public V computeIfAbsent(int key, IntFunction<? extends V> mappingFunction) {
+        Checks.checkNotNull(mappingFunction, "mappingFunction");
+        final V v = get(key);
+        if (v != null) {
+            return v;
+        }
+        final Segment<V> s = segmentFor(key);
+        final long stamp = s.writeLock();
+        try {
+            return s.map.computeIfAbsent(key, mappingFunction);
+        } finally {
+            s.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @see IntObjectHashMap#remove(int)
+     */
+    public V remove(int key) {
+        final Segment<V> s = segmentFor(key);
+        final long stamp = s.writeLock();
+        try {
+            return s.map.remove(key);
+        } finally {
+            s.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes all of the entries which satisfy the given {@code filter} segment by segment. The {@code filter} is
+     * called with the segment locked, so it must not modify this map.
+     *
+     * @see IntObjectHashMap#removeIf(ObjIntPredicate)
+     */
+    public boolean removeIf(ObjIntPredicate<? super V> filter) {
+        Checks.checkNotNull(filter, "filter");
+        boolean removed = false;
+        for (Segment<V> s : segments) {
+            final long stamp = s.writeLock();
+            try {
+                removed |= s.map.removeIf(filter);
+            } finally {
+                s.unlockWrite(stamp);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Performs the given {@code action} for each entry segment by segment. The {@code action} is called with the
+     * segment read-locked, so it must not modify this map.
+     *
+     * @see IntObjectHashMap#forEach(ObjIntConsumer)
+     */
+    public void forEach(ObjIntConsumer<? super V> action) {
+        Checks.checkNotNull(action, "action");
+        for (Segment<V> s : segments) {
+            final long stamp = s.readLock();
+            try {
+                s.map.forEach(action);
+            } finally {
+                s.unlockRead(stamp);
+            }
+        }
+    }
+
+    public void clear() {
+        for (Segment<V> s : segments) {
+            final long stamp = s.writeLock();
+            try {
+                s.map.clear();
+            } finally {
+                s.unlockWrite(stamp);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder().append('{');
+        forEach((v, k) -> {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(k).append('=').append(v);
+        });
+        return sb.append('}').toString();
+    }
+
+    private Segment<V> segmentFor(int key) {
+        // Fibonacci hashing which takes the high bits, while the segment takes the low bits to locate the slot
+        return segments[((key * 0x9E3779B9) >>> segmentShift) & segmentMask];
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <V> Segment<V>[] newSegments(int n) {
+        return (Segment<V>[]) new Segment[n];
+    }
+
+    private static final class Segment<V> extends StampedLock {
+
+        private static final long serialVersionUID = 4589437051413328736L;
+
+        private final IntObjectHashMap<V> map;
+
+        private Segment(int initialCapacity) {
+            this.map = new IntObjectHashMap<>(initialCapacity);
+        }
+    }
+}
@@ -37,4 +37,9 @@ public class MpscArrayBuffer<E> extends StripedBuffer<E> {
         }
         return queue;
     }
+
+    @Override
+    protected int sizeOf(Buffer<E> buffer) {
+        return ((MpscArrayQueue<E>) buffer).size();
+    }
 }
@@ -128,6 +128,7 @@ public class MpscArrayQueue<E> extends LhsMpscArrayQueueConsumerIdxPad<E> implem
         return drain(c, capacity());
     }
 
+    @Override
     public int drain(Consumer<E> c, int limit) {
         final E[] buffer = this.elements;
         final long mask = mask();
@@ -31,6 +31,10 @@ abstract class StripedBuffer<E> implements Buffer<E> {
     private static final int SPINS = NCPU << 1;
     private volatile Buffer<E>[] cells;
     private volatile int cellsBusy;
+    /**
+     * Index of the stripe to start draining with limit, which is only accessed by the consumer.
+     */
+    private int drainStart;
 
     @Override
     public boolean offer(E e) {
@@ -151,6 +155,46 @@ abstract class StripedBuffer<E> implements Buffer<E> {
         return cnt;
     }
 
+    @Override
+    public int drain(Consumer<E> c, int limit) {
+        Buffer<E>[] queues = cells;
+        if (queues == null || limit <= 0) {
+            return 0;
+        }
+        // start from the next stripe of the last drain, so that the limit would not starve the latter stripes
+        final int n = queues.length;
+        final int start = drainStart;
+        int cnt = 0;
+        for (int i = 0; i < n && cnt < limit; i++) {
+            final Buffer<E> queue = queues[(start + i) & (n - 1)];
+            if (queue != null) {
+                cnt += queue.drain(c, limit - cnt);
+            }
+        }
+        drainStart = start + 1;
+        return cnt;
+    }
+
+    /**
+     * Returns the number of elements in this buffer, which is an estimated value if there are any concurrent
+     * modifications.
+     *
+     * @return size
+     */
+    public int size() {
+        Buffer<E>[] queues = cells;
+        if (queues == null) {
+            return 0;
+        }
+        long size = 0L;
+        for (Buffer<E> queue : queues) {
+            if (queue != null) {
+                size += sizeOf(queue);
+            }
+        }
+        return size > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) size;
+    }
+
     /**
      * CASes the cellsBusy field from 0 to 1 to acquire lock.
      */
@@ -160,6 +204,11 @@ abstract class StripedBuffer<E> implements Buffer<E> {
 
     protected abstract Buffer<E> newBuffer(E e);
 
+    /**
+     * Returns the number of elements in the given buffer created by {@link #newBuffer(Object)}.
+     */
+    protected abstract int sizeOf(Buffer<E> buffer);
+
     /**
      * Returns the probe value for the current thread. Duplicated from ThreadLocalRandom because of packaging
      * restrictions.
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.logging;
+
+import esa.commons.ExceptionUtils;
+import esa.commons.MathUtils;
+import esa.commons.Platforms;
+import esa.commons.StringUtils;
+import esa.commons.concurrent.UnsafeUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Buffers the encoded log data in several direct write buffers which will be filled in turn and passed to the
+ * {@link Appender} by a single gathering write. This class is not thread-safe and is expected to be used by a single
+ * appending thread.
+ */
+class AppendBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(AppendBuffer.class);
+    static final int OS_PAGE = 4 * 1024;
+    private static final int DEFAULT_WRITE_BUFFER_SIZE;
+    private static final int DEFAULT_WRITE_BUFFER_COUNT;
+    private static final Consumer<ByteBuffer> CLEANER;
+    private final Appender appender;
+    private final LogHandlerStatsImpl stats;
+    /**
+     * Interval in nanoseconds to force the appended data to the storage device, {@code 0} means to force after every
+     * flush and a negative value means never.
+     */
+    private final long fsyncInterval;
+    private boolean unforced;
+    private long lastForce;
+    private final ByteBuffer[] buffers;
+    /**
+     * Buffers to append in a single gathering write, which consists of the filled write buffers and the slices of
+     * the encoded data which is too large to be copied into a write buffer.
+     */
+    private final ByteBuffer[] pending;
+    private int pendingCount;
+    private int current;
+    private ByteBuffer buffer;
+    private boolean closed;
+
+    AppendBuffer(Appender appender, int bufferSize, LogHandlerStatsImpl stats) {
+        this(appender, bufferSize, stats, -1L);
+    }
+
+    AppendBuffer(Appender appender, int bufferSize, LogHandlerStatsImpl stats, long fsyncInterval) {
+        this.appender = appender;
+        this.stats = stats;
+        this.fsyncInterval = fsyncInterval;
+        this.lastForce = System.nanoTime();
+        if (bufferSize <= 0) {
+            bufferSize = DEFAULT_WRITE_BUFFER_SIZE;
+        }
+        bufferSize = MathUtils.nextPowerOfTwo(bufferSize);
+        this.buffers = new ByteBuffer[DEFAULT_WRITE_BUFFER_COUNT];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = ByteBuffer.allocateDirect(bufferSize);
+        }
+        this.pending = new ByteBuffer[buffers.length << 1];
+        this.buffer = buffers[0];
+    }
+
+    static {
+        Consumer<ByteBuffer> cleaner0 = null;
+        try {
+            if (Platforms.javaVersion() < 9) {
+                ByteBuffer direct = ByteBuffer.allocateDirect(1);
+                Field f = direct.getClass().getDeclaredField("cleaner");
+                f.setAccessible(true);
+                Object cleaner = f.get(direct);
+                Method m = cleaner.getClass().getDeclaredMethod("clean");
+                m.invoke(cleaner);
+
+                cleaner0 = buf -> {
+                    if (buf.isDirect()) {
+                        try {
+                            Object c = f.get(buf);
+                            if (c != null) {
+                                m.invoke(c);
+                            }
+                        } catch (Throwable t) {
+                            ExceptionUtils.throwException(t);
+                        }
+                    }
+                };
+            } else if (UnsafeUtils.hasUnsafe()) {
+                ByteBuffer direct = ByteBuffer.allocateDirect(1);
+                Method m = UnsafeUtils.getUnsafe()
+                        .getClass()
+                        .getDeclaredMethod("invokeCleaner", ByteBuffer.class);
+                m.invoke(UnsafeUtils.getUnsafe(), direct);
+
+                cleaner0 = buf -> {
+                    if (buf.isDirect()) {
+                        try {
+                            m.invoke(UnsafeUtils.getUnsafe(), buf);
+                        } catch (Throwable t) {
+                            ExceptionUtils.throwException(t);
+                        }
+                    }
+                };
+            }
+        } catch (Throwable t) {
+            logger.error("could not find cleaner for DirectBuffer", t);
+        }
+
+        if (cleaner0 == null) {
+            CLEANER = buf -> {
+            };
+        } else {
+            CLEANER = cleaner0;
+        }
+
+        int defaultWriteBufferSize = -1;
+        try {
+            String prop = System.getProperty("esa.logging.defaultWriteBufferSize");
+            if (!StringUtils.isEmpty(prop)) {
+                defaultWriteBufferSize = Integer.parseInt(prop);
+            }
+        } catch (Exception ignored) {
+        }
+        if (defaultWriteBufferSize <= 0) {
+            defaultWriteBufferSize = OS_PAGE;
+        }
+        DEFAULT_WRITE_BUFFER_SIZE = defaultWriteBufferSize;
+
+        int defaultWriteBufferCount = -1;
+        try {
+            String prop = System.getProperty("esa.logging.defaultWriteBufferCount");
+            if (!StringUtils.isEmpty(prop)) {
+                defaultWriteBufferCount = Integer.parseInt(prop);
+            }
+        } catch (Exception ignored) {
+        }
+        if (defaultWriteBufferCount <= 0) {
+            defaultWriteBufferCount = 4;
+        }
+        DEFAULT_WRITE_BUFFER_COUNT = defaultWriteBufferCount;
+    }
+
+    void append(byte[] bytes) {
+        final int len = bytes.length;
+        if (len > buffer.remaining()) {
+            if (buffer.position() > 0) {
+                nextBuffer();
+            }
+            if (len > buffer.capacity()) {
+                // append it without copying into the write buffer
+                pending[pendingCount++] = ByteBuffer.wrap(bytes);
+                if (pendingCount == pending.length) {
+                    appendNow();
+                }
+                return;
+            }
+        }
+        buffer.put(bytes);
+        if (!buffer.hasRemaining()) {
+            nextBuffer();
+        }
+    }
+
+    boolean hasPending() {
+        return pendingCount > 0 || buffer.position() > 0;
+    }
+
+    void appendNow() {
+        if (buffer.position() > 0) {
+            buffer.flip();
+            pending[pendingCount++] = buffer;
+        }
+        if (pendingCount == 0) {
+            return;
+        }
+        long bytes = 0L;
+        for (int i = 0; i < pendingCount; i++) {
+            bytes += pending[i].remaining();
+        }
+        try {
+            final long start = System.nanoTime();
+            if (pendingCount == 1) {
+                appender.append(pending[0]);
+            } else {
+                appender.append(pending, 0, pendingCount);
+            }
+            final long now = System.nanoTime();
+            stats.recordFlush(bytes, now - start);
+            if (fsyncInterval >= 0L) {
+                unforced = true;
+                forceIfNecessary(now);
+            }
+        } finally {
+            for (int i = 0; i < pendingCount; i++) {
+                pending[i] = null;
+            }
+            for (int i = 0; i <= current && i < buffers.length; i++) {
+                buffers[i].clear();
+            }
+            pendingCount = 0;
+            current = 0;
+            buffer = buffers[0];
+        }
+    }
+
+    boolean hasUnforced() {
+        return unforced;
+    }
+
+    /**
+     * Forces the appended data to the storage device if the fsync interval has elapsed since the last forcing.
+     *
+     * @param now current time in nanoseconds
+     */
+    void forceIfNecessary(long now) {
+        if (unforced && (fsyncInterval == 0L || now - lastForce >= fsyncInterval)) {
+            force(now);
+        }
+    }
+
+    /**
+     * Appends all the buffered data, and forces it to the storage device if fsync is enabled.
+     */
+    void flush() {
+        appendNow();
+        if (unforced) {
+            force(System.nanoTime());
+        }
+    }
+
+    private void force(long now) {
+        try {
+            appender.force();
+        } finally {
+            unforced = false;
+            lastForce = now;
+        }
+    }
+
+    /**
+     * Frees the write buffers and closes the {@link Appender}, the pending data will be discarded. It does nothing if
+     * this buffer has been closed.
+     */
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (ByteBuffer b : buffers) {
+            CLEANER.accept(b);
+        }
+        try {
+            appender.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void nextBuffer() {
+        buffer.flip();
+        pending[pendingCount++] = buffer;
+        if (++current == buffers.length || pendingCount == pending.length) {
+            appendNow();
+        } else {
+            buffer = buffers[current];
+        }
+    }
+}
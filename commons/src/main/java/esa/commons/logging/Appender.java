@@ -30,4 +30,34 @@ interface Appender extends Closeable {
      */
     void append(ByteBuffer data);
 
+    /**
+     * Appends the given data in sequence.
+     *
+     * @param srcs data
+     * @see #append(ByteBuffer[], int, int)
+     */
+    default void append(ByteBuffer[] srcs) {
+        append(srcs, 0, srcs.length);
+    }
+
+    /**
+     * Appends a subsequence of the given data in sequence. Implementations are expected to write them by a single
+     * gathering write if possible, and it will be appended one by one by default.
+     *
+     * @param srcs   data
+     * @param offset offset of the first buffer to append
+     * @param length number of buffers to append
+     */
+    default void append(ByteBuffer[] srcs, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            append(srcs[i]);
+        }
+    }
+
+    /**
+     * Forces the appended data to be written to the storage device if possible, which is a no-op by default.
+     */
+    default void force() {
+    }
+
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.logging;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A coarse {@link LogClock} which caches the current time millis and refreshes it in a background thread every
+ * millisecond, so that reading the time is a volatile read instead of a call of {@link System#currentTimeMillis()}.
+ * The time read from it may be behind the real time by a few milliseconds.
+ */
+final class CachedClock implements LogClock {
+
+    static final CachedClock INSTANCE = new CachedClock();
+
+    private static final long PERIOD = TimeUnit.MILLISECONDS.toNanos(1L);
+
+    private volatile long millis = System.currentTimeMillis();
+
+    private CachedClock() {
+        final Thread updater = new Thread(() -> {
+            for (; ; ) {
+                millis = System.currentTimeMillis();
+                LockSupport.parkNanos(this, PERIOD);
+            }
+        }, "esa-logging-clock");
+        updater.setDaemon(true);
+        updater.start();
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return millis;
+    }
+}
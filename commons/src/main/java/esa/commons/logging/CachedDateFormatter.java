@@ -0,0 +1,113 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.logging;
+
+import esa.commons.Checks;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Thread-safe formatter of timestamp which is compiled by {@link DateTimeFormatter} and caches the formatted result of
+ * the last second. If the milliseconds in the formatted result is a 3-digit {@code SSS}, only these digits will be
+ * patched when formatting a timestamp in the cached second, otherwise the result will be cached per millisecond.
+ */
+final class CachedDateFormatter {
+
+    private final DateTimeFormatter formatter;
+    /**
+     * Index of the 3-digit milliseconds in the formatted result, or {@code -1} if there's no milliseconds to patch.
+     */
+    private final int millisIndex;
+    /**
+     * Granularity of the cache in milliseconds.
+     */
+    private final long granularity;
+    private volatile Cached cached;
+
+    CachedDateFormatter(String pattern) {
+        Checks.checkNotEmptyArg(pattern, "pattern");
+        this.formatter = DateTimeFormatter.ofPattern(pattern).withZone(ZoneId.systemDefault());
+
+        // find out where the milliseconds is by formatting the same second with different milliseconds
+        final long second = 1_000_000L;
+        final String r0 = formatter.format(Instant.ofEpochMilli(second));
+        final String r1 = formatter.format(Instant.ofEpochMilli(second + 987L));
+        final String r2 = formatter.format(Instant.ofEpochMilli(second + 123L));
+        if (r0.equals(r1) && r0.equals(r2)) {
+            // no sub-second fields
+            this.millisIndex = -1;
+            this.granularity = 1000L;
+        } else {
+            int i = 0;
+            while (i < r0.length() && i < r1.length() && r0.charAt(i) == r1.charAt(i)) {
+                i++;
+            }
+            if (r0.startsWith("000", i)
+                    && r0.length() == r1.length()
+                    && r0.length() == r2.length()
+                    && r1.equals(r0.substring(0, i) + "987" + r0.substring(i + 3))
+                    && r2.equals(r0.substring(0, i) + "123" + r0.substring(i + 3))) {
+                this.millisIndex = i;
+                this.granularity = 1000L;
+            } else {
+                this.millisIndex = -1;
+                this.granularity = 1L;
+            }
+        }
+    }
+
+    /**
+     * Formats the given timestamp and appends the result to given {@code sb}.
+     *
+     * @param timestamp timestamp in milliseconds
+     * @param sb        target
+     */
+    void format(long timestamp, StringBuilder sb) {
+        final long key = Math.floorDiv(timestamp, granularity);
+        Cached c = cached;
+        if (c == null || c.key != key) {
+            cached = c = new Cached(key,
+                    formatter.format(Instant.ofEpochMilli(key * granularity)).toCharArray());
+        }
+        final char[] chars = c.chars;
+        final int i = millisIndex;
+        if (i < 0) {
+            sb.append(chars);
+        } else {
+            final int millis = (int) Math.floorMod(timestamp, 1000L);
+            sb.append(chars, 0, i)
+                    .append((char) ('0' + millis / 100))
+                    .append((char) ('0' + millis / 10 % 10))
+                    .append((char) ('0' + millis % 10))
+                    .append(chars, i + 3, chars.length - i - 3);
+        }
+    }
+
+    /**
+     * Immutable snapshot of the cached result which is safe to be published by a volatile write.
+     */
+    private static final class Cached {
+        private final long key;
+        private final char[] chars;
+
+        private Cached(long key, char[] chars) {
+            this.key = key;
+            this.chars = chars;
+        }
+    }
+}
@@ -29,9 +29,7 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.text.SimpleDateFormat;
 import java.util.Arrays;
-import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.function.BiFunction;
@@ -54,8 +52,24 @@ class EncoderImpl implements Encoder {
     private final Function<StringBuilder, byte[]> strEncoder;
 
     EncoderImpl(String pattern, Charset charset) {
+        this(pattern, charset, ThrowableRenderer.DEFAULT);
+    }
+
+    EncoderImpl(String pattern, Charset charset, ThrowableRenderer renderer) {
         Checks.checkNotNull(pattern, "pattern");
-        this.converter = Formatter.toConverter(pattern, CONVERTERS);
+        Checks.checkNotNull(renderer, "renderer");
+        final Map<String, Function<String, Converter<LogEvent>>> converters = new LinkedHashMap<>(CONVERTERS);
+        final Function<String, Converter<LogEvent>> throwableConverter =
+                param -> (event, sbBuf) -> {
+                    Throwable t = event.thrown();
+                    if (t != null) {
+                        sbBuf.append(renderer.render(t).text);
+                    }
+                };
+        converters.put("ex", throwableConverter);
+        converters.put("exception", throwableConverter);
+        converters.put("thrown", throwableConverter);
+        this.converter = Formatter.toConverter(pattern, converters);
         if (charset == null) {
             this.strEncoder = ENCODER;
         } else {
@@ -80,47 +94,9 @@ class EncoderImpl implements Encoder {
         CONVERTERS = new LinkedHashMap<>();
         final Function<String, Converter<LogEvent>> dateConverter =
                 param -> {
-
-                    if (StringUtils.isEmpty(param) || DEFAULT_DATE_FORMAT.equals(param)) {
-                        return new Converter<LogEvent>() {
-
-                            private long lastTimestamp = -1L;
-                            private String cacheTime;
-
-                            @Override
-                            public void convert(LogEvent event, StringBuilder stringBuilder) {
-                                long t = event.timestamp();
-                                if (t != lastTimestamp) {
-                                    lastTimestamp = t;
-                                    cacheTime = InternalLoggers.Manager.localSdf().format(new Date(t));
-                                }
-                                stringBuilder.append(cacheTime);
-                            }
-                        };
-                    } else {
-                        return new Converter<LogEvent>() {
-
-                            private final ThreadLocal<SimpleDateFormat> sdf =
-                                    ThreadLocal.withInitial(() -> new SimpleDateFormat(param));
-                            private long lastTimestamp = -1L;
-                            private String cacheTime;
-
-                            @Override
-                            public void convert(LogEvent event, StringBuilder stringBuilder) {
-                                long t = event.timestamp();
-                                if (t != lastTimestamp) {
-                                    lastTimestamp = t;
-                                    cacheTime = sdf.get().format(new Date(t));
-                                }
-                                stringBuilder.append(cacheTime);
-                            }
-
-                            @Override
-                            public void stop() {
-                                sdf.remove();
-                            }
-                        };
-                    }
+                    final CachedDateFormatter formatter =
+                            new CachedDateFormatter(StringUtils.isEmpty(param) ? DEFAULT_DATE_FORMAT : param);
+                    return (event, sbBuf) -> formatter.format(event.timestamp(), sbBuf);
                 };
         CONVERTERS.put("d", dateConverter);
         CONVERTERS.put("date", dateConverter);
@@ -145,22 +121,36 @@ class EncoderImpl implements Encoder {
         CONVERTERS.put("msg", messageConverter);
         CONVERTERS.put("message", messageConverter);
 
+        final Function<String, Converter<LogEvent>> attachmentConverter =
+                param -> {
+                    if (StringUtils.isEmpty(param)) {
+                        return (event, sbBuf) -> {
+                            boolean first = true;
+                            for (Map.Entry<String, String> entry : event.attachments().entrySet()) {
+                                if (first) {
+                                    first = false;
+                                } else {
+                                    sbBuf.append(", ");
+                                }
+                                sbBuf.append(entry.getKey()).append('=').append(entry.getValue());
+                            }
+                        };
+                    } else {
+                        return (event, sbBuf) -> {
+                            final String value = event.attachments().get(param);
+                            if (value != null) {
+                                sbBuf.append(value);
+                            }
+                        };
+                    }
+                };
+        CONVERTERS.put("X", attachmentConverter);
+        CONVERTERS.put("mdc", attachmentConverter);
+
         final Function<String, Converter<LogEvent>> lineConverter =
                 param -> (event, sbBuf) -> sbBuf.append(LINE_SEPARATOR);
         CONVERTERS.put("n", lineConverter);
 
-        // TODO: performance up
-        final Function<String, Converter<LogEvent>> throwableConverter =
-                param -> (event, sbBuf) -> {
-                    Throwable t = event.thrown();
-                    if (t != null) {
-                        ExceptionUtils.getStackTrace(event.thrown(), sbBuf);
-                    }
-                };
-        CONVERTERS.put("ex", throwableConverter);
-        CONVERTERS.put("exception", throwableConverter);
-        CONVERTERS.put("thrown", throwableConverter);
-
         // detect StringBuilder encoder
         Function<StringBuilder, byte[]> en = null;
         BiFunction<StringBuilder, Charset, byte[]> en1 = null;
@@ -17,13 +17,13 @@ package esa.commons.logging;
 
 import esa.commons.StringUtils;
 
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.function.Function;
 
 class Formatter {
@@ -31,13 +31,25 @@ class Formatter {
     private static final String DELIM = "{}";
     private static final char DELIM_PREFIX = '%';
     private static final char ESCAPE_CHAR = '\\';
+    private static final int TEMPLATE_CACHE_SIZE = 1024;
+    /**
+     * Direct-mapped cache of the parsed templates which is indexed by the identity of the format string, a format
+     * string will be parsed and cached only if it has been seen twice so that a dynamic one would not pollute the
+     * cache.
+     */
+    private static final Template[] TEMPLATES = new Template[TEMPLATE_CACHE_SIZE];
+    private static final String[] SEEN = new String[TEMPLATE_CACHE_SIZE];
 
     static <T> Converter<T> toConverter(String pattern,
                                         Map<String, Function<String, Converter<T>>> map) {
         return toConverter(pattern, DELIM_PREFIX, map);
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Compiles the given pattern to a {@link Converter}. The markers are indexed by a trie to find the longest marker
+     * at every {@code delimPrefix} by a single scan, and the adjacent plain texts are merged into a single {@code
+     * char[]}. The result is a flat array of converters which will be called in turn.
+     */
     static <T> Converter<T> toConverter(String pattern,
                                         char delimPrefix,
                                         Map<String, Function<String, Converter<T>>> map) {
@@ -47,18 +59,13 @@ class Formatter {
                 || map == null
                 || map.isEmpty()
                 || (d = pattern.indexOf(delimPrefix)) == -1) {
-            return (t, s) -> s.append(pattern);
+            return new PlainText<>(pattern == null ? "null" : pattern);
         }
 
-        Map<String, Function<String, Converter<T>>> sorted =
-                new TreeMap<>(Comparator.reverseOrder());
-        sorted.putAll(map);
-        map = sorted;
-
-        final List<Converter> slices = new LinkedList<>();
+        final MarkerTrie<T> trie = new MarkerTrie<>(map);
+        final List<Converter<T>> slices = new ArrayList<>();
         int i = 0;
         StringBuilder sbBuf = new StringBuilder();
-        out:
         do {
             boolean notEscaped = d == 0 || pattern.charAt(d - 1) != ESCAPE_CHAR;
             if (notEscaped) {
@@ -71,89 +78,61 @@ class Formatter {
             }
 
             i = d + 1;
-            if (notEscaped && d < pattern.length() - 1) {
-                // match marker
-                for (Map.Entry<String, Function<String, Converter<T>>> entry : map.entrySet()) {
-                    String marker = entry.getKey();
-                    if (d + marker.length() < pattern.length()
-                            && pattern.substring(i, i + marker.length()).equals(marker)) {
-
-                        i += marker.length();
-                        String param = null;
-                        boolean pNotEscaped = false;
-                        if (i < pattern.length() - 1 && pattern.charAt(i) == '{') {
-                            // maybe: foo-%d{yyyyMMdd}
-                            int pIndex = pattern.indexOf('}', i + 1);
-                            if (pIndex != -1) {
-                                pNotEscaped = pIndex == i + 1 || pattern.charAt(pIndex - 1) != ESCAPE_CHAR;
-                                if (pNotEscaped) {
-                                    // foo-%d{yyyyMMdd} or foo-%d{}
-                                    param = pattern.substring(i + 1, pIndex);
-                                    i = pIndex + 1;
-                                } else {
-                                    if (pIndex >= i + 3 && pattern.charAt(pIndex - 2) == ESCAPE_CHAR) {
-                                        // foo-%d{yyyyMMdd\\}
-                                        param = pattern.substring(i + 1, pIndex - 1);
-                                        i = pIndex + 1;
-                                        pNotEscaped = true;
-                                    } else {
-                                        // foo-%d{\} or foo-%d{yyyyMMdd\}
-                                        param = pattern.substring(i, pIndex - 1) + '}';
-                                        i = pIndex + 1;
-                                    }
-                                }
+            final MarkerTrie<T> matched;
+            if (notEscaped && d < pattern.length() - 1 && (matched = trie.match(pattern, i)) != null) {
+                i += matched.depth;
+                String param = null;
+                boolean pNotEscaped = false;
+                if (i < pattern.length() - 1 && pattern.charAt(i) == '{') {
+                    // maybe: foo-%d{yyyyMMdd}
+                    int pIndex = pattern.indexOf('}', i + 1);
+                    if (pIndex != -1) {
+                        pNotEscaped = pIndex == i + 1 || pattern.charAt(pIndex - 1) != ESCAPE_CHAR;
+                        if (pNotEscaped) {
+                            // foo-%d{yyyyMMdd} or foo-%d{}
+                            param = pattern.substring(i + 1, pIndex);
+                            i = pIndex + 1;
+                        } else {
+                            if (pIndex >= i + 3 && pattern.charAt(pIndex - 2) == ESCAPE_CHAR) {
+                                // foo-%d{yyyyMMdd\\}
+                                param = pattern.substring(i + 1, pIndex - 1);
+                                i = pIndex + 1;
+                                pNotEscaped = true;
+                            } else {
+                                // foo-%d{\} or foo-%d{yyyyMMdd\}
+                                param = pattern.substring(i, pIndex - 1) + '}';
+                                i = pIndex + 1;
                             }
                         }
-                        if (sbBuf.length() > 0) {
-                            // add plain text
-                            final String plainText = sbBuf.toString();
-                            slices.add((t, sb) -> sb.append(plainText));
-                            sbBuf.setLength(0);
-                        }
-
-                        // add marker converter
-                        slices.add(pNotEscaped ? entry.getValue().apply(param) : entry.getValue().apply(null));
-                        if (!pNotEscaped && param != null) {
-                            sbBuf.append(param);
-                        }
-
-                        d = pattern.indexOf(delimPrefix, i);
-                        continue out;
                     }
                 }
+                if (sbBuf.length() > 0) {
+                    // add plain text
+                    slices.add(new PlainText<>(sbBuf));
+                    sbBuf.setLength(0);
+                }
+
+                // add marker converter
+                slices.add(pNotEscaped ? matched.value.apply(param) : matched.value.apply(null));
+                if (!pNotEscaped && param != null) {
+                    sbBuf.append(param);
+                }
+            } else {
+                // not escape, but failed to match given marker
+                sbBuf.append(delimPrefix);
             }
-            // not escape, but failed to match given marker
-            sbBuf.append(delimPrefix);
             d = pattern.indexOf(delimPrefix, i);
         } while (d != -1);
         // append left
-        final int i0 = i;
-        sbBuf.append(pattern, i0, pattern.length());
-        final String last = sbBuf.toString();
-        slices.add((t, sb) -> sb.append(last));
-
-        // transfer to array for random access
-        final Converter[] slicesArr =
-                slices.toArray(new Converter[0]);
-
-        return new Converter<T>() {
-            @Override
-            public void convert(T t, StringBuilder sb) {
-                for (Converter consumer : slicesArr) {
-                    consumer.convert(t, sb);
-                }
-            }
+        sbBuf.append(pattern, i, pattern.length());
+        if (sbBuf.length() > 0) {
+            slices.add(new PlainText<>(sbBuf));
+        }
 
-            @Override
-            public void stop() {
-                for (Converter consumer : slicesArr) {
-                    try {
-                        consumer.stop();
-                    } catch (Throwable ignored) {
-                    }
-                }
-            }
-        };
+        if (slices.size() == 1) {
+            return slices.get(0);
+        }
+        return new CompositeConverter<>(slices);
     }
 
     static String format(String msg, Object[] arr) {
@@ -166,15 +145,194 @@ class Formatter {
             return null;
         }
 
-        int d = msg.indexOf(DELIM);
-        if (d == -1) {
+        final Template t = template(msg);
+        if (!hasDelim(msg, t)) {
             return msg;
         }
 
         final StringBuilder sb = new StringBuilder(msg.length() + 50);
         int i = 0;
-        int j = 0;
-        do {
+        for (int j = 0; j < len; j++) {
+            if ((i = appendUntilPlaceholder(sb, msg, t, j, i)) == -1) {
+                return sb.toString();
+            }
+            deeplyAppendParameter(sb, arr[j], null);
+        }
+        // append left
+        sb.append(msg, i, msg.length());
+        return sb.toString();
+    }
+
+    static String format(String msg, Object arg) {
+        return format(msg, 1, arg, null, null, null);
+    }
+
+    static String format(String msg, Object arg1, Object arg2) {
+        return format(msg, 2, arg1, arg2, null, null);
+    }
+
+    static String format(String msg, Object arg1, Object arg2, Object arg3) {
+        return format(msg, 3, arg1, arg2, arg3, null);
+    }
+
+    static String format(String msg, Object arg1, Object arg2, Object arg3, Object arg4) {
+        return format(msg, 4, arg1, arg2, arg3, arg4);
+    }
+
+    /**
+     * Fixed-arity version of {@link #format(String, Object[], int)} which does not need an array of arguments.
+     */
+    private static String format(String msg, int len, Object arg1, Object arg2, Object arg3, Object arg4) {
+        if (msg == null) {
+            return null;
+        }
+
+        final Template t = template(msg);
+        if (!hasDelim(msg, t)) {
+            return msg;
+        }
+
+        final StringBuilder sb = new StringBuilder(msg.length() + 50);
+        int i = 0;
+        for (int j = 0; j < len; j++) {
+            if ((i = appendUntilPlaceholder(sb, msg, t, j, i)) == -1) {
+                return sb.toString();
+            }
+            final Object arg;
+            switch (j) {
+                case 0:
+                    arg = arg1;
+                    break;
+                case 1:
+                    arg = arg2;
+                    break;
+                case 2:
+                    arg = arg3;
+                    break;
+                default:
+                    arg = arg4;
+                    break;
+            }
+            deeplyAppendParameter(sb, arg, null);
+        }
+        // append left
+        sb.append(msg, i, msg.length());
+        return sb.toString();
+    }
+
+    static String format(String msg, boolean arg) {
+        final Template t;
+        if (msg == null || !hasDelim(msg, t = template(msg))) {
+            return msg;
+        }
+        final StringBuilder sb = new StringBuilder(msg.length() + 20);
+        final int i = appendUntilPlaceholder(sb, msg, t, 0, 0);
+        return i == -1 ? sb.toString() : sb.append(arg).append(msg, i, msg.length()).toString();
+    }
+
+    static String format(String msg, char arg) {
+        final Template t;
+        if (msg == null || !hasDelim(msg, t = template(msg))) {
+            return msg;
+        }
+        final StringBuilder sb = new StringBuilder(msg.length() + 20);
+        final int i = appendUntilPlaceholder(sb, msg, t, 0, 0);
+        return i == -1 ? sb.toString() : sb.append(arg).append(msg, i, msg.length()).toString();
+    }
+
+    static String format(String msg, int arg) {
+        final Template t;
+        if (msg == null || !hasDelim(msg, t = template(msg))) {
+            return msg;
+        }
+        final StringBuilder sb = new StringBuilder(msg.length() + 20);
+        final int i = appendUntilPlaceholder(sb, msg, t, 0, 0);
+        return i == -1 ? sb.toString() : sb.append(arg).append(msg, i, msg.length()).toString();
+    }
+
+    static String format(String msg, long arg) {
+        final Template t;
+        if (msg == null || !hasDelim(msg, t = template(msg))) {
+            return msg;
+        }
+        final StringBuilder sb = new StringBuilder(msg.length() + 20);
+        final int i = appendUntilPlaceholder(sb, msg, t, 0, 0);
+        return i == -1 ? sb.toString() : sb.append(arg).append(msg, i, msg.length()).toString();
+    }
+
+    static String format(String msg, float arg) {
+        final Template t;
+        if (msg == null || !hasDelim(msg, t = template(msg))) {
+            return msg;
+        }
+        final StringBuilder sb = new StringBuilder(msg.length() + 20);
+        final int i = appendUntilPlaceholder(sb, msg, t, 0, 0);
+        return i == -1 ? sb.toString() : sb.append(arg).append(msg, i, msg.length()).toString();
+    }
+
+    static String format(String msg, double arg) {
+        final Template t;
+        if (msg == null || !hasDelim(msg, t = template(msg))) {
+            return msg;
+        }
+        final StringBuilder sb = new StringBuilder(msg.length() + 20);
+        final int i = appendUntilPlaceholder(sb, msg, t, 0, 0);
+        return i == -1 ? sb.toString() : sb.append(arg).append(msg, i, msg.length()).toString();
+    }
+
+    /**
+     * Gets the parsed {@link Template} of the given format string from the cache.
+     *
+     * @return template or {@code null} if it has not been cached yet
+     */
+    private static Template template(String msg) {
+        final int idx = System.identityHashCode(msg) & (TEMPLATE_CACHE_SIZE - 1);
+        Template t = TEMPLATES[idx];
+        if (t != null && t.msg == msg) {
+            return t;
+        }
+        if (SEEN[idx] == msg) {
+            // seen twice, it is supposed to be a constant format string
+            TEMPLATES[idx] = t = Template.parse(msg);
+            return t;
+        }
+        SEEN[idx] = msg;
+        return null;
+    }
+
+    private static boolean hasDelim(String msg, Template t) {
+        return t == null ? msg.indexOf(DELIM) != -1 : t.hasDelim;
+    }
+
+    /**
+     * Same as {@link #appendUntilPlaceholder(StringBuilder, String, int)} but uses the cached {@link Template} if
+     * present.
+     *
+     * @param j the index of the placeholder to find
+     * @param i the index of {@code msg} to start to scan if the {@code t} is absent
+     */
+    private static int appendUntilPlaceholder(StringBuilder sb, String msg, Template t, int j, int i) {
+        if (t == null) {
+            return appendUntilPlaceholder(sb, msg, i);
+        }
+        if (j < t.texts.length) {
+            sb.append(t.texts[j]);
+            return t.ends[j];
+        }
+        sb.append(t.tail);
+        return -1;
+    }
+
+    /**
+     * Appends the plain text of {@code msg} from the index of {@code i} to {@code sb} until the next unescaped
+     * placeholder.
+     *
+     * @return the index after the placeholder found, or {@code -1} if there's no more placeholder and all the left
+     * text has been appended.
+     */
+    private static int appendUntilPlaceholder(StringBuilder sb, String msg, int i) {
+        int d;
+        while ((d = msg.indexOf(DELIM, i)) != -1) {
             // plain text of marker \{}
             // or
             // plain text of marker \\{}
@@ -189,29 +347,21 @@ class Formatter {
                     // "/" escaped
                     // plain text of marker \\{}
                     sb.append(DELIM);
+                    i = d + 2;
                 } else {
-                    deeplyAppendParameter(sb, arr[j++], null);
-                    if (j >= len) {
-                        i = d + 2;
-                        break;
-                    }
+                    return d + 2;
                 }
             } else {
                 if (d - i > 0) {
                     // only append if chars present.
                     sb.append(msg, i, d);
                 }
-                deeplyAppendParameter(sb, arr[j++], null);
-                if (j >= len) {
-                    i = d + 2;
-                    break;
-                }
+                return d + 2;
             }
-            d = msg.indexOf(DELIM, (i = d + 2));
-        } while (d != -1);
+        }
         // append left
         sb.append(msg, i, msg.length());
-        return sb.toString();
+        return -1;
     }
 
     // special treatment of array values was suggested by 'lizongbo'
@@ -220,48 +370,49 @@ class Formatter {
             sb.append("null");
             return;
         }
-        Class<?> clz = o.getClass();
-        if (clz.isArray()) {
+        final Class<?> clz = o.getClass();
+        // the most common types first
+        if (clz == String.class) {
+            sb.append((String) o);
+        } else if (clz == Integer.class || clz == Short.class || clz == Byte.class) {
+            // Prevent String instantiation for some number types
+            sb.append(((Number) o).intValue());
+        } else if (clz == Long.class) {
+            sb.append(((Long) o).longValue());
+        } else if (clz == Boolean.class) {
+            sb.append(((Boolean) o).booleanValue());
+        } else if (clz == Character.class) {
+            sb.append(((Character) o).charValue());
+        } else if (clz == Double.class) {
+            sb.append(((Double) o).doubleValue());
+        } else if (clz == Float.class) {
+            sb.append(((Float) o).floatValue());
+        } else if (clz.isArray()) {
             // check for primitive array types because they
             // unfortunately cannot be cast to Object[]
             sb.append('[');
-            if (clz == boolean[].class) {
-                booleanArrayAppend(sb, (boolean[]) o);
+            if (o instanceof Object[]) {
+                objectArrayAppend(sb, (Object[]) o, seenSet);
+            } else if (clz == int[].class) {
+                intArrayAppend(sb, (int[]) o);
+            } else if (clz == long[].class) {
+                longArrayAppend(sb, (long[]) o);
             } else if (clz == byte[].class) {
                 byteArrayAppend(sb, (byte[]) o);
             } else if (clz == char[].class) {
                 charArrayAppend(sb, (char[]) o);
+            } else if (clz == boolean[].class) {
+                booleanArrayAppend(sb, (boolean[]) o);
             } else if (clz == short[].class) {
                 shortArrayAppend(sb, (short[]) o);
-            } else if (clz == int[].class) {
-                intArrayAppend(sb, (int[]) o);
-            } else if (clz == long[].class) {
-                longArrayAppend(sb, (long[]) o);
             } else if (clz == float[].class) {
                 floatArrayAppend(sb, (float[]) o);
-            } else if (clz == double[].class) {
-                doubleArrayAppend(sb, (double[]) o);
             } else {
-                objectArrayAppend(sb, (Object[]) o, seenSet);
+                doubleArrayAppend(sb, (double[]) o);
             }
             sb.append(']');
         } else {
-            if (Number.class.isAssignableFrom(clz)) {
-                // Prevent String instantiation for some number types
-                if (clz == Long.class) {
-                    sb.append(((Long) o).longValue());
-                } else if (clz == Integer.class || clz == Short.class || clz == Byte.class) {
-                    sb.append(((Number) o).intValue());
-                } else if (clz == Double.class) {
-                    sb.append(((Double) o).doubleValue());
-                } else if (clz == Float.class) {
-                    sb.append(((Float) o).floatValue());
-                } else {
-                    safeObjectAppend(sb, o);
-                }
-            } else {
-                safeObjectAppend(sb, o);
-            }
+            safeObjectAppend(sb, o);
         }
     }
 
@@ -282,100 +433,259 @@ class Formatter {
         if (a.length == 0) {
             return;
         }
-        if (seenSet == null) {
-            seenSet = new HashSet<>(a.length);
+        if (seenSet != null && !seenSet.add(a)) {
+            sb.append("...");
+            return;
         }
-        if (seenSet.add(a)) {
-            deeplyAppendParameter(sb, a[0], seenSet);
-            for (int i = 1; i < a.length; i++) {
+        for (int i = 0; i < a.length; i++) {
+            if (i > 0) {
                 sb.append(", ");
-                deeplyAppendParameter(sb, a[i], seenSet);
             }
+            final Object e = a[i];
+            if (seenSet == null && e instanceof Object[]) {
+                // the seen set is only needed for the nested arrays
+                seenSet = new HashSet<>();
+                seenSet.add(a);
+            }
+            deeplyAppendParameter(sb, e, seenSet);
+        }
+        if (seenSet != null) {
             // allow repeats in siblings
             seenSet.remove(a);
-        } else {
-            sb.append("...");
         }
     }
 
     private static void booleanArrayAppend(StringBuilder sb, boolean[] a) {
         final int len = a.length;
-        for (int i = 0; i < len; i++) {
-            sb.append(a[i]);
-            if (i != len - 1) {
-                sb.append(", ");
-            }
+        if (len == 0) {
+            return;
+        }
+        sb.append(a[0]);
+        for (int i = 1; i < len; i++) {
+            sb.append(", ").append(a[i]);
         }
     }
 
     private static void byteArrayAppend(StringBuilder sb, byte[] a) {
         final int len = a.length;
-        for (int i = 0; i < len; i++) {
-            sb.append(a[i]);
-            if (i != len - 1) {
-                sb.append(", ");
-            }
+        if (len == 0) {
+            return;
+        }
+        sb.append(a[0]);
+        for (int i = 1; i < len; i++) {
+            sb.append(", ").append(a[i]);
         }
     }
 
     private static void charArrayAppend(StringBuilder sb, char[] a) {
         final int len = a.length;
-        for (int i = 0; i < len; i++) {
-            sb.append(a[i]);
-            if (i != len - 1) {
-                sb.append(", ");
-            }
+        if (len == 0) {
+            return;
+        }
+        sb.append(a[0]);
+        for (int i = 1; i < len; i++) {
+            sb.append(", ").append(a[i]);
         }
     }
 
     private static void shortArrayAppend(StringBuilder sb, short[] a) {
         final int len = a.length;
-        for (int i = 0; i < len; i++) {
-            sb.append(a[i]);
-            if (i != len - 1) {
-                sb.append(", ");
-            }
+        if (len == 0) {
+            return;
+        }
+        sb.append(a[0]);
+        for (int i = 1; i < len; i++) {
+            sb.append(", ").append(a[i]);
         }
     }
 
     private static void intArrayAppend(StringBuilder sb, int[] a) {
         final int len = a.length;
-        for (int i = 0; i < len; i++) {
-            sb.append(a[i]);
-            if (i != len - 1) {
-                sb.append(", ");
-            }
+        if (len == 0) {
+            return;
+        }
+        sb.append(a[0]);
+        for (int i = 1; i < len; i++) {
+            sb.append(", ").append(a[i]);
         }
     }
 
     private static void longArrayAppend(StringBuilder sb, long[] a) {
         final int len = a.length;
-        for (int i = 0; i < len; i++) {
-            sb.append(a[i]);
-            if (i != len - 1) {
-                sb.append(", ");
-            }
+        if (len == 0) {
+            return;
+        }
+        sb.append(a[0]);
+        for (int i = 1; i < len; i++) {
+            sb.append(", ").append(a[i]);
         }
     }
 
     private static void floatArrayAppend(StringBuilder sb, float[] a) {
         final int len = a.length;
-        for (int i = 0; i < len; i++) {
-            sb.append(a[i]);
-            if (i != len - 1) {
-                sb.append(", ");
-            }
+        if (len == 0) {
+            return;
+        }
+        sb.append(a[0]);
+        for (int i = 1; i < len; i++) {
+            sb.append(", ").append(a[i]);
         }
     }
 
     private static void doubleArrayAppend(StringBuilder sb, double[] a) {
         final int len = a.length;
-        for (int i = 0; i < len; i++) {
-            sb.append(a[i]);
-            if (i != len - 1) {
-                sb.append(", ");
+        if (len == 0) {
+            return;
+        }
+        sb.append(a[0]);
+        for (int i = 1; i < len; i++) {
+            sb.append(", ").append(a[i]);
+        }
+    }
+
+    /**
+     * Parsed format string, which consists of the plain texts(unescaped) before every placeholder and the index of
+     * format string after every placeholder.
+     */
+    private static final class Template {
+
+        private static final int[] NO_ENDS = new int[0];
+        private static final String[] NO_TEXTS = new String[0];
+        private final String msg;
+        private final boolean hasDelim;
+        private final String[] texts;
+        private final int[] ends;
+        /**
+         * Unescaped plain text after the last placeholder.
+         */
+        private final String tail;
+
+        private Template(String msg, boolean hasDelim, String[] texts, int[] ends, String tail) {
+            this.msg = msg;
+            this.hasDelim = hasDelim;
+            this.texts = texts;
+            this.ends = ends;
+            this.tail = tail;
+        }
+
+        private static Template parse(String msg) {
+            if (msg.indexOf(DELIM) == -1) {
+                return new Template(msg, false, NO_TEXTS, NO_ENDS, msg);
             }
+            final List<String> texts = new ArrayList<>();
+            int[] ends = new int[4];
+            final StringBuilder sb = new StringBuilder(msg.length());
+            int i = 0;
+            while ((i = appendUntilPlaceholder(sb, msg, i)) != -1) {
+                if (texts.size() == ends.length) {
+                    ends = Arrays.copyOf(ends, ends.length << 1);
+                }
+                ends[texts.size()] = i;
+                texts.add(sb.toString());
+                sb.setLength(0);
+            }
+            return new Template(msg,
+                    true,
+                    texts.toArray(NO_TEXTS),
+                    Arrays.copyOf(ends, texts.size()),
+                    sb.toString());
+        }
+    }
+
+    /**
+     * Appends the prebuilt plain text.
+     */
+    private static final class PlainText<T> implements Converter<T> {
+
+        private final char[] text;
+
+        private PlainText(CharSequence text) {
+            this.text = text.toString().toCharArray();
+        }
+
+        @Override
+        public void convert(T t, StringBuilder sb) {
+            sb.append(text);
         }
     }
 
+    /**
+     * Calls the compiled converters in turn.
+     */
+    private static final class CompositeConverter<T> implements Converter<T> {
+
+        private final Converter<T>[] converters;
+
+        @SuppressWarnings("unchecked")
+        private CompositeConverter(List<Converter<T>> converters) {
+            this.converters = converters.toArray((Converter<T>[]) new Converter<?>[0]);
+        }
+
+        @Override
+        public void convert(T t, StringBuilder sb) {
+            final Converter<T>[] converters = this.converters;
+            for (int i = 0; i < converters.length; i++) {
+                converters[i].convert(t, sb);
+            }
+        }
+
+        @Override
+        public void stop() {
+            for (Converter<T> converter : converters) {
+                try {
+                    converter.stop();
+                } catch (Throwable ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Trie of markers which is used to find the longest marker at the given position of the pattern.
+     */
+    private static final class MarkerTrie<T> {
+
+        private final Map<Character, MarkerTrie<T>> children = new HashMap<>(8);
+        private final int depth;
+        private Function<String, Converter<T>> value;
+
+        private MarkerTrie(int depth) {
+            this.depth = depth;
+        }
+
+        private MarkerTrie(Map<String, Function<String, Converter<T>>> markers) {
+            this(0);
+            markers.forEach((marker, value) -> {
+                if (StringUtils.isEmpty(marker)) {
+                    return;
+                }
+                MarkerTrie<T> node = this;
+                for (int i = 0; i < marker.length(); i++) {
+                    final int depth = node.depth + 1;
+                    node = node.children.computeIfAbsent(marker.charAt(i), c -> new MarkerTrie<>(depth));
+                }
+                node.value = value;
+            });
+        }
+
+        /**
+         * Finds the longest marker that starts at the given index.
+         *
+         * @return the node of the marker or {@code null} if there's no marker matched
+         */
+        private MarkerTrie<T> match(String pattern, int start) {
+            MarkerTrie<T> matched = null;
+            MarkerTrie<T> node = this;
+            for (int i = start; i < pattern.length(); i++) {
+                node = node.children.get(pattern.charAt(i));
+                if (node == null) {
+                    break;
+                }
+                if (node.value != null) {
+                    matched = node;
+                }
+            }
+            return matched;
+        }
+    }
 }
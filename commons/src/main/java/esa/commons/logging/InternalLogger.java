@@ -19,7 +19,8 @@ import esa.commons.annotation.Beta;
 import esa.commons.annotation.Internal;
 
 /**
- * Extension of {@link Logger}, which would be created by {@link InternalLoggers}.
+ * Extension of {@link Logger}, which would be created by {@link InternalLoggers}, and provides the overloads for
+ * logging primitive arguments and more arguments without allocating an array of arguments.
  */
 @Beta
 @Internal
@@ -47,4 +48,167 @@ public interface InternalLogger extends Logger {
      * @return {@code true} if given level is enabled, otherwise {@code false}
      */
     boolean isLogEnabled(Level level);
+
+    // Overloads below allow to log primitive arguments without boxing and up to 4 arguments without an array of
+    // arguments, and they are expected to be overridden by the implementations which could make use of them.
+
+    default void trace(String format, boolean arg) {
+        trace(format, (Object) arg);
+    }
+
+    default void trace(String format, char arg) {
+        trace(format, (Object) arg);
+    }
+
+    default void trace(String format, int arg) {
+        trace(format, (Object) arg);
+    }
+
+    default void trace(String format, long arg) {
+        trace(format, (Object) arg);
+    }
+
+    default void trace(String format, float arg) {
+        trace(format, (Object) arg);
+    }
+
+    default void trace(String format, double arg) {
+        trace(format, (Object) arg);
+    }
+
+    default void trace(String format, Object arg1, Object arg2, Object arg3) {
+        trace(format, new Object[]{arg1, arg2, arg3});
+    }
+
+    default void trace(String format, Object arg1, Object arg2, Object arg3, Object arg4) {
+        trace(format, new Object[]{arg1, arg2, arg3, arg4});
+    }
+
+    default void debug(String format, boolean arg) {
+        debug(format, (Object) arg);
+    }
+
+    default void debug(String format, char arg) {
+        debug(format, (Object) arg);
+    }
+
+    default void debug(String format, int arg) {
+        debug(format, (Object) arg);
+    }
+
+    default void debug(String format, long arg) {
+        debug(format, (Object) arg);
+    }
+
+    default void debug(String format, float arg) {
+        debug(format, (Object) arg);
+    }
+
+    default void debug(String format, double arg) {
+        debug(format, (Object) arg);
+    }
+
+    default void debug(String format, Object arg1, Object arg2, Object arg3) {
+        debug(format, new Object[]{arg1, arg2, arg3});
+    }
+
+    default void debug(String format, Object arg1, Object arg2, Object arg3, Object arg4) {
+        debug(format, new Object[]{arg1, arg2, arg3, arg4});
+    }
+
+    default void info(String format, boolean arg) {
+        info(format, (Object) arg);
+    }
+
+    default void info(String format, char arg) {
+        info(format, (Object) arg);
+    }
+
+    default void info(String format, int arg) {
+        info(format, (Object) arg);
+    }
+
+    default void info(String format, long arg) {
+        info(format, (Object) arg);
+    }
+
+    default void info(String format, float arg) {
+        info(format, (Object) arg);
+    }
+
+    default void info(String format, double arg) {
+        info(format, (Object) arg);
+    }
+
+    default void info(String format, Object arg1, Object arg2, Object arg3) {
+        info(format, new Object[]{arg1, arg2, arg3});
+    }
+
+    default void info(String format, Object arg1, Object arg2, Object arg3, Object arg4) {
+        info(format, new Object[]{arg1, arg2, arg3, arg4});
+    }
+
+    default void warn(String format, boolean arg) {
+        warn(format, (Object) arg);
+    }
+
+    default void warn(String format, char arg) {
+        warn(format, (Object) arg);
+    }
+
+    default void warn(String format, int arg) {
+        warn(format, (Object) arg);
+    }
+
+    default void warn(String format, long arg) {
+        warn(format, (Object) arg);
+    }
+
+    default void warn(String format, float arg) {
+        warn(format, (Object) arg);
+    }
+
+    default void warn(String format, double arg) {
+        warn(format, (Object) arg);
+    }
+
+    default void warn(String format, Object arg1, Object arg2, Object arg3) {
+        warn(format, new Object[]{arg1, arg2, arg3});
+    }
+
+    default void warn(String format, Object arg1, Object arg2, Object arg3, Object arg4) {
+        warn(format, new Object[]{arg1, arg2, arg3, arg4});
+    }
+
+    default void error(String format, boolean arg) {
+        error(format, (Object) arg);
+    }
+
+    default void error(String format, char arg) {
+        error(format, (Object) arg);
+    }
+
+    default void error(String format, int arg) {
+        error(format, (Object) arg);
+    }
+
+    default void error(String format, long arg) {
+        error(format, (Object) arg);
+    }
+
+    default void error(String format, float arg) {
+        error(format, (Object) arg);
+    }
+
+    default void error(String format, double arg) {
+        error(format, (Object) arg);
+    }
+
+    default void error(String format, Object arg1, Object arg2, Object arg3) {
+        error(format, new Object[]{arg1, arg2, arg3});
+    }
+
+    default void error(String format, Object arg1, Object arg2, Object arg3, Object arg4) {
+        error(format, new Object[]{arg1, arg2, arg3, arg4});
+    }
 }
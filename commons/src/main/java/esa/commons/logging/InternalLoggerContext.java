@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.logging;
+
+import esa.commons.Checks;
+import esa.commons.annotation.Beta;
+import esa.commons.annotation.Internal;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Thread bound key/value attachments of the {@link InternalLogger}s, which is similar with the MDC of other log
+ * frameworks. The attachments of the current thread will be attached to the log events which are created in this
+ * thread, and could be output by pattern {@code %X{key}} or the JSON encoder.
+ * <p>
+ * The attachments is stored as an immutable map which will be copied when modifying, and the log events could
+ * reference it directly without copying.
+ */
+@Beta
+@Internal
+public final class InternalLoggerContext {
+
+    private static final ThreadLocal<Map<String, String>> CONTEXT = new ThreadLocal<>();
+
+    private InternalLoggerContext() {
+    }
+
+    /**
+     * Puts a key/value attachment into the context of current thread.
+     *
+     * @param key   key
+     * @param value value
+     */
+    public static void put(String key, String value) {
+        Checks.checkNotNull(key, "key");
+        final Map<String, String> current = CONTEXT.get();
+        final Map<String, String> copy = current == null ? new LinkedHashMap<>(4) : new LinkedHashMap<>(current);
+        copy.put(key, value);
+        CONTEXT.set(Collections.unmodifiableMap(copy));
+    }
+
+    /**
+     * Gets the attachment of given key in the context of current thread.
+     *
+     * @param key key
+     *
+     * @return value or {@code null} if absent
+     */
+    public static String get(String key) {
+        final Map<String, String> current = CONTEXT.get();
+        return current == null ? null : current.get(key);
+    }
+
+    /**
+     * Removes the attachment of given key from the context of current thread.
+     *
+     * @param key key
+     */
+    public static void remove(String key) {
+        final Map<String, String> current = CONTEXT.get();
+        if (current == null || !current.containsKey(key)) {
+            return;
+        }
+        if (current.size() == 1) {
+            CONTEXT.remove();
+        } else {
+            final Map<String, String> copy = new LinkedHashMap<>(current);
+            copy.remove(key);
+            CONTEXT.set(Collections.unmodifiableMap(copy));
+        }
+    }
+
+    /**
+     * Clears all the attachments of current thread.
+     */
+    public static void clear() {
+        CONTEXT.remove();
+    }
+
+    /**
+     * Gets all the attachments of current thread.
+     *
+     * @return an immutable map of attachments
+     */
+    public static Map<String, String> getAll() {
+        final Map<String, String> current = CONTEXT.get();
+        return current == null ? Collections.emptyMap() : current;
+    }
+}
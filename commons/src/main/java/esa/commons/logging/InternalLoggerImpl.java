@@ -17,16 +17,24 @@ package esa.commons.logging;
 
 import esa.commons.Checks;
 
+import java.util.concurrent.TimeUnit;
+
 class InternalLoggerImpl implements InternalLogger {
     private final String name;
     private final LogHandler logHandler;
+    private final LogThrottle throttle;
     private volatile Level level = Level.INFO;
 
     InternalLoggerImpl(String name, LogHandler logHandler) {
+        this(name, logHandler, null);
+    }
+
+    InternalLoggerImpl(String name, LogHandler logHandler, LogThrottle throttle) {
         Checks.checkNotEmptyArg(name, "name");
         Checks.checkNotNull(logHandler);
         this.name = name;
         this.logHandler = logHandler;
+        this.throttle = throttle;
     }
 
     @Override
@@ -61,127 +69,447 @@ class InternalLoggerImpl implements InternalLogger {
 
     @Override
     public void trace(String msg) {
-        log(Level.TRACE, msg, null);
+        if (shouldLog(Level.TRACE, msg)) {
+            handle(Level.TRACE, msg, null);
+        }
     }
 
     @Override
     public void trace(String format, Object arg) {
-        log(Level.TRACE, format, null, arg);
+        if (shouldLog(Level.TRACE, format)) {
+            log1(Level.TRACE, format, arg);
+        }
     }
 
     @Override
     public void trace(String format, Object arg1, Object arg2) {
-        log(Level.TRACE, format, null, arg1, arg2);
+        if (shouldLog(Level.TRACE, format)) {
+            log2(Level.TRACE, format, arg1, arg2);
+        }
+    }
+
+    @Override
+    public void trace(String format, boolean arg) {
+        if (shouldLog(Level.TRACE, format)) {
+            handle(Level.TRACE, Formatter.format(format, arg), null);
+        }
+    }
+
+    @Override
+    public void trace(String format, char arg) {
+        if (shouldLog(Level.TRACE, format)) {
+            handle(Level.TRACE, Formatter.format(format, arg), null);
+        }
+    }
+
+    @Override
+    public void trace(String format, int arg) {
+        if (shouldLog(Level.TRACE, format)) {
+            handle(Level.TRACE, Formatter.format(format, arg), null);
+        }
+    }
+
+    @Override
+    public void trace(String format, long arg) {
+        if (shouldLog(Level.TRACE, format)) {
+            handle(Level.TRACE, Formatter.format(format, arg), null);
+        }
+    }
+
+    @Override
+    public void trace(String format, float arg) {
+        if (shouldLog(Level.TRACE, format)) {
+            handle(Level.TRACE, Formatter.format(format, arg), null);
+        }
+    }
+
+    @Override
+    public void trace(String format, double arg) {
+        if (shouldLog(Level.TRACE, format)) {
+            handle(Level.TRACE, Formatter.format(format, arg), null);
+        }
+    }
+
+    @Override
+    public void trace(String format, Object arg1, Object arg2, Object arg3) {
+        if (shouldLog(Level.TRACE, format)) {
+            log3(Level.TRACE, format, arg1, arg2, arg3);
+        }
+    }
+
+    @Override
+    public void trace(String format, Object arg1, Object arg2, Object arg3, Object arg4) {
+        if (shouldLog(Level.TRACE, format)) {
+            log4(Level.TRACE, format, arg1, arg2, arg3, arg4);
+        }
     }
 
     @Override
     public void trace(String format, Object... arguments) {
-        log(Level.TRACE, format, null, arguments);
+        log(Level.TRACE, format, arguments);
     }
 
     @Override
     public void trace(String msg, Throwable t) {
-        log(Level.TRACE, msg, t);
+        if (shouldLog(Level.TRACE, msg)) {
+            handle(Level.TRACE, msg, t);
+        }
     }
 
     @Override
     public void debug(String msg) {
-        log(Level.DEBUG, msg, null);
+        if (shouldLog(Level.DEBUG, msg)) {
+            handle(Level.DEBUG, msg, null);
+        }
     }
 
     @Override
     public void debug(String format, Object arg) {
-        log(Level.DEBUG, format, null, arg);
+        if (shouldLog(Level.DEBUG, format)) {
+            log1(Level.DEBUG, format, arg);
+        }
     }
 
     @Override
     public void debug(String format, Object arg1, Object arg2) {
-        log(Level.DEBUG, format, null, arg1, arg2);
+        if (shouldLog(Level.DEBUG, format)) {
+            log2(Level.DEBUG, format, arg1, arg2);
+        }
+    }
+
+    @Override
+    public void debug(String format, boolean arg) {
+        if (shouldLog(Level.DEBUG, format)) {
+            handle(Level.DEBUG, Formatter.format(format, arg), null);
+        }
+    }
+
+    @Override
+    public void debug(String format, char arg) {
+        if (shouldLog(Level.DEBUG, format)) {
+            handle(Level.DEBUG, Formatter.format(format, arg), null);
+        }
+    }
+
+    @Override
+    public void debug(String format, int arg) {
+        if (shouldLog(Level.DEBUG, format)) {
+            handle(Level.DEBUG, Formatter.format(format, arg), null);
+        }
+    }
+
+    @Override
+    public void debug(String format, long arg) {
+        if (shouldLog(Level.DEBUG, format)) {
+            handle(Level.DEBUG, Formatter.format(format, arg), null);
+        }
+    }
+
+    @Override
+    public void debug(String format, float arg) {
+        if (shouldLog(Level.DEBUG, format)) {
+            handle(Level.DEBUG, Formatter.format(format, arg), null);
+        }
+    }
+
+    @Override
+    public void debug(String format, double arg) {
+        if (shouldLog(Level.DEBUG, format)) {
+            handle(Level.DEBUG, Formatter.format(format, arg), null);
+        }
+    }
+
+    @Override
+    public void debug(String format, Object arg1, Object arg2, Object arg3) {
+        if (shouldLog(Level.DEBUG, format)) {
+            log3(Level.DEBUG, format, arg1, arg2, arg3);
+        }
+    }
+
+    @Override
+    public void debug(String format, Object arg1, Object arg2, Object arg3, Object arg4) {
+        if (shouldLog(Level.DEBUG, format)) {
+            log4(Level.DEBUG, format, arg1, arg2, arg3, arg4);
+        }
     }
 
     @Override
     public void debug(String format, Object... arguments) {
-        log(Level.DEBUG, format, null, arguments);
+        log(Level.DEBUG, format, arguments);
     }
 
     @Override
     public void debug(String msg, Throwable t) {
-        log(Level.DEBUG, msg, t);
+        if (shouldLog(Level.DEBUG, msg)) {
+            handle(Level.DEBUG, msg, t);
+        }
     }
 
     @Override
     public void info(String msg) {
-        log(Level.INFO, msg, null);
+        if (shouldLog(Level.INFO, msg)) {
+            handle(Level.INFO, msg, null);
+        }
     }
 
     @Override
     public void info(String format, Object arg) {
-        log(Level.INFO, format, null, arg);
+        if (shouldLog(Level.INFO, format)) {
+            log1(Level.INFO, format, arg);
+        }
     }
 
     @Override
     public void info(String format, Object arg1, Object arg2) {
-        log(Level.INFO, format, null, arg1, arg2);
+        if (shouldLog(Level.INFO, format)) {
+            log2(Level.INFO, format, arg1, arg2);
+        }
+    }
+
+    @Override
+    public void info(String format, boolean arg) {
+        if (shouldLog(Level.INFO, format)) {
+            handle(Level.INFO, Formatter.format(format, arg), null);
+        }
+    }
+
+    @Override
+    public void info(String format, char arg) {
+        if (shouldLog(Level.INFO, format)) {
+            handle(Level.INFO, Formatter.format(format, arg), null);
+        }
+    }
+
+    @Override
+    public void info(String format, int arg) {
+        if (shouldLog(Level.INFO, format)) {
+            handle(Level.INFO, Formatter.format(format, arg), null);
+        }
+    }
+
+    @Override
+    public void info(String format, long arg) {
+        if (shouldLog(Level.INFO, format)) {
+            handle(Level.INFO, Formatter.format(format, arg), null);
+        }
+    }
+
+    @Override
+    public void info(String format, float arg) {
+        if (shouldLog(Level.INFO, format)) {
+            handle(Level.INFO, Formatter.format(format, arg), null);
+        }
+    }
+
+    @Override
+    public void info(String format, double arg) {
+        if (shouldLog(Level.INFO, format)) {
+            handle(Level.INFO, Formatter.format(format, arg), null);
+        }
+    }
+
+    @Override
+    public void info(String format, Object arg1, Object arg2, Object arg3) {
+        if (shouldLog(Level.INFO, format)) {
+            log3(Level.INFO, format, arg1, arg2, arg3);
+        }
+    }
+
+    @Override
+    public void info(String format, Object arg1, Object arg2, Object arg3, Object arg4) {
+        if (shouldLog(Level.INFO, format)) {
+            log4(Level.INFO, format, arg1, arg2, arg3, arg4);
+        }
     }
 
     @Override
     public void info(String format, Object... arguments) {
-        log(Level.INFO, format, null, arguments);
+        log(Level.INFO, format, arguments);
     }
 
     @Override
     public void info(String msg, Throwable t) {
-        log(Level.INFO, msg, t);
+        if (shouldLog(Level.INFO, msg)) {
+            handle(Level.INFO, msg, t);
+        }
     }
 
     @Override
     public void warn(String msg) {
-        log(Level.WARN, msg, null);
+        if (shouldLog(Level.WARN, msg)) {
+            handle(Level.WARN, msg, null);
+        }
     }
 
     @Override
     public void warn(String format, Object arg) {
-        log(Level.WARN, format, null, arg);
+        if (shouldLog(Level.WARN, format)) {
+            log1(Level.WARN, format, arg);
+        }
     }
 
     @Override
     public void warn(String format, Object arg1, Object arg2) {
-        log(Level.WARN, format, null, arg1, arg2);
+        if (shouldLog(Level.WARN, format)) {
+            log2(Level.WARN, format, arg1, arg2);
+        }
+    }
+
+    @Override
+    public void warn(String format, boolean arg) {
+        if (shouldLog(Level.WARN, format)) {
+            handle(Level.WARN, Formatter.format(format, arg), null);
+        }
+    }
+
+    @Override
+    public void warn(String format, char arg) {
+        if (shouldLog(Level.WARN, format)) {
+            handle(Level.WARN, Formatter.format(format, arg), null);
+        }
+    }
+
+    @Override
+    public void warn(String format, int arg) {
+        if (shouldLog(Level.WARN, format)) {
+            handle(Level.WARN, Formatter.format(format, arg), null);
+        }
+    }
+
+    @Override
+    public void warn(String format, long arg) {
+        if (shouldLog(Level.WARN, format)) {
+            handle(Level.WARN, Formatter.format(format, arg), null);
+        }
+    }
+
+    @Override
+    public void warn(String format, float arg) {
+        if (shouldLog(Level.WARN, format)) {
+            handle(Level.WARN, Formatter.format(format, arg), null);
+        }
+    }
+
+    @Override
+    public void warn(String format, double arg) {
+        if (shouldLog(Level.WARN, format)) {
+            handle(Level.WARN, Formatter.format(format, arg), null);
+        }
+    }
+
+    @Override
+    public void warn(String format, Object arg1, Object arg2, Object arg3) {
+        if (shouldLog(Level.WARN, format)) {
+            log3(Level.WARN, format, arg1, arg2, arg3);
+        }
+    }
+
+    @Override
+    public void warn(String format, Object arg1, Object arg2, Object arg3, Object arg4) {
+        if (shouldLog(Level.WARN, format)) {
+            log4(Level.WARN, format, arg1, arg2, arg3, arg4);
+        }
     }
 
     @Override
     public void warn(String format, Object... arguments) {
-        log(Level.WARN, format, null, arguments);
+        log(Level.WARN, format, arguments);
     }
 
     @Override
     public void warn(String msg, Throwable t) {
-        log(Level.WARN, msg, t);
+        if (shouldLog(Level.WARN, msg)) {
+            handle(Level.WARN, msg, t);
+        }
     }
 
     @Override
     public void error(String msg) {
-        log(Level.ERROR, msg, null);
+        if (shouldLog(Level.ERROR, msg)) {
+            handle(Level.ERROR, msg, null);
+        }
     }
 
     @Override
     public void error(String format, Object arg) {
-        log(Level.ERROR, format, null, arg);
+        if (shouldLog(Level.ERROR, format)) {
+            log1(Level.ERROR, format, arg);
+        }
     }
 
     @Override
     public void error(String format, Object arg1, Object arg2) {
-        log(Level.ERROR, format, null, arg1, arg2);
+        if (shouldLog(Level.ERROR, format)) {
+            log2(Level.ERROR, format, arg1, arg2);
+        }
+    }
+
+    @Override
+    public void error(String format, boolean arg) {
+        if (shouldLog(Level.ERROR, format)) {
+            handle(Level.ERROR, Formatter.format(format, arg), null);
+        }
+    }
+
+    @Override
+    public void error(String format, char arg) {
+        if (shouldLog(Level.ERROR, format)) {
+            handle(Level.ERROR, Formatter.format(format, arg), null);
+        }
+    }
+
+    @Override
+    public void error(String format, int arg) {
+        if (shouldLog(Level.ERROR, format)) {
+            handle(Level.ERROR, Formatter.format(format, arg), null);
+        }
+    }
+
+    @Override
+    public void error(String format, long arg) {
+        if (shouldLog(Level.ERROR, format)) {
+            handle(Level.ERROR, Formatter.format(format, arg), null);
+        }
+    }
+
+    @Override
+    public void error(String format, float arg) {
+        if (shouldLog(Level.ERROR, format)) {
+            handle(Level.ERROR, Formatter.format(format, arg), null);
+        }
+    }
+
+    @Override
+    public void error(String format, double arg) {
+        if (shouldLog(Level.ERROR, format)) {
+            handle(Level.ERROR, Formatter.format(format, arg), null);
+        }
+    }
+
+    @Override
+    public void error(String format, Object arg1, Object arg2, Object arg3) {
+        if (shouldLog(Level.ERROR, format)) {
+            log3(Level.ERROR, format, arg1, arg2, arg3);
+        }
+    }
+
+    @Override
+    public void error(String format, Object arg1, Object arg2, Object arg3, Object arg4) {
+        if (shouldLog(Level.ERROR, format)) {
+            log4(Level.ERROR, format, arg1, arg2, arg3, arg4);
+        }
     }
 
     @Override
     public void error(String format, Object... arguments) {
-        log(Level.ERROR, format, null, arguments);
+        log(Level.ERROR, format, arguments);
     }
 
     @Override
     public void error(String msg, Throwable t) {
-        log(Level.ERROR, msg, t);
+        if (shouldLog(Level.ERROR, msg)) {
+            handle(Level.ERROR, msg, t);
+        }
     }
 
     @Override
@@ -205,10 +533,11 @@ class InternalLoggerImpl implements InternalLogger {
         return current.val() <= level.val();
     }
 
-    private void log(Level level, String message, Throwable t, Object... params) {
-        if (!isLogEnabled(level)) {
+    private void log(Level level, String message, Object[] params) {
+        if (!shouldLog(level, message)) {
             return;
         }
+        Throwable t = null;
         if (params != null && params.length != 0) {
             if (params[params.length - 1] instanceof Throwable) {
                 if (params.length > 1) {
@@ -219,6 +548,64 @@ class InternalLoggerImpl implements InternalLogger {
                 message = Formatter.format(message, params);
             }
         }
+        handle(level, message, t);
+    }
+
+    /**
+     * Checks whether the log event should be handled before formatting it.
+     */
+    private boolean shouldLog(Level level, String format) {
+        if (!isLogEnabled(level)) {
+            return false;
+        }
+        final LogThrottle throttle = this.throttle;
+        if (throttle == null) {
+            return true;
+        }
+        if (!throttle.tryAcquire(format)) {
+            return false;
+        }
+        final LogThrottle.Summary summary = throttle.pollSummary();
+        if (summary != null) {
+            handle(level, Formatter.format("Suppressed {} log messages by rate limiting or sampling in the last {}s",
+                    summary.suppressed, TimeUnit.NANOSECONDS.toSeconds(summary.elapsedNanos)), null);
+        }
+        return true;
+    }
+
+    private void log1(Level level, String message, Object arg) {
+        if (arg instanceof Throwable) {
+            handle(level, message, (Throwable) arg);
+        } else {
+            handle(level, Formatter.format(message, arg), null);
+        }
+    }
+
+    private void log2(Level level, String message, Object arg1, Object arg2) {
+        if (arg2 instanceof Throwable) {
+            handle(level, Formatter.format(message, arg1), (Throwable) arg2);
+        } else {
+            handle(level, Formatter.format(message, arg1, arg2), null);
+        }
+    }
+
+    private void log3(Level level, String message, Object arg1, Object arg2, Object arg3) {
+        if (arg3 instanceof Throwable) {
+            handle(level, Formatter.format(message, arg1, arg2), (Throwable) arg3);
+        } else {
+            handle(level, Formatter.format(message, arg1, arg2, arg3), null);
+        }
+    }
+
+    private void log4(Level level, String message, Object arg1, Object arg2, Object arg3, Object arg4) {
+        if (arg4 instanceof Throwable) {
+            handle(level, Formatter.format(message, arg1, arg2, arg3), (Throwable) arg4);
+        } else {
+            handle(level, Formatter.format(message, arg1, arg2, arg3, arg4), null);
+        }
+    }
+
+    private void handle(Level level, String message, Throwable t) {
         if (message == null) {
             message = "NULL";
         }
@@ -21,8 +21,13 @@ import esa.commons.annotation.Internal;
 
 import java.io.File;
 import java.nio.charset.Charset;
-import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 /**
@@ -81,6 +86,29 @@ public class InternalLoggers {
         return new Builder(clz.getName(), new File(target));
     }
 
+    /**
+     * Gets the {@link LogHandlerStats} of all the opened log files.
+     *
+     * @return an unmodifiable map of log files and stats
+     */
+    public static Map<File, LogHandlerStats> stats() {
+        final Map<File, LogHandlerStats> stats = new HashMap<>(Manager.LOGGER_HANDLERS.size());
+        Manager.LOGGER_HANDLERS.forEach((f, h) -> stats.put(f, h.stats()));
+        return Collections.unmodifiableMap(stats);
+    }
+
+    /**
+     * Gets the {@link LogHandlerStats} of the given log file.
+     *
+     * @param target target log file
+     *
+     * @return stats or {@code null} if the given file has not been opened by any logger
+     */
+    public static LogHandlerStats stats(File target) {
+        final LogHandler handler = Manager.LOGGER_HANDLERS.get(target);
+        return handler == null ? null : handler.stats();
+    }
+
     @Beta
     @Internal
     public static class Builder {
@@ -91,6 +119,16 @@ public class InternalLoggers {
         private int queue;
         private int writeBuffer;
         private Charset charset;
+        private boolean compress;
+        private boolean json;
+        private int rateLimit;
+        private int callSiteRateLimit;
+        private int sampleRate;
+        private boolean sharedWorker = Manager.SHARED_WORKER;
+        private int maxStackDepth;
+        private long fsyncInterval = -1L;
+        private boolean flushOnError;
+        private List<String> filteredStackPackages;
 
         private Supplier<RollingFileAppender.Rolling> rolling = () -> RollingFileAppender.Rolling.NOOP;
 
@@ -113,6 +151,8 @@ public class InternalLoggers {
          * <li>{@code %m}, {@code %msg}, {@code %message} : message body</li>
          * <li>{@code %n} : new line</li>
          * <li>{@code %ex}, {@code %exception}, {@code %thrown} : exception stack</li>
+         * <li>{@code %X{key}}, {@code %mdc{key}} : attachment of given key in {@link InternalLoggerContext}, and all
+         * the attachments will be output as {@code k1=v1, k2=v2} if the key is absent</li>
          * </ul>
          * <p>
          * eg. A logger(named: foo) message with pattern: {@code %date{yyyy-MM-dd} %level [%thread] %logger : %msg%n}
@@ -131,6 +171,34 @@ public class InternalLoggers {
             return this;
         }
 
+        /**
+         * Uses a JSON encoder instead of the pattern, which will encode every log event to a single line of JSON in
+         * UTF-8 with fields of {@code timestamp}(epoch millis), {@code level}, {@code thread}, {@code logger}, {@code
+         * message}, {@code thrown} and {@code attachments}(see {@link InternalLoggerContext}). The {@link
+         * #pattern(String)} and {@link #charset(Charset)} will be ignored.
+         *
+         * @return builder
+         */
+        public Builder useJsonEncoder() {
+            this.json = true;
+            return this;
+        }
+
+        /**
+         * Sets whether to append the log events in a {@link SharedLogWorker} which is shared with other log files
+         * instead of a dedicated thread. Every log file still has its own queue and write buffers, and the shared
+         * workers will serve them in turn. Default is {@code false} unless the system property {@code
+         * esa.logging.sharedWorker} is set to {@code true}.
+         *
+         * @param sharedWorker use shared worker or not
+         *
+         * @return builder
+         */
+        public Builder sharedWorker(boolean sharedWorker) {
+            this.sharedWorker = sharedWorker;
+            return this;
+        }
+
         /**
          * Sets the charset of message.
          *
@@ -170,6 +238,133 @@ public class InternalLoggers {
             return this;
         }
 
+        /**
+         * Sets whether to compress the history log files by gzip after rolling over, which will be done in the
+         * background and the compressed file will be named with a suffix of {@code .gz}. Default is {@code false}.
+         *
+         * @param compress compress or not
+         *
+         * @return builder
+         */
+        public Builder compress(boolean compress) {
+            this.compress = compress;
+            return this;
+        }
+
+        /**
+         * Forces the log data to the storage device after every writing to the file, which makes the logs durable
+         * without writing synchronously in the logging threads. By default, the log data is never forced by the logger
+         * and is left to the operating system.
+         *
+         * @return builder
+         */
+        public Builder fsyncPerFlush() {
+            this.fsyncInterval = 0L;
+            return this;
+        }
+
+        /**
+         * Forces the log data to the storage device periodically.
+         *
+         * @param interval interval of forcing
+         * @param unit     unit of interval
+         *
+         * @return builder
+         * @see #fsyncPerFlush()
+         */
+        public Builder fsyncPeriodically(long interval, TimeUnit unit) {
+            Checks.checkArg(interval > 0L, "fsync interval must over than zero: " + interval);
+            Checks.checkNotNull(unit, "unit");
+            this.fsyncInterval = unit.toNanos(interval);
+            return this;
+        }
+
+        /**
+         * Sets whether to write the buffered log data to the file immediately after an {@link Level#ERROR} event
+         * instead of waiting for the write buffer to be filled or timed out. Default is {@code false}.
+         *
+         * @param flushOnError flush on error or not
+         *
+         * @return builder
+         */
+        public Builder flushOnError(boolean flushOnError) {
+            this.flushOnError = flushOnError;
+            return this;
+        }
+
+        /**
+         * Sets the max frames to print for every throwable(including the causes and the suppressed) in the stack
+         * trace of the log events, the left frames will be omitted as {@code ... n more}. All the frames will be
+         * printed by default.
+         *
+         * @param maxStackDepth max frames
+         *
+         * @return builder
+         */
+        public Builder maxStackDepth(int maxStackDepth) {
+            Checks.checkArg(maxStackDepth > 0, "max stack depth must over than zero: " + maxStackDepth);
+            this.maxStackDepth = maxStackDepth;
+            return this;
+        }
+
+        /**
+         * Filters the frames of the given packages(such as {@code sun.reflect.}) in the stack trace of the log events,
+         * the consecutive filtered frames will be printed as {@code ... n filtered}.
+         *
+         * @param packages prefixes of the class names to filter
+         *
+         * @return builder
+         */
+        public Builder filterStackPackages(String... packages) {
+            Checks.checkNotNull(packages, "packages");
+            this.filteredStackPackages = Arrays.asList(packages);
+            return this;
+        }
+
+        /**
+         * Limits the rate of the log events of the logger by a token bucket, the log events will be suppressed before
+         * formatting if the rate is over than the given value. The number of suppressed log events will be logged
+         * periodically while there're any log events accepted.
+         *
+         * @param permitsPerSecond max log events per second
+         *
+         * @return builder
+         */
+        public Builder rateLimit(int permitsPerSecond) {
+            Checks.checkArg(permitsPerSecond > 0, "permits per second must over than zero: " + permitsPerSecond);
+            this.rateLimit = permitsPerSecond;
+            return this;
+        }
+
+        /**
+         * Limits the rate of the log events of every call site(identified by the format string) by a token bucket.
+         *
+         * @param permitsPerSecond max log events per second of a call site
+         *
+         * @return builder
+         * @see #rateLimit(int)
+         */
+        public Builder rateLimitPerCallSite(int permitsPerSecond) {
+            Checks.checkArg(permitsPerSecond > 0, "permits per second must over than zero: " + permitsPerSecond);
+            this.callSiteRateLimit = permitsPerSecond;
+            return this;
+        }
+
+        /**
+         * Samples the log events of every call site(identified by the format string), only 1 of every {@code
+         * sampleRate} log events will be accepted.
+         *
+         * @param sampleRate sample rate
+         *
+         * @return builder
+         * @see #rateLimit(int)
+         */
+        public Builder sample(int sampleRate) {
+            Checks.checkArg(sampleRate > 0, "sample rate must over than zero: " + sampleRate);
+            this.sampleRate = sampleRate;
+            return this;
+        }
+
         /**
          * @see #useSizeBasedRolling(File, long, int)
          */
@@ -288,9 +483,19 @@ public class InternalLoggers {
             synchronized (InternalLoggers.class) {
                 LogHandler logHandler = Manager.LOGGER_HANDLERS.get(target);
                 if (logHandler == null) {
-                    final Appender appender = RollingFileAppender.newInstance(target, rolling.get());
-                    logHandler = new SingleThreadLogHandler(appender,
-                            new EncoderImpl(pattern, charset), queue, writeBuffer);
+                    final LogHandlerStatsImpl stats = new LogHandlerStatsImpl();
+                    final Appender appender = RollingFileAppender.newInstance(target, rolling.get(), compress, stats);
+                    final ThrowableRenderer renderer = maxStackDepth > 0 || filteredStackPackages != null
+                            ? new ThrowableRenderer(maxStackDepth, filteredStackPackages)
+                            : ThrowableRenderer.DEFAULT;
+                    final Encoder encoder = json
+                            ? new JsonEncoder(renderer)
+                            : new EncoderImpl(pattern, charset, renderer);
+                    logHandler = sharedWorker
+                            ? new MultiplexingLogHandler(appender, encoder, queue, writeBuffer, stats,
+                                    fsyncInterval, flushOnError)
+                            : new SingleThreadLogHandler(appender, encoder, queue, writeBuffer, stats,
+                                    fsyncInterval, flushOnError);
                 } else if (!reuseHandler) {
                     throw new IllegalStateException(
                             "Could not build logger because file '" +
@@ -298,30 +503,54 @@ public class InternalLoggers {
                                     + "' has been opened by other loggers.");
                 }
                 Manager.LOGGER_HANDLERS.put(target, logHandler);
-                return new InternalLoggerImpl(name, logHandler);
+                return new InternalLoggerImpl(name, logHandler,
+                        LogThrottle.of(rateLimit, callSiteRateLimit, sampleRate));
             }
         }
     }
 
     static class Manager {
         private static final int LOCAL_STRING_BUILDER_SIZE = 2048;
-        static final String DEFAULT_DATE_FORMAT = "yyyy-MM-dd HH:mm:ss.SSS";
         static final ConcurrentHashMap<File, LogHandler> LOGGER_HANDLERS = new ConcurrentHashMap<>();
         private static final ThreadLocal<StringBuilder> SBUF =
                 ThreadLocal.withInitial(() -> new StringBuilder(LOCAL_STRING_BUILDER_SIZE));
-        private static final ThreadLocal<SimpleDateFormat> SDF =
-                ThreadLocal.withInitial(() -> new SimpleDateFormat(DEFAULT_DATE_FORMAT));
+        /**
+         * Clock of {@link LogEvent}s, configured by system property {@code esa.logging.clock}, {@code cached} means
+         * to use the coarse {@link CachedClock}, and {@link LogClock#SYSTEM} will be used by default.
+         */
+        static final LogClock CLOCK = "cached".equalsIgnoreCase(System.getProperty("esa.logging.clock"))
+                ? CachedClock.INSTANCE
+                : LogClock.SYSTEM;
+        static final boolean SHARED_WORKER = Boolean.getBoolean("esa.logging.sharedWorker");
+        /**
+         * Max time in nanoseconds to drain the queued log events while shutting down, configured by system property
+         * {@code esa.logging.shutdownTimeout} in milliseconds which is {@code 3000} by default.
+         */
+        static final long SHUTDOWN_TIMEOUT =
+                TimeUnit.MILLISECONDS.toNanos(Long.getLong("esa.logging.shutdownTimeout", 3000L));
 
         static {
-            Runtime.getRuntime().addShutdownHook(new Thread(() -> LOGGER_HANDLERS.forEach((f, h) -> {
-                try {
-                    SBUF.remove();
-                    SDF.remove();
-                    h.stop();
-                } catch (Throwable t) {
-                    System.err.println("Failed to stop handler '" + f.getAbsolutePath() + "'");
-                }
-            }), "esa-logging-hook"));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                SBUF.remove();
+                LOGGER_HANDLERS.forEach((f, h) -> {
+                    try {
+                        h.stop();
+                    } catch (Throwable t) {
+                        System.err.println("Failed to stop handler '" + f.getAbsolutePath() + "'");
+                    }
+                });
+                // wait for all the handlers to be drained concurrently
+                final long deadline = System.nanoTime() + SHUTDOWN_TIMEOUT;
+                LOGGER_HANDLERS.forEach((f, h) -> {
+                    try {
+                        if (!h.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                            System.err.println("Timed out to drain handler '" + f.getAbsolutePath() + "'");
+                        }
+                    } catch (Throwable t) {
+                        System.err.println("Failed to drain handler '" + f.getAbsolutePath() + "'");
+                    }
+                });
+            }, "esa-logging-hook"));
         }
 
         static StringBuilder localSb(int len) {
@@ -333,10 +562,6 @@ public class InternalLoggers {
                 return new StringBuilder(len + 128);
             }
         }
-
-        static SimpleDateFormat localSdf() {
-            return SDF.get();
-        }
     }
 
 }
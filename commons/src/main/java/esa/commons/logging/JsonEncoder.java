@@ -0,0 +1,240 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.logging;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Implementation of {@link Encoder} that encodes the {@link LogEvent} to a single line of JSON in UTF-8, such as
+ * <pre>
+ * {"timestamp":1609430400000,"level":"INFO","thread":"main","logger":"foo","message":"hello","thrown":"...",
+ * "attachments":{"traceId":"bar"}}
+ * </pre>
+ * The {@code thrown} and {@code attachments} will be absent if there's no thrown or attachments. All the fields will
+ * be escaped and encoded directly into a byte array without any intermediate {@link String}.
+ */
+class JsonEncoder implements Encoder {
+
+    private static final int LOCAL_BUFFER_SIZE = 2048;
+    private static final int MAX_LOCAL_BUFFER_SIZE = 64 * 1024;
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+    private static final byte[] TIMESTAMP = "{\"timestamp\":".getBytes();
+    private static final byte[] LEVEL = ",\"level\":".getBytes();
+    private static final byte[] THREAD = ",\"thread\":".getBytes();
+    private static final byte[] LOGGER = ",\"logger\":".getBytes();
+    private static final byte[] MESSAGE = ",\"message\":".getBytes();
+    private static final byte[] THROWN = ",\"thrown\":".getBytes();
+    private static final byte[] ATTACHMENTS = ",\"attachments\":{".getBytes();
+    private static final byte[] NULL = "null".getBytes();
+
+    private final ThrowableRenderer renderer;
+    private final ThreadLocal<Output> localOutput = ThreadLocal.withInitial(() -> new Output(LOCAL_BUFFER_SIZE));
+
+    JsonEncoder() {
+        this(ThrowableRenderer.DEFAULT);
+    }
+
+    JsonEncoder(ThrowableRenderer renderer) {
+        this.renderer = renderer;
+    }
+
+    @Override
+    public byte[] encode(LogEvent e) {
+        final Output out = localOutput.get();
+        out.count = 0;
+        try {
+            out.write(TIMESTAMP);
+            out.writeLong(e.timestamp());
+            out.write(LEVEL);
+            out.writeString(e.level().toString());
+            out.write(THREAD);
+            out.writeString(e.threadName());
+            out.write(LOGGER);
+            out.writeString(e.loggerName());
+            out.write(MESSAGE);
+            out.writeString(e.message());
+            final Throwable t = e.thrown();
+            if (t != null) {
+                out.write(THROWN);
+                final ThrowableRenderer.Rendered rendered = renderer.render(t);
+                final byte[] json = rendered.json;
+                if (json == null) {
+                    final int start = out.count;
+                    out.writeString(rendered.text);
+                    // reuse the encoded bytes of the identical stack traces
+                    rendered.json = Arrays.copyOfRange(out.buf, start, out.count);
+                } else {
+                    out.write(json);
+                }
+            }
+            final Map<String, String> attachments = e.attachments();
+            if (!attachments.isEmpty()) {
+                out.write(ATTACHMENTS);
+                boolean first = true;
+                for (Map.Entry<String, String> entry : attachments.entrySet()) {
+                    if (first) {
+                        first = false;
+                    } else {
+                        out.write((byte) ',');
+                    }
+                    out.writeString(entry.getKey());
+                    out.write((byte) ':');
+                    out.writeString(entry.getValue());
+                }
+                out.write((byte) '}');
+            }
+            out.write((byte) '}');
+            out.write((byte) '\n');
+            return Arrays.copyOf(out.buf, out.count);
+        } finally {
+            if (out.buf.length > MAX_LOCAL_BUFFER_SIZE) {
+                // avoid retaining too large buffer
+                localOutput.remove();
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        localOutput.remove();
+    }
+
+    private static final class Output {
+        private byte[] buf;
+        private int count;
+
+        private Output(int size) {
+            this.buf = new byte[size];
+        }
+
+        private void ensureCapacity(int n) {
+            if (count + n > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length << 1, count + n));
+            }
+        }
+
+        private void write(byte b) {
+            ensureCapacity(1);
+            buf[count++] = b;
+        }
+
+        private void write(byte[] bytes) {
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buf, count, bytes.length);
+            count += bytes.length;
+        }
+
+        private void writeLong(long v) {
+            if (v == Long.MIN_VALUE) {
+                write(Long.toString(v).getBytes());
+                return;
+            }
+            ensureCapacity(20);
+            if (v < 0) {
+                buf[count++] = '-';
+                v = -v;
+            }
+            final int start = count;
+            do {
+                buf[count++] = (byte) ('0' + v % 10);
+                v /= 10;
+            } while (v > 0);
+            // reverse digits
+            for (int i = start, j = count - 1; i < j; i++, j--) {
+                final byte b = buf[i];
+                buf[i] = buf[j];
+                buf[j] = b;
+            }
+        }
+
+        /**
+         * Writes the given value as a quoted and escaped JSON string in UTF-8.
+         */
+        private void writeString(CharSequence s) {
+            if (s == null) {
+                write(NULL);
+                return;
+            }
+            final int len = s.length();
+            // at most 6 bytes(\\u00XX) for a char
+            ensureCapacity(len * 6 + 2);
+            final byte[] buf = this.buf;
+            int n = count;
+            buf[n++] = '"';
+            for (int i = 0; i < len; i++) {
+                final char c = s.charAt(i);
+                if (c < 0x80) {
+                    if (c >= 0x20 && c != '"' && c != '\\') {
+                        buf[n++] = (byte) c;
+                    } else {
+                        buf[n++] = '\\';
+                        switch (c) {
+                            case '"':
+                                buf[n++] = '"';
+                                break;
+                            case '\\':
+                                buf[n++] = '\\';
+                                break;
+                            case '\n':
+                                buf[n++] = 'n';
+                                break;
+                            case '\r':
+                                buf[n++] = 'r';
+                                break;
+                            case '\t':
+                                buf[n++] = 't';
+                                break;
+                            case '\b':
+                                buf[n++] = 'b';
+                                break;
+                            case '\f':
+                                buf[n++] = 'f';
+                                break;
+                            default:
+                                buf[n++] = 'u';
+                                buf[n++] = '0';
+                                buf[n++] = '0';
+                                buf[n++] = HEX[c >> 4];
+                                buf[n++] = HEX[c & 0xF];
+                                break;
+                        }
+                    }
+                } else if (c < 0x800) {
+                    buf[n++] = (byte) (0xC0 | (c >> 6));
+                    buf[n++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c)
+                        && i + 1 < len
+                        && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    final int cp = Character.toCodePoint(c, s.charAt(++i));
+                    buf[n++] = (byte) (0xF0 | (cp >> 18));
+                    buf[n++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    buf[n++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    buf[n++] = (byte) (0x80 | (cp & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    // malformed surrogate
+                    buf[n++] = '?';
+                } else {
+                    buf[n++] = (byte) (0xE0 | (c >> 12));
+                    buf[n++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buf[n++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            buf[n++] = '"';
+            count = n;
+        }
+    }
+}
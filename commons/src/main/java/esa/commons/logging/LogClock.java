@@ -0,0 +1,35 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.logging;
+
+/**
+ * Source of the timestamp of {@link LogEvent}.
+ */
+@FunctionalInterface
+interface LogClock {
+
+    /**
+     * Clock which uses {@link System#currentTimeMillis()} directly.
+     */
+    LogClock SYSTEM = System::currentTimeMillis;
+
+    /**
+     * Returns the current time in milliseconds.
+     *
+     * @return the difference, measured in milliseconds, between the current time and midnight, January 1, 1970 UTC.
+     */
+    long currentTimeMillis();
+}
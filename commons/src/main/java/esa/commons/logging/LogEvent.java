@@ -15,6 +15,9 @@
  */
 package esa.commons.logging;
 
+import java.util.Collections;
+import java.util.Map;
+
 /**
  * LogEvent
  */
@@ -55,4 +58,14 @@ interface LogEvent {
      * @return timestamp
      */
     long timestamp();
+
+    /**
+     * Key/value attachments of this event.
+     *
+     * @return an immutable map of attachments
+     * @see InternalLoggerContext
+     */
+    default Map<String, String> attachments() {
+        return Collections.emptyMap();
+    }
 }
@@ -15,6 +15,8 @@
  */
 package esa.commons.logging;
 
+import java.util.Map;
+
 class LogEventImpl implements LogEvent {
 
     private final String loggerName;
@@ -23,6 +25,7 @@ class LogEventImpl implements LogEvent {
     private final Throwable t;
     private final String threadName;
     private final long timestamp;
+    private final Map<String, String> attachments;
 
     LogEventImpl(String loggerName, Level level, String msg, Throwable t) {
         this.loggerName = loggerName;
@@ -30,7 +33,8 @@ class LogEventImpl implements LogEvent {
         this.msg = msg;
         this.t = t;
         this.threadName = Thread.currentThread().getName();
-        this.timestamp = System.currentTimeMillis();
+        this.timestamp = InternalLoggers.Manager.CLOCK.currentTimeMillis();
+        this.attachments = InternalLoggerContext.getAll();
     }
 
     @Override
@@ -62,4 +66,9 @@ class LogEventImpl implements LogEvent {
     public long timestamp() {
         return timestamp;
     }
+
+    @Override
+    public Map<String, String> attachments() {
+        return attachments;
+    }
 }
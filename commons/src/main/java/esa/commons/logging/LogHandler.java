@@ -15,6 +15,8 @@
  */
 package esa.commons.logging;
 
+import java.util.concurrent.TimeUnit;
+
 interface LogHandler {
 
     /**
@@ -25,7 +27,26 @@ interface LogHandler {
     void handle(LogEvent event);
 
     /**
-     * Stops the {@link LogHandler}, and there's no {@link LogEvent} will be passed to this {@link LogHandler}.
+     * Gets the statistics of this {@link LogHandler}.
+     *
+     * @return stats
+     */
+    LogHandlerStats stats();
+
+    /**
+     * Stops the {@link LogHandler}, and there's no {@link LogEvent} will be passed to this {@link LogHandler}. The
+     * queued log events will be drained and flushed in the background in a bounded time.
      */
     void stop();
+
+    /**
+     * Waits for the queued log events to be flushed after {@link #stop()}.
+     *
+     * @param timeout max time to wait
+     * @param unit    unit of timeout
+     *
+     * @return {@code true} if this handler has been terminated, {@code false} if timed out
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException;
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.logging;
+
+import esa.commons.annotation.Beta;
+import esa.commons.annotation.Internal;
+
+/**
+ * Statistics of the logging pipeline of a log file, including the queueing of the encoded log events, the writing to
+ * the file and the rolling over. All the values are counted since the log file was opened and could be read without
+ * any lock, the rates(such as the enqueue rate) are expected to be computed by the caller from two samples.
+ *
+ * @see InternalLoggers#stats()
+ */
+@Beta
+@Internal
+public interface LogHandlerStats {
+
+    /**
+     * Gets the number of log events that have been queued to be appended.
+     *
+     * @return enqueued count
+     */
+    long enqueued();
+
+    /**
+     * Gets the number of log events that have been dropped because the queue was full.
+     *
+     * @return dropped count
+     */
+    long dropped();
+
+    /**
+     * Gets the number of log events waiting in the queue, which is an estimated value.
+     *
+     * @return queue depth
+     */
+    int queueDepth();
+
+    /**
+     * Gets the histogram of the bytes of every flush, which means writing the buffered data to the file.
+     *
+     * @return histogram of flush size in bytes
+     */
+    Histogram flushSizes();
+
+    /**
+     * Gets the histogram of the latency of every flush in nanoseconds, including the time of rolling over.
+     *
+     * @return histogram of flush latency in nanoseconds
+     */
+    Histogram writeLatencies();
+
+    /**
+     * Gets the histogram of the duration of every rolling over in nanoseconds.
+     *
+     * @return histogram of rolling over duration in nanoseconds
+     */
+    Histogram rollovers();
+
+    /**
+     * A histogram with buckets of power of two, the bucket {@code i} counts the values in range of {@code
+     * [2^(i-1), 2^i - 1]} and the bucket {@code 0} counts the value of {@code 0}.
+     */
+    interface Histogram {
+
+        /**
+         * Gets the number of buckets.
+         *
+         * @return buckets
+         */
+        int buckets();
+
+        /**
+         * Gets the inclusive upper bound of the given bucket.
+         *
+         * @param bucket index of bucket
+         *
+         * @return upper bound
+         */
+        long upperBound(int bucket);
+
+        /**
+         * Gets the count of the values in the given bucket.
+         *
+         * @param bucket index of bucket
+         *
+         * @return count
+         */
+        long count(int bucket);
+
+        /**
+         * Gets the count of all the recorded values.
+         *
+         * @return count
+         */
+        long count();
+
+        /**
+         * Gets the sum of all the recorded values.
+         *
+         * @return sum
+         */
+        long sum();
+
+        /**
+         * Gets the max value of all the recorded values.
+         *
+         * @return max value
+         */
+        long max();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Implementation of {@link LogHandlerStats}. The enqueued and dropped events are counted by {@link LongAdder}s
+ * because they are recorded by all the logging threads, and the others are only recorded by the appending thread.
+ */
+final class LogHandlerStatsImpl implements LogHandlerStats {
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final HistogramImpl flushSizes = new HistogramImpl();
+    private final HistogramImpl writeLatencies = new HistogramImpl();
+    private final HistogramImpl rollovers = new HistogramImpl();
+    private volatile IntSupplier queueDepth = () -> 0;
+
+    void queueDepth(IntSupplier queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    void recordEnqueue(boolean accepted) {
+        if (accepted) {
+            enqueued.increment();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    void recordFlush(long bytes, long nanos) {
+        flushSizes.record(bytes);
+        writeLatencies.record(nanos);
+    }
+
+    void recordRollover(long nanos) {
+        rollovers.record(nanos);
+    }
+
+    @Override
+    public long enqueued() {
+        return enqueued.sum();
+    }
+
+    @Override
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public int queueDepth() {
+        return queueDepth.getAsInt();
+    }
+
+    @Override
+    public Histogram flushSizes() {
+        return flushSizes;
+    }
+
+    @Override
+    public Histogram writeLatencies() {
+        return writeLatencies;
+    }
+
+    @Override
+    public Histogram rollovers() {
+        return rollovers;
+    }
+
+    @Override
+    public String toString() {
+        return "LogHandlerStats{enqueued=" + enqueued()
+                + ", dropped=" + dropped()
+                + ", queueDepth=" + queueDepth()
+                + ", flushes=" + flushSizes.count()
+                + ", flushedBytes=" + flushSizes.sum()
+                + ", rollovers=" + rollovers.count()
+                + '}';
+    }
+
+    /**
+     * Lock free histogram which is expected to be recorded by a single thread.
+     */
+    static final class HistogramImpl implements Histogram {
+
+        private static final int BUCKETS = 64;
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long value) {
+            if (value < 0L) {
+                value = 0L;
+            }
+            counts.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(value));
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            if (value > max.get()) {
+                max.set(value);
+            }
+        }
+
+        @Override
+        public int buckets() {
+            return BUCKETS;
+        }
+
+        @Override
+        public long upperBound(int bucket) {
+            return bucket >= BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1L;
+        }
+
+        @Override
+        public long count(int bucket) {
+            return counts.get(bucket);
+        }
+
+        @Override
+        public long count() {
+            return count.get();
+        }
+
+        @Override
+        public long sum() {
+            return sum.get();
+        }
+
+        @Override
+        public long max() {
+            return max.get();
+        }
+    }
+}
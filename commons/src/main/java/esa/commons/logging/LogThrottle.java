@@ -0,0 +1,180 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.logging;
+
+import esa.commons.Checks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throttles the log events of an {@link InternalLogger} before formatting them, which supports:
+ * <ul>
+ * <li>rate limiting of the whole logger by a token bucket</li>
+ * <li>rate limiting of every call site by a token bucket</li>
+ * <li>sampling of every call site, which means only 1 of every N log events will be accepted</li>
+ * </ul>
+ * A call site is identified by the identity of the format string(which is a literal generally) and the call sites
+ * will be hashed into a fixed number of slots, so that the call sites whose format strings are in a same slot share
+ * the same bucket and counter. All the states are updated by lock-free atomic operations.
+ * <p>
+ * The number of the suppressed log events will be summarized and could be polled once in {@link #SUMMARY_INTERVAL}.
+ * The summary is polled by the logging thread only when a later log event of the same logger has been accepted, so it
+ * is delayed until then and it would never be emitted if the logger stops logging or all of its log events keep
+ * being suppressed. No background thread is involved for emitting it.
+ */
+final class LogThrottle {
+
+    static final long SUMMARY_INTERVAL = TimeUnit.SECONDS.toNanos(10L);
+    private static final int CALL_SITES = 256;
+    private static final long BURST = TimeUnit.SECONDS.toNanos(1L);
+
+    /**
+     * Nanos per permit of the logger, or {@code -1} if disabled.
+     */
+    private final long interval;
+    /**
+     * Nanos per permit of every call site, or {@code -1} if disabled.
+     */
+    private final long callSiteInterval;
+    private final int sampleRate;
+    /**
+     * Theoretical arrival times of the token buckets, indexed by call site and the last one is for the logger.
+     */
+    private final AtomicLongArray tats;
+    private final AtomicLongArray counters;
+    private final LongAdder suppressed = new LongAdder();
+    private final AtomicLong lastSummary = new AtomicLong(System.nanoTime());
+
+    private LogThrottle(int permitsPerSecond, int callSitePermitsPerSecond, int sampleRate) {
+        this.interval = permitsPerSecond > 0 ? BURST / permitsPerSecond : -1L;
+        this.callSiteInterval = callSitePermitsPerSecond > 0 ? BURST / callSitePermitsPerSecond : -1L;
+        this.sampleRate = sampleRate;
+        this.tats = new AtomicLongArray(CALL_SITES + 1);
+        // full buckets at the beginning
+        final long now = System.nanoTime() - BURST;
+        for (int i = 0; i < tats.length(); i++) {
+            tats.set(i, now);
+        }
+        this.counters = sampleRate > 1 ? new AtomicLongArray(CALL_SITES) : null;
+    }
+
+    /**
+     * Creates a {@link LogThrottle}.
+     *
+     * @param permitsPerSecond         max log events per second of the logger, non-positive value means unlimited.
+     * @param callSitePermitsPerSecond max log events per second of every call site, non-positive value means
+     *                                 unlimited.
+     * @param sampleRate               accept 1 of every {@code sampleRate} log events of every call site, value
+     *                                 less than 2 means sampling is disabled.
+     *
+     * @return throttle, or {@code null} if nothing needs to be throttled.
+     */
+    static LogThrottle of(int permitsPerSecond, int callSitePermitsPerSecond, int sampleRate) {
+        if (permitsPerSecond <= 0 && callSitePermitsPerSecond <= 0 && sampleRate <= 1) {
+            return null;
+        }
+        Checks.checkArg(permitsPerSecond <= BURST && callSitePermitsPerSecond <= BURST,
+                "permits per second is too large");
+        return new LogThrottle(permitsPerSecond, callSitePermitsPerSecond, sampleRate);
+    }
+
+    /**
+     * Tries to accept a log event of given call site.
+     *
+     * @param callSite format string of the log event
+     *
+     * @return {@code true} if accepted, otherwise {@code false} and it will be counted as suppressed.
+     */
+    boolean tryAcquire(String callSite) {
+        final int site = indexOf(callSite);
+        if (counters != null && counters.getAndIncrement(site) % sampleRate != 0L) {
+            suppressed.increment();
+            return false;
+        }
+        if (callSiteInterval > 0L || interval > 0L) {
+            final long now = System.nanoTime();
+            if (callSiteInterval > 0L && !acquire(site, callSiteInterval, now)) {
+                suppressed.increment();
+                return false;
+            }
+            if (interval > 0L && !acquire(CALL_SITES, interval, now)) {
+                if (callSiteInterval > 0L) {
+                    // give the permit of the call site back since the log event is rejected by the logger
+                    tats.getAndAdd(site, -callSiteInterval);
+                }
+                suppressed.increment();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Polls the number of suppressed log events since last polling if the last polling is more than {@link
+     * #SUMMARY_INTERVAL} ago. It is expected to be called after a log event has been accepted by {@link
+     * #tryAcquire(String)}, so the suppressed log events are summarized only when the logger logs successfully again.
+     *
+     * @return summary of the suppressed log events, or {@code null} if there's nothing suppressed or it's not the
+     * time to summarize.
+     */
+    Summary pollSummary() {
+        final long last = lastSummary.get();
+        final long now = System.nanoTime();
+        if (now - last < SUMMARY_INTERVAL || !lastSummary.compareAndSet(last, now)) {
+            return null;
+        }
+        final long count = suppressed.sumThenReset();
+        return count > 0L ? new Summary(count, now - last) : null;
+    }
+
+    /**
+     * Generic cell rate algorithm, which is equivalent to a token bucket whose capacity is the permits of 1 second.
+     */
+    private boolean acquire(int i, long interval, long now) {
+        for (; ; ) {
+            final long tat = tats.get(i);
+            final long next = (tat - now < 0L ? now : tat) + interval;
+            if (next - now > BURST) {
+                return false;
+            }
+            if (tats.compareAndSet(i, tat, next)) {
+                return true;
+            }
+        }
+    }
+
+    private static int indexOf(String callSite) {
+        final int h = System.identityHashCode(callSite);
+        return (h ^ (h >>> 16)) & (CALL_SITES - 1);
+    }
+
+    /**
+     * Number of the suppressed log events and the elapsed time since the last summary.
+     */
+    static final class Summary {
+
+        final long suppressed;
+        final long elapsedNanos;
+
+        Summary(long suppressed, long elapsedNanos) {
+            this.suppressed = suppressed;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+}
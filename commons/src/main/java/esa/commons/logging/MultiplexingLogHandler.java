@@ -0,0 +1,156 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.logging;
+
+import esa.commons.Checks;
+import esa.commons.concurrent.Buffer;
+import esa.commons.concurrent.MpscArrayBuffer;
+import esa.commons.concurrent.UnsafeUtils;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Encodes the given {@link LogEvent} to byte array and queues to append to the {@link Appender}, which is similar to
+ * {@link SingleThreadLogHandler} but the appending will be run in a {@link SharedLogWorker} together with the
+ * appending of other log files instead of a dedicated {@link Thread}.
+ */
+class MultiplexingLogHandler implements LogHandler {
+
+    /**
+     * Max elements to drain from a {@link BlockingQueue} at each turn.
+     */
+    private static final int MAX_BATCH = 1024;
+    private final Predicate<byte[]> buf;
+    private final Encoder encoder;
+    private final LogHandlerStatsImpl stats;
+    private final boolean flushOnError;
+    final SharedLogWorker.Channel channel;
+
+    /**
+     * @see SingleThreadLogHandler#SingleThreadLogHandler(Appender, Encoder, int, int, LogHandlerStatsImpl, long,
+     * boolean)
+     */
+    MultiplexingLogHandler(Appender appender,
+                           Encoder encoder,
+                           int queueSize,
+                           int writeBuffer,
+                           LogHandlerStatsImpl stats,
+                           long fsyncInterval,
+                           boolean flushOnError) {
+        this(appender, encoder, queueSize, writeBuffer, stats, fsyncInterval, flushOnError, SharedLogWorker.get());
+    }
+
+    MultiplexingLogHandler(Appender appender,
+                           Encoder encoder,
+                           int queueSize,
+                           int writeBuffer,
+                           LogHandlerStatsImpl stats,
+                           long fsyncInterval,
+                           boolean flushOnError,
+                           SharedLogWorker worker) {
+        Checks.checkNotNull(encoder);
+        Checks.checkNotNull(appender);
+        Checks.checkNotNull(stats);
+        Checks.checkNotNull(worker);
+        this.encoder = encoder;
+        this.stats = stats;
+        this.flushOnError = flushOnError;
+        final AppendBuffer appendBuffer = new AppendBuffer(appender, writeBuffer, stats, fsyncInterval);
+        if (queueSize <= 0) {
+            queueSize = SingleThreadLogHandler.DEFAULT_QUEUE_SIZE;
+        }
+        if (UnsafeUtils.hasUnsafe()) {
+            final MpscArrayBuffer<byte[]> q = new MpscArrayBuffer<>(SingleThreadLogHandler.stripedQueueSize(queueSize));
+            this.buf = q::offer;
+            this.channel = new FastChannel(appendBuffer, q);
+            stats.queueDepth(q::size);
+        } else {
+            BlockingQueue<byte[]> q = new ArrayBlockingQueue<>(queueSize);
+            this.buf = q::offer;
+            this.channel = new SlowChannel(appendBuffer, q);
+            stats.queueDepth(q::size);
+        }
+        worker.register(channel);
+    }
+
+    @Override
+    public void handle(LogEvent event) {
+        stats.recordEnqueue(buf.test(encoder.encode(event)));
+        if (flushOnError && event.level() == Level.ERROR) {
+            channel.flushRequested = true;
+        }
+    }
+
+    @Override
+    public LogHandlerStats stats() {
+        return stats;
+    }
+
+    @Override
+    public void stop() {
+        channel.shutdown();
+        encoder.stop();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return channel.terminated.await(timeout, unit);
+    }
+
+    private static class FastChannel extends SharedLogWorker.Channel {
+
+        private final Buffer<byte[]> q;
+        private final Consumer<byte[]> appending;
+
+        FastChannel(AppendBuffer buf,
+                    Buffer<byte[]> q) {
+            super(buf);
+            this.q = q;
+            this.appending = buf::append;
+        }
+
+        @Override
+        int drain() {
+            return q.drain(appending, MAX_BATCH);
+        }
+    }
+
+    private static class SlowChannel extends SharedLogWorker.Channel {
+
+        private final BlockingQueue<byte[]> q;
+
+        SlowChannel(AppendBuffer buf,
+                    BlockingQueue<byte[]> q) {
+            super(buf);
+            this.q = q;
+        }
+
+        @Override
+        int drain() {
+            int drained = 0;
+            byte[] o;
+            while (drained < MAX_BATCH && (o = q.poll()) != null) {
+                buf.append(o);
+                drained++;
+            }
+            return drained;
+        }
+    }
+}
@@ -22,50 +22,67 @@ import esa.commons.concurrent.ThreadFactories;
 import esa.commons.io.IOUtils;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoField;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAccessor;
 import java.util.Arrays;
-import java.util.Calendar;
 import java.util.Comparator;
-import java.util.Date;
-import java.util.GregorianCalendar;
 import java.util.HashMap;
-import java.util.Locale;
 import java.util.Map;
-import java.util.TimeZone;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Implementation of {@link Appender} that provides the implementations {@link Rolling} such as {@link
  * SizedBasedRolling}, {@link TimeBasedRolling}, and {@link TimeAndSizeBasedRolling}.
+ * <p>
+ * The appending thread only swaps the file channel while rolling over, and the housekeeping of the history log files
+ * (deleting and compressing) will be run in the background.
  */
 class RollingFileAppender implements Appender {
 
     private static final Logger logger = LoggerFactory.getLogger(RollingFileAppender.class);
 
-    private static final ScheduledThreadPoolExecutor SCHEDULER =
+    /**
+     * Runs the housekeeping of history log files in order.
+     */
+    private static final ScheduledThreadPoolExecutor HOUSEKEEPER =
             new ScheduledThreadPoolExecutor(1,
-                    ThreadFactories.namedThreadFactory("esa-logging-scheduler#", true));
+                    ThreadFactories.namedThreadFactory("esa-logging-housekeeper#", true));
+    static final String COMPRESSED_SUFFIX = ".gz";
+    private static final int COMPRESS_BUFFER_SIZE = 8192;
     private final Rolling rolling;
+    private final boolean compress;
+    private final LogHandlerStatsImpl stats;
     final String fileName;
     private File file;
     private FileChannel fileChannel;
     private long pos;
 
-    private RollingFileAppender(File file, Rolling rolling) {
+    private RollingFileAppender(File file, Rolling rolling, boolean compress, LogHandlerStatsImpl stats) {
         Checks.checkNotNull(file, "file name");
         createDirsIfNecessary(file);
         openFileUnchecked(file);
         this.fileName = file.getPath();
         this.rolling = rolling == null ? Rolling.NOOP : rolling;
+        this.compress = compress;
+        this.stats = stats;
         if (logger.isDebugEnabled()) {
             logger.debug("Prepared rolling file appender for file '{}', rolling policy '{}'",
                     file.getAbsolutePath(),
@@ -74,29 +91,28 @@ class RollingFileAppender implements Appender {
     }
 
     static RollingFileAppender newInstance(File file, Rolling rolling) {
+        return newInstance(file, rolling, false);
+    }
+
+    static RollingFileAppender newInstance(File file, Rolling rolling, boolean compress) {
+        return newInstance(file, rolling, compress, null);
+    }
+
+    static RollingFileAppender newInstance(File file,
+                                           Rolling rolling,
+                                           boolean compress,
+                                           LogHandlerStatsImpl stats) {
         if (logger.isTraceEnabled()) {
-            return new TracedRollingFileAppender(file, rolling);
+            return new TracedRollingFileAppender(file, rolling, compress, stats);
         } else {
-            return new RollingFileAppender(file, rolling);
+            return new RollingFileAppender(file, rolling, compress, stats);
         }
     }
 
     @Override
     public void append(ByteBuffer data) {
         try {
-            File rollingFile = rolling.rolloverIfNecessary(file, pos);
-            if (rollingFile != null) {
-                if (logger.isDebugEnabled()) {
-                    logger.debug("Rolling current log file '{}' to '{}'",
-                            file.getAbsolutePath(), rollingFile.getAbsolutePath());
-                }
-                // close current file
-                close();
-                // rename current file to rolling file
-                rename(file, rollingFile);
-                // open new file
-                openFileUnchecked(new File(fileName));
-            }
+            rolloverIfNecessary();
             pos += doWrite(data);
         } catch (IOException e) {
             IOUtils.closeQuietly(fileChannel);
@@ -104,10 +120,95 @@ class RollingFileAppender implements Appender {
         }
     }
 
+    @Override
+    public void append(ByteBuffer[] srcs, int offset, int length) {
+        try {
+            rolloverIfNecessary();
+            pos += doWrite(srcs, offset, length);
+        } catch (IOException e) {
+            IOUtils.closeQuietly(fileChannel);
+            throw new IllegalStateException("Error while writing file '" + fileName + "'", e);
+        }
+    }
+
+    @Override
+    public void force() {
+        try {
+            fileChannel.force(false);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error while forcing file '" + fileName + "'", e);
+        }
+    }
+
+    private void rolloverIfNecessary() throws IOException {
+        File rollingFile = rolling.rolloverIfNecessary(file, pos);
+        if (rollingFile != null) {
+            final long start = System.nanoTime();
+            if (logger.isDebugEnabled()) {
+                logger.debug("Rolling current log file '{}' to '{}'",
+                        file.getAbsolutePath(), rollingFile.getAbsolutePath());
+            }
+            // close current file
+            close();
+            // rename current file to rolling file
+            rename(file, rollingFile);
+            // open new file
+            openFileUnchecked(new File(fileName));
+            if (compress) {
+                compressAsync(rollingFile);
+            }
+            if (stats != null) {
+                stats.recordRollover(System.nanoTime() - start);
+            }
+        }
+    }
+
+    static Future<File> compressAsync(File src) {
+        return HOUSEKEEPER.submit(() -> compress(src));
+    }
+
+    private static File compress(File src) {
+        final File target = new File(src.getPath() + COMPRESSED_SUFFIX);
+        final byte[] buf = new byte[COMPRESS_BUFFER_SIZE];
+        boolean compressed = false;
+        try (InputStream in = new FileInputStream(src);
+                OutputStream out = new GZIPOutputStream(new FileOutputStream(target), COMPRESS_BUFFER_SIZE)) {
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                out.write(buf, 0, n);
+            }
+            compressed = true;
+        } catch (Exception e) {
+            logger.warn("Error while compressing history log file '{}'", src.getAbsolutePath(), e);
+        }
+
+        if (compressed) {
+            if (!src.delete() && logger.isDebugEnabled()) {
+                logger.debug("Failed to delete history log file '{}' after compressing",
+                        src.getAbsolutePath());
+            }
+            return target;
+        } else {
+            target.delete();
+            return src;
+        }
+    }
+
     int doWrite(ByteBuffer data) throws IOException {
         return fileChannel.write(data, pos);
     }
 
+    long doWrite(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        // there's no positional gathering write, so we should move to the write position first
+        fileChannel.position(pos);
+        final ByteBuffer last = srcs[offset + length - 1];
+        long wrote = 0L;
+        do {
+            wrote += fileChannel.write(srcs, offset, length);
+        } while (last.hasRemaining());
+        return wrote;
+    }
+
     private void rename(File src, File target) {
         createDirsIfNecessary(target);
         if (!src.renameTo(target)) {
@@ -209,10 +310,10 @@ class RollingFileAppender implements Appender {
 
         Future<Integer> removeOldest(int least, long timeout) {
             if (timeout > 0) {
-                return SCHEDULER.schedule(() -> doRemove(least),
+                return HOUSEKEEPER.schedule(() -> doRemove(least),
                         timeout, TimeUnit.NANOSECONDS);
             } else {
-                return SCHEDULER.submit(() -> doRemove(least));
+                return HOUSEKEEPER.submit(() -> doRemove(least));
             }
         }
 
@@ -261,6 +362,24 @@ class RollingFileAppender implements Appender {
             return rollingFiles;
         }
 
+        /**
+         * Gets the name of given rolling file without the suffix of compression if it has been compressed.
+         */
+        String rollingFileName(File file) {
+            return rollingFileName(file, fileExe);
+        }
+
+        static String rollingFileName(File file, String fileExe) {
+            final String name = file.getName();
+            if (name.endsWith(COMPRESSED_SUFFIX)) {
+                final String n = name.substring(0, name.length() - COMPRESSED_SUFFIX.length());
+                if (fileExe == null || n.endsWith(fileExe)) {
+                    return n;
+                }
+            }
+            return name;
+        }
+
         abstract boolean isRollingFile(File file);
 
         abstract Comparator<File> comparator();
@@ -349,7 +468,7 @@ class RollingFileAppender implements Appender {
         }
 
         static int extractIndex(File file, String fileNamePrefix, String fileExe) {
-            String name = file.getName();
+            String name = rollingFileName(file, fileExe);
             int i = name.lastIndexOf(DELIM);
             if (i > 0 && i != name.length() - 1 && name.startsWith(fileNamePrefix)) {
                 if (fileExe == null) {
@@ -374,56 +493,42 @@ class RollingFileAppender implements Appender {
     }
 
     static class TimeBasedRolling extends BaseRolling implements Rolling {
-        private static final TimeZone GMT = TimeZone.getTimeZone("GMT");
-        private static final int PERIOD_HOUR = 1;
-        private static final int PERIOD_DAY = 10;
+        private static final ChronoUnit[] PERIODS = {ChronoUnit.HOURS, ChronoUnit.DAYS};
         final String datePattern;
-        volatile SimpleDateFormat sdf;
-        final AtomicReference<File> next = new AtomicReference<>(null);
+        final DateTimeFormatter formatter;
+        private final ChronoUnit period;
+        /**
+         * Epoch millis of the next rolling, which is only accessed by the appending thread.
+         */
+        long nextRollover;
 
         TimeBasedRolling(File file, int maxHistory, String datePattern) {
             super(file, maxHistory);
             Checks.checkNotEmptyArg(datePattern, "datePattern");
             this.datePattern = datePattern;
+            this.formatter = DateTimeFormatter.ofPattern(datePattern).withZone(ZoneId.systemDefault());
+            this.period = computePeriod(datePattern);
             checkHistory(maxHistory);
-            int period = computePeriod(datePattern);
-            long delay;
-            long p;
-            Date now = new Date();
-            GregorianCalendar calendar = new GregorianCalendar(TimeZone.getDefault(), Locale.getDefault());
-            if (period == PERIOD_HOUR) {
-                Date n = nextWholeHour(calendar, now);
-                delay = n.getTime() - System.currentTimeMillis();
-                p = TimeUnit.HOURS.toNanos(1L);
-            } else if (period == PERIOD_DAY) {
-                Date n = nextWholeDay(calendar, now);
-                delay = n.getTime() - System.currentTimeMillis();
-                p = TimeUnit.DAYS.toNanos(1L);
-            } else {
-                throw new Error("unexpected");
-            }
-
-            // plus 100 mills for avoiding deviation of system time
-            delay = TimeUnit.MILLISECONDS.toNanos(delay) + TimeUnit.MILLISECONDS.toNanos(5000L);
-
-            SCHEDULER.scheduleAtFixedRate(() -> {
-                String newFile = getRollingFileNameOfCurrentPeriod();
-                setNextRollingFile(newFile);
-                removeOldest(0, 0L);
-            }, delay, p, TimeUnit.NANOSECONDS);
+            this.nextRollover = computeNextRollover(InternalLoggers.Manager.CLOCK.currentTimeMillis());
         }
 
-        void setNextRollingFile(String newFile) {
-            File f = new File(parent, newFile);
-            next.compareAndSet(null, f);
-            if (logger.isDebugEnabled()) {
-                logger.debug("Set rolling file for period to {}", f.getAbsolutePath());
-            }
+        /**
+         * Gets the name of the file to rollover to when the period changes.
+         *
+         * @param newFile rolling file name of current period
+         *
+         * @return file name
+         */
+        String periodRollingFileName(String newFile) {
+            return newFile;
         }
 
         String getRollingFileNameOfCurrentPeriod() {
-            SimpleDateFormat sdf = new SimpleDateFormat(datePattern);
-            String suffix = sdf.format(new Date());
+            return getRollingFileName(InternalLoggers.Manager.CLOCK.currentTimeMillis());
+        }
+
+        String getRollingFileName(long time) {
+            String suffix = formatter.format(Instant.ofEpochMilli(time));
             String newFile;
             if (fileExe == null) {
                 newFile = fileName + DELIM + suffix;
@@ -433,108 +538,85 @@ class RollingFileAppender implements Appender {
             return newFile;
         }
 
-        private int computePeriod(String datePattern) {
-
-            GregorianCalendar calendar = new GregorianCalendar(GMT, Locale.getDefault());
-
-            // set sate to 1970-01-01 00:00:00 GMT
-            Date epoch = new Date(0L);
-            SimpleDateFormat simpleDateFormat = new SimpleDateFormat(datePattern);
-            simpleDateFormat.setTimeZone(GMT);
-
-            String r0 = simpleDateFormat.format(epoch);
-            Date next;
-            String r1;
-
-            next = nextWholeHour(calendar, epoch);
-            r1 = simpleDateFormat.format(next);
-
-            if (!r0.equals(r1)) {
-                return PERIOD_HOUR;
-            }
-
-            next = nextWholeDay(calendar, epoch);
-            r1 = simpleDateFormat.format(next);
+        long computeNextRollover(long now) {
+            return Instant.ofEpochMilli(now)
+                    .atZone(formatter.getZone())
+                    .truncatedTo(period)
+                    .plus(1L, period)
+                    .toInstant()
+                    .toEpochMilli();
+        }
 
-            if (!r0.equals(r1)) {
-                return PERIOD_DAY;
+        private static ChronoUnit computePeriod(String datePattern) {
+            final DateTimeFormatter f = DateTimeFormatter.ofPattern(datePattern).withZone(ZoneOffset.UTC);
+            // 1970-01-01 00:00:00 UTC
+            final String r0 = f.format(Instant.EPOCH);
+            for (ChronoUnit p : PERIODS) {
+                if (!r0.equals(f.format(Instant.EPOCH.plus(1L, p)))) {
+                    return p;
+                }
             }
-
             throw new IllegalArgumentException("Failed to parsing rolling period of pattern '" + datePattern + "'");
         }
 
-        private Date nextWholeDay(GregorianCalendar calendar, Date epoch) {
-            calendar.setTime(epoch);
-            calendar.set(Calendar.HOUR_OF_DAY, 0);
-            calendar.set(Calendar.MINUTE, 0);
-            calendar.set(Calendar.SECOND, 0);
-            calendar.set(Calendar.MILLISECOND, 0);
-            calendar.add(Calendar.DATE, 1);
-            return calendar.getTime();
-        }
-
-        private Date nextWholeHour(GregorianCalendar calendar, Date epoch) {
-            calendar.setTime(epoch);
-            calendar.set(Calendar.MINUTE, 0);
-            calendar.set(Calendar.SECOND, 0);
-            calendar.set(Calendar.MILLISECOND, 0);
-            calendar.add(Calendar.HOUR_OF_DAY, 1);
-            return calendar.getTime();
-        }
-
         @Override
         public File rolloverIfNecessary(File current, long pos) {
-            File next = this.next.get();
-            if (next == null) {
+            final long now = InternalLoggers.Manager.CLOCK.currentTimeMillis();
+            if (now < nextRollover) {
                 return null;
             }
-            this.next.set(null);
+            this.nextRollover = computeNextRollover(now);
             removeOldest(0, 0L);
+            final File next = new File(parent, periodRollingFileName(getRollingFileName(now)));
+            if (logger.isDebugEnabled()) {
+                logger.debug("Set rolling file for period to {}", next.getAbsolutePath());
+            }
             return next;
         }
 
-        @Override
-        synchronized File[] getRollingFiles() {
-            this.sdf = new SimpleDateFormat(datePattern);
-            return super.getRollingFiles();
-        }
-
         @Override
         boolean isRollingFile(File file) {
-            return extractDate(file, sdf) != null;
+            return extractDate(file) != -1L;
         }
 
         @Override
         Comparator<File> comparator() {
-            return (o1, o2) -> {
-                Date order1 = extractDate(o1, sdf);
-                Date order2 = extractDate(o2, sdf);
-                return Comparator.nullsLast(Date::compareTo).compare(order1, order2);
-            };
+            return (o1, o2) -> Long.compare(extractDate(o1), extractDate(o2));
         }
 
-        private Date extractDate(File file, SimpleDateFormat sdf) {
-            String name = file.getName();
+        private long extractDate(File file) {
+            String name = rollingFileName(file);
             int i = name.lastIndexOf(DELIM);
             if (i > 0 && i != name.length() - 1 && name.startsWith(fileNamePrefix)) {
                 if (fileExe == null) {
-                    try {
-                        return sdf.parse(name.substring(i + 1));
-                    } catch (Exception ignored) {
-                    }
+                    return parseDate(name.substring(i + 1));
                 } else {
                     if (name.endsWith(fileExe)) {
                         int j = name.lastIndexOf(DELIM, i - 1);
                         if (j > 0) {
-                            try {
-                                return sdf.parse(name.substring(j + 1, i));
-                            } catch (Exception ignored) {
-                            }
+                            return parseDate(name.substring(j + 1, i));
                         }
                     }
                 }
             }
-            return null;
+            return -1L;
+        }
+
+        /**
+         * Parses the given date to a comparable value in hours since epoch.
+         *
+         * @param date date to parse
+         *
+         * @return hours since epoch, or {@code -1} if failed to parse.
+         */
+        long parseDate(String date) {
+            try {
+                final TemporalAccessor t = formatter.parse(date);
+                final long hours = LocalDate.from(t).toEpochDay() * 24L;
+                return t.isSupported(ChronoField.HOUR_OF_DAY) ? hours + t.get(ChronoField.HOUR_OF_DAY) : hours;
+            } catch (Exception ignored) {
+                return -1L;
+            }
         }
     }
 
@@ -542,7 +624,7 @@ class RollingFileAppender implements Appender {
 
         private final long maxSize;
         private int nextIndex;
-        private volatile String currentPeriodFileName;
+        private String currentPeriodFileName;
 
         TimeAndSizeBasedRolling(File file, int maxHistory, String pattern, long maxSize) {
             super(file, maxHistory, pattern);
@@ -553,10 +635,10 @@ class RollingFileAppender implements Appender {
         synchronized void checkHistory(int maxHistory) {
             File[] previous = getRollingFiles();
             if (previous.length > 0) {
-                DateAndIndex dateAndIndex = extractDateAndIndex(previous[previous.length - 1],
-                        sdf);
+                DateAndIndex dateAndIndex = extractDateAndIndex(previous[previous.length - 1]);
                 if (dateAndIndex != null) {
-                    if (sdf.format(dateAndIndex.date).equals(sdf.format(new Date()))) {
+                    if (dateAndIndex.date == parseDate(formatter.format(Instant.ofEpochMilli(
+                            InternalLoggers.Manager.CLOCK.currentTimeMillis())))) {
                         // is in current period
                         nextIndex = dateAndIndex.index + 1;
                     }
@@ -604,7 +686,7 @@ class RollingFileAppender implements Appender {
         }
 
         @Override
-        void setNextRollingFile(String newFile) {
+        String periodRollingFileName(String newFile) {
             String formatted;
             if (fileExe == null) {
                 formatted = newFile + DELIM + '1';
@@ -616,8 +698,8 @@ class RollingFileAppender implements Appender {
                     throw new Error("Unexpected");
                 }
             }
-            super.setNextRollingFile(formatted);
             this.currentPeriodFileName = getCurrentPeriodFileName(newFile);
+            return formatted;
         }
 
         private String getCurrentPeriodFileName(String newFile) {
@@ -635,28 +717,28 @@ class RollingFileAppender implements Appender {
 
         @Override
         boolean isRollingFile(File file) {
-            return extractDateAndIndex(file, sdf) != null;
+            return extractDateAndIndex(file) != null;
         }
 
         @Override
         Comparator<File> comparator() {
             return (o1, o2) -> {
-                DateAndIndex order1 = extractDateAndIndex(o1, sdf);
-                DateAndIndex order2 = extractDateAndIndex(o2, sdf);
+                DateAndIndex order1 = extractDateAndIndex(o1);
+                DateAndIndex order2 = extractDateAndIndex(o2);
                 return Comparator.nullsLast(DateAndIndex::compareTo).compare(order1, order2);
             };
         }
 
-        private DateAndIndex extractDateAndIndex(File file, SimpleDateFormat sdf) {
+        private DateAndIndex extractDateAndIndex(File file) {
             // fileName.yyyyMM.index.handle
             // fileName.yyyyMM.index
-            String name = file.getName();
+            String name = rollingFileName(file);
             int i = name.lastIndexOf(DELIM);
             if (i > 0 && i != name.length() - 1 && name.startsWith(fileNamePrefix)) {
                 if (fileExe == null) {
                     try {
                         int index = Integer.parseInt(name.substring(i + 1));
-                        return doExtract(sdf, name, i, index);
+                        return doExtract(name, i, index);
                     } catch (Exception ignored) {
                     }
                 } else {
@@ -665,7 +747,7 @@ class RollingFileAppender implements Appender {
                         if (j > 0) {
                             try {
                                 int index = Integer.parseInt(name.substring(j + 1, i));
-                                return doExtract(sdf, name, j, index);
+                                return doExtract(name, j, index);
                             } catch (Exception ignored) {
                             }
                         }
@@ -675,20 +757,22 @@ class RollingFileAppender implements Appender {
             return null;
         }
 
-        private DateAndIndex doExtract(SimpleDateFormat sdf, String name, int i, int index) throws ParseException {
+        private DateAndIndex doExtract(String name, int i, int index) {
             int j = name.lastIndexOf(DELIM, i - 1);
             if (j > 0) {
-                Date date = sdf.parse(name.substring(j + 1, i));
-                return new DateAndIndex(date, index);
+                long date = parseDate(name.substring(j + 1, i));
+                if (date != -1L) {
+                    return new DateAndIndex(date, index);
+                }
             }
             return null;
         }
 
         private static class DateAndIndex implements Comparable<DateAndIndex> {
-            private final Date date;
+            private final long date;
             private final int index;
 
-            private DateAndIndex(Date date, int index) {
+            private DateAndIndex(long date, int index) {
                 this.date = date;
                 this.index = index;
             }
@@ -702,7 +786,7 @@ class RollingFileAppender implements Appender {
                     return 1;
                 }
 
-                int d = this.date.compareTo(o.date);
+                int d = Long.compare(this.date, o.date);
                 if (d != 0) {
                     return d;
                 }
@@ -722,15 +806,27 @@ class RollingFileAppender implements Appender {
         private long last;
         private final Map<Integer, Integer> counter = new HashMap<>(64);
 
-        private TracedRollingFileAppender(File file, Rolling rolling) {
-            super(file, rolling);
+        private TracedRollingFileAppender(File file, Rolling rolling, boolean compress, LogHandlerStatsImpl stats) {
+            super(file, rolling, compress, stats);
         }
 
         @Override
         int doWrite(ByteBuffer data) throws IOException {
             long start = System.nanoTime();
             int wrote = super.doWrite(data);
-            long cost = System.nanoTime() - start;
+            record(wrote, System.nanoTime() - start);
+            return wrote;
+        }
+
+        @Override
+        long doWrite(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            long start = System.nanoTime();
+            long wrote = super.doWrite(srcs, offset, length);
+            record((int) wrote, System.nanoTime() - start);
+            return wrote;
+        }
+
+        private void record(int wrote, long cost) {
             totalCost += cost;
             if (cost > maxWriteCost) {
                 maxWriteCost = cost;
@@ -768,7 +864,6 @@ class RollingFileAppender implements Appender {
                 maxWriteCost = 0L;
                 minWriteCost = -1L;
             }
-            return wrote;
         }
     }
 
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.logging;
+
+import esa.commons.StringUtils;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A single appending {@link Thread} which serves several {@link Channel}s(one for each log file) in turn, every
+ * {@link Channel} has its own queue and write buffers, and only a batch of the queued log data will be drained from
+ * a {@link Channel} at each turn, so that a busy log file would not starve the others.
+ */
+class SharedLogWorker extends Thread {
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedLogWorker.class);
+    private static final AtomicInteger ID = new AtomicInteger(0);
+    private static final Channel[] EMPTY = new Channel[0];
+    private static final int WORKER_COUNT;
+    private static SharedLogWorker[] workers;
+    private volatile Channel[] channels = EMPTY;
+
+    static {
+        int workerCount = -1;
+        try {
+            String prop = System.getProperty("esa.logging.sharedWorkerCount");
+            if (!StringUtils.isEmpty(prop)) {
+                workerCount = Integer.parseInt(prop);
+            }
+        } catch (Exception ignored) {
+        }
+        if (workerCount <= 0) {
+            workerCount = 1;
+        }
+        WORKER_COUNT = workerCount;
+    }
+
+    SharedLogWorker() {
+        setName("esa-logging-shared-appender#" + ID.getAndIncrement());
+        try {
+            setDaemon(true);
+        } catch (Throwable ignored) {
+        }
+    }
+
+    /**
+     * Gets the shared worker which serves the fewest {@link Channel}s, the workers will be started lazily. The count
+     * of workers is configured by system property {@code esa.logging.sharedWorkerCount} which is {@code 1} by default.
+     *
+     * @return worker
+     */
+    static synchronized SharedLogWorker get() {
+        if (workers == null) {
+            workers = new SharedLogWorker[WORKER_COUNT];
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = new SharedLogWorker();
+                workers[i].start();
+            }
+        }
+        SharedLogWorker selected = workers[0];
+        for (int i = 1; i < workers.length; i++) {
+            if (workers[i].channels.length < selected.channels.length) {
+                selected = workers[i];
+            }
+        }
+        return selected;
+    }
+
+    synchronized void register(Channel channel) {
+        final Channel[] chs = Arrays.copyOf(channels, channels.length + 1);
+        chs[chs.length - 1] = channel;
+        channels = chs;
+        LockSupport.unpark(this);
+    }
+
+    private synchronized void deregister(Channel channel) {
+        final Channel[] chs = channels;
+        for (int i = 0; i < chs.length; i++) {
+            if (chs[i] == channel) {
+                final Channel[] newChs = new Channel[chs.length - 1];
+                System.arraycopy(chs, 0, newChs, 0, i);
+                System.arraycopy(chs, i + 1, newChs, i, newChs.length - i);
+                channels = newChs;
+                return;
+            }
+        }
+    }
+
+    int channelCount() {
+        return channels.length;
+    }
+
+    @Override
+    public void run() {
+        int leftSpins = SingleThreadLogHandler.BaseWorker.MAX_SPIN;
+        while (true) {
+            final Channel[] chs = channels;
+            if (chs.length == 0) {
+                // nothing to serve, wait for the registration
+                LockSupport.park(this);
+                continue;
+            }
+            final long now = System.nanoTime();
+            int drained = 0;
+            boolean stopping = false;
+            for (Channel ch : chs) {
+                if (ch.stopping) {
+                    stopping = true;
+                } else if (ch.running) {
+                    drained += serve(ch, now);
+                }
+            }
+            if (stopping) {
+                shutdown(chs, now);
+            }
+            if (drained > 0) {
+                leftSpins = SingleThreadLogHandler.BaseWorker.MAX_SPIN;
+            } else if (leftSpins > 0) {
+                // busy spin
+                leftSpins--;
+            } else {
+                // sleep for a while
+                try {
+                    Thread.sleep(1L);
+                } catch (InterruptedException e) {
+                    logger.warn("Unexpected interruption of logging appender thread.");
+                }
+            }
+        }
+    }
+
+    private int serve(Channel ch, long now) {
+        try {
+            final boolean flush = ch.flushRequested;
+            if (flush) {
+                // reset before draining to make sure the requester's data would be drained
+                ch.flushRequested = false;
+            }
+            final int drained = ch.drain();
+            if (flush) {
+                ch.buf.appendNow();
+            }
+            // write if the data has been pending for a while
+            if (ch.buf.hasPending()) {
+                if (ch.timeout < 0L) {
+                    ch.timeout = now + SingleThreadLogHandler.BaseWorker.BUFFER_TIMEOUT;
+                } else if (ch.timeout < now) {
+                    ch.buf.appendNow();
+                    ch.timeout = -1L;
+                }
+            } else {
+                ch.timeout = -1L;
+            }
+            ch.buf.forceIfNecessary(now);
+            return drained;
+        } catch (Throwable t) {
+            logger.error("Logging channel is about to stopping because of unexpected error", t);
+            close(ch);
+            return 0;
+        }
+    }
+
+    /**
+     * Drains the left data of the stopping channels and flushes them before a single deadline, the stopping channels
+     * are drained batch by batch in turn so that each of them gets a share of the time, and the other channels are
+     * still served meanwhile.
+     */
+    private void shutdown(Channel[] chs, long now) {
+        final long deadline = now + InternalLoggers.Manager.SHUTDOWN_TIMEOUT;
+        final boolean[] stopping = new boolean[chs.length];
+        for (int i = 0; i < chs.length; i++) {
+            // the channels closed because of errors in this turn have been deregistered, skip them
+            stopping[i] = chs[i].stopping && chs[i].running;
+        }
+        boolean pending = true;
+        long current = now;
+        while (pending && current - deadline < 0L) {
+            pending = false;
+            for (int i = 0; i < chs.length; i++) {
+                final Channel ch = chs[i];
+                if (!ch.running) {
+                    continue;
+                }
+                if (!stopping[i]) {
+                    serve(ch, current);
+                    continue;
+                }
+                try {
+                    if (ch.drain() > 0) {
+                        pending = true;
+                    }
+                } catch (Throwable t) {
+                    logger.error("Failed to flush the queued logs while shutting down", t);
+                    close(ch);
+                }
+            }
+            current = System.nanoTime();
+        }
+        for (int i = 0; i < chs.length; i++) {
+            final Channel ch = chs[i];
+            if (!stopping[i] || !ch.running) {
+                continue;
+            }
+            try {
+                ch.buf.flush();
+            } catch (Throwable t) {
+                logger.error("Failed to flush the queued logs while shutting down", t);
+            }
+            close(ch);
+        }
+    }
+
+    private void close(Channel ch) {
+        if (!ch.running) {
+            return;
+        }
+        ch.running = false;
+        deregister(ch);
+        ch.buf.close();
+        ch.terminated.countDown();
+    }
+
+    /**
+     * Queue and write buffers of a single log file which is served by a {@link SharedLogWorker}.
+     */
+    abstract static class Channel {
+
+        final AppendBuffer buf;
+        final CountDownLatch terminated = new CountDownLatch(1);
+        /**
+         * Whether this channel has not been closed, which is only written by the worker.
+         */
+        volatile boolean running = true;
+        volatile boolean stopping;
+        volatile boolean flushRequested;
+        private long timeout = -1L;
+
+        Channel(AppendBuffer buf) {
+            this.buf = buf;
+        }
+
+        /**
+         * Drains a batch of the queued data into the write buffers.
+         *
+         * @return the number of elements drained
+         */
+        abstract int drain();
+
+        void shutdown() {
+            stopping = true;
+        }
+    }
+}
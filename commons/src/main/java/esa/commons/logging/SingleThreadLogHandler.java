@@ -16,64 +16,95 @@
 package esa.commons.logging;
 
 import esa.commons.Checks;
-import esa.commons.ExceptionUtils;
 import esa.commons.MathUtils;
 import esa.commons.Platforms;
-import esa.commons.StringUtils;
 import esa.commons.concurrent.Buffer;
 import esa.commons.concurrent.MpscArrayBuffer;
 import esa.commons.concurrent.UnsafeUtils;
 
-import java.io.IOException;
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.nio.ByteBuffer;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * Encodes the given {@link LogEvent} to byte array and queues to append to the {@link Appender}, the appending will
  * be run in a single {@link Thread} and prefers to queue the encoded byte array data until the
- * {@link BaseWorker#OS_PAGE} for high IOPS.
+ * {@link AppendBuffer#OS_PAGE} for high IOPS.
  */
 class SingleThreadLogHandler implements LogHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(SingleThreadLogHandler.class);
-    private static final int DEFAULT_QUEUE_SIZE = 16384;
-    private final Consumer<byte[]> buf;
+    static final int DEFAULT_QUEUE_SIZE = 16384;
+    private final Predicate<byte[]> buf;
     private final Encoder encoder;
+    private final LogHandlerStatsImpl stats;
+    private final boolean flushOnError;
     final BaseWorker worker;
 
     SingleThreadLogHandler(Appender appender,
                            Encoder encoder,
                            int queueSize,
                            int writeBuffer) {
+        this(appender, encoder, queueSize, writeBuffer, new LogHandlerStatsImpl(), -1L, false);
+    }
+
+    /**
+     * @param fsyncInterval interval in nanoseconds to force the appended data to the storage device, {@code 0} means
+     *                      to force after every flush and a negative value means never.
+     * @param flushOnError  whether to flush the buffered data immediately after an {@link Level#ERROR} event
+     */
+    SingleThreadLogHandler(Appender appender,
+                           Encoder encoder,
+                           int queueSize,
+                           int writeBuffer,
+                           LogHandlerStatsImpl stats,
+                           long fsyncInterval,
+                           boolean flushOnError) {
         Checks.checkNotNull(encoder);
         Checks.checkNotNull(appender);
+        Checks.checkNotNull(stats);
         this.encoder = encoder;
+        this.stats = stats;
+        this.flushOnError = flushOnError;
         if (queueSize <= 0) {
             queueSize = DEFAULT_QUEUE_SIZE;
         }
+        final AppendBuffer appendBuffer = new AppendBuffer(appender, writeBuffer, stats, fsyncInterval);
         if (UnsafeUtils.hasUnsafe()) {
-            queueSize = Math.max(MathUtils.nextPowerOfTwo(queueSize / Platforms.cpuNum() * 2),
-                    Math.min(queueSize, 1024));
-            final Buffer<byte[]> q = new MpscArrayBuffer<>(queueSize);
+            final MpscArrayBuffer<byte[]> q = new MpscArrayBuffer<>(stripedQueueSize(queueSize));
             this.buf = q::offer;
-            this.worker = new FastWorker(appender, writeBuffer, q);
+            this.worker = new FastWorker(appendBuffer, q);
+            stats.queueDepth(q::size);
         } else {
             BlockingQueue<byte[]> q = new ArrayBlockingQueue<>(queueSize);
             this.buf = q::offer;
-            this.worker = new SlowWorker(appender, writeBuffer, q);
+            this.worker = new SlowWorker(appendBuffer, q);
+            stats.queueDepth(q::size);
         }
         this.worker.start();
     }
 
+    /**
+     * Gets the capacity of every stripe of the {@link MpscArrayBuffer} by the given total capacity.
+     */
+    static int stripedQueueSize(int queueSize) {
+        return Math.max(MathUtils.nextPowerOfTwo(queueSize / Platforms.cpuNum() * 2),
+                Math.min(queueSize, 1024));
+    }
+
     @Override
     public void handle(LogEvent event) {
-        buf.accept(encoder.encode(event));
+        stats.recordEnqueue(buf.test(encoder.encode(event)));
+        if (flushOnError && event.level() == Level.ERROR) {
+            worker.flushRequested = true;
+        }
+    }
+
+    @Override
+    public LogHandlerStats stats() {
+        return stats;
     }
 
     @Override
@@ -82,24 +113,29 @@ class SingleThreadLogHandler implements LogHandler {
         encoder.stop();
     }
 
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        final long millis = unit.toMillis(timeout);
+        if (millis > 0L) {
+            worker.join(millis);
+        }
+        return !worker.isAlive();
+    }
+
     abstract static class BaseWorker extends Thread {
-        private static final int OS_PAGE = 4 * 1024;
-        private static final int DEFAULT_WRITE_BUFFER_SIZE;
         static final int MAX_SPIN = Math.min(Platforms.cpuNum() << 2, 64);
         static final long BUFFER_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(1000L);
         private static final AtomicInteger ID = new AtomicInteger(0);
-        private static final Consumer<ByteBuffer> CLEANER;
-        private final Appender appender;
-        final ByteBuffer buffer;
+        final AppendBuffer buf;
         volatile boolean running = true;
+        volatile boolean flushRequested;
+        /**
+         * Whether the worker is stopped because of an unexpected error, and the queued data will be discarded.
+         */
+        boolean failed;
 
-        private BaseWorker(Appender appender,
-                           int bufferSize) {
-            this.appender = appender;
-            if (bufferSize <= 0) {
-                bufferSize = DEFAULT_WRITE_BUFFER_SIZE;
-            }
-            this.buffer = ByteBuffer.allocateDirect(MathUtils.nextPowerOfTwo(bufferSize));
+        private BaseWorker(AppendBuffer buf) {
+            this.buf = buf;
             setName("esa-logging-appender#" + ID.getAndIncrement());
             try {
                 setDaemon(true);
@@ -107,71 +143,6 @@ class SingleThreadLogHandler implements LogHandler {
             }
         }
 
-        static {
-            Consumer<ByteBuffer> cleaner0 = null;
-            try {
-                if (Platforms.javaVersion() < 9) {
-                    ByteBuffer direct = ByteBuffer.allocateDirect(1);
-                    Field f = direct.getClass().getDeclaredField("cleaner");
-                    f.setAccessible(true);
-                    Object cleaner = f.get(direct);
-                    Method m = cleaner.getClass().getDeclaredMethod("clean");
-                    m.invoke(cleaner);
-
-                    cleaner0 = buf -> {
-                        if (buf.isDirect()) {
-                            try {
-                                Object c = f.get(buf);
-                                if (c != null) {
-                                    m.invoke(c);
-                                }
-                            } catch (Throwable t) {
-                                ExceptionUtils.throwException(t);
-                            }
-                        }
-                    };
-                } else if (UnsafeUtils.hasUnsafe()) {
-                    ByteBuffer direct = ByteBuffer.allocateDirect(1);
-                    Method m = UnsafeUtils.getUnsafe()
-                            .getClass()
-                            .getDeclaredMethod("invokeCleaner", ByteBuffer.class);
-                    m.invoke(UnsafeUtils.getUnsafe(), direct);
-
-                    cleaner0 = buf -> {
-                        if (buf.isDirect()) {
-                            try {
-                                m.invoke(UnsafeUtils.getUnsafe(), buf);
-                            } catch (Throwable t) {
-                                ExceptionUtils.throwException(t);
-                            }
-                        }
-                    };
-                }
-            } catch (Throwable t) {
-                logger.error("could not find cleaner for DirectBuffer", t);
-            }
-
-            if (cleaner0 == null) {
-                CLEANER = buf -> {
-                };
-            } else {
-                CLEANER = cleaner0;
-            }
-
-            int defaultWriteBufferSize = -1;
-            try {
-                String prop = System.getProperty("esa.logging.defaultWriteBufferSize");
-                if (!StringUtils.isEmpty(prop)) {
-                    defaultWriteBufferSize = Integer.parseInt(prop);
-                }
-            } catch (Exception ignored) {
-            }
-            if (defaultWriteBufferSize <= 0) {
-                defaultWriteBufferSize = OS_PAGE;
-            }
-            DEFAULT_WRITE_BUFFER_SIZE = defaultWriteBufferSize;
-        }
-
         @Override
         public void run() {
             try {
@@ -179,70 +150,77 @@ class SingleThreadLogHandler implements LogHandler {
             } finally {
                 shutdown();
                 // already shutdown
-                freeBuffer();
-                try {
-                    appender.close();
-                } catch (IOException ignored) {
+                if (!failed) {
+                    drainOnShutdown();
                 }
+                buf.close();
             }
         }
 
-        private void freeBuffer() {
-            if (buffer != null) {
-                CLEANER.accept(buffer);
+        /**
+         * Drains the left data in the queue and flushes them in a bounded time.
+         */
+        private void drainOnShutdown() {
+            try {
+                final long deadline = System.nanoTime() + InternalLoggers.Manager.SHUTDOWN_TIMEOUT;
+                while (drain() > 0 && System.nanoTime() - deadline < 0L) {
+                    // continue
+                }
+                buf.flush();
+            } catch (Throwable t) {
+                logger.error("Failed to flush the queued logs while shutting down", t);
             }
         }
 
         abstract void doOnLoop();
 
+        /**
+         * Drains the available data in the queue without blocking.
+         *
+         * @return the number of elements drained
+         */
+        abstract int drain();
+
         void shutdown() {
             running = false;
         }
 
         void append(byte[] bytes) {
-            final ByteBuffer buffer = this.buffer;
-            int left = bytes.length;
-            int offset = 0;
-            int remain;
-            do {
-                remain = buffer.remaining();
-                if (left < remain) {
-                    buffer.put(bytes, offset, left);
-                    break;
-                } else if (left == remain) {
-                    buffer.put(bytes, offset, left);
-                    buffer.flip();
-                    appender.append(buffer);
-                    buffer.clear();
-                    break;
-                } else {
-                    buffer.put(bytes, offset, remain);
-                    buffer.flip();
-                    appender.append(buffer);
-                    buffer.clear();
-                    offset += remain;
-                    left -= remain;
-                }
-            } while (left > 0);
+            buf.append(bytes);
+        }
+
+        boolean hasPending() {
+            return buf.hasPending();
         }
 
         void appendNow() {
-            buffer.flip();
-            appender.append(buffer);
-            buffer.clear();
+            buf.appendNow();
+        }
+
+        void flushIfRequested() {
+            if (flushRequested) {
+                // reset before draining to make sure the requester's data would be drained
+                flushRequested = false;
+                drain();
+                appendNow();
+            }
         }
     }
 
     private static class FastWorker extends BaseWorker {
         final Buffer<byte[]> q;
 
-        FastWorker(Appender appender,
-                   int bufferSize,
+        FastWorker(AppendBuffer buf,
                    Buffer<byte[]> q) {
-            super(appender, bufferSize);
+            super(buf);
             this.q = q;
         }
 
+        @Override
+        int drain() {
+            return q.drain(this::append);
+        }
+
         @Override
         void doOnLoop() {
             int leftSpins = MAX_SPIN;
@@ -260,16 +238,20 @@ class SingleThreadLogHandler implements LogHandler {
                             }
                         }
                     }
+                    flushIfRequested();
                     if (miss) {
                         // sleep for a while
                         Thread.sleep(1L);
                         // write if timeout
                         if (timeout < 0) {
                             timeout = System.nanoTime() + BUFFER_TIMEOUT;
-                        } else if (buffer.position() > 0 && timeout < System.nanoTime()) {
+                        } else if (hasPending() && timeout < System.nanoTime()) {
                             appendNow();
                             timeout = -1L;
                         }
+                        if (buf.hasUnforced()) {
+                            buf.forceIfNecessary(System.nanoTime());
+                        }
                         // continue
                     } else {
                         // reset spins
@@ -279,6 +261,7 @@ class SingleThreadLogHandler implements LogHandler {
                 } catch (Throwable t) {
                     if (!(t instanceof InterruptedException)) {
                         logger.error("Logging handler is about to stopping because of unexpected error", t);
+                        failed = true;
                         break;
                     } else {
                         logger.warn("Unexpected interruption of logging appender thread.");
@@ -292,43 +275,54 @@ class SingleThreadLogHandler implements LogHandler {
 
         private final BlockingQueue<byte[]> queue;
 
-        SlowWorker(Appender appender,
-                   int bufferSize,
+        SlowWorker(AppendBuffer buf,
                    BlockingQueue<byte[]> queue) {
-            super(appender, bufferSize);
+            super(buf);
             this.queue = queue;
         }
 
+        @Override
+        int drain() {
+            int drained = 0;
+            byte[] o;
+            while ((o = queue.poll()) != null) {
+                append(o);
+                drained++;
+            }
+            return drained;
+        }
+
         @Override
         void doOnLoop() {
             long timeout = -1L;
             while (running) {
                 try {
-                    byte[] o;
-
-                    if (buffer.position() > 0) {
-                        o = queue.poll(BUFFER_TIMEOUT, TimeUnit.NANOSECONDS);
-                        if (o == null) {
-                            // append directly
+                    // do not block forever so that the shutdown could be noticed in time
+                    final byte[] o = queue.poll(BUFFER_TIMEOUT, TimeUnit.NANOSECONDS);
+                    if (o == null) {
+                        // append directly
+                        if (hasPending()) {
                             appendNow();
-                            continue;
-                        } else {
-                            // polled one, but maybe timeout
-                            if (timeout < 0) {
-                                timeout = System.nanoTime() + BUFFER_TIMEOUT;
-                            } else if (buffer.position() > 0 && timeout < System.nanoTime()) {
-                                appendNow();
-                                timeout = -1L;
-                                continue;
-                            }
                         }
-                    } else {
-                        o = queue.take();
+                        buf.forceIfNecessary(System.nanoTime());
+                        timeout = -1L;
+                        continue;
                     }
                     append(o);
+                    if (hasPending()) {
+                        // polled one, but maybe timeout
+                        if (timeout < 0) {
+                            timeout = System.nanoTime() + BUFFER_TIMEOUT;
+                        } else if (timeout < System.nanoTime()) {
+                            appendNow();
+                            timeout = -1L;
+                        }
+                    }
+                    flushIfRequested();
                 } catch (Throwable t) {
                     if (!(t instanceof InterruptedException)) {
                         logger.error("Logging handler is about to stopping because of unexpected error", t);
+                        failed = true;
                         break;
                     } else {
                         logger.warn("Unexpected interruption of logging appender thread.");
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.logging;
+
+import esa.commons.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Renders the stack trace of a {@link Throwable} in the same format as {@link Throwable#printStackTrace()}, with an
+ * optional limit of the frames to print for every throwable and the frames of the given packages filtered.
+ * <p>
+ * The rendered stack traces are cached in a bounded LRU keyed by the full stack trace(including the causes and the
+ * suppressed), so that the identical stack traces which are logged repeatedly would be rendered only once.
+ */
+final class ThrowableRenderer {
+
+    static final ThrowableRenderer DEFAULT = new ThrowableRenderer(Integer.MAX_VALUE, null);
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+    private static final String CAUSE_CAPTION = "Caused by: ";
+    private static final String SUPPRESSED_CAPTION = "Suppressed: ";
+    private static final int DEFAULT_CACHE_SIZE;
+    private final int maxDepth;
+    private final String[] filteredPackages;
+    private final Map<Key, Rendered> cache;
+
+    static {
+        int cacheSize = 256;
+        try {
+            String prop = System.getProperty("esa.logging.throwableCacheSize");
+            if (!StringUtils.isEmpty(prop)) {
+                cacheSize = Integer.parseInt(prop);
+            }
+        } catch (Exception ignored) {
+        }
+        DEFAULT_CACHE_SIZE = cacheSize;
+    }
+
+    ThrowableRenderer(int maxDepth, List<String> filteredPackages) {
+        this(maxDepth, filteredPackages, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param maxDepth         max frames to print for every throwable
+     * @param filteredPackages frames of these packages will not be printed
+     * @param cacheSize        max size of the cache, {@code 0} means no cache
+     */
+    ThrowableRenderer(int maxDepth, List<String> filteredPackages, int cacheSize) {
+        this.maxDepth = maxDepth <= 0 ? Integer.MAX_VALUE : maxDepth;
+        this.filteredPackages = filteredPackages == null ? new String[0] : filteredPackages.toArray(new String[0]);
+        if (cacheSize > 0) {
+            this.cache = new LinkedHashMap<Key, Rendered>(Math.min(cacheSize, 64), 0.75f, true) {
+                private static final long serialVersionUID = 6297226404522958738L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, Rendered> eldest) {
+                    return size() > cacheSize;
+                }
+            };
+        } else {
+            this.cache = null;
+        }
+    }
+
+    /**
+     * Renders the given {@link Throwable}.
+     *
+     * @param t throwable
+     *
+     * @return rendered stack trace which may be shared with other identical stack traces
+     */
+    Rendered render(Throwable t) {
+        final Key key = new Key(t);
+        if (cache == null) {
+            return new Rendered(render(key));
+        }
+        Rendered rendered;
+        synchronized (cache) {
+            rendered = cache.get(key);
+        }
+        if (rendered == null) {
+            rendered = new Rendered(render(key));
+            synchronized (cache) {
+                cache.put(key, rendered);
+            }
+        }
+        return rendered;
+    }
+
+    private String render(Key key) {
+        final StringBuilder sb = new StringBuilder(256 + key.nodes.length * 1024);
+        for (Node node : key.nodes) {
+            sb.append(node.prefix).append(node.head).append(LINE_SEPARATOR);
+            final StackTraceElement[] trace = node.trace;
+            if (trace == null) {
+                // circular reference
+                continue;
+            }
+            final int frames = trace.length - node.framesInCommon;
+            int printed = 0;
+            int filtered = 0;
+            int i = 0;
+            for (; i < frames && printed < maxDepth; i++) {
+                if (isFiltered(trace[i])) {
+                    filtered++;
+                    continue;
+                }
+                if (filtered > 0) {
+                    appendFiltered(sb, node.prefix, filtered);
+                    filtered = 0;
+                }
+                sb.append(node.prefix).append("\tat ").append(trace[i]).append(LINE_SEPARATOR);
+                printed++;
+            }
+            if (filtered > 0) {
+                appendFiltered(sb, node.prefix, filtered);
+            }
+            final int more = frames - i + node.framesInCommon;
+            if (more > 0) {
+                sb.append(node.prefix).append("\t... ").append(more).append(" more").append(LINE_SEPARATOR);
+            }
+        }
+        return sb.toString();
+    }
+
+    private boolean isFiltered(StackTraceElement element) {
+        if (filteredPackages.length == 0) {
+            return false;
+        }
+        final String className = element.getClassName();
+        for (String p : filteredPackages) {
+            if (className.startsWith(p)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void appendFiltered(StringBuilder sb, String prefix, int filtered) {
+        sb.append(prefix).append("\t... ").append(filtered).append(" filtered").append(LINE_SEPARATOR);
+    }
+
+    /**
+     * Rendered stack trace, which also holds the encoded bytes of it to be reused by the {@link Encoder}s.
+     */
+    static final class Rendered {
+
+        final String text;
+        /**
+         * Encoded bytes in JSON, which is set by {@link JsonEncoder} lazily.
+         */
+        volatile byte[] json;
+
+        private Rendered(String text) {
+            this.text = text;
+        }
+    }
+
+    /**
+     * The whole stack trace of a throwable, including its causes and suppressed.
+     */
+    private static final class Key {
+
+        private final Node[] nodes;
+        private final int hash;
+
+        private Key(Throwable t) {
+            final List<Node> nodes = new ArrayList<>(2);
+            final Set<Throwable> dejaVu = Collections.newSetFromMap(new IdentityHashMap<>());
+            dejaVu.add(t);
+            final StackTraceElement[] trace = t.getStackTrace();
+            nodes.add(new Node("", t.toString(), trace, 0));
+            walk(t, trace, "", nodes, dejaVu);
+            this.nodes = nodes.toArray(new Node[0]);
+            this.hash = Arrays.hashCode(this.nodes);
+        }
+
+        private static void walk(Throwable t,
+                                 StackTraceElement[] trace,
+                                 String prefix,
+                                 List<Node> nodes,
+                                 Set<Throwable> dejaVu) {
+            for (Throwable se : t.getSuppressed()) {
+                walkEnclosed(se, trace, SUPPRESSED_CAPTION, prefix + "\t", nodes, dejaVu);
+            }
+            final Throwable cause = t.getCause();
+            if (cause != null) {
+                walkEnclosed(cause, trace, CAUSE_CAPTION, prefix, nodes, dejaVu);
+            }
+        }
+
+        private static void walkEnclosed(Throwable t,
+                                         StackTraceElement[] enclosingTrace,
+                                         String caption,
+                                         String prefix,
+                                         List<Node> nodes,
+                                         Set<Throwable> dejaVu) {
+            if (!dejaVu.add(t)) {
+                nodes.add(new Node(prefix, caption + "[CIRCULAR REFERENCE: " + t + "]", null, 0));
+                return;
+            }
+            final StackTraceElement[] trace = t.getStackTrace();
+            int m = trace.length - 1;
+            int n = enclosingTrace.length - 1;
+            while (m >= 0 && n >= 0 && trace[m].equals(enclosingTrace[n])) {
+                m--;
+                n--;
+            }
+            nodes.add(new Node(prefix, caption + t, trace, trace.length - 1 - m));
+            walk(t, trace, prefix, nodes, dejaVu);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) o;
+            return hash == key.hash && Arrays.equals(nodes, key.nodes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Node {
+
+        private final String prefix;
+        private final String head;
+        private final StackTraceElement[] trace;
+        private final int framesInCommon;
+
+        private Node(String prefix, String head, StackTraceElement[] trace, int framesInCommon) {
+            this.prefix = prefix;
+            this.head = head;
+            this.trace = trace;
+            this.framesInCommon = framesInCommon;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Node)) {
+                return false;
+            }
+            final Node node = (Node) o;
+            return framesInCommon == node.framesInCommon
+                    && prefix.equals(node.prefix)
+                    && head.equals(node.head)
+                    && Arrays.equals(trace, node.trace);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = prefix.hashCode();
+            result = 31 * result + head.hashCode();
+            result = 31 * result + Arrays.hashCode(trace);
+            return 31 * result + framesInCommon;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.spi;
+
+import java.util.function.Supplier;
+
+/**
+ * Holder of an extension instance which is created lazily by the given factory. The instance would be created only
+ * once unless the factory fails or returns {@code null}.
+ * <p>
+ * Getting a created instance is lock free, while the creation is performed with the lock of this holder held, or the
+ * given lock which is shared by the holders of the extensions that inject each other, because the early objects which
+ * break the circular references are only visible to the creating thread.
+ *
+ * @param <T> type of extension
+ */
+final class ExtensionHolder<T> {
+
+    private final Object lock;
+    private final Supplier<? extends T> factory;
+    private volatile T instance;
+
+    /**
+     * @param lock    lock to create the instance, or {@code null} to use this holder
+     * @param factory factory to create the instance
+     */
+    ExtensionHolder(Object lock, Supplier<? extends T> factory) {
+        this.lock = lock == null ? this : lock;
+        this.factory = factory;
+    }
+
+    T get() {
+        T ext = instance;
+        if (ext == null) {
+            // 'synchronized' is re-entrant, which allows to get the extensions of the same lock while creating it
+            synchronized (lock) {
+                ext = instance;
+                if (ext == null) {
+                    ext = factory.get();
+                    instance = ext;
+                }
+            }
+        }
+        return ext;
+    }
+}
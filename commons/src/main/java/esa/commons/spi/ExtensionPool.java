@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.spi;
+
+import esa.commons.Checks;
+import esa.commons.MathUtils;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free pool of the idle instances of a {@link Scope#POOLED} extension. Each thread starts probing the
+ * slots from the one derived from its id, so that the threads tend to reuse the instances released by themselves and
+ * rarely contend on the same slot.
+ *
+ * @param <T> type of extension
+ */
+final class ExtensionPool<T> {
+
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+
+    ExtensionPool(int capacity) {
+        Checks.checkArg(capacity > 0, "capacity must be positive");
+        final int size = MathUtils.nextPowerOfTwo(capacity);
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Takes an idle instance.
+     *
+     * @return idle instance or {@code null} if the pool is empty
+     */
+    T poll() {
+        final int start = start();
+        for (int i = 0; i <= mask; i++) {
+            final int index = (start + i) & mask;
+            final T e = slots.get(index);
+            if (e != null && slots.compareAndSet(index, e, null)) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gives back an instance.
+     *
+     * @return {@code false} if the pool is full and the instance is dropped
+     */
+    boolean offer(T e) {
+        final int start = start();
+        for (int i = 0; i <= mask; i++) {
+            final int index = (start + i) & mask;
+            if (slots.get(index) == null && slots.compareAndSet(index, null, e)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int start() {
+        return (int) Thread.currentThread().getId() & mask;
+    }
+}
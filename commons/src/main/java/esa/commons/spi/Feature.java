@@ -90,4 +90,12 @@ public @interface Feature {
      * <p> When NO order configured in @Feature or NO @Feature annotation, "0" would be the default order value. </p>
      */
     int order() default 0;
+
+    /**
+     * "scope" decides whether the extension instance is shared or not, {@link Scope#DEFAULT} means the scope declared
+     * by {@link SPI#scope()}, which is {@link Scope#SINGLETON} by default.
+     * <p>
+     * Notice: it's meaningless for the wrapper classes.
+     */
+    Scope scope() default Scope.DEFAULT;
 }
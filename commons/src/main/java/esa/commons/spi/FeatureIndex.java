@@ -0,0 +1,213 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.spi;
+
+import esa.commons.StringUtils;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Inverted index of the {@link Feature}s of the extensions, which maps the groups and tags to the indexes of the
+ * sorted features, so that matching the features does not need to evaluate every feature.
+ * <p>
+ * The matching result is exactly the same with evaluating the groups, tags and excludeTags of every feature one by
+ * one.
+ */
+final class FeatureIndex {
+
+    final SpiLoader.FeatureInfo[] features;
+
+    private final BitSet all;
+    private final BitSet none = new BitSet();
+    private final BitSet noGroups = new BitSet();
+    private final BitSet noTags = new BitSet();
+    private final Map<String, BitSet> byGroup = new HashMap<>();
+    private final Map<String, BitSet> byTagKey = new HashMap<>();
+    private final Map<String, Map<String, BitSet>> byTag = new HashMap<>();
+    private final Map<String, BitSet> byExcludeTagKey = new HashMap<>();
+    private final Map<String, Map<String, BitSet>> byExcludeTag = new HashMap<>();
+
+    FeatureIndex(Collection<SpiLoader.FeatureInfo> sorted) {
+        this.features = sorted.toArray(new SpiLoader.FeatureInfo[0]);
+        this.all = new BitSet(features.length);
+        all.set(0, features.length);
+        for (int i = 0; i < features.length; i++) {
+            final SpiLoader.FeatureInfo feature = features[i];
+            if (feature.groups == null || feature.groups.length == 0) {
+                noGroups.set(i);
+            } else {
+                for (String group : feature.groups) {
+                    byGroup.computeIfAbsent(group.trim(), k -> new BitSet()).set(i);
+                }
+            }
+            if (feature.tagsMap == null || feature.tagsMap.isEmpty()) {
+                noTags.set(i);
+            } else {
+                index(i, feature.tagsMap, byTagKey, byTag);
+            }
+            if (feature.excludeTagsMap != null) {
+                index(i, feature.excludeTagsMap, byExcludeTagKey, byExcludeTag);
+            }
+        }
+    }
+
+    private static void index(int i,
+                              Map<String, String> tags,
+                              Map<String, BitSet> byKey,
+                              Map<String, Map<String, BitSet>> byKeyValue) {
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            if (StringUtils.isBlank(tag.getKey())) {
+                continue;
+            }
+            byKey.computeIfAbsent(tag.getKey(), k -> new BitSet()).set(i);
+            byKeyValue.computeIfAbsent(tag.getKey(), k -> new HashMap<>())
+                    .computeIfAbsent(tag.getValue(), k -> new BitSet()).set(i);
+        }
+    }
+
+    /**
+     * Gets the indexes of the features which match given {@code group}. The returned value should not be modified.
+     */
+    BitSet matchGroup(String group, boolean matchIfMissing) {
+        if (StringUtils.isBlank(group)) {
+            return all;
+        }
+        final BitSet matched = byGroup.get(group.trim());
+        if (!matchIfMissing) {
+            return matched == null ? none : matched;
+        }
+        if (matched == null) {
+            return noGroups;
+        }
+        final BitSet result = (BitSet) matched.clone();
+        result.or(noGroups);
+        return result;
+    }
+
+    /**
+     * Gets the indexes of the features which match given {@code tags}. The returned value should not be modified.
+     */
+    BitSet matchTags(Map<String, String> tags, boolean matchIfMissing) {
+        if (tags == null || tags.isEmpty()) {
+            return all;
+        }
+        final BitSet result = lookup(tags, byTagKey, byTag);
+        if (matchIfMissing) {
+            result.or(noTags);
+        }
+        // exclude tags have a higher priority than tags
+        result.andNot(lookup(tags, byExcludeTagKey, byExcludeTag));
+        return result;
+    }
+
+    private static BitSet lookup(Map<String, String> tags,
+                                 Map<String, BitSet> byKey,
+                                 Map<String, Map<String, BitSet>> byKeyValue) {
+        final BitSet result = new BitSet();
+        for (Map.Entry<String, String> entry : tags.entrySet()) {
+            if (StringUtils.isBlank(entry.getKey())) {
+                continue;
+            }
+            final String key = entry.getKey().trim();
+            final String value = entry.getValue() == null ? "" : entry.getValue().trim();
+            final BitSet matched;
+            if (StringUtils.isBlank(value)) {
+                matched = byKey.get(key);
+            } else {
+                final Map<String, BitSet> values = byKeyValue.get(key);
+                matched = values == null ? null : values.get(value);
+            }
+            if (matched != null) {
+                result.or(matched);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Key of the memorized matching result.
+     */
+    static final class Query {
+
+        private final Set<String> namesFilter;
+        private final String group;
+        private final boolean matchGroupIfMissing;
+        private final Map<String, String> tags;
+        private final boolean matchTagIfMissing;
+        private final int hash;
+
+        private Query(Set<String> namesFilter,
+                      String group,
+                      boolean matchGroupIfMissing,
+                      Map<String, String> tags,
+                      boolean matchTagIfMissing) {
+            this.namesFilter = namesFilter;
+            this.group = group;
+            this.matchGroupIfMissing = matchGroupIfMissing;
+            this.tags = tags;
+            this.matchTagIfMissing = matchTagIfMissing;
+            this.hash = Objects.hash(namesFilter, group, matchGroupIfMissing, tags, matchTagIfMissing);
+        }
+
+        static Query of(Collection<String> namesFilter,
+                        String group,
+                        boolean matchGroupIfMissing,
+                        Map<String, String> tags,
+                        boolean matchTagIfMissing) {
+            return new Query(namesFilter == null || namesFilter.isEmpty() ? null : new HashSet<>(namesFilter),
+                    StringUtils.isBlank(group) ? null : group.trim(),
+                    matchGroupIfMissing,
+                    tags == null || tags.isEmpty() ? null : tags,
+                    matchTagIfMissing);
+        }
+
+        /**
+         * Copies the mutable tags so that it could be used as a key of cache.
+         */
+        Query copy() {
+            return tags == null ? this
+                    : new Query(namesFilter, group, matchGroupIfMissing, new HashMap<>(tags), matchTagIfMissing);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Query)) {
+                return false;
+            }
+            final Query that = (Query) o;
+            return hash == that.hash
+                    && matchGroupIfMissing == that.matchGroupIfMissing
+                    && matchTagIfMissing == that.matchTagIfMissing
+                    && Objects.equals(group, that.group)
+                    && Objects.equals(namesFilter, that.namesFilter)
+                    && Objects.equals(tags, that.tags);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.spi;
+
+import esa.commons.Primitives;
+import esa.commons.StringUtils;
+import esa.commons.reflect.ReflectionUtils;
+import esa.commons.spi.factory.Inject;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Injection plan of an extension or wrapper class, which is resolved once and cached by class. It contains the
+ * constructor to instantiate the class with its parameters, and the fields and setters annotated by @{@link Inject},
+ * all of them are invoked through {@link MethodHandle}s.
+ */
+final class InjectionPlan {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, Object[].class);
+    private static final MethodType INJECTOR_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final ClassValue<InjectionPlan> PLANS = new ClassValue<InjectionPlan>() {
+        @Override
+        protected InjectionPlan computeValue(Class<?> type) {
+            return new InjectionPlan(type);
+        }
+    };
+
+    private final Class<?> clazz;
+
+    /**
+     * Constructor annotated by @{@link Inject}, or {@code null} if the default constructor should be used.
+     */
+    private final Constructor<?> injectConstructor;
+
+    /**
+     * Parameters of the constructor.
+     */
+    final Parameter[] parameters;
+
+    /**
+     * Fields and setters to inject.
+     */
+    final Injection[] injections;
+
+    private volatile MethodHandle constructor;
+    private volatile WrapperConstructor wrapperConstructor;
+
+    private InjectionPlan(Class<?> clazz) {
+        this.clazz = clazz;
+        Constructor<?> injectConstructor = null;
+        Parameter[] parameters = new Parameter[0];
+        for (Constructor<?> c : clazz.getDeclaredConstructors()) {
+            // Only constructor with Inject annotation will be used to inject extension
+            // and only one constructor will used
+            if (c.isAnnotationPresent(Inject.class)) {
+                injectConstructor = c;
+                parameters = parametersOf(c);
+            }
+        }
+        this.injectConstructor = injectConstructor;
+        this.parameters = parameters;
+
+        final List<Injection> injections = new ArrayList<>();
+        for (Field field : clazz.getDeclaredFields()) {
+            if (field.isAnnotationPresent(Inject.class) && !field.getType().isPrimitive()) {
+                injections.add(new Injection(field.getName(),
+                        true,
+                        field.getType(),
+                        field.getAnnotation(Inject.class),
+                        injectorOf(field)));
+            }
+        }
+        for (Method method : clazz.getDeclaredMethods()) {
+            if (ReflectionUtils.isSetter(method)
+                    && method.isAnnotationPresent(Inject.class)
+                    && !method.getParameterTypes()[0].isPrimitive()) {
+                injections.add(new Injection(method.getName(),
+                        false,
+                        method.getParameterTypes()[0],
+                        method.getAnnotation(Inject.class),
+                        injectorOf(method)));
+            }
+        }
+        this.injections = injections.toArray(new Injection[0]);
+    }
+
+    static InjectionPlan of(Class<?> clazz) {
+        return PLANS.get(clazz);
+    }
+
+    /**
+     * Instantiates the class by the constructor annotated by @{@link Inject} or the default constructor.
+     *
+     * @param args resolved parameters of the constructor
+     */
+    Object newInstance(Object[] args) throws Throwable {
+        MethodHandle c = constructor;
+        if (c == null) {
+            final Constructor<?> target = injectConstructor == null
+                    ? clazz.getDeclaredConstructor() : injectConstructor;
+            c = LOOKUP.unreflectConstructor(target)
+                    .asSpreader(Object[].class, target.getParameterTypes().length)
+                    .asType(CONSTRUCTOR_TYPE);
+            constructor = c;
+        }
+        return c.invokeExact(args);
+    }
+
+    /**
+     * Instantiates the wrapper class by the public constructor which has given SPI type as its only parameter.
+     */
+    Object newWrapper(Class<?> type, Object delegate) throws Throwable {
+        WrapperConstructor c = wrapperConstructor;
+        if (c == null || c.type != type) {
+            c = new WrapperConstructor(type, LOOKUP.unreflectConstructor(clazz.getConstructor(type))
+                    .asType(MethodType.methodType(Object.class, Object.class)));
+            wrapperConstructor = c;
+        }
+        return c.handle.invokeExact(delegate);
+    }
+
+    private static Parameter[] parametersOf(Constructor<?> constructor) {
+        // The Inject annotation of constructor must set the name attribute
+        // and multiple names are separated by commas
+        final Inject inject = constructor.getDeclaredAnnotation(Inject.class);
+        final String parameterName = inject.name().replaceAll("\\s*", "");
+        final String[] parameterNames = StringUtils.isEmpty(parameterName) ? null : parameterName.split(",");
+        final Class<?>[] parameterTypes = constructor.getParameterTypes();
+        final Parameter[] parameters = new Parameter[parameterTypes.length];
+        int parameterNameIndex = 0;
+        for (int i = 0; i < parameterTypes.length; i++) {
+            // String and primitive and box of primitive type will be injected by default value
+            final Class<?> parameterType = parameterTypes[i];
+            if (parameterType == String.class) {
+                parameters[i] = new Parameter("", null, false);
+            } else if (Primitives.isPrimitiveOrWraperType(parameterType)) {
+                parameters[i] = new Parameter(Primitives.defaultValue(parameterType), null, false);
+            } else {
+                String injectName = "";
+                if (parameterNames != null) {
+                    // Other types will be obtained from ExtensionFactory
+                    if (parameterNameIndex == parameterNames.length) {
+                        throw new RuntimeException("The name attribute in the Inject comment is " +
+                                "incorrectly configured, please check.");
+                    }
+                    injectName = parameterNames[parameterNameIndex++];
+                }
+                parameters[i] = new Parameter(null,
+                        new SpiLoader.ExtensionPair(injectName, parameterType),
+                        inject.require());
+            }
+        }
+        return parameters;
+    }
+
+    private static MethodHandle injectorOf(Field field) {
+        field.setAccessible(true);
+        MethodHandle injector;
+        try {
+            injector = LOOKUP.unreflectSetter(field);
+        } catch (IllegalAccessException e) {
+            // e.g. final fields, fallback to reflection which reports the error while injecting
+            return reflective(field, "set");
+        }
+        if (Modifier.isStatic(field.getModifiers())) {
+            injector = MethodHandles.dropArguments(injector, 0, Object.class);
+        }
+        return injector.asType(INJECTOR_TYPE);
+    }
+
+    private static MethodHandle injectorOf(Method method) {
+        try {
+            return LOOKUP.unreflect(method).asType(INJECTOR_TYPE);
+        } catch (IllegalAccessException e) {
+            // fallback to reflection which reports the error while injecting
+            return reflective(method, "invoke");
+        }
+    }
+
+    private static MethodHandle reflective(Object member, String name) {
+        try {
+            final MethodHandle handle;
+            if (member instanceof Field) {
+                handle = LOOKUP.findVirtual(Field.class, name,
+                        MethodType.methodType(void.class, Object.class, Object.class));
+            } else {
+                handle = LOOKUP.findVirtual(Method.class, name,
+                        MethodType.methodType(Object.class, Object.class, Object[].class))
+                        .asCollector(Object[].class, 1);
+            }
+            return handle.bindTo(member).asType(INJECTOR_TYPE);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Parameter of the constructor, which is a default value or an extension to be injected.
+     */
+    static final class Parameter {
+
+        final Object defaultValue;
+        final SpiLoader.ExtensionPair pair;
+        final boolean require;
+
+        private Parameter(Object defaultValue, SpiLoader.ExtensionPair pair, boolean require) {
+            this.defaultValue = defaultValue;
+            this.pair = pair;
+            this.require = require;
+        }
+    }
+
+    /**
+     * Field or setter to inject.
+     */
+    static final class Injection {
+
+        final String name;
+        final boolean field;
+        final SpiLoader.ExtensionPair pair;
+        final boolean require;
+        private final MethodHandle injector;
+
+        private Injection(String name, boolean field, Class<?> type, Inject inject, MethodHandle injector) {
+            this.name = name;
+            this.field = field;
+            this.pair = new SpiLoader.ExtensionPair(inject.name(), type);
+            this.require = inject.require();
+            this.injector = injector;
+        }
+
+        void inject(Object instance, Object extension) throws Throwable {
+            injector.invokeExact(instance, extension);
+        }
+    }
+
+    private static final class WrapperConstructor {
+
+        private final Class<?> type;
+        private final MethodHandle handle;
+
+        private WrapperConstructor(Class<?> type, MethodHandle handle) {
+            this.type = type;
+            this.handle = handle;
+        }
+    }
+}
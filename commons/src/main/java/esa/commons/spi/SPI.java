@@ -43,4 +43,9 @@ public @interface SPI {
      *
      */
     String value() default "";
+
+    /**
+     * Default scope of the extensions of SPI, which could be overridden by {@link Feature#scope()}.
+     */
+    Scope scope() default Scope.SINGLETON;
 }
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.spi;
+
+/**
+ * Scope of the extensions, which decides whether the extension instance is shared or not.
+ *
+ * @see SPI#scope()
+ * @see Feature#scope()
+ */
+public enum Scope {
+
+    /**
+     * Use the scope declared by {@link SPI#scope()}, it's only meaningful in {@link Feature#scope()}.
+     */
+    DEFAULT,
+
+    /**
+     * Only one instance of the extension would be created and shared.
+     */
+    SINGLETON,
+
+    /**
+     * A new instance of the extension would be created every time getting it.
+     */
+    PROTOTYPE,
+
+    /**
+     * Instances of the extension are borrowed from a bounded pool and a new one would be created if there's no
+     * idle instance in the pool. The borrowed instance should be given back by {@link SpiLoader#release(String,
+     * Object)} after using, otherwise it would not be reused.
+     */
+    POOLED
+}
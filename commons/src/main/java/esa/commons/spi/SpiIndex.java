@@ -0,0 +1,340 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.spi;
+
+import esa.commons.logging.Logger;
+import esa.commons.logging.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Precomputed index of the SPI specification files which is generated at build time by {@link SpiIndexGenerator} and
+ * saved as {@link #INDEX_FILE} in the same classpath root with the specification files.
+ * <p>
+ * Every line of the index describes an extension with tab separated fields:
+ * <pre>
+ * type    name    class    kind(E: extension, W: wrapper)    order    groups    tags    excludeTags    scope
+ * </pre>
+ * and each element of the groups, tags and excludeTags is terminated by a ','. The specification files which could
+ * not be indexed are listed by lines of
+ * <pre>
+ * -    resource name which is relative to the classpath root
+ * </pre>
+ * and they are not covered by the index, that is, they would still be scanned as usual. Index files of an unknown
+ * version are ignored, so that the specification files in the same classpath root would be scanned as usual.
+ */
+final class SpiIndex {
+
+    static final String INDEX_FILE = "META-INF/esa/spi.index";
+    static final int VERSION = 3;
+
+    static final SpiIndex EMPTY = new SpiIndex(Collections.emptyMap(), Collections.emptySet(),
+            Collections.emptySet());
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpiIndex.class);
+    private static final String HEADER = "esa-spi-index:";
+    private static final String UNCOVERED = "-";
+    private static final String[] EMPTY_ARRAY = new String[0];
+
+    /**
+     * Index cached by class loader, the cached values never reference the class loader.
+     */
+    private static final Map<ClassLoader, SpiIndex> CACHE = new WeakHashMap<>();
+
+    private final Map<String, List<Entry>> entries;
+    private final Set<String> roots;
+
+    /**
+     * Urls of the specification files in the indexed classpath roots which have not been indexed.
+     */
+    private final Set<String> uncovered;
+
+    private SpiIndex(Map<String, List<Entry>> entries, Set<String> roots, Set<String> uncovered) {
+        this.entries = entries;
+        this.roots = roots;
+        this.uncovered = uncovered;
+    }
+
+    /**
+     * Gets the merged index of all the index files which could be found by given {@code classLoader}.
+     */
+    static SpiIndex get(ClassLoader classLoader) {
+        synchronized (CACHE) {
+            return CACHE.computeIfAbsent(classLoader, SpiIndex::load);
+        }
+    }
+
+    boolean isEmpty() {
+        return roots.isEmpty();
+    }
+
+    /**
+     * Gets the indexed extensions of given SPI type.
+     */
+    List<Entry> entries(String type) {
+        return entries.getOrDefault(type, Collections.emptyList());
+    }
+
+    /**
+     * Whether given {@code resource} has been indexed, which means that its classpath root has been indexed and it has
+     * not been recorded as uncovered.
+     *
+     * @param resource resource url
+     * @param name     resource name which is relative to the classpath root
+     */
+    boolean covers(URL resource, String name) {
+        final String root = rootOf(resource, name);
+        return root != null && roots.contains(root) && !uncovered.contains(resource.toString());
+    }
+
+    private static SpiIndex load(ClassLoader classLoader) {
+        final Map<String, List<Entry>> entries = new LinkedHashMap<>();
+        final Set<String> roots = new HashSet<>();
+        final Set<String> uncovered = new HashSet<>();
+        try {
+            final Enumeration<URL> urls = classLoader.getResources(INDEX_FILE);
+            while (urls.hasMoreElements()) {
+                final URL url = urls.nextElement();
+                final String root = rootOf(url, INDEX_FILE);
+                if (root == null || roots.contains(root)) {
+                    continue;
+                }
+                final Map<String, List<Entry>> read;
+                final Set<String> names = new HashSet<>();
+                try (BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+                    read = read(reader, names);
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.warn("Ignored invalid SPI index: {}", url, e);
+                    continue;
+                }
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Loaded SPI index: " + url.getPath());
+                }
+                read.forEach((type, list) -> entries.computeIfAbsent(type, k -> new ArrayList<>()).addAll(list));
+                names.forEach(name -> uncovered.add(root + name));
+                roots.add(root);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Failed to load SPI index, fallback to scan the SPI files", e);
+            return EMPTY;
+        }
+        return roots.isEmpty() ? EMPTY : new SpiIndex(entries, roots, uncovered);
+    }
+
+    private static String rootOf(URL resource, String name) {
+        final String s = resource.toString();
+        return s.endsWith(name) ? s.substring(0, s.length() - name.length()) : null;
+    }
+
+    /**
+     * Reads the index.
+     *
+     * @param reader    reader
+     * @param uncovered to collect the names of the specification files which have not been indexed
+     *
+     * @return indexed extensions by SPI type
+     */
+    static Map<String, List<Entry>> read(BufferedReader reader, Set<String> uncovered) throws IOException {
+        String line = reader.readLine();
+        if (line == null || !line.startsWith(HEADER)) {
+            throw new IllegalArgumentException("Missing header of SPI index");
+        }
+        final int version = Integer.parseInt(line.substring(HEADER.length()).trim());
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported SPI index version: " + version);
+        }
+        final Map<String, List<Entry>> entries = new LinkedHashMap<>();
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            final String[] fields = line.split("\t", -1);
+            if (fields.length == 2 && UNCOVERED.equals(fields[0])) {
+                uncovered.add(unescape(fields[1]));
+                continue;
+            }
+            if (fields.length != 9) {
+                throw new IllegalArgumentException("Illegal line of SPI index: " + line);
+            }
+            entries.computeIfAbsent(unescape(fields[0]), k -> new ArrayList<>())
+                    .add(new Entry(unescape(fields[1]),
+                            unescape(fields[2]),
+                            "W".equals(fields[3]),
+                            Integer.parseInt(fields[4]),
+                            readArray(fields[5]),
+                            readArray(fields[6]),
+                            readArray(fields[7]),
+                            Scope.valueOf(fields[8])));
+        }
+        return entries;
+    }
+
+    /**
+     * Writes the index.
+     *
+     * @param writer    writer
+     * @param entries   indexed extensions by SPI type
+     * @param uncovered names of the specification files which have not been indexed
+     */
+    static void write(Writer writer,
+                      Map<String, List<Entry>> entries,
+                      Collection<String> uncovered) throws IOException {
+        writer.write(HEADER);
+        writer.write(String.valueOf(VERSION));
+        writer.write('\n');
+        for (String name : uncovered) {
+            writer.write(escape(new StringBuilder(UNCOVERED).append('\t'), name).append('\n').toString());
+        }
+        for (Map.Entry<String, List<Entry>> e : entries.entrySet()) {
+            for (Entry entry : e.getValue()) {
+                final StringBuilder sb = new StringBuilder(128);
+                escape(sb, e.getKey()).append('\t');
+                escape(sb, entry.name).append('\t');
+                escape(sb, entry.className).append('\t');
+                sb.append(entry.wrapper ? 'W' : 'E').append('\t');
+                sb.append(entry.order).append('\t');
+                writeArray(sb, entry.groups).append('\t');
+                writeArray(sb, entry.tags).append('\t');
+                writeArray(sb, entry.excludeTags).append('\t');
+                sb.append(entry.scope.name()).append('\n');
+                writer.write(sb.toString());
+            }
+        }
+    }
+
+    private static StringBuilder writeArray(StringBuilder sb, String[] values) {
+        for (String value : values) {
+            escape(sb, value).append(',');
+        }
+        return sb;
+    }
+
+    private static String[] readArray(String field) {
+        if (field.isEmpty()) {
+            return EMPTY_ARRAY;
+        }
+        final List<String> values = new ArrayList<>();
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < field.length(); i++) {
+            final char c = field.charAt(i);
+            if (c == '\\' && i + 1 < field.length()) {
+                // keep the escaped character
+                sb.append(c).append(field.charAt(++i));
+            } else if (c == ',') {
+                values.add(unescape(sb.toString()));
+                sb.setLength(0);
+            } else {
+                sb.append(c);
+            }
+        }
+        return values.toArray(EMPTY_ARRAY);
+    }
+
+    private static StringBuilder escape(StringBuilder sb, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case ',':
+                    sb.append("\\,");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb;
+    }
+
+    private static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        final StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                c = value.charAt(++i);
+                if (c == 't') {
+                    c = '\t';
+                } else if (c == 'n') {
+                    c = '\n';
+                } else if (c == 'r') {
+                    c = '\r';
+                }
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Indexed extension.
+     */
+    static final class Entry {
+
+        final String name;
+        final String className;
+        final boolean wrapper;
+        final int order;
+        final String[] groups;
+        final String[] tags;
+        final String[] excludeTags;
+
+        /**
+         * Scope declared by {@link Feature#scope()}
+         */
+        final Scope scope;
+
+        Entry(String name, String className, boolean wrapper, int order,
+                String[] groups, String[] tags, String[] excludeTags, Scope scope) {
+            this.name = name;
+            this.className = className;
+            this.wrapper = wrapper;
+            this.order = order;
+            this.groups = groups;
+            this.tags = tags;
+            this.excludeTags = excludeTags;
+            this.scope = scope;
+        }
+    }
+}
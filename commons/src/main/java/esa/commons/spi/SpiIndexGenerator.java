@@ -0,0 +1,182 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.spi;
+
+import esa.commons.Checks;
+import esa.commons.ClassUtils;
+import esa.commons.logging.Logger;
+import esa.commons.logging.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates the SPI index of a classes directory at build time, which allows the {@link SpiLoader} to load the
+ * extensions of the indexed classpath root in a single pass instead of scanning and parsing the SPI files of every
+ * SPI type. For example, run it with the exec-maven-plugin after the classes have been compiled:
+ * <pre>{@code
+ * <plugin>
+ *     <groupId>org.codehaus.mojo</groupId>
+ *     <artifactId>exec-maven-plugin</artifactId>
+ *     <executions>
+ *         <execution>
+ *             <id>esa-spi-index</id>
+ *             <phase>process-classes</phase>
+ *             <goals>
+ *                 <goal>java</goal>
+ *             </goals>
+ *             <configuration>
+ *                 <mainClass>esa.commons.spi.SpiIndexGenerator</mainClass>
+ *                 <arguments>
+ *                     <argument>${project.build.outputDirectory}</argument>
+ *                 </arguments>
+ *                 <classpathScope>compile</classpathScope>
+ *             </configuration>
+ *         </execution>
+ *     </executions>
+ * </plugin>
+ * }</pre>
+ * The index must be regenerated whenever the SPI files or the {@link Feature}s of the extensions have been changed.
+ * An SPI file whose SPI type or any extension class could not be loaded from the classpath of the generator is not
+ * indexed, but recorded as uncovered so that the {@link SpiLoader} would still scan it at runtime.
+ *
+ * @see SpiLoader
+ */
+public final class SpiIndexGenerator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpiIndexGenerator.class);
+
+    private SpiIndexGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Checks.checkArg(args.length == 1, "Usage: SpiIndexGenerator <classes directory>");
+        final int count = generate(new File(args[0]), ClassUtils.getClassLoader());
+        LOGGER.info("Indexed {} SPI extensions in {}", count, args[0]);
+    }
+
+    /**
+     * Generates the index of the SPI files under given {@code classesDir} and saves it into the same directory.
+     *
+     * @param classesDir classes directory
+     * @param parent     class loader to load the dependencies of the classes
+     *
+     * @return count of the indexed extensions and wrappers
+     */
+    public static int generate(File classesDir, ClassLoader parent) throws IOException {
+        Checks.checkNotNull(classesDir, "classesDir");
+        Checks.checkArg(classesDir.isDirectory(), classesDir + " is not a directory");
+        final Map<String, List<SpiIndex.Entry>> entries = new LinkedHashMap<>();
+        final Set<String> uncovered = new LinkedHashSet<>();
+        int count = 0;
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{classesDir.toURI().toURL()}, parent)) {
+            for (String dir : SpiLoader.DIRECTORIES) {
+                final File[] files = new File(classesDir, dir).listFiles(File::isFile);
+                if (files == null) {
+                    continue;
+                }
+                Arrays.sort(files);
+                for (File file : files) {
+                    count += index(classLoader, dir + file.getName(), file, entries, uncovered);
+                }
+            }
+        }
+        final File index = new File(classesDir, SpiIndex.INDEX_FILE);
+        if (!index.getParentFile().isDirectory() && !index.getParentFile().mkdirs()) {
+            throw new IOException("Failed to create directory: " + index.getParentFile());
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(index), StandardCharsets.UTF_8)) {
+            SpiIndex.write(writer, entries, uncovered);
+        }
+        return count;
+    }
+
+    private static int index(ClassLoader classLoader,
+                             String name,
+                             File file,
+                             Map<String, List<SpiIndex.Entry>> entries,
+                             Set<String> uncovered) throws IOException {
+        final Class<?> type;
+        try {
+            type = Class.forName(file.getName(), false, classLoader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            LOGGER.warn("Could not index SPI file {} which will be scanned at runtime: {}", file, e.toString());
+            uncovered.add(name);
+            return 0;
+        }
+        if (!type.isInterface()) {
+            return 0;
+        }
+        final List<SpiIndex.Entry> indexed = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String[] parsed = SpiLoader.parseLine(line);
+                if (parsed == null) {
+                    continue;
+                }
+                final Class<?> clazz;
+                try {
+                    clazz = Class.forName(parsed[1], false, classLoader);
+                } catch (ClassNotFoundException | LinkageError e) {
+                    // the class may be present at runtime, so leave the whole file to be scanned
+                    LOGGER.warn("Could not index SPI file {} which will be scanned at runtime, " +
+                            "failed to load extension {}: {}", file, parsed[1], e.toString());
+                    uncovered.add(name);
+                    return 0;
+                }
+                if (!type.isAssignableFrom(clazz)) {
+                    LOGGER.warn("Skipped extension {} which could not be assigned to {}", parsed[1], type.getName());
+                    continue;
+                }
+                String extensionName = parsed[0];
+                final Feature feature = clazz.getAnnotation(Feature.class);
+                if (feature != null && !feature.name().isEmpty()) {
+                    extensionName = feature.name();
+                }
+                indexed.add(new SpiIndex.Entry(extensionName,
+                        clazz.getName(),
+                        SpiLoader.isWrapperClass(clazz, type),
+                        feature == null ? 0 : feature.order(),
+                        feature == null ? new String[0] : feature.groups(),
+                        feature == null ? new String[0] : feature.tags(),
+                        feature == null ? new String[0] : feature.excludeTags(),
+                        feature == null ? Scope.DEFAULT : feature.scope()));
+            }
+        }
+        if (!indexed.isEmpty()) {
+            entries.computeIfAbsent(type.getName(), k -> new ArrayList<>()).addAll(indexed);
+        }
+        return indexed.size();
+    }
+}
@@ -18,7 +18,7 @@ package esa.commons.spi;
 import esa.commons.Checks;
 import esa.commons.ClassUtils;
 import esa.commons.ConfigUtils;
-import esa.commons.Primitives;
+import esa.commons.Platforms;
 import esa.commons.StringUtils;
 import esa.commons.logging.Logger;
 import esa.commons.logging.LoggerFactory;
@@ -28,30 +28,37 @@ import esa.commons.spi.factory.Inject;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 /**
  * SPI unity class, allows to load SPI instances by given predicates lazily. The SPI specification files should be
  * maintained in {@link #ESA_INTERNAL_DIRECTORY}, {@link #ESA_DIRECTORY} or {@link #SERVICE_DIRECTORY}, and there's no
  * difference between these folders except the name.
+ * <p>
+ * The SPI files of a classpath root could be indexed at build time by {@link SpiIndexGenerator}, then the extensions
+ * of that classpath root would be loaded from the index and its SPI files would not be parsed any more.
  *
  * @param <T> type of target instance.
  * @see SPI
@@ -65,6 +72,26 @@ public class SpiLoader<T> {
     private static final String ESA_DIRECTORY = "META-INF/esa/";
     private static final String SERVICE_DIRECTORY = "META-INF/services/";
 
+    static final String[] DIRECTORIES = {ESA_INTERNAL_DIRECTORY, ESA_DIRECTORY, SERVICE_DIRECTORY};
+
+    /**
+     * <p>Whether to ignore the SPI index generated by {@link SpiIndexGenerator} and always scan the SPI files, false
+     * by default.</p>
+     * <p>Can be set by environment variables io_esastack_spi_ignoreIndex or io.esastack.spi.ignoreIndex and vm
+     * options -Dio.esastack.spi.ignoreIndex</p>
+     */
+    private static final boolean IGNORE_INDEX =
+            ConfigUtils.get().getBool("io.esastack.spi.ignoreIndex", false);
+
+    /**
+     * <p>Whether to load the extensions from the SPI index only without scanning the SPI files once any SPI index
+     * is found, false by default. It should only be enabled if all the SPI files in classpath have been indexed.</p>
+     * <p>Can be set by environment variables io_esastack_spi_indexOnly or io.esastack.spi.indexOnly and vm
+     * options -Dio.esastack.spi.indexOnly</p>
+     */
+    private static final boolean INDEX_ONLY =
+            ConfigUtils.get().getBool("io.esastack.spi.indexOnly", false);
+
     /**
      * <p>Whether to allow circular dependencies, not allowed by default.</p>
      * <p>Can be set by environment variables io_esastack_spi_allowCircularReferences or
@@ -75,6 +102,19 @@ public class SpiLoader<T> {
 
     private static final String ALLOW_CYCLE_KEY = "io.esastack.spi.allowCircularReferences";
 
+    /**
+     * Max size of the memorized results of getting featured extensions of each SPI.
+     */
+    private static final int MAX_FEATURED_CACHE_SIZE = 256;
+
+    /**
+     * <p>Max idle instances of each {@link Scope#POOLED} extension, which is twice of the cpu number by default.</p>
+     * <p>Can be set by environment variables io_esastack_spi_poolSize or io.esastack.spi.poolSize and vm options
+     * -Dio.esastack.spi.poolSize</p>
+     */
+    private static final int POOL_SIZE =
+            Math.max(1, ConfigUtils.get().getInt("io.esastack.spi.poolSize", Platforms.cpuNum() << 1));
+
     /**
      * Spi loader cached by SPI type
      */
@@ -86,19 +126,25 @@ public class SpiLoader<T> {
     private static final Map<ExtensionPair, Object> EXTENSIONS_CACHE = new ConcurrentHashMap<>(16);
 
     /**
-     * Cache of early extension objects: bean name to bean instance.
+     * Shared creation locks of the extensions whose dependencies form a cycle, by the extensions of the cycle
      */
-    private static final Map<ExtensionPair, Object> EARLY_EXTENSION_OBJECTS = new ConcurrentHashMap<>(16);
+    private static final ConcurrentHashMap<Set<DependencyNode>, Object> COMPONENT_LOCKS = new ConcurrentHashMap<>();
 
     /**
-     * Names of beans currently excluded from in creation checks.
+     * Extensions being created by current thread, which is confined to the thread because the circular dependencies
+     * could only be formed in a single creation.
      */
-    private static final Set<ExtensionPair> IN_CREATION_CHECK_EXCLUSIONS = new HashSet<>();
+    private static final ThreadLocal<CreationContext> CREATION_CONTEXT = new ThreadLocal<>();
 
     /**
      * Spi extension objects cached by name (All extensions has already wrapped by all the wrappers)
      */
-    private final ConcurrentHashMap<String, T> extensionCache = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ExtensionHolder<T>> extensionCache = new ConcurrentHashMap<>();
+
+    /**
+     * Lazy proxies of the extensions cached by name
+     */
+    private final ConcurrentHashMap<String, T> lazyExtensions = new ConcurrentHashMap<>();
 
     /**
      * Inner spi extension classes
@@ -106,6 +152,16 @@ public class SpiLoader<T> {
     private final Map<String, Class<? extends T>> extensionClasses = new HashMap<>();
     private final Map<Class<? extends T>, String> extensionNames = new HashMap<>();
 
+    /**
+     * Resolved scopes of the extensions by name
+     */
+    private final Map<String, Scope> scopes = new HashMap<>();
+
+    /**
+     * Idle instances of the pooled extensions by name
+     */
+    private final ConcurrentHashMap<String, ExtensionPool<T>> pools = new ConcurrentHashMap<>();
+
     /**
      * Sorted wrapper class Info
      */
@@ -115,8 +171,19 @@ public class SpiLoader<T> {
      * Sorted feature info
      */
     private final Set<FeatureInfo> featuresCache = new TreeSet<>();
+
+    /**
+     * Inverted index of the sorted features, which is built after all the extensions have been loaded
+     */
+    private final FeatureIndex featureIndex;
+
+    /**
+     * Memorized results of getting featured extensions
+     */
+    private final ConcurrentHashMap<FeatureIndex.Query, List<T>> featuredCache = new ConcurrentHashMap<>();
     private final Class<T> type;
     private final String defaultExtension;
+    private final Scope defaultScope;
 
     private static final List<ExtensionFactory> EXTENSION_FACTORIES;
 
@@ -137,18 +204,30 @@ public class SpiLoader<T> {
     }
 
     private SpiLoader(Class<T> type) {
+        this(type, ClassUtils.getClassLoader());
+    }
+
+    SpiLoader(Class<T> type, ClassLoader classLoader) {
         this.type = type;
 
         if (type.isAnnotationPresent(SPI.class)) {
             this.defaultExtension = type.getAnnotation(SPI.class).value();
+            this.defaultScope = type.getAnnotation(SPI.class).scope() == Scope.DEFAULT
+                    ? Scope.SINGLETON : type.getAnnotation(SPI.class).scope();
         } else {
             this.defaultExtension = null;
+            this.defaultScope = Scope.SINGLETON;
         }
 
-        // Load classes from META-INF directory
-        loadFromDir(ESA_INTERNAL_DIRECTORY);
-        loadFromDir(ESA_DIRECTORY);
-        loadFromDir(SERVICE_DIRECTORY);
+        final SpiIndex index = IGNORE_INDEX ? SpiIndex.EMPTY : SpiIndex.get(classLoader);
+        loadFromIndex(classLoader, index);
+        if (!INDEX_ONLY || index.isEmpty()) {
+            // Load classes from META-INF directory which have not been indexed
+            for (String dir : DIRECTORIES) {
+                loadFromDir(classLoader, index, dir);
+            }
+        }
+        this.featureIndex = new FeatureIndex(featuresCache);
     }
 
     /**
@@ -201,6 +280,24 @@ public class SpiLoader<T> {
         return cached(type).getAll(continueIfErr);
     }
 
+    /**
+     * Static method to get all the extensions by class type, which instantiates the extensions in parallel.
+     *
+     * @see #getAll(Executor, boolean)
+     */
+    public static <T> List<T> getAll(Class<T> type, Executor executor, boolean continueIfErr) {
+        return cached(type).getAll(executor, continueIfErr);
+    }
+
+    /**
+     * Static method to get a lazy extension by class type and name.
+     *
+     * @see #getLazyByName(String)
+     */
+    public static <T> Optional<T> getLazyByName(Class<T> type, String name) {
+        return cached(type).getLazyByName(name);
+    }
+
     /**
      * Get all extensions of SPI, if fail to load an specific extension, then abort and throw the exception.
      */
@@ -216,6 +313,242 @@ public class SpiLoader<T> {
         return getByFeature(null, true, null, true, continueIfErr);
     }
 
+    /**
+     * Get all extensions of SPI. The extensions which have not been instantiated are instantiated in parallel by
+     * given {@code executor} first, and an extension is instantiated only after the extensions of the same SPI it
+     * injects via @{@link Inject}. The extensions are instantiated serially if the dependencies form a cycle.
+     *
+     * @param executor      executor to instantiate the extensions
+     * @param continueIfErr whether continue to load other extensions if fail to load an specific extension.
+     * @see #getAll(boolean)
+     */
+    public List<T> getAll(Executor executor, boolean continueIfErr) {
+        Checks.checkNotNull(executor, "executor");
+        instantiate(executor);
+        // The failed extensions would be instantiated again to throw or log the error
+        return getAll(continueIfErr);
+    }
+
+    /**
+     * Get a lazy extension by name, which is a proxy of the SPI interface and the actual extension would not be
+     * instantiated until any method except {@link Object#equals(Object)} and {@link Object#hashCode()} of the proxy is
+     * called. The proxy is bound to the instance got at the first call, and the proxy of a singleton extension is
+     * shared while others are created every time.
+     *
+     * @param name name of extension
+     * @return the lazy extension, or {@link Optional#empty()} if there's no extension of given name
+     */
+    public Optional<T> getLazyByName(String name) {
+        if (StringUtils.isBlank(name) && StringUtils.isBlank(name = defaultExtension)) {
+            return Optional.empty();
+        }
+        final Scope scope = scopes.get(name);
+        if (scope == null) {
+            return Optional.empty();
+        }
+        if (scope != Scope.SINGLETON) {
+            return Optional.of(newLazyExtension(name));
+        }
+        return Optional.of(lazyExtensions.computeIfAbsent(name, this::newLazyExtension));
+    }
+
+    @SuppressWarnings("unchecked")
+    private T newLazyExtension(String name) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, new LazyExtension(name));
+    }
+
+    private void instantiate(Executor executor) {
+        final Map<String, Set<String>> dependencies = new LinkedHashMap<>();
+        for (FeatureInfo featureInfo : featureIndex.features) {
+            final Set<String> names = new HashSet<>();
+            for (DependencyNode dependency : dependenciesOf(featureInfo.name)) {
+                if (dependency.loader == this) {
+                    names.add(dependency.name);
+                }
+            }
+            dependencies.put(featureInfo.name, names);
+        }
+        if (hasCycle(dependencies)) {
+            LOGGER.warn("Dependencies of the extensions of {} form a cycle, instantiate them serially",
+                    type.getName());
+            return;
+        }
+        final Map<String, CompletableFuture<Void>> futures = new HashMap<>();
+        for (String name : dependencies.keySet()) {
+            schedule(name, dependencies, futures, executor);
+        }
+        // Errors are ignored here
+        CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0]))
+                .handle((v, t) -> null)
+                .join();
+    }
+
+    private CompletableFuture<Void> schedule(String name,
+                                             Map<String, Set<String>> dependencies,
+                                             Map<String, CompletableFuture<Void>> futures,
+                                             Executor executor) {
+        CompletableFuture<Void> future = futures.get(name);
+        if (future != null) {
+            return future;
+        }
+        final Set<String> deps = dependencies.get(name);
+        final CompletableFuture<?>[] depFutures = new CompletableFuture<?>[deps.size()];
+        int i = 0;
+        for (String dep : deps) {
+            depFutures[i++] = schedule(dep, dependencies, futures, executor);
+        }
+        future = CompletableFuture.allOf(depFutures)
+                .handle((v, t) -> null)
+                .thenRunAsync(() -> {
+                    if (scopes.get(name) != Scope.SINGLETON) {
+                        // Unshared extensions would be created while getting them
+                        return;
+                    }
+                    try {
+                        getByName(name);
+                    } catch (Throwable t) {
+                        if (LOGGER.isDebugEnabled()) {
+                            LOGGER.debug("Failed to instantiate extension " + name + " of " + type.getName(), t);
+                        }
+                    }
+                }, executor);
+        futures.put(name, future);
+        return future;
+    }
+
+    private static boolean hasCycle(Map<String, Set<String>> dependencies) {
+        final Set<String> visiting = new HashSet<>();
+        final Set<String> visited = new HashSet<>();
+        for (String name : dependencies.keySet()) {
+            if (hasCycle(name, dependencies, visiting, visited)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasCycle(String name,
+                                    Map<String, Set<String>> dependencies,
+                                    Set<String> visiting,
+                                    Set<String> visited) {
+        if (visited.contains(name)) {
+            return false;
+        }
+        if (!visiting.add(name)) {
+            return true;
+        }
+        for (String dep : dependencies.get(name)) {
+            if (hasCycle(dep, dependencies, visiting, visited)) {
+                return true;
+            }
+        }
+        visiting.remove(name);
+        visited.add(name);
+        return false;
+    }
+
+    /**
+     * Extensions which would be injected into the extension of given name or its wrappers, including the extensions
+     * of the other SPIs.
+     */
+    private Set<DependencyNode> dependenciesOf(String name) {
+        final Set<DependencyNode> dependencies = new HashSet<>();
+        final Class<? extends T> extensionClass = extensionClasses.get(name);
+        if (extensionClass == null) {
+            return dependencies;
+        }
+        try {
+            final InjectionPlan plan = InjectionPlan.of(extensionClass);
+            for (InjectionPlan.Parameter parameter : plan.parameters) {
+                if (parameter.pair != null) {
+                    addDependency(dependencies, parameter.pair.getExtensionType(), parameter.pair.getName());
+                }
+            }
+            addInjectedDependencies(dependencies, plan);
+            for (WrapperClassInfo<?> wrapperClassInfo : wrapperClasses) {
+                addInjectedDependencies(dependencies, InjectionPlan.of(wrapperClassInfo.getClazz()));
+            }
+        } catch (RuntimeException e) {
+            // The error would be reported while instantiating
+        }
+        return dependencies;
+    }
+
+    private void addInjectedDependencies(Set<DependencyNode> dependencies, InjectionPlan plan) {
+        for (InjectionPlan.Injection injection : plan.injections) {
+            addDependency(dependencies, injection.pair.getExtensionType(), injection.pair.getName());
+        }
+    }
+
+    /**
+     * Resolves the injected extension in the same way as {@link esa.commons.spi.factory.SpiExtensionFactory}.
+     */
+    private void addDependency(Set<DependencyNode> dependencies, Class<?> injectedType, String injectName) {
+        final SpiLoader<?> loader;
+        String name = injectName;
+        if (injectedType == type || (injectedType.isInterface() && injectedType.isAnnotationPresent(SPI.class))) {
+            loader = injectedType == type ? this : cached(injectedType);
+            if (StringUtils.isEmpty(name) && loader.extensionClasses.size() == 1) {
+                name = loader.extensionClasses.keySet().iterator().next();
+            }
+        } else if (!injectedType.isInterface() && getSpiInterface(injectedType) != null) {
+            final Class<?> spiInterface = getSpiInterface(injectedType);
+            loader = spiInterface == type ? this : cached(spiInterface);
+            if (StringUtils.isEmpty(name)) {
+                name = loader.extensionNames.get(injectedType);
+            }
+        } else {
+            return;
+        }
+        if (name != null && loader.extensionClasses.containsKey(name)) {
+            dependencies.add(new DependencyNode(loader, name));
+        }
+    }
+
+    /**
+     * Returns the lock to create the extension of given name, which is shared by all the extensions that are in a
+     * same dependency cycle with it, or {@code null} if it's not in any cycle.
+     * <p>
+     * The extensions in a cycle inject each other by the early objects which are only visible to the creating thread,
+     * so they must be created by one thread at a time, otherwise two threads may hold the lock of one extension each
+     * and wait for the other forever. Locks of the others are always acquired in the order of the dependencies, so
+     * that they could not deadlock.
+     */
+    private Object creationLock(String name) {
+        final DependencyNode start = new DependencyNode(this, name);
+        // Extensions reachable from the start and the reversed dependencies among them
+        final Map<DependencyNode, Set<DependencyNode>> dependents = new HashMap<>();
+        final List<DependencyNode> pending = new ArrayList<>();
+        dependents.put(start, new HashSet<>());
+        pending.add(start);
+        while (!pending.isEmpty()) {
+            final DependencyNode node = pending.remove(pending.size() - 1);
+            for (DependencyNode dependency : node.loader.dependenciesOf(node.name)) {
+                Set<DependencyNode> ds = dependents.get(dependency);
+                if (ds == null) {
+                    dependents.put(dependency, ds = new HashSet<>());
+                    pending.add(dependency);
+                }
+                ds.add(node);
+            }
+        }
+        // Extensions which could reach the start as well are in the same cycle
+        final Set<DependencyNode> component = new HashSet<>();
+        component.add(start);
+        pending.add(start);
+        while (!pending.isEmpty()) {
+            for (DependencyNode dependent : dependents.get(pending.remove(pending.size() - 1))) {
+                if (component.add(dependent)) {
+                    pending.add(dependent);
+                }
+            }
+        }
+        if (component.size() == 1) {
+            return null;
+        }
+        return COMPONENT_LOCKS.computeIfAbsent(component, c -> new Object());
+    }
+
     /**
      * Get extension without parameter.
      */
@@ -227,25 +560,70 @@ public class SpiLoader<T> {
     }
 
     /**
-     * Get extension by name. 'synchronized' is re-entrant, make sure a spi implementation is create and init only once
-     * Map::computeIfAbsent should not be used here because User may call SpiLoader::getByName in the construct method
-     * of an Extension.
+     * Get extension by name, the instance returned depends on the {@link Scope} of the extension:
+     * <ul>
+     * <li>{@link Scope#SINGLETON}: the shared instance</li>
+     * <li>{@link Scope#PROTOTYPE}: a new instance</li>
+     * <li>{@link Scope#POOLED}: an idle instance in pool or a new instance, which should be given back by
+     * {@link #release(String, Object)}</li>
+     * </ul>
+     * Each singleton extension is held by an {@link ExtensionHolder} to make sure a spi implementation is created and
+     * initialized only once. Getting a created extension is lock free, and the extensions are created with their own
+     * locks except the ones whose dependencies form a cycle, which share a lock. The extension is not created inside
+     * Map::computeIfAbsent because User may call SpiLoader::getByName in the construct method of an Extension.
      */
     public Optional<T> getByName(String name) {
         if (StringUtils.isBlank(name) && StringUtils.isBlank(name = defaultExtension)) {
             return Optional.empty();
         }
-        if (!extensionCache.containsKey(name)) {
-            synchronized (this) {
-                if (!extensionCache.containsKey(name)) {
-                    T ext = newExtension(name);
-                    if (ext != null) {
-                        extensionCache.put(name, ext);
-                    }
-                }
+        ExtensionHolder<T> holder = extensionCache.get(name);
+        if (holder == null) {
+            final Scope scope = scopes.get(name);
+            if (scope == null) {
+                return Optional.empty();
+            }
+            if (scope == Scope.PROTOTYPE) {
+                return Optional.ofNullable(newExtension(name, false));
+            }
+            if (scope == Scope.POOLED) {
+                final T idle = pool(name).poll();
+                return Optional.ofNullable(idle == null ? newExtension(name, false) : idle);
             }
+            holder = extensionCache.computeIfAbsent(name,
+                    n -> new ExtensionHolder<>(creationLock(n), () -> newExtension(n, true)));
+        }
+        return Optional.ofNullable(holder.get());
+    }
+
+    /**
+     * Give back an instance of the {@link Scope#POOLED} extension which is got by {@link #getByName(String)}, it
+     * would be dropped if the pool is full. Nothing would happen if the extension is not pooled.
+     *
+     * @param name     name of extension
+     * @param instance instance to give back
+     */
+    public void release(String name, T instance) {
+        if (instance != null && scopes.get(name) == Scope.POOLED) {
+            pool(name).offer(instance);
+        }
+    }
+
+    /**
+     * Get the scope of extension.
+     *
+     * @param name name of extension
+     * @return scope or {@code null} if there's no extension of given name
+     */
+    public Scope getScope(String name) {
+        return scopes.get(name);
+    }
+
+    private ExtensionPool<T> pool(String name) {
+        ExtensionPool<T> pool = pools.get(name);
+        if (pool == null) {
+            pool = pools.computeIfAbsent(name, n -> new ExtensionPool<>(POOL_SIZE));
         }
-        return Optional.ofNullable(extensionCache.get(name));
+        return pool;
     }
 
     /**
@@ -425,6 +803,7 @@ public class SpiLoader<T> {
      *                            "matchTagIfMissing" is TRUE</li>
      *                            </ul>
      * @param continueIfErr       whether continue if fail to load one of the extensions.
+     * @return unmodifiable list of the matched extensions, which would be memorized for the same parameters.
      */
     public List<T> getByFeature(Collection<String> namesFilter,
                                 String group,
@@ -432,19 +811,33 @@ public class SpiLoader<T> {
                                 Map<String, String> tags,
                                 boolean matchTagIfMissing,
                                 boolean continueIfErr) {
-        List<T> featuredExtensions = new LinkedList<>();
-        for (FeatureInfo featureInfo : featuresCache) {
-            if (!isMatchGroup(featureInfo.groups, group, matchGroupIfMissing) ||
-                    isForceExclude(namesFilter, featureInfo.name)) {
+        final FeatureIndex.Query query =
+                FeatureIndex.Query.of(namesFilter, group, matchGroupIfMissing, tags, matchTagIfMissing);
+        final List<T> cached = featuredCache.get(query);
+        if (cached != null) {
+            return cached;
+        }
+
+        final BitSet groupMatched = featureIndex.matchGroup(group, matchGroupIfMissing);
+        final BitSet tagsMatched = featureIndex.matchTags(tags, matchTagIfMissing);
+        final List<T> featuredExtensions = new ArrayList<>();
+        // Do not memorize the result which is missing the failed extensions or contains the unshared extensions
+        boolean memorizable = true;
+        for (int i = groupMatched.nextSetBit(0); i >= 0; i = groupMatched.nextSetBit(i + 1)) {
+            final FeatureInfo featureInfo = featureIndex.features[i];
+            if (isForceExclude(namesFilter, featureInfo.name)) {
                 continue;
             }
 
-            if (isForceInclude(namesFilter, featureInfo.name) ||
-                    isMatchTags(featureInfo.tagsMap, featureInfo.excludeTagsMap, tags, matchTagIfMissing)) {
+            if (isForceInclude(namesFilter, featureInfo.name) || tagsMatched.get(i)) {
+                if (scopes.get(featureInfo.name) != Scope.SINGLETON) {
+                    memorizable = false;
+                }
                 try {
                     getByName(featureInfo.name).ifPresent(featuredExtensions::add);
                 } catch (Throwable e) {
                     if (continueIfErr) {
+                        memorizable = false;
                         LOGGER.error("Failed to get instance of {}, named {}", type.getTypeName(), featureInfo.name, e);
                     } else {
                         throw e;
@@ -452,7 +845,11 @@ public class SpiLoader<T> {
                 }
             }
         }
-        return featuredExtensions;
+        final List<T> result = Collections.unmodifiableList(featuredExtensions);
+        if (memorizable && featuredCache.size() < MAX_FEATURED_CACHE_SIZE) {
+            featuredCache.putIfAbsent(query.copy(), result);
+        }
+        return result;
     }
 
     private boolean isForceInclude(Collection<String> namesFilter, String name) {
@@ -495,152 +892,72 @@ public class SpiLoader<T> {
 
     /**
      * Create a new extension instance.
+     *
+     * @param shared whether the instance is shared with others, the shared instances would be cached globally
      */
     @SuppressWarnings("unchecked")
-    private T newExtension(String name) {
+    private T newExtension(String name, boolean shared) {
         Class<? extends T> extensionClass = extensionClasses.get(name);
         if (extensionClass == null) {
             return null;
         }
         // Save the creation information for use by the construction method
         ExtensionPair extensionPair = new ExtensionPair(name, extensionClass);
-        if (EXTENSIONS_CACHE.containsKey(extensionPair)) {
+        if (shared && EXTENSIONS_CACHE.containsKey(extensionPair)) {
             return (T) EXTENSIONS_CACHE.get(extensionPair);
         }
-        IN_CREATION_CHECK_EXCLUSIONS.add(extensionPair);
+        final CreationContext context = CreationContext.enter();
+        context.inCreation.add(extensionPair);
         try {
-            T instance = null;
-            Constructor<?>[] declaredConstructors = extensionClass.getDeclaredConstructors();
-            // Inject extension in the constructor
-            for (Constructor<?> constructor : declaredConstructors) {
-                // Only constructor with Inject annotation will be used to inject extension
-                // and only one constructor will used
-                if (constructor.isAnnotationPresent(Inject.class)) {
-                    // The Inject annotation of constructor must set the name attribute
-                    // and multiple names are separated by commas
-                    Inject inject = constructor.getDeclaredAnnotation(Inject.class);
-                    String parameterName = inject.name().replaceAll("\\s*", "");
-                    String[] parameterNames;
-                    if (!StringUtils.isEmpty(parameterName)) {
-                        parameterNames = parameterName.split(",");
-                    } else {
-                        parameterNames = null;
-                    }
-                    Class<?>[] parameterTypes = constructor.getParameterTypes();
-                    Object[] parameters = new Object[parameterTypes.length];
-                    int parameterNameIndex = 0;
-                    for (int i = 0; i < parameterTypes.length; i++) {
-                        // String and primitive and box of primitive type will be injected by default value
-                        Class<?> parameterType = parameterTypes[i];
-                        if (Primitives.isPrimitiveOrWraperType(parameterType) || parameterType == String.class) {
-                            if (parameterType == String.class) {
-                                parameters[i] = "";
-                            } else {
-                                parameters[i] = Primitives.defaultValue(parameterType);
-                            }
-                        } else {
-                            String injectName = "";
-                            if (parameterNames != null) {
-                                // Other types will be obtained from ExtensionFactory
-                                if (parameterNameIndex == parameterNames.length) {
-                                    throw new RuntimeException("The name attribute in the Inject comment is " +
-                                            "incorrectly configured, please check.");
-                                }
-                                injectName = parameterNames[parameterNameIndex++];
-                            }
-                            ExtensionPair pair = new ExtensionPair(injectName, parameterType);
-                            parameters[i] = getExtension(pair, inject.require());
-                        }
-                    }
-                    instance = (T) constructor.newInstance(parameters);
-                }
-            }
-            if (instance == null) {
-                instance = extensionClass.getDeclaredConstructor().newInstance();
+            final InjectionPlan plan = InjectionPlan.of(extensionClass);
+            final Object[] parameters = new Object[plan.parameters.length];
+            for (int i = 0; i < parameters.length; i++) {
+                final InjectionPlan.Parameter parameter = plan.parameters[i];
+                parameters[i] = parameter.pair == null
+                        ? parameter.defaultValue : getExtension(parameter.pair, parameter.require);
             }
+            T instance = (T) plan.newInstance(parameters);
             // Cache the object that newly created but not yet initialized
-            EARLY_EXTENSION_OBJECTS.put(extensionPair, instance);
+            context.earlyObjects.put(extensionPair, instance);
 
             // inject object
             injectExtension(instance);
             for (WrapperClassInfo<?> wrapperClassInfo : wrapperClasses) {
-                instance = injectExtension((T) wrapperClassInfo.getClazz().getConstructor(type).newInstance(instance));
+                instance = injectExtension((T) InjectionPlan.of(wrapperClassInfo.getClazz())
+                        .newWrapper(type, instance));
             }
             // Cache initialized objects
-            EXTENSIONS_CACHE.put(extensionPair, instance);
+            if (shared) {
+                EXTENSIONS_CACHE.put(extensionPair, instance);
+            }
             return instance;
         } catch (Throwable t) {
             throw new IllegalStateException("Extension instance of class (" + type + ") couldn't be instantiated", t);
         } finally {
             // Remove the creation information and cache of object that newly created but not yet initialized
-            IN_CREATION_CHECK_EXCLUSIONS.remove(extensionPair);
-            EARLY_EXTENSION_OBJECTS.remove(extensionPair);
+            context.inCreation.remove(extensionPair);
+            context.earlyObjects.remove(extensionPair);
+            context.exit();
         }
     }
 
-    private T injectExtension(T instance) {
-        return injectExtensionByMethod(injectExtensionByFiled(instance));
-    }
-
     /**
      * {@link java.lang.RuntimeException} will be thrown while require of  {@link esa.commons.spi.factory.Inject}
      * is true. Otherwise we will only record the exception in the log and the object that needs to be injected
      * is set to null.
      */
-    private T injectExtensionByFiled(T instance) {
-        Field field = null;
-        try {
-            for (Field declaredField : instance.getClass().getDeclaredFields()) {
-                field = declaredField;
-                if (!field.isAnnotationPresent(Inject.class)) {
-                    continue;
-                }
-                Class<?> type = field.getType();
-                if (type.isPrimitive()) {
-                    continue;
-                }
-                Inject inject = field.getAnnotation(Inject.class);
-                Object extension = getExtension(new ExtensionPair(inject.name(), type), inject.require());
-                if (extension != null) {
-                    field.setAccessible(true);
-                    field.set(instance, extension);
-                }
+    private T injectExtension(T instance) {
+        for (InjectionPlan.Injection injection : InjectionPlan.of(instance.getClass()).injections) {
+            Object extension = getExtension(injection.pair, injection.require);
+            if (extension == null) {
+                continue;
             }
-        } catch (IllegalAccessException e) {
-            LOGGER.error("Failed to inject extension via field {} of interface {}: {}", field.getName(),
-                    type.getName(), e);
-        }
-        return instance;
-    }
-
-    /**
-     * {@link java.lang.RuntimeException} will be thrown while require of  {@link esa.commons.spi.factory.Inject}
-     * is true. Otherwise we will only record the exception in the log and the object that needs to be injected
-     * is set to null.
-     */
-    private T injectExtensionByMethod(T instance) {
-        Method method = null;
-        try {
-            for (Method declaredMethod : instance.getClass().getDeclaredMethods()) {
-                method = declaredMethod;
-                if (!ReflectionUtils.isSetter(method) || !method.isAnnotationPresent(Inject.class)) {
-                    continue;
-                }
-
-                Class<?> type = method.getParameterTypes()[0];
-                if (type.isPrimitive()) {
-                    continue;
-                }
-                Inject inject = method.getAnnotation(Inject.class);
-                String name = inject.name();
-                Object extension = getExtension(new ExtensionPair(name, type), inject.require());
-                if (extension != null) {
-                    method.invoke(instance, extension);
-                }
+            try {
+                injection.inject(instance, extension);
+            } catch (Throwable e) {
+                LOGGER.error("Failed to inject extension via {} {} of interface {}: {}",
+                        injection.field ? "field" : "method", injection.name, type.getName(), e);
             }
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            LOGGER.error("Failed to inject extension via method {} of interface {}: {}", method.getName(),
-                    type.getName(), e);
         }
         return instance;
     }
@@ -648,9 +965,12 @@ public class SpiLoader<T> {
     private Object getExtension(ExtensionPair pair, boolean required) {
         Object extension = getExtensionInCache(pair, EXTENSIONS_CACHE);
         if (extension == null) {
-            extension = getExtensionInCache(pair, EARLY_EXTENSION_OBJECTS);
+            final CreationContext context = CREATION_CONTEXT.get();
+            if (context != null) {
+                extension = getExtensionInCache(pair, context.earlyObjects);
+            }
             if (extension == null) {
-                if (IN_CREATION_CHECK_EXCLUSIONS.contains(pair)) {
+                if (context != null && context.inCreation.contains(pair)) {
                     if (ALLOW_CYCLE) {
                         return null;
                     } else {
@@ -676,19 +996,57 @@ public class SpiLoader<T> {
         return null;
     }
 
+    /**
+     * Load extensions from the SPI index.
+     */
+    @SuppressWarnings("unchecked")
+    private void loadFromIndex(ClassLoader classLoader, SpiIndex index) {
+        for (SpiIndex.Entry entry : index.entries(type.getName())) {
+            final Class<?> clazz;
+            try {
+                clazz = Class.forName(entry.className, false, classLoader);
+            } catch (ClassNotFoundException | LinkageError e) {
+                LOGGER.error("Could not load indexed extension for SPI " + type.getName(), e);
+                continue;
+            }
+            if (!type.isAssignableFrom(clazz)) {
+                LOGGER.error("{}(loaded by {}) could not be assigned to {}(loaded by {})",
+                        entry.className, clazz.getClassLoader(), type.getName(), type.getClassLoader());
+                continue;
+            }
+            if (isDuplicate(entry.name, entry.className, SpiIndex.INDEX_FILE)) {
+                continue;
+            }
+            if (entry.wrapper) {
+                wrapperClasses.add(new WrapperClassInfo<>((Class<? extends T>) clazz, entry.order));
+            } else {
+                extensionClasses.put(entry.name, (Class<? extends T>) clazz);
+                extensionNames.put((Class<? extends T>) clazz, entry.name);
+                scopes.put(entry.name, resolveScope(entry.scope));
+                featuresCache.add(new FeatureInfo(entry.name,
+                        entry.groups,
+                        entry.tags,
+                        entry.excludeTags,
+                        entry.order));
+            }
+        }
+    }
+
     /**
      * Load meta info files from directory.
      */
-    private void loadFromDir(String dir) {
+    private void loadFromDir(ClassLoader classLoader, SpiIndex index, String dir) {
         String fileName = dir + type.getName();
         try {
             Enumeration<URL> urls;
-            final ClassLoader classLoader = ClassUtils.getClassLoader();
 
             urls = classLoader.getResources(fileName);
             if (urls != null) {
                 while (urls.hasMoreElements()) {
                     URL resourceUrl = urls.nextElement();
+                    if (index.covers(resourceUrl, fileName)) {
+                        continue;
+                    }
                     if (LOGGER.isDebugEnabled()) {
                         LOGGER.debug("Loading SPI resource: " + resourceUrl.getPath());
                     }
@@ -711,65 +1069,89 @@ public class SpiLoader<T> {
             String line;
 
             while ((line = reader.readLine()) != null) {
-
-                final int ci = line.indexOf('#');
-                if (ci >= 0) {
-                    // Get string before '#'
-                    line = line.substring(0, ci);
+                final String[] parsed = parseLine(line);
+                if (parsed == null) {
+                    continue;
                 }
-                line = line.trim();
-                if (line.length() > 0) {
-                    String name = null;
-                    int i = line.indexOf('=');
-                    if (i > 0) {
-                        name = line.substring(0, i).trim();
-                        line = line.substring(i + 1).trim();
-                    }
-                    if (StringUtils.isBlank(name)) {
-                        // Use full name of class as name
-                        name = line;
-                    }
-                    if (line.length() > 0) {
-                        final Class<?> clazz;
-                        try {
-                            clazz = Class.forName(line, false, classLoader);
-                        } catch (ClassNotFoundException e) {
-                            LOGGER.error("Could not load extension for SPI " + type.getName(), e);
-                            continue;
-                        }
-                        if (!type.isAssignableFrom(clazz)) {
-                            LOGGER.error("{}(loaded by {}) could not be assigned to {}(loaded by {})",
-                                    line, clazz.getClassLoader(), type.getName(), type.getClassLoader());
-                            continue;
-                        }
-                        if (LOGGER.isDebugEnabled()) {
-                            LOGGER.debug("Class " + clazz.getName() + " is loaded from " + resource.getPath());
-                        }
-                        if (clazz.isAnnotationPresent(Feature.class)) {
-                            Feature feature = clazz.getAnnotation(Feature.class);
-                            if (StringUtils.isNotEmpty(feature.name())) {
-                                name = feature.name();
-                            }
-                        }
-                        Class<? extends T> oldClass = extensionClasses.get(name);
-                        if (oldClass != null) {
-                            if (!line.equals(oldClass.getName())) {
-                                String errMsg = String.format("Different SPI extensions(%s and %s) of %s " +
-                                        "has same name:%s", oldClass.getName(), line, type.getName(), name);
-                                LOGGER.error(errMsg);
-                                throw new IllegalStateException(errMsg);
-                            }
-                            LOGGER.warn("Different SPI extensions with same name({}) and class({}) loaded, " +
-                                    "the one loaded from ({}) is ignored!", name, line, resource.toString());
-                            continue;
-                        }
-                        putInCache(name, (Class<? extends T>) clazz);
+                String name = parsed[0];
+                line = parsed[1];
+                final Class<?> clazz;
+                try {
+                    clazz = Class.forName(line, false, classLoader);
+                } catch (ClassNotFoundException e) {
+                    LOGGER.error("Could not load extension for SPI " + type.getName(), e);
+                    continue;
+                }
+                if (!type.isAssignableFrom(clazz)) {
+                    LOGGER.error("{}(loaded by {}) could not be assigned to {}(loaded by {})",
+                            line, clazz.getClassLoader(), type.getName(), type.getClassLoader());
+                    continue;
+                }
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Class " + clazz.getName() + " is loaded from " + resource.getPath());
+                }
+                if (clazz.isAnnotationPresent(Feature.class)) {
+                    Feature feature = clazz.getAnnotation(Feature.class);
+                    if (StringUtils.isNotEmpty(feature.name())) {
+                        name = feature.name();
                     }
                 }
+                if (isDuplicate(name, line, resource)) {
+                    continue;
+                }
+                putInCache(name, (Class<? extends T>) clazz);
             }
         }
     }
 
+    /**
+     * Parse a line of the SPI file to an array of {name, class name}, or {@code null} if it's a blank line.
+     */
+    static String[] parseLine(String line) {
+        final int ci = line.indexOf('#');
+        if (ci >= 0) {
+            // Get string before '#'
+            line = line.substring(0, ci);
+        }
+        line = line.trim();
+        if (line.length() == 0) {
+            return null;
+        }
+        String name = null;
+        int i = line.indexOf('=');
+        if (i > 0) {
+            name = line.substring(0, i).trim();
+            line = line.substring(i + 1).trim();
+        }
+        if (line.length() == 0) {
+            return null;
+        }
+        if (StringUtils.isBlank(name)) {
+            // Use full name of class as name
+            name = line;
+        }
+        return new String[]{name, line};
+    }
+
+    /**
+     * Check if an extension with the same name has already been loaded.
+     */
+    private boolean isDuplicate(String name, String className, Object source) {
+        Class<? extends T> oldClass = extensionClasses.get(name);
+        if (oldClass == null) {
+            return false;
+        }
+        if (!className.equals(oldClass.getName())) {
+            String errMsg = String.format("Different SPI extensions(%s and %s) of %s " +
+                    "has same name:%s", oldClass.getName(), className, type.getName(), name);
+            LOGGER.error(errMsg);
+            throw new IllegalStateException(errMsg);
+        }
+        LOGGER.warn("Different SPI extensions with same name({}) and class({}) loaded, " +
+                "the one loaded from ({}) is ignored!", name, className, source.toString());
+        return true;
+    }
+
     /**
      * Put parsed class info into cache.
      */
@@ -784,13 +1166,18 @@ public class SpiLoader<T> {
             extensionNames.put(clazz, name);
             Feature feature = clazz.getAnnotation(Feature.class);
             featuresCache.add(new FeatureInfo(name, feature));
+            scopes.put(name, feature == null ? defaultScope : resolveScope(feature.scope()));
         }
     }
 
+    private Scope resolveScope(Scope scope) {
+        return scope == Scope.DEFAULT ? defaultScope : scope;
+    }
+
     /**
      * Test if clazz is a wrapper class which has constructor with given class type as its only argument.
      */
-    private boolean isWrapperClass(Class<?> clazz, Class<?> type) {
+    static boolean isWrapperClass(Class<?> clazz, Class<?> type) {
         try {
             clazz.getConstructor(type);
             return true;
@@ -821,57 +1208,6 @@ public class SpiLoader<T> {
         return false;
     }
 
-    /**
-     * Check if tags in @{@link Feature} match with input tags or not.
-     */
-    private boolean isMatchTags(Map<String, String> featureTagsArr, Map<String, String> featureExcludeTagsArr,
-                                Map<String, String> tags, boolean matchIfMissing) {
-        if (tags == null || tags.isEmpty()) {
-            return true;
-        }
-
-        // Match exclude tags first
-        if (isMatchAnnotationTags(featureExcludeTagsArr, tags)) {
-            return false;
-        }
-
-        if (matchIfMissing && (featureTagsArr == null || featureTagsArr.size() == 0)) {
-            return true;
-        }
-
-        // If exclude tags not match, continue to match the feature tags
-        return isMatchAnnotationTags(featureTagsArr, tags);
-    }
-
-    /**
-     * Check if the 1) excludeTags or 2) tags in annotation @{@link Feature} match with the input tags or not.
-     */
-    private boolean isMatchAnnotationTags(Map<String, String> annotationTagsArr, Map<String, String> tags) {
-        for (Map.Entry<String, String> annotationEntry : annotationTagsArr.entrySet()) {
-            String annotationKey = annotationEntry.getKey();
-            String annotationValue = annotationEntry.getValue();
-
-            if (StringUtils.isBlank(annotationKey)) {
-                continue;
-            }
-
-            for (Map.Entry<String, String> entry : tags.entrySet()) {
-                if (StringUtils.isBlank(entry.getKey())) {
-                    continue;
-                }
-                String key = entry.getKey().trim();
-                String value = entry.getValue() == null ? "" : entry.getValue().trim();
-                if (!annotationKey.equals(key)) {
-                    continue;
-                }
-                if (StringUtils.isBlank(value) || annotationValue.equals(value)) {
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-
     public Map<String, Class<? extends T>> getExtensionClasses() {
         return Collections.unmodifiableMap(extensionClasses);
     }
@@ -893,18 +1229,19 @@ public class SpiLoader<T> {
         final int order;
 
         FeatureInfo(String name, Feature feature) {
+            this(name,
+                    feature == null ? null : feature.groups(),
+                    feature == null ? null : feature.tags(),
+                    feature == null ? null : feature.excludeTags(),
+                    feature == null ? 0 : feature.order());
+        }
+
+        FeatureInfo(String name, String[] groups, String[] tags, String[] excludeTags, int order) {
             this.name = name;
-            if (feature == null) {
-                this.groups = new String[0];
-                this.tagsMap = Collections.emptyMap();
-                this.excludeTagsMap = Collections.emptyMap();
-                this.order = 0;
-            } else {
-                this.groups = feature.groups();
-                this.tagsMap = initTags(feature.tags());
-                this.excludeTagsMap = initTags(feature.excludeTags());
-                this.order = feature.order();
-            }
+            this.groups = groups == null ? new String[0] : groups;
+            this.tagsMap = initTags(tags);
+            this.excludeTagsMap = initTags(excludeTags);
+            this.order = order;
         }
 
         @Override
@@ -1026,6 +1363,94 @@ public class SpiLoader<T> {
         }
     }
 
+    /**
+     * Invocation handler of the lazy extension which gets the actual extension at the first invocation.
+     */
+    private final class LazyExtension implements InvocationHandler {
+
+        private final ExtensionHolder<T> target;
+
+        private LazyExtension(String name) {
+            this.target = new ExtensionHolder<>(null, () -> getByName(name).orElseThrow(() ->
+                    new IllegalStateException("Extension " + name + " of " + type.getName() + " is unavailable")));
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                if ("equals".equals(method.getName())) {
+                    return proxy == args[0];
+                }
+                if ("hashCode".equals(method.getName())) {
+                    return System.identityHashCode(proxy);
+                }
+            }
+            ReflectionUtils.makeMethodAccessible(method);
+            try {
+                return method.invoke(target.get(), args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Early objects and names of the extensions which are being created by current thread.
+     */
+    private static final class CreationContext {
+
+        private final Map<ExtensionPair, Object> earlyObjects = new HashMap<>();
+        private final Set<ExtensionPair> inCreation = new HashSet<>();
+        private int depth;
+
+        static CreationContext enter() {
+            CreationContext context = CREATION_CONTEXT.get();
+            if (context == null) {
+                context = new CreationContext();
+                CREATION_CONTEXT.set(context);
+            }
+            context.depth++;
+            return context;
+        }
+
+        void exit() {
+            if (--depth == 0) {
+                CREATION_CONTEXT.remove();
+            }
+        }
+    }
+
+    /**
+     * Extension of a {@link SpiLoader} in the dependency graph of the extensions.
+     */
+    private static final class DependencyNode {
+
+        private final SpiLoader<?> loader;
+        private final String name;
+
+        private DependencyNode(SpiLoader<?> loader, String name) {
+            this.loader = loader;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            DependencyNode that = (DependencyNode) o;
+            return loader == that.loader && name.equals(that.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(loader) + name.hashCode();
+        }
+    }
+
     /**
      * Global cache pair, to avoid naming conflicts
      * <p>Package access for unit test</p>
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.cache;
+
+import esa.commons.concurrent.DirectExecutor;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedCacheTest {
+
+    @Test
+    void testPutGetRemove() {
+        final Cache<String, String> cache = Caches.builder()
+                .executor(DirectExecutor.INSTANCE)
+                .recordStats()
+                .build();
+        assertThrows(NullPointerException.class, () -> cache.put(null, "a"));
+        assertThrows(NullPointerException.class, () -> cache.put("a", null));
+        assertThrows(NullPointerException.class, () -> cache.getIfPresent(null));
+
+        assertNull(cache.getIfPresent("a"));
+        cache.put("a", "1");
+        cache.put("b", "2");
+        assertEquals("1", cache.getIfPresent("a"));
+        cache.put("a", "3");
+        assertEquals("3", cache.getIfPresent("a"));
+        assertEquals(2L, cache.estimatedSize());
+
+        assertEquals("3", cache.remove("a"));
+        assertNull(cache.remove("a"));
+        assertNull(cache.getIfPresent("a"));
+        assertEquals(1L, cache.estimatedSize());
+
+        cache.clear();
+        assertEquals(0L, cache.estimatedSize());
+        assertNull(cache.getIfPresent("b"));
+
+        final CacheStats stats = cache.stats();
+        assertEquals(2L, stats.hitCount());
+        assertEquals(3L, stats.missCount());
+        assertEquals(0L, stats.evictionCount());
+    }
+
+    @Test
+    void testGetWithMappingFunction() {
+        final Cache<String, String> cache = Caches.builder()
+                .executor(DirectExecutor.INSTANCE)
+                .recordStats()
+                .build();
+        final AtomicInteger loads = new AtomicInteger();
+        assertEquals("A", cache.get("a", k -> {
+            loads.incrementAndGet();
+            return k.toUpperCase();
+        }));
+        assertEquals("A", cache.get("a", k -> {
+            loads.incrementAndGet();
+            return "B";
+        }));
+        assertEquals(1, loads.get());
+
+        assertNull(cache.get("b", k -> null));
+        assertNull(cache.getIfPresent("b"));
+        assertThrows(IllegalStateException.class, () -> cache.get("c", k -> {
+            throw new IllegalStateException();
+        }));
+        assertNull(cache.getIfPresent("c"));
+
+        final CacheStats stats = cache.stats();
+        assertEquals(1L, stats.hitCount());
+        assertEquals(5L, stats.missCount());
+        assertEquals(1L, stats.loadSuccessCount());
+        assertEquals(2L, stats.loadFailureCount());
+    }
+
+    @Test
+    void testEvictBySize() {
+        final Cache<Integer, Integer> cache = Caches.builder()
+                .maximumSize(100)
+                .executor(DirectExecutor.INSTANCE)
+                .recordStats()
+                .build();
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, i);
+        }
+        cache.cleanUp();
+        assertEquals(100L, cache.estimatedSize());
+        assertEquals(900L, cache.stats().evictionCount());
+        assertEquals(900L, cache.stats().evictionWeight());
+    }
+
+    @Test
+    void testFrequentKeysSurviveScan() {
+        final Cache<Integer, Integer> cache = Caches.builder()
+                .maximumSize(100)
+                .executor(DirectExecutor.INSTANCE)
+                .build();
+        // make the hot keys popular
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 50; i++) {
+                cache.put(i, i);
+                cache.getIfPresent(i);
+            }
+            cache.cleanUp();
+        }
+        // a scan of the keys which are accessed only once, which flushes a LRU cache entirely
+        for (int i = 1000; i < 11000; i++) {
+            cache.put(i, i);
+        }
+        cache.cleanUp();
+        assertEquals(100L, cache.estimatedSize());
+        int survived = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.getIfPresent(i) != null) {
+                survived++;
+            }
+        }
+        assertTrue(survived >= 45, "survived: " + survived);
+    }
+
+    @Test
+    void testEvictByWeight() {
+        final Cache<String, String> cache = Caches.builder()
+                .maximumWeight(10)
+                .weigher((String k, String v) -> v.length())
+                .executor(DirectExecutor.INSTANCE)
+                .recordStats()
+                .build();
+        cache.put("a", "1234");
+        cache.put("b", "1234");
+        cache.put("zero", "");
+        cache.cleanUp();
+        assertEquals(3L, cache.estimatedSize());
+
+        cache.put("c", "12345");
+        cache.cleanUp();
+        assertEquals(3L, cache.estimatedSize());
+        assertEquals(1L, cache.stats().evictionCount());
+        assertEquals("", cache.getIfPresent("zero"));
+
+        // larger than the maximum
+        cache.put("d", "12345678901");
+        cache.cleanUp();
+        assertNull(cache.getIfPresent("d"));
+        assertThrows(IllegalArgumentException.class, () -> Caches.builder()
+                .maximumWeight(10)
+                .weigher((Object k, Object v) -> -1)
+                .build()
+                .put("a", "b"));
+    }
+
+    @Test
+    void testExpireAfterWrite() {
+        final AtomicLong ticker = new AtomicLong();
+        final Cache<String, String> cache = Caches.builder()
+                .expireAfterWrite(10, TimeUnit.NANOSECONDS)
+                .ticker(ticker::get)
+                .executor(DirectExecutor.INSTANCE)
+                .recordStats()
+                .build();
+        cache.put("a", "1");
+        cache.put("b", "2");
+        ticker.set(5L);
+        assertEquals("1", cache.getIfPresent("a"));
+        cache.put("b", "3");
+        ticker.set(10L);
+        // reading does not extend the lifetime
+        assertNull(cache.getIfPresent("a"));
+        assertEquals("3", cache.getIfPresent("b"));
+        assertEquals("A", cache.get("a", String::toUpperCase));
+
+        cache.cleanUp();
+        assertEquals(2L, cache.estimatedSize());
+        ticker.set(15L);
+        cache.cleanUp();
+        assertEquals(1L, cache.estimatedSize());
+        ticker.set(20L);
+        cache.cleanUp();
+        assertEquals(0L, cache.estimatedSize());
+        // the first "a" was expired by the maintenance triggered by the read at 10
+        assertEquals(3L, cache.stats().evictionCount());
+    }
+
+    @Test
+    void testExpireAfterAccess() {
+        final AtomicLong ticker = new AtomicLong();
+        final Cache<String, String> cache = Caches.builder()
+                .expireAfterAccess(10, TimeUnit.NANOSECONDS)
+                .ticker(ticker::get)
+                .executor(DirectExecutor.INSTANCE)
+                .build();
+        cache.put("a", "1");
+        cache.put("b", "2");
+        ticker.set(5L);
+        assertEquals("1", cache.getIfPresent("a"));
+        cache.cleanUp();
+        ticker.set(10L);
+        cache.cleanUp();
+        assertEquals(1L, cache.estimatedSize());
+        assertNull(cache.getIfPresent("b"));
+        assertEquals("1", cache.getIfPresent("a"));
+        ticker.set(19L);
+        assertEquals("1", cache.getIfPresent("a"));
+        ticker.set(29L);
+        assertNull(cache.remove("a"));
+        assertEquals(0L, cache.estimatedSize());
+    }
+
+    @Test
+    void testConcurrentOperations() throws InterruptedException {
+        final Cache<Integer, Integer> cache = Caches.builder()
+                .maximumSize(500)
+                .build();
+        final int threads = 4;
+        final CountDownLatch latch = new CountDownLatch(threads);
+        final List<Throwable> errors = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int seed = t;
+            new Thread(() -> {
+                try {
+                    for (int i = 0; i < 20000; i++) {
+                        final int key = (i * 31 + seed) % 2000;
+                        final Integer value = cache.get(key, k -> k);
+                        if (value != null && value != key) {
+                            throw new AssertionError(key + " -> " + value);
+                        }
+                        if (i % 7 == 0) {
+                            cache.put(key, key);
+                        } else if (i % 11 == 0) {
+                            cache.remove(key);
+                        }
+                    }
+                } catch (Throwable e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            }).start();
+        }
+        latch.await();
+        assertTrue(errors.isEmpty(), errors.toString());
+        cache.cleanUp();
+        assertTrue(cache.estimatedSize() <= 500L, "size: " + cache.estimatedSize());
+    }
+}
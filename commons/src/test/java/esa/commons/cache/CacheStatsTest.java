@@ -0,0 +1,42 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CacheStatsTest {
+
+    @Test
+    void testRates() {
+        final CacheStats empty = new CacheStats(0L, 0L, 0L, 0L, 0L, 0L);
+        assertEquals(0L, empty.requestCount());
+        assertEquals(1.0d, empty.hitRate());
+        assertEquals(0.0d, empty.missRate());
+
+        final CacheStats stats = new CacheStats(3L, 1L, 1L, 2L, 5L, 6L);
+        assertEquals(4L, stats.requestCount());
+        assertEquals(0.75d, stats.hitRate());
+        assertEquals(0.25d, stats.missRate());
+        assertEquals(1L, stats.loadSuccessCount());
+        assertEquals(2L, stats.loadFailureCount());
+        assertEquals(5L, stats.evictionCount());
+        assertEquals(6L, stats.evictionWeight());
+        assertEquals("CacheStats{hitCount=3, missCount=1, loadSuccessCount=1, loadFailureCount=2, " +
+                "evictionCount=5, evictionWeight=6}", stats.toString());
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CachesTest {
+
+    @Test
+    void testBuild() {
+        assertThrows(IllegalArgumentException.class, () -> Caches.builder().maximumSize(-1L));
+        assertThrows(IllegalArgumentException.class, () -> Caches.builder().maximumWeight(-1L));
+        assertThrows(IllegalStateException.class, () -> Caches.builder().maximumSize(1L).maximumWeight(1L));
+        assertThrows(IllegalStateException.class, () -> Caches.builder().maximumWeight(1L).maximumSize(1L));
+        assertThrows(IllegalStateException.class, () -> Caches.builder().maximumWeight(1L).build());
+        assertThrows(IllegalStateException.class, () -> Caches.builder().weigher((k, v) -> 1).build());
+        assertThrows(IllegalStateException.class, () -> Caches.builder()
+                .maximumSize(1L)
+                .weigher((k, v) -> 1)
+                .build());
+        assertThrows(IllegalArgumentException.class,
+                () -> Caches.builder().expireAfterWrite(-1L, TimeUnit.SECONDS));
+        assertThrows(IllegalArgumentException.class,
+                () -> Caches.builder().expireAfterAccess(-1L, TimeUnit.SECONDS));
+
+        final Cache<String, Integer> cache = Caches.builder()
+                .maximumWeight(100L)
+                .weigher((String k, Integer v) -> v)
+                .expireAfterWrite(1L, TimeUnit.MINUTES)
+                .expireAfterAccess(1L, TimeUnit.MINUTES)
+                .recordStats()
+                .build();
+        assertNotNull(cache);
+        cache.put("a", 1);
+        assertEquals(1, cache.getIfPresent("a"));
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrequencySketchTest {
+
+    @Test
+    void testIncrementAndSaturate() {
+        final FrequencySketch sketch = new FrequencySketch(512);
+        assertEquals(0, sketch.frequency("foo"));
+        for (int i = 1; i <= 20; i++) {
+            sketch.increment("foo");
+            assertEquals(Math.min(i, 15), sketch.frequency("foo"));
+        }
+    }
+
+    @Test
+    void testReset() {
+        final FrequencySketch sketch = new FrequencySketch(64);
+        for (int i = 0; i < 10; i++) {
+            sketch.increment("foo");
+        }
+        sketch.reset();
+        assertEquals(5, sketch.frequency("foo"));
+
+        // sample size reached
+        final FrequencySketch aged = new FrequencySketch(64);
+        for (int i = 0; i < 10; i++) {
+            aged.increment("foo");
+        }
+        for (int i = 0; i < 64 * 10; i++) {
+            aged.increment(i);
+        }
+        assertTrue(aged.frequency("foo") < 10);
+    }
+
+    @Test
+    void testHeavyHitters() {
+        final FrequencySketch sketch = new FrequencySketch(4096);
+        for (int i = 100; i < 2000; i++) {
+            sketch.increment((double) i);
+        }
+        for (int i = 0; i < 10; i += 2) {
+            for (int j = 0; j < i; j++) {
+                sketch.increment((double) i);
+            }
+        }
+        // the popularity is kept
+        final int[] frequencies = new int[10];
+        for (int i = 0; i < 10; i++) {
+            frequencies[i] = sketch.frequency((double) i);
+        }
+        for (int i = 2; i < 10; i += 2) {
+            assertTrue(frequencies[i] > frequencies[i - 2], "frequency of " + i);
+        }
+    }
+
+    @Test
+    void testEnsureCapacity() {
+        final FrequencySketch sketch = new FrequencySketch(0);
+        sketch.increment("foo");
+        sketch.ensureCapacity(4);
+        assertEquals(1, sketch.frequency("foo"));
+        sketch.ensureCapacity(1024);
+        assertEquals(0, sketch.frequency("foo"));
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static esa.commons.collection.AbstractMultiValueMapTest.testMultiValueMap;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArrayMultiValueMapTest {
+
+    @Test
+    void testAll() {
+        testMultiValueMap(new ArrayMultiValueMap<>());
+        testMultiValueMap(new ArrayMultiValueMap<>(0));
+
+        final LinkedMultiValueMap<String, String> other = new LinkedMultiValueMap<>();
+        other.put("foo", Arrays.asList("1", "2"));
+        other.put("bar", Collections.emptyList());
+
+        final ArrayMultiValueMap<String, String> map = new ArrayMultiValueMap<>(other);
+        assertEquals(2, map.size());
+        assertEquals("1", map.getFirst("foo"));
+        assertNull(map.getFirst("bar"));
+        assertTrue(map.containsKey("bar"));
+        assertEquals(other, map);
+        assertEquals(map, other);
+        assertEquals(other.hashCode(), map.hashCode());
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        testMultiValueMap(map);
+    }
+
+    @Test
+    void testSingleAndMultiValues() {
+        final ArrayMultiValueMap<String, String> map = new ArrayMultiValueMap<>();
+        assertNull(map.getFirst("foo"));
+        assertNull(map.get("foo"));
+
+        map.add("foo", null);
+        assertTrue(map.containsKey("foo"));
+        assertNull(map.getFirst("foo"));
+        assertEquals(Collections.singletonList(null), map.get("foo"));
+
+        map.add("foo", "1");
+        assertEquals(Arrays.asList(null, "1"), map.get("foo"));
+
+        map.putSingle("foo", "2");
+        assertEquals(Collections.singletonList("2"), map.get("foo"));
+
+        map.add(null, "3");
+        assertEquals("3", map.getFirst(null));
+        assertEquals(2, map.size());
+
+        assertEquals(Collections.singletonList("2"), map.put("foo", Arrays.asList("4", "5")));
+        assertEquals(Arrays.asList("4", "5"), map.get("foo"));
+        assertNull(map.put("bar", Collections.singletonList("6")));
+        assertEquals("6", map.getFirst("bar"));
+
+        assertEquals(Arrays.asList("4", "5"), map.remove("foo"));
+        assertNull(map.remove("foo"));
+        assertEquals(Collections.singletonList("3"), map.remove(null));
+        assertEquals(1, map.size());
+        assertEquals("{bar=[6]}", map.toString());
+    }
+
+    @Test
+    void testValueListView() {
+        final ArrayMultiValueMap<String, String> map = new ArrayMultiValueMap<>();
+        map.add("foo", "1");
+        final List<String> values = map.get("foo");
+        values.add("2");
+        assertEquals(Arrays.asList("1", "2"), map.get("foo"));
+        assertEquals("2", values.set(1, "3"));
+        values.add(0, "0");
+        assertEquals(Arrays.asList("0", "1", "3"), map.get("foo"));
+        assertEquals("1", values.remove(1));
+        assertEquals(Arrays.asList("0", "3"), values);
+
+        values.clear();
+        assertTrue(map.containsKey("foo"));
+        assertTrue(map.get("foo").isEmpty());
+        assertNull(map.getFirst("foo"));
+        assertThrows(IndexOutOfBoundsException.class, () -> values.get(0));
+
+        map.putSingle("foo", "1");
+        assertEquals("1", values.set(0, "2"));
+        assertThrows(IndexOutOfBoundsException.class, () -> values.set(1, "2"));
+        assertThrows(IndexOutOfBoundsException.class, () -> values.get(1));
+        assertEquals("2", values.remove(0));
+        assertTrue(values.isEmpty());
+
+        // the view follows the key after other keys removed
+        map.add("bar", "1");
+        map.add("foo", "1");
+        final List<String> bar = map.get("bar");
+        map.remove("foo");
+        assertEquals(Collections.singletonList("1"), bar);
+
+        // the view of a removed key is empty and adding re-creates the key
+        map.remove("bar");
+        assertTrue(bar.isEmpty());
+        assertThrows(IndexOutOfBoundsException.class, () -> bar.get(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> bar.set(0, "1"));
+        assertThrows(IndexOutOfBoundsException.class, () -> bar.remove(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> bar.add(1, "1"));
+        bar.add("2");
+        assertEquals("2", map.getFirst("bar"));
+    }
+
+    @Test
+    void testHashIndex() {
+        final ArrayMultiValueMap<String, Integer> map = new ArrayMultiValueMap<>(2);
+        final int n = ArrayMultiValueMap.LINEAR_SCAN_THRESHOLD * 4;
+        for (int i = 0; i < n; i++) {
+            map.add("k" + i, i);
+            map.add("k" + i, -i);
+        }
+        assertEquals(n, map.size());
+        for (int i = 0; i < n; i++) {
+            assertEquals(i, map.getFirst("k" + i));
+            assertEquals(Arrays.asList(i, -i), map.get("k" + i));
+        }
+        assertFalse(map.containsKey("absent"));
+
+        // rebuild the index after removing and fall back to linear scan at last
+        for (int i = 0; i < n; i += 2) {
+            map.remove("k" + i);
+            assertFalse(map.containsKey("k" + i));
+            assertEquals(i + 1, map.getFirst("k" + (i + 1)));
+        }
+        for (int i = 1; i < n - 2; i += 2) {
+            map.remove("k" + i);
+        }
+        assertEquals(1, map.size());
+        assertEquals(n - 1, map.getFirst("k" + (n - 1)));
+    }
+
+    @Test
+    void testIteration() {
+        final ArrayMultiValueMap<String, String> map = new ArrayMultiValueMap<>();
+        for (int i = 0; i < 5; i++) {
+            map.add("k" + i, "v" + i);
+        }
+        map.add("k0", "v");
+
+        final List<String> keys = new ArrayList<>();
+        map.forEach((k, v) -> keys.add(k + "=" + v));
+        assertEquals(Arrays.asList("k0=[v0, v]", "k1=[v1]", "k2=[v2]", "k3=[v3]", "k4=[v4]"), keys);
+        assertEquals(Arrays.asList("k0", "k1", "k2", "k3", "k4"), new ArrayList<>(map.keySet()));
+        assertTrue(map.containsValue(Collections.singletonList("v1")));
+        assertTrue(map.entrySet().contains(new AbstractMap.SimpleEntry<>("k1",
+                Collections.singletonList("v1"))));
+        assertFalse(map.entrySet().contains("k1"));
+
+        final Iterator<Map.Entry<String, List<String>>> it = map.entrySet().iterator();
+        assertThrows(IllegalStateException.class, it::remove);
+        while (it.hasNext()) {
+            final Map.Entry<String, List<String>> e = it.next();
+            if (e.getKey().equals("k1") || e.getKey().equals("k2")) {
+                it.remove();
+            } else if (e.getKey().equals("k3")) {
+                assertEquals(Collections.singletonList("v3"), e.setValue(Arrays.asList("a", "b")));
+            }
+        }
+        assertEquals(Arrays.asList("k0", "k3", "k4"), new ArrayList<>(map.keySet()));
+        assertEquals(Arrays.asList("a", "b"), map.get("k3"));
+
+        map.entrySet().clear();
+        assertTrue(map.isEmpty());
+    }
+}
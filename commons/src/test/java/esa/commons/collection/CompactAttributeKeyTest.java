@@ -0,0 +1,49 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.collection;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CompactAttributeKeyTest {
+
+    @Test
+    void testAll() {
+        final AttributeKey<String> key = CompactAttributeKey.create("foo");
+        assertEquals("foo", key.name());
+        assertEquals(CompactAttributeKey.create("foo").id(), key.id());
+        assertNotEquals(CompactAttributeKey.create("bar").id(), key.id());
+        assertEquals("foo", key.toString());
+        assertEquals(key, key);
+        assertEquals(CompactAttributeKey.create("foo"), CompactAttributeKey.create("foo"));
+        assertEquals(CompactAttributeKey.create("foo").hashCode(), key.hashCode());
+        assertNotEquals(CompactAttributeKey.create("foo"), CompactAttributeKey.create("bar"));
+        assertNotEquals(AttributeKey.valueOf("foo"), key);
+        assertNotEquals(key, null);
+        assertThrows(IllegalArgumentException.class, () -> CompactAttributeKey.create(""));
+    }
+
+    @Test
+    void testDenseIds() {
+        final int first = AttributeKey.compact("dense-0").id();
+        for (int i = 1; i < 10; i++) {
+            assertEquals(first + i, AttributeKey.compact("dense-" + i).id());
+        }
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactAttributeMapTest {
+
+    @Test
+    void testCrud() {
+        final CompactAttributeMap attrs = new CompactAttributeMap();
+        final AttributeKey<String> key = AttributeKey.stringKey("foo");
+        assertEquals(0, attrs.size());
+        assertTrue(attrs.isEmpty());
+        assertFalse(attrs.hasAttr(key));
+        assertFalse(attrs.hasAttr(null));
+
+        final Attribute<String> attr = attrs.attr(key);
+        assertNotNull(attr);
+        assertSame(attr, attrs.attr(AttributeKey.stringKey("foo")));
+        assertEquals(1, attrs.size());
+        assertFalse(attrs.isEmpty());
+        assertTrue(attrs.hasAttr(key));
+
+        final Map<AttributeKey<?>, Attribute<?>> values = new LinkedHashMap<>();
+        attrs.forEach(values::put);
+        assertEquals(1, values.size());
+        assertSame(key, values.entrySet().iterator().next().getKey());
+        assertSame(attr, values.entrySet().iterator().next().getValue());
+    }
+
+    @Test
+    void testGetAndSet() {
+        final CompactAttributeMap attrs = new CompactAttributeMap();
+        final Attribute<String> attr = attrs.attr(AttributeKey.stringKey("foo"));
+        assertNull(attr.get());
+        assertEquals("foo", attr.key().name());
+        assertEquals("def", attr.getOrDefault("def"));
+
+        attrs.attr(AttributeKey.stringKey("foo")).set("test");
+        assertEquals("test", attr.get());
+        assertEquals("test", attr.getOrDefault("def"));
+
+        attrs.attr(AttributeKey.stringKey("foo")).lazySet("test1");
+        assertEquals("test1", attr.get());
+
+        assertFalse(attrs.attr(AttributeKey.stringKey("foo")).compareAndSet("absent", "test2"));
+        assertTrue(attrs.attr(AttributeKey.stringKey("foo")).compareAndSet("test1", "test2"));
+        assertEquals("test2", attr.get());
+
+        assertEquals("test2", attrs.attr(AttributeKey.stringKey("foo")).getAndSet("test3"));
+        assertEquals("test3", attrs.attr(AttributeKey.stringKey("foo")).getAndUpdate(v -> v + "!"));
+        assertEquals("test3!!", attrs.attr(AttributeKey.stringKey("foo")).updateAndGet(v -> v + "!"));
+        assertEquals("test3!!", attrs.attr(AttributeKey.stringKey("foo"))
+                .getAndAccumulate("x", (prev, x) -> prev + x));
+        assertEquals("test3!!xx", attrs.attr(AttributeKey.stringKey("foo"))
+                .accumulateAndGet("x", (prev, x) -> prev + x));
+        assertEquals("test3!!xx", attr.get());
+    }
+
+    @Test
+    void testRemove() {
+        final CompactAttributeMap attrs = new CompactAttributeMap();
+        final Attribute<String> attr = attrs.attr(AttributeKey.stringKey("foo"));
+        attr.set("test");
+        assertTrue(attrs.hasAttr(AttributeKey.stringKey("foo")));
+
+        attr.remove();
+        assertFalse(attrs.hasAttr(AttributeKey.stringKey("foo")));
+        assertEquals(0, attrs.size());
+        assertDoesNotThrow(attr::remove);
+
+        final Attribute<String> attr1 = attrs.attr(AttributeKey.stringKey("bar"));
+        attr1.set("test");
+        assertEquals("test", attr1.getAndRemove());
+        assertFalse(attrs.hasAttr(AttributeKey.stringKey("bar")));
+        assertNull(attr1.get());
+        assertNull(attr1.getAndRemove());
+
+        // removed attribute should not affect the new one
+        final Attribute<String> attr2 = attrs.attr(AttributeKey.stringKey("foo"));
+        assertNotSame(attr, attr2);
+        attr.remove();
+        assertSame(attr2, attrs.attr(AttributeKey.stringKey("foo")));
+    }
+
+    @Test
+    void testCollidedIds() {
+        final CompactAttributeMap attrs = new CompactAttributeMap(2);
+        final int n = 100;
+        for (int i = 0; i < n; i++) {
+            attrs.attr(new SameIdKey<Integer>("k" + i)).set(i);
+        }
+        assertEquals(n, attrs.size());
+        for (int i = 0; i < n; i++) {
+            assertEquals(i, attrs.attr(new SameIdKey<Integer>("k" + i)).get());
+        }
+
+        // remove the attributes in the middle of the probe sequence
+        for (int i = 0; i < n; i += 2) {
+            attrs.attr(new SameIdKey<Integer>("k" + i)).remove();
+        }
+        assertEquals(n / 2, attrs.size());
+        for (int i = 0; i < n; i++) {
+            assertEquals(i % 2 != 0, attrs.hasAttr(new SameIdKey<Integer>("k" + i)));
+        }
+
+        // reuse the removed slots
+        for (int i = 0; i < n; i += 2) {
+            attrs.attr(new SameIdKey<Integer>("k" + i)).set(-i);
+        }
+        assertEquals(n, attrs.size());
+        for (int i = 0; i < n; i++) {
+            assertEquals(i % 2 != 0 ? i : -i, attrs.attr(new SameIdKey<Integer>("k" + i)).get());
+        }
+    }
+
+    @Test
+    void testChurn() {
+        final CompactAttributeMap attrs = new CompactAttributeMap();
+        final AttributeKey<String> stay = AttributeKey.stringKey("stay");
+        attrs.attr(stay).set("v");
+        for (int i = 0; i < 1000; i++) {
+            final Attribute<Integer> attr = attrs.attr(AttributeKey.valueOf("churn" + i));
+            attr.set(i);
+            assertEquals(2, attrs.size());
+            attr.remove();
+        }
+        assertEquals(1, attrs.size());
+        assertEquals("v", attrs.attr(stay).get());
+    }
+
+    @Test
+    void testAsMap() {
+        final CompactAttributeMap attrs = new CompactAttributeMap();
+        final Map<AttributeKey<?>, Attribute<?>> map = attrs.asMap();
+        assertSame(map, attrs.asMap());
+        assertTrue(map.isEmpty());
+
+        final Set<String> names = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            attrs.attr(AttributeKey.stringKey("k" + i)).set("v" + i);
+            names.add("k" + i);
+        }
+        assertEquals(10, map.size());
+        assertTrue(map.containsKey(AttributeKey.stringKey("k1")));
+        assertFalse(map.containsKey("k1"));
+        assertEquals("v1", map.get(AttributeKey.stringKey("k1")).get());
+        assertNull(map.get(AttributeKey.stringKey("absent")));
+        assertNull(map.get("k1"));
+        assertThrows(UnsupportedOperationException.class,
+                () -> map.put(AttributeKey.stringKey("x"), attrs.attr(AttributeKey.stringKey("k1"))));
+
+        final Attribute<?> removed = map.remove(AttributeKey.stringKey("k1"));
+        assertEquals("v1", removed.get());
+        assertFalse(attrs.hasAttr(AttributeKey.stringKey("k1")));
+        assertNull(map.remove(AttributeKey.stringKey("k1")));
+        assertNull(map.remove("k2"));
+        names.remove("k1");
+
+        final Set<String> iterated = new HashSet<>();
+        final Iterator<Map.Entry<AttributeKey<?>, Attribute<?>>> it = map.entrySet().iterator();
+        assertThrows(IllegalStateException.class, it::remove);
+        while (it.hasNext()) {
+            final Map.Entry<AttributeKey<?>, Attribute<?>> e = it.next();
+            iterated.add(e.getKey().name());
+            assertSame(e.getKey(), e.getValue().key());
+            if (e.getKey().name().equals("k2") || e.getKey().name().equals("k3")) {
+                it.remove();
+            }
+        }
+        assertThrows(NoSuchElementException.class, it::next);
+        assertEquals(names, iterated);
+        assertEquals(7, attrs.size());
+        assertFalse(attrs.hasAttr(AttributeKey.stringKey("k2")));
+        assertFalse(attrs.hasAttr(AttributeKey.stringKey("k3")));
+
+        final Attribute<String> attr = attrs.attr(AttributeKey.stringKey("k4"));
+        map.clear();
+        assertTrue(attrs.isEmpty());
+        assertFalse(attrs.hasAttr(AttributeKey.stringKey("k4")));
+        // detached
+        attr.remove();
+        assertTrue(attrs.isEmpty());
+    }
+
+    @Test
+    void testRemoveInForEach() {
+        final CompactAttributeMap attrs = new CompactAttributeMap();
+        for (int i = 0; i < 10; i++) {
+            attrs.attr(new SameIdKey<Integer>("k" + i)).set(i);
+        }
+        final Set<String> iterated = new HashSet<>();
+        assertDoesNotThrow(() -> attrs.forEach((k, v) -> {
+            iterated.add(k.name());
+            v.remove();
+        }));
+        assertEquals(10, iterated.size());
+        assertTrue(attrs.isEmpty());
+    }
+
+    @Test
+    void testCreateFromAnotherAttributes() {
+        final AttributeMap attrs = new AttributeMap();
+        attrs.attr(AttributeKey.stringKey("foo")).set("1");
+        attrs.attr(AttributeKey.stringKey("bar")).set("2");
+
+        final CompactAttributeMap attrs1 = new CompactAttributeMap(attrs);
+        assertEquals(2, attrs1.size());
+        assertEquals("1", attrs1.attr(AttributeKey.stringKey("foo")).get());
+        assertEquals("2", attrs1.attr(AttributeKey.stringKey("bar")).get());
+        // values are copied
+        attrs1.attr(AttributeKey.stringKey("foo")).set("3");
+        assertEquals("1", attrs.attr(AttributeKey.stringKey("foo")).get());
+    }
+
+    private static final class SameIdKey<V> implements AttributeKey<V> {
+
+        private final String name;
+
+        private SameIdKey(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public int id() {
+            return 1;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof SameIdKey && name.equals(((SameIdKey<?>) o).name);
+        }
+
+        @Override
+        public int hashCode() {
+            return name.hashCode();
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrentAttributeMapTest {
+
+    @Test
+    void testCrud() {
+        final ConcurrentAttributeMap attrs = new ConcurrentAttributeMap();
+        final AttributeKey<String> key = AttributeKey.stringKey("foo");
+        assertEquals(0, attrs.size());
+        assertTrue(attrs.isEmpty());
+        assertFalse(attrs.hasAttr(key));
+        assertFalse(attrs.hasAttr(null));
+
+        final Attribute<String> attr = attrs.attr(key);
+        assertNotNull(attr);
+        assertSame(attr, attrs.attr(AttributeKey.stringKey("foo")));
+        assertEquals(1, attrs.size());
+        assertFalse(attrs.isEmpty());
+        assertTrue(attrs.hasAttr(key));
+
+        final Map<AttributeKey<?>, Attribute<?>> values = new LinkedHashMap<>();
+        attrs.forEach(values::put);
+        assertEquals(1, values.size());
+        assertSame(key, values.entrySet().iterator().next().getKey());
+        assertSame(attr, values.entrySet().iterator().next().getValue());
+    }
+
+    @Test
+    void testGetAndSet() {
+        final ConcurrentAttributeMap attrs = new ConcurrentAttributeMap();
+        final Attribute<String> attr = attrs.attr(AttributeKey.stringKey("foo"));
+        assertNull(attr.get());
+        assertEquals("foo", attr.key().name());
+        assertEquals("def", attr.getOrDefault("def"));
+
+        attr.set("test");
+        assertEquals("test", attr.getOrDefault("def"));
+        attr.lazySet("test1");
+        assertEquals("test1", attr.get());
+        assertFalse(attr.compareAndSet("absent", "test2"));
+        assertTrue(attr.compareAndSet("test1", "test2"));
+        assertEquals("test2", attr.getAndSet("test3"));
+        assertEquals("test3", attr.getAndUpdate(v -> v + "!"));
+        assertEquals("test3!!", attr.updateAndGet(v -> v + "!"));
+        assertEquals("test3!!", attr.getAndAccumulate("x", (prev, x) -> prev + x));
+        assertEquals("test3!!xx", attr.accumulateAndGet("x", (prev, x) -> prev + x));
+        assertEquals("test3!!xx", attrs.attr(AttributeKey.stringKey("foo")).get());
+    }
+
+    @Test
+    void testRemove() {
+        final ConcurrentAttributeMap attrs = new ConcurrentAttributeMap();
+        final Attribute<String> attr = attrs.attr(AttributeKey.stringKey("foo"));
+        attr.set("test");
+        attr.remove();
+        assertNull(attr.get());
+        assertFalse(attrs.hasAttr(AttributeKey.stringKey("foo")));
+        assertTrue(attrs.isEmpty());
+        assertDoesNotThrow(attr::remove);
+
+        final Attribute<String> attr1 = attrs.attr(AttributeKey.stringKey("bar"));
+        attr1.set("test");
+        assertEquals("test", attr1.getAndRemove());
+        assertFalse(attrs.hasAttr(AttributeKey.stringKey("bar")));
+        assertNull(attr1.getAndRemove());
+
+        // removed attribute should not affect the new one
+        final Attribute<String> attr2 = attrs.attr(AttributeKey.stringKey("foo"));
+        assertNotSame(attr, attr2);
+        attr.remove();
+        assertSame(attr2, attrs.attr(AttributeKey.stringKey("foo")));
+    }
+
+    @Test
+    void testCollidedIds() {
+        final ConcurrentAttributeMap attrs = new ConcurrentAttributeMap();
+        for (int i = 0; i < 20; i++) {
+            attrs.attr(new FixedIdKey<Integer>("k" + i, i % 3)).set(i);
+        }
+        assertEquals(20, attrs.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, attrs.attr(new FixedIdKey<Integer>("k" + i, i % 3)).get());
+        }
+        for (int i = 0; i < 20; i += 2) {
+            attrs.attr(new FixedIdKey<Integer>("k" + i, i % 3)).remove();
+        }
+        assertEquals(10, attrs.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i % 2 != 0, attrs.hasAttr(new FixedIdKey<Integer>("k" + i, i % 3)));
+        }
+    }
+
+    @Test
+    void testAsMap() {
+        final ConcurrentAttributeMap attrs = new ConcurrentAttributeMap();
+        final Map<AttributeKey<?>, Attribute<?>> map = attrs.asMap();
+        assertSame(map, attrs.asMap());
+
+        final Set<String> names = new HashSet<>();
+        for (int i = 0; i < 5; i++) {
+            attrs.attr(AttributeKey.stringKey("k" + i)).set("v" + i);
+            names.add("k" + i);
+        }
+        assertEquals(5, map.size());
+        assertTrue(map.containsKey(AttributeKey.stringKey("k1")));
+        assertFalse(map.containsKey("k1"));
+        assertEquals("v1", map.get(AttributeKey.stringKey("k1")).get());
+        assertNull(map.get(AttributeKey.stringKey("absent")));
+        assertThrows(UnsupportedOperationException.class,
+                () -> map.put(AttributeKey.stringKey("x"), attrs.attr(AttributeKey.stringKey("k1"))));
+
+        assertEquals("v1", map.remove(AttributeKey.stringKey("k1")).get());
+        assertNull(map.remove(AttributeKey.stringKey("k1")));
+        names.remove("k1");
+
+        final Set<String> iterated = new HashSet<>();
+        final Iterator<Map.Entry<AttributeKey<?>, Attribute<?>>> it = map.entrySet().iterator();
+        assertThrows(IllegalStateException.class, it::remove);
+        // iterator works on a snapshot
+        attrs.attr(AttributeKey.stringKey("k5"));
+        while (it.hasNext()) {
+            final Map.Entry<AttributeKey<?>, Attribute<?>> e = it.next();
+            iterated.add(e.getKey().name());
+            if (e.getKey().name().equals("k2")) {
+                it.remove();
+            }
+        }
+        assertThrows(NoSuchElementException.class, it::next);
+        assertEquals(names, iterated);
+        assertFalse(attrs.hasAttr(AttributeKey.stringKey("k2")));
+        assertEquals(4, attrs.size());
+
+        map.clear();
+        assertTrue(attrs.isEmpty());
+    }
+
+    @Test
+    void testCreateFromAnotherAttributes() {
+        final AttributeMap attrs = new AttributeMap();
+        attrs.attr(AttributeKey.stringKey("foo")).set("1");
+        attrs.attr(AttributeKey.stringKey("bar")).set("2");
+
+        final ConcurrentAttributeMap attrs1 = new ConcurrentAttributeMap(attrs);
+        assertEquals(2, attrs1.size());
+        assertEquals("1", attrs1.attr(AttributeKey.stringKey("foo")).get());
+        assertEquals("2", attrs1.attr(AttributeKey.stringKey("bar")).get());
+    }
+
+    @Test
+    void testConcurrentUpdate() throws Exception {
+        final ConcurrentAttributeMap attrs = new ConcurrentAttributeMap();
+        final int threads = 4;
+        final int keys = 16;
+        final int loops = 1000;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < loops; i++) {
+                        for (int k = 0; k < keys; k++) {
+                            attrs.attr(AttributeKey.<Integer>valueOf("concurrent" + k))
+                                    .accumulateAndGet(1, (prev, x) -> prev == null ? x : prev + x);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : futures) {
+                f.get(30L, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(keys, attrs.size());
+        for (int k = 0; k < keys; k++) {
+            assertEquals(threads * loops, attrs.attr(AttributeKey.<Integer>valueOf("concurrent" + k)).get());
+        }
+    }
+
+    private static final class FixedIdKey<V> implements AttributeKey<V> {
+
+        private final String name;
+        private final int id;
+
+        private FixedIdKey(String name, int id) {
+            this.name = name;
+            this.id = id;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public int id() {
+            return id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof FixedIdKey && name.equals(((FixedIdKey<?>) o).name);
+        }
+
+        @Override
+        public int hashCode() {
+            return name.hashCode();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static esa.commons.collection.AbstractMultiValueMapTest.testMultiValueMap;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CopyOnWriteMultiValueMapTest {
+
+    @Test
+    void testAll() {
+        testMultiValueMap(new CopyOnWriteMultiValueMap<>());
+
+        final LinkedMultiValueMap<String, String> source = new LinkedMultiValueMap<>();
+        source.addAll("foo", Arrays.asList("1", "2"));
+        final CopyOnWriteMultiValueMap<String, String> map = new CopyOnWriteMultiValueMap<>(source);
+        assertEquals(source, map);
+        assertEquals(map, source);
+        assertEquals(source.hashCode(), map.hashCode());
+        assertEquals(source.toString(), map.toString());
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        testMultiValueMap(map);
+    }
+
+    @Test
+    void testSnapshot() {
+        final CopyOnWriteMultiValueMap<String, String> map = new CopyOnWriteMultiValueMap<>();
+        map.add("foo", "1");
+        final MultiValueMap<String, String> snapshot = map.snapshot();
+        final List<String> values = map.get("foo");
+        assertThrows(UnsupportedOperationException.class, () -> values.add("x"));
+
+        map.add("foo", "2");
+        map.addFirst("foo", "0");
+        assertEquals(Collections.singletonList("1"), values);
+        assertEquals(Collections.singletonList("1"), snapshot.get("foo"));
+        assertEquals(Arrays.asList("0", "1", "2"), map.get("foo"));
+        assertEquals("0", map.getFirst("foo"));
+        assertEquals("0", map.toSingleValueMap().get("foo"));
+
+        map.update(m -> {
+            m.remove("foo");
+            m.add("bar", "1");
+            m.add("baz", "2");
+        });
+        assertEquals(2, map.size());
+        assertFalse(map.containsKey("foo"));
+        assertTrue(map.containsValue(Collections.singletonList("1")));
+        assertEquals(Arrays.asList("bar", "baz"), new ArrayList<>(map.keySet()));
+        assertEquals(2, map.values().size());
+        assertEquals(2, map.entrySet().size());
+
+        // the values returned by compute methods are the published ones rather than the thrown away copies
+        final List<String> computed = map.computeIfAbsent("qux", k -> new ArrayList<>(Collections.singletonList("1")));
+        assertEquals(map.get("qux"), computed);
+        assertThrows(UnsupportedOperationException.class, () -> computed.add("2"));
+        final List<String> merged = map.merge("qux", Collections.singletonList("2"), (v1, v2) -> new ArrayList<>(v2));
+        assertEquals(Collections.singletonList("2"), merged);
+        assertEquals(map.get("qux"), merged);
+        assertThrows(UnsupportedOperationException.class, () -> merged.add("3"));
+        assertThrows(UnsupportedOperationException.class,
+                () -> map.compute("qux", (k, v) -> new ArrayList<>(v)).add("3"));
+        assertEquals(Collections.singletonList("2"), map.get("qux"));
+    }
+
+    @Test
+    void testMapOperations() {
+        final CopyOnWriteMultiValueMap<String, String> map = new CopyOnWriteMultiValueMap<>();
+        final List<String> list = Arrays.asList("a", "b");
+        assertNull(map.put("foo", list));
+        assertEquals(list, map.put("foo", Collections.singletonList("c")));
+        assertNull(map.remove("absent"));
+        assertEquals(Collections.singletonList("c"), map.remove("foo"));
+
+        assertNull(map.putIfAbsent("foo", list));
+        assertEquals(list, map.putIfAbsent("foo", Collections.singletonList("c")));
+        assertTrue(map.replace("foo", list, Collections.singletonList("c")));
+        assertEquals(Collections.singletonList("c"), map.replace("foo", list));
+        assertFalse(map.remove("foo", Collections.singletonList("c")));
+        assertTrue(map.remove("foo", list));
+
+        assertEquals(list, map.computeIfAbsent("foo", k -> list));
+        assertEquals(Collections.singletonList("d"),
+                map.computeIfPresent("foo", (k, v) -> Collections.singletonList("d")));
+        assertEquals(Collections.singletonList("e"), map.compute("bar", (k, v) -> Collections.singletonList("e")));
+        assertEquals(Arrays.asList("e", "f"), map.merge("bar", Collections.singletonList("f"), (v1, v2) -> {
+            final List<String> merged = new ArrayList<>(v1);
+            merged.addAll(v2);
+            return merged;
+        }));
+        map.replaceAll((k, v) -> Collections.singletonList(k));
+        assertEquals("foo", map.getFirst("foo"));
+        assertEquals("bar", map.getFirst("bar"));
+
+        map.putAll(Collections.singletonMap("baz", list));
+        map.addAll("baz", Collections.singletonList("c"));
+        map.putSingle("bar", "x");
+        assertEquals(Arrays.asList("a", "b", "c"), map.get("baz"));
+        assertEquals(Collections.singletonList("x"), map.get("bar"));
+
+        final MultiValueMap<String, String> snapshot = map.snapshot();
+        assertNull(map.remove("absent"));
+        assertSame(snapshot, map.snapshot());
+        map.forEach((k, v) -> assertEquals(snapshot.get(k), v));
+    }
+
+    @Test
+    void testConcurrentAdd() throws Exception {
+        final CopyOnWriteMultiValueMap<String, Integer> map = new CopyOnWriteMultiValueMap<>();
+        final int threads = 4;
+        final int loops = 200;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final String key = "k" + t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < loops; i++) {
+                        map.add(key, i);
+                        map.add("shared", i);
+                        // reading never sees a partial write
+                        final List<Integer> values = map.get(key);
+                        assertEquals(i + 1, values.size());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : futures) {
+                f.get(30L, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(threads + 1, map.size());
+        assertEquals(threads * loops, map.get("shared").size());
+        for (Map.Entry<String, List<Integer>> e : map.entrySet()) {
+            if (!e.getKey().equals("shared")) {
+                assertEquals(loops, e.getValue().size());
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntObjectHashMapTest {
+
+    @Test
+    void testIllegalArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new IntObjectHashMap<>(-1));
+        assertThrows(IllegalArgumentException.class, () -> new IntObjectHashMap<>(8, 0f));
+        assertThrows(IllegalArgumentException.class, () -> new IntObjectHashMap<>(8, 1f));
+        assertThrows(NullPointerException.class, () -> new IntObjectHashMap<>().put(1, null));
+    }
+
+    @Test
+    void testPutGetRemove() {
+        final IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(0));
+        assertNull(map.put(0, "0"));
+        assertNull(map.put(-1, "-1"));
+        assertNull(map.put(Integer.MAX_VALUE, "max"));
+        assertNull(map.put(Integer.MIN_VALUE, "min"));
+        assertEquals(4, map.size());
+        assertEquals("0", map.get(0));
+        assertEquals("-1", map.get(-1));
+        assertEquals("max", map.get(Integer.MAX_VALUE));
+        assertEquals("min", map.get(Integer.MIN_VALUE));
+        assertTrue(map.containsKey(0));
+        assertFalse(map.containsKey(1));
+        assertEquals("default", map.getOrDefault(1, "default"));
+
+        assertEquals("0", map.put(0, "zero"));
+        assertEquals("zero", map.putIfAbsent(0, "0"));
+        assertEquals("zero", map.get(0));
+        assertNull(map.putIfAbsent(1, "1"));
+        assertEquals("1", map.get(1));
+
+        assertEquals("1", map.computeIfAbsent(1, k -> "one"));
+        assertEquals("2", map.computeIfAbsent(2, String::valueOf));
+        assertNull(map.computeIfAbsent(3, k -> null));
+        assertFalse(map.containsKey(3));
+
+        assertEquals("zero", map.remove(0));
+        assertNull(map.remove(0));
+        assertEquals(5, map.size());
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(-1));
+    }
+
+    @Test
+    void testCollisionsAndResize() {
+        final IntObjectHashMap<Integer> map = new IntObjectHashMap<>(0);
+        // keys with the same low bits
+        for (int i = 0; i < 1000; i++) {
+            final int key = (int) i << 20;
+            assertNull(map.put(key, key));
+        }
+        assertEquals(1000, map.size());
+        for (int i = 0; i < 1000; i++) {
+            final int key = (int) i << 20;
+            assertEquals(key, map.get(key));
+        }
+        for (int i = 0; i < 1000; i += 2) {
+            final int key = (int) i << 20;
+            assertEquals(key, map.remove(key));
+        }
+        assertEquals(500, map.size());
+        for (int i = 0; i < 1000; i++) {
+            final int key = (int) i << 20;
+            assertEquals(i % 2 == 0 ? null : key, map.get(key));
+        }
+    }
+
+    @Test
+    void testRandomOperations() {
+        final Random random = new Random(7L);
+        final IntObjectHashMap<Integer> map = new IntObjectHashMap<>();
+        final Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            final int key = random.nextInt(512) - 256;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                final int value = random.nextInt();
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        expected.forEach((k, v) -> assertEquals(v, map.get(k)));
+        map.forEach((v, k) -> assertEquals(expected.get(k), v));
+    }
+
+    @Test
+    void testRemoveIf() {
+        final IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        for (int i = -500; i < 500; i++) {
+            map.put(i, String.valueOf(i));
+        }
+        assertFalse(map.removeIf((v, k) -> k > 1000));
+        assertTrue(map.removeIf((v, k) -> k % 3 == 0));
+        assertEquals(667, map.size());
+        for (int i = -500; i < 500; i++) {
+            assertEquals(i % 3 == 0 ? null : String.valueOf(i), map.get(i));
+        }
+        assertTrue(map.removeIf((v, k) -> true));
+        assertTrue(map.isEmpty());
+        assertFalse(map.removeIf((v, k) -> true));
+    }
+
+    @Test
+    void testForEachAndKeys() {
+        final IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        map.put(1, "1");
+        map.put(2, "2");
+        map.put(3, "3");
+        final Map<Integer, String> visited = new HashMap<>();
+        map.forEach((v, k) -> visited.put(k, v));
+        assertEquals(3, visited.size());
+        assertEquals("1", visited.get(1));
+        assertEquals("2", visited.get(2));
+        assertEquals("3", visited.get(3));
+
+        final int[] keys = map.keys();
+        assertEquals(3, keys.length);
+        int sum = 0;
+        for (int k : keys) {
+            sum += k;
+        }
+        assertEquals(6, sum);
+    }
+
+    @Test
+    void testEqualsHashCodeAndToString() {
+        final IntObjectHashMap<String> map1 = new IntObjectHashMap<>();
+        final IntObjectHashMap<String> map2 = new IntObjectHashMap<>(64);
+        assertEquals("{}", map1.toString());
+        assertEquals(map1, map2);
+        map1.put(1, "a");
+        map1.put(2, "b");
+        map2.put(2, "b");
+        assertNotEquals(map1, map2);
+        map2.put(1, "a");
+        assertEquals(map1, map2);
+        assertEquals(map1.hashCode(), map2.hashCode());
+        map2.put(1, "c");
+        assertNotEquals(map1, map2);
+        assertNotEquals(map1, new Object());
+        map1.remove(2);
+        assertEquals("{1=a}", map1.toString());
+    }
+
+    @Test
+    void testBoundedProbing() throws Exception {
+        // a full table could only be observed by an optimistic read racing with a concurrent writing
+        final IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        Arrays.fill((int[]) field(map, "keys"), -1);
+        Arrays.fill((Object[]) field(map, "values"), "v");
+        assertTimeoutPreemptively(Duration.ofSeconds(5L), () -> assertNull(map.get(1)));
+    }
+
+    private static Object field(Object target, String name) throws Exception {
+        final Field f = target.getClass().getDeclaredField(name);
+        f.setAccessible(true);
+        return f.get(target);
+    }
+}
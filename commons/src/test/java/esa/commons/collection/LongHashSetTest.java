@@ -0,0 +1,179 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongHashSetTest {
+
+    @Test
+    void testIllegalArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new LongHashSet(-1));
+        assertThrows(IllegalArgumentException.class, () -> new LongHashSet(8, 0f));
+        assertThrows(IllegalArgumentException.class, () -> new LongHashSet(8, 1f));
+    }
+
+    @Test
+    void testAddContainsRemove() {
+        final LongHashSet set = new LongHashSet();
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains(0));
+        assertTrue(set.add(0));
+        assertFalse(set.add(0));
+        assertTrue(set.add(-1));
+        assertTrue(set.add(Long.MAX_VALUE));
+        assertTrue(set.add(Long.MIN_VALUE));
+        assertEquals(4, set.size());
+        assertTrue(set.contains(0));
+        assertTrue(set.contains(-1));
+        assertTrue(set.contains(Long.MAX_VALUE));
+        assertTrue(set.contains(Long.MIN_VALUE));
+        assertFalse(set.contains(1));
+
+        assertTrue(set.remove(0));
+        assertFalse(set.remove(0));
+        assertFalse(set.contains(0));
+        assertTrue(set.remove(-1));
+        assertFalse(set.remove(1));
+        assertEquals(2, set.size());
+
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains(Long.MAX_VALUE));
+    }
+
+    @Test
+    void testCollisionsAndResize() {
+        final LongHashSet set = new LongHashSet(0);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(set.add((long) i << 20));
+        }
+        assertEquals(1000, set.size());
+        for (int i = 0; i < 1000; i += 2) {
+            assertTrue(set.remove((long) i << 20));
+        }
+        assertEquals(500, set.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i % 2 != 0, set.contains((long) i << 20));
+        }
+    }
+
+    @Test
+    void testRandomOperations() {
+        final Random random = new Random(7L);
+        final LongHashSet set = new LongHashSet();
+        final Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 100000; i++) {
+            final long key = random.nextInt(512) - 256;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), set.remove(key));
+            } else {
+                assertEquals(expected.add(key), set.add(key));
+            }
+            assertEquals(expected.size(), set.size());
+        }
+        expected.forEach(k -> assertTrue(set.contains(k)));
+        set.forEach(k -> assertTrue(expected.contains(k)));
+    }
+
+    @Test
+    void testRemoveIf() {
+        final LongHashSet set = new LongHashSet();
+        for (int i = -500; i < 500; i++) {
+            set.add(i);
+        }
+        assertFalse(set.removeIf(k -> k > 1000));
+        assertTrue(set.removeIf(k -> k % 3 == 0));
+        assertEquals(667, set.size());
+        for (int i = -500; i < 500; i++) {
+            assertEquals(i % 3 != 0, set.contains(i));
+        }
+        assertTrue(set.removeIf(k -> true));
+        assertTrue(set.isEmpty());
+        assertFalse(set.removeIf(k -> true));
+    }
+
+    @Test
+    void testForEachAndToArray() {
+        final LongHashSet set = new LongHashSet();
+        set.add(0);
+        set.add(1);
+        set.add(2);
+        final Set<Long> visited = new HashSet<>();
+        set.forEach(visited::add);
+        assertEquals(3, visited.size());
+        assertTrue(visited.contains(0L));
+        assertTrue(visited.contains(1L));
+        assertTrue(visited.contains(2L));
+
+        final long[] array = set.toArray();
+        Arrays.sort(array);
+        assertArrayEquals(new long[]{0, 1, 2}, array);
+    }
+
+    @Test
+    void testEqualsHashCodeAndToString() {
+        final LongHashSet set1 = new LongHashSet();
+        final LongHashSet set2 = new LongHashSet(64);
+        assertEquals("[]", set1.toString());
+        assertEquals(set1, set2);
+        set1.add(0);
+        set1.add(1);
+        set2.add(1);
+        assertNotEquals(set1, set2);
+        set2.add(0);
+        assertEquals(set1, set2);
+        assertEquals(set1.hashCode(), set2.hashCode());
+        set2.remove(1);
+        set2.add(2);
+        assertNotEquals(set1, set2);
+        assertNotEquals(set1, new Object());
+        // zero is always the first one
+        set1.add(-1);
+        assertTrue(set1.toString().startsWith("[0, "));
+        set1.remove(-1);
+        assertEquals("[0, 1]", set1.toString());
+    }
+
+    @Test
+    void testBoundedProbing() throws Exception {
+        // a full table could only be observed by an optimistic read racing with a concurrent writing
+        final LongHashSet set = new LongHashSet();
+        Arrays.fill((long[]) field(set, "keys"), -1L);
+        assertTimeoutPreemptively(Duration.ofSeconds(5L), () -> assertFalse(set.contains(1L)));
+    }
+
+    private static Object field(Object target, String name) throws Exception {
+        final Field f = target.getClass().getDeclaredField(name);
+        f.setAccessible(true);
+        return f.get(target);
+    }
+}
@@ -19,10 +19,14 @@ import org.junit.jupiter.api.Test;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -75,4 +79,109 @@ class MultiMapsTest {
 
     }
 
+    @Test
+    void testImmutableCopyOf() {
+        assertSame(MultiMaps.emptyMultiMap(), MultiMaps.immutableCopyOf(new HashMap<String, List<String>>()));
+
+        final LinkedMultiValueMap<String, String> source = new LinkedMultiValueMap<>();
+        source.addAll("foo", Arrays.asList("1", "2"));
+        source.add("bar", "3");
+        source.addAll("baz", Collections.emptyList());
+        source.add(null, "4");
+
+        final MultiValueMap<String, String> m = MultiMaps.immutableCopyOf(source);
+        assertNotSame(source, m);
+        assertSame(m, MultiMaps.immutableCopyOf(m));
+        assertEquals(source, m);
+        assertEquals(m, source);
+        assertEquals(source.hashCode(), m.hashCode());
+        assertEquals(source.toString(), m.toString());
+        assertEquals(4, m.size());
+        assertFalse(m.isEmpty());
+
+        assertEquals(Arrays.asList("1", "2"), m.get("foo"));
+        assertEquals("1", m.getFirst("foo"));
+        assertEquals("3", m.getFirst("bar"));
+        assertTrue(m.get("baz").isEmpty());
+        assertNull(m.getFirst("baz"));
+        assertEquals("4", m.getFirst(null));
+        assertNull(m.get("absent"));
+        assertNull(m.getFirst("absent"));
+        assertTrue(m.containsKey("baz"));
+        assertFalse(m.containsKey("absent"));
+        assertTrue(m.containsValue(Collections.singletonList("3")));
+        assertThrows(IndexOutOfBoundsException.class, () -> m.get("bar").get(1));
+
+        // the copy is detached from the source
+        source.add("foo", "5");
+        assertEquals(Arrays.asList("1", "2"), m.get("foo"));
+
+        final Map<String, String> single = m.toSingleValueMap();
+        assertEquals(4, single.size());
+        assertEquals("1", single.get("foo"));
+        assertNull(single.get("baz"));
+
+        final Map<String, List<String>> iterated = new LinkedHashMap<>();
+        m.forEach(iterated::put);
+        assertEquals(Arrays.asList("foo", "bar", "baz", null), Arrays.asList(iterated.keySet().toArray()));
+        assertEquals(iterated, m);
+        assertEquals(Arrays.asList("foo", "bar", "baz", null), Arrays.asList(m.keySet().toArray()));
+
+        final List<String> list = Arrays.asList("a", "b");
+        assertThrows(UnsupportedOperationException.class, () -> m.add("foo", ""));
+        assertThrows(UnsupportedOperationException.class, () -> m.addFirst("foo", ""));
+        assertThrows(UnsupportedOperationException.class, () -> m.addAll("foo", list));
+        assertThrows(UnsupportedOperationException.class, () -> m.put("foo", list));
+        assertThrows(UnsupportedOperationException.class, () -> m.putSingle("foo", "a"));
+        assertThrows(UnsupportedOperationException.class, () -> m.putAll(Collections.singletonMap("", list)));
+        assertThrows(UnsupportedOperationException.class, () -> m.remove("foo"));
+        assertThrows(UnsupportedOperationException.class, m::clear);
+        assertThrows(UnsupportedOperationException.class, () -> m.get("foo").add("x"));
+        assertThrows(UnsupportedOperationException.class, () -> m.entrySet().iterator().next().setValue(list));
+        assertThrows(UnsupportedOperationException.class, () -> {
+            m.entrySet().iterator().next();
+            m.entrySet().iterator().remove();
+        });
+    }
+
+    @Test
+    void testImmutableCopyOfManyKeys() {
+        final Map<Object, List<Integer>> source = new LinkedHashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            source.put("k" + i, Arrays.asList(i, -i));
+        }
+        // keys with the same hash code
+        source.put(new SameHash("a"), Collections.singletonList(1));
+        source.put(new SameHash("b"), Collections.singletonList(2));
+
+        final MultiValueMap<Object, Integer> m = MultiMaps.immutableCopyOf(source);
+        assertEquals(source, m);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, m.getFirst("k" + i));
+        }
+        assertEquals(1, m.getFirst(new SameHash("a")));
+        assertEquals(2, m.getFirst(new SameHash("b")));
+        assertNull(m.getFirst(new SameHash("c")));
+        assertNull(m.getFirst("k1000"));
+    }
+
+    private static final class SameHash {
+
+        private final String name;
+
+        private SameHash(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof SameHash && name.equals(((SameHash) o).name);
+        }
+
+        @Override
+        public int hashCode() {
+            return 1;
+        }
+    }
+
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrentIntHashSetTest {
+
+    @Test
+    void testNormal() {
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentIntHashSet(-1));
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentIntHashSet(16, 0));
+
+        final ConcurrentIntHashSet set = new ConcurrentIntHashSet();
+        assertTrue(set.isEmpty());
+        assertEquals(0, set.size());
+        assertTrue(set.add(0));
+        assertTrue(set.add(1));
+        assertFalse(set.add(1));
+        assertTrue(set.add(-1));
+        assertEquals(3, set.size());
+        assertFalse(set.isEmpty());
+        assertTrue(set.contains(0));
+        assertTrue(set.contains(-1));
+        assertFalse(set.contains(2));
+
+        assertTrue(set.remove(-1));
+        assertFalse(set.remove(-1));
+        assertTrue(set.removeIf(k -> k == 0));
+        assertFalse(set.removeIf(k -> k == 0));
+        assertEquals("[1]", set.toString());
+
+        final AtomicInteger count = new AtomicInteger();
+        set.forEach(k -> count.incrementAndGet());
+        assertEquals(1, count.get());
+
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertEquals("[]", set.toString());
+    }
+
+    @Test
+    void testSingleSegment() {
+        final ConcurrentIntHashSet set = new ConcurrentIntHashSet(0, 1);
+        for (int i = -100; i < 100; i++) {
+            assertTrue(set.add(i));
+        }
+        assertEquals(200, set.size());
+        for (int i = -100; i < 100; i++) {
+            assertTrue(set.contains(i));
+        }
+    }
+
+    @Test
+    void testConcurrentOperations() throws InterruptedException {
+        final ConcurrentIntHashSet set = new ConcurrentIntHashSet(0, 4);
+        final int threads = 4;
+        final int count = 10000;
+        final CountDownLatch latch = new CountDownLatch(threads);
+        final AtomicInteger mismatches = new AtomicInteger();
+        for (int t = 0; t < threads; t++) {
+            final int base = t * count;
+            new Thread(() -> {
+                try {
+                    for (int i = base; i < base + count; i++) {
+                        if (!set.add(i) || !set.contains(i)) {
+                            mismatches.incrementAndGet();
+                        }
+                        if (i % 2 == 0) {
+                            set.remove(i);
+                        }
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            }).start();
+        }
+        latch.await();
+        assertEquals(0, mismatches.get());
+        assertEquals(threads * count / 2, set.size());
+        for (int i = 0; i < threads * count; i++) {
+            assertEquals(i % 2 != 0, set.contains(i));
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrentLongObjectHashMapTest {
+
+    @Test
+    void testNormal() {
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentLongObjectHashMap<>(-1));
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentLongObjectHashMap<>(16, 0));
+
+        final ConcurrentLongObjectHashMap<String> map = new ConcurrentLongObjectHashMap<>();
+        assertTrue(map.isEmpty());
+        assertEquals(0, map.size());
+        assertNull(map.put(1, "1"));
+        assertNull(map.put(-1, "-1"));
+        assertEquals("1", map.put(1, "one"));
+        assertEquals("one", map.putIfAbsent(1, "1"));
+        assertEquals("2", map.computeIfAbsent(2, String::valueOf));
+        assertEquals(3, map.size());
+        assertFalse(map.isEmpty());
+        assertEquals("one", map.get(1));
+        assertEquals("-1", map.get(-1));
+        assertTrue(map.containsKey(2));
+        assertFalse(map.containsKey(3));
+        assertEquals("default", map.getOrDefault(3, "default"));
+
+        assertEquals("-1", map.remove(-1));
+        assertNull(map.remove(-1));
+        assertTrue(map.removeIf((v, k) -> k == 2));
+        assertFalse(map.removeIf((v, k) -> k == 2));
+        assertEquals("{1=one}", map.toString());
+
+        final AtomicInteger count = new AtomicInteger();
+        map.forEach((v, k) -> count.incrementAndGet());
+        assertEquals(1, count.get());
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertEquals("{}", map.toString());
+    }
+
+    @Test
+    void testSingleSegment() {
+        final ConcurrentLongObjectHashMap<Long> map = new ConcurrentLongObjectHashMap<>(0, 1);
+        for (int i = -100; i < 100; i++) {
+            map.put(i, (long) i);
+        }
+        assertEquals(200, map.size());
+        for (int i = -100; i < 100; i++) {
+            assertEquals((long) i, map.get(i));
+        }
+    }
+
+    @Test
+    void testConcurrentOperations() throws InterruptedException {
+        final ConcurrentLongObjectHashMap<Long> map = new ConcurrentLongObjectHashMap<>(0, 4);
+        final int threads = 4;
+        final int count = 10000;
+        final CountDownLatch latch = new CountDownLatch(threads);
+        final AtomicInteger mismatches = new AtomicInteger();
+        for (int t = 0; t < threads; t++) {
+            final int base = t * count;
+            new Thread(() -> {
+                try {
+                    for (int i = base; i < base + count; i++) {
+                        map.put(i, (long) i);
+                        if (map.get(i) != i) {
+                            mismatches.incrementAndGet();
+                        }
+                        if (i % 2 == 0) {
+                            map.remove(i);
+                        }
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            }).start();
+        }
+        latch.await();
+        assertEquals(0, mismatches.get());
+        assertEquals(threads * count / 2, map.size());
+        for (int i = 0; i < threads * count; i++) {
+            assertEquals(i % 2 == 0 ? null : (Long) (long) i, map.get(i));
+        }
+    }
+}
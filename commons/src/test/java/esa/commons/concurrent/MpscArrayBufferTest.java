@@ -33,11 +33,14 @@ class MpscArrayBufferTest {
 
         final MpscArrayBuffer<Integer> buffer = new MpscArrayBuffer<>(2);
 
+        assertEquals(0, buffer.size());
         assertTrue(buffer.offer(1));
         assertTrue(buffer.offer(2));
         assertFalse(buffer.offer(3));
+        assertEquals(2, buffer.size());
         final List<Integer> ret = new LinkedList<>();
         assertEquals(2, buffer.drain(ret::add));
+        assertEquals(0, buffer.size());
 
         assertEquals(1, ret.get(0));
         assertEquals(2, ret.get(1));
@@ -53,4 +56,23 @@ class MpscArrayBufferTest {
         assertEquals(2, ret.get(1));
     }
 
+    @Test
+    void testDrainWithLimit() {
+        final MpscArrayBuffer<Integer> buffer = new MpscArrayBuffer<>(4);
+        final List<Integer> ret = new LinkedList<>();
+        assertEquals(0, buffer.drain(ret::add, 2));
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertEquals(0, buffer.drain(ret::add, 0));
+        assertEquals(2, buffer.drain(ret::add, 2));
+        assertEquals(2, buffer.size());
+        assertEquals(2, buffer.drain(ret::add, 3));
+        assertEquals(0, buffer.drain(ret::add, 3));
+        assertEquals(4, ret.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, ret.get(i));
+        }
+    }
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.logging;
+
+import org.junit.jupiter.api.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CachedDateFormatterTest {
+
+    @Test
+    void testFormat() {
+        testFormat0("yyyy-MM-dd HH:mm:ss.SSS");
+        testFormat0("SSS yyyy-MM-dd HH:mm:ss");
+        testFormat0("yyyy-MM-dd");
+        testFormat0("HH:mm:ss");
+        // could not be patched
+        testFormat0("ss.SS");
+        testFormat0("yyyy-MM-dd HH:mm:ss.SSS SSS");
+    }
+
+    private static void testFormat0(String pattern) {
+        final SimpleDateFormat sdf = new SimpleDateFormat(pattern);
+        final CachedDateFormatter formatter = new CachedDateFormatter(pattern);
+        final StringBuilder sb = new StringBuilder();
+        long t = System.currentTimeMillis();
+        for (int i = 0; i < 3000; i++) {
+            if (i % 100 == 0) {
+                t = ThreadLocalRandom.current().nextLong(0L, 4102444800000L);
+            } else {
+                t += ThreadLocalRandom.current().nextInt(0, 300);
+            }
+            sb.setLength(0);
+            formatter.format(t, sb);
+            if (pattern.contains("SSS") || !pattern.contains("S")) {
+                assertEquals(sdf.format(new Date(t)), sb.toString());
+            } else {
+                // SimpleDateFormat treats 'SS' as the milliseconds while DateTimeFormatter treats it as fraction
+                sb.setLength(sb.length() - 2);
+                assertEquals(sdf.format(new Date(t)).substring(0, sb.length()), sb.toString());
+            }
+        }
+    }
+
+    @Test
+    void testConcurrentFormat() throws InterruptedException {
+        final String pattern = "yyyy-MM-dd HH:mm:ss.SSS";
+        final CachedDateFormatter formatter = new CachedDateFormatter(pattern);
+        final Thread[] threads = new Thread[4];
+        final Throwable[] errors = new Throwable[threads.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread(() -> {
+                try {
+                    final SimpleDateFormat sdf = new SimpleDateFormat(pattern);
+                    final StringBuilder sb = new StringBuilder();
+                    long t = System.currentTimeMillis() + index * 1000L;
+                    for (int j = 0; j < 10000; j++) {
+                        t += ThreadLocalRandom.current().nextInt(0, 3);
+                        sb.setLength(0);
+                        formatter.format(t, sb);
+                        assertEquals(sdf.format(new Date(t)), sb.toString());
+                    }
+                } catch (Throwable e) {
+                    errors[index] = e;
+                }
+            });
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+            if (errors[i] != null) {
+                throw new AssertionError(errors[i]);
+            }
+        }
+    }
+
+    @Test
+    void testCachedClock() throws InterruptedException {
+        final long now = System.currentTimeMillis();
+        Thread.sleep(50L);
+        final long t = CachedClock.INSTANCE.currentTimeMillis();
+        assertTrue(t > now && t <= System.currentTimeMillis());
+    }
+}
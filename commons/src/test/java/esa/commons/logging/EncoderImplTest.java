@@ -84,6 +84,22 @@ class EncoderImplTest {
                 new EncoderImpl("%thrown", null).encode(logEvent));
     }
 
+    @Test
+    void testEncodeAttachments() {
+        InternalLoggerContext.put("a", "1");
+        InternalLoggerContext.put("b", "2");
+        final LogEvent event;
+        try {
+            event = new LogEventImpl("logger", Level.INFO, "foo", null);
+        } finally {
+            InternalLoggerContext.clear();
+        }
+        assertArrayEquals("1-".getBytes(), new EncoderImpl("%X{a}-%X{c}", null).encode(event));
+        assertArrayEquals("2".getBytes(), new EncoderImpl("%mdc{b}", null).encode(event));
+        assertArrayEquals("a=1, b=2 foo".getBytes(), new EncoderImpl("%X %msg", null).encode(event));
+        assertArrayEquals(" foo".getBytes(), new EncoderImpl("%X %msg", null).encode(logEvent));
+    }
+
     @Test
     void testCharset() {
         assertArrayEquals("absent".getBytes(StandardCharsets.UTF_8),
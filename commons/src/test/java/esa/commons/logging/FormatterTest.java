@@ -25,6 +25,7 @@ import java.util.Map;
 import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 class FormatterTest {
 
@@ -91,6 +92,15 @@ class FormatterTest {
         Formatter.toConverter("$f - $b", '$', map1).convert(l, buf);
         assertEquals("foo - bar", buf.toString());
 
+        // longest marker
+        final Map<String, Function<String, Converter<Object>>> map2 = new LinkedHashMap<>();
+        map2.put("d", p -> (t, sb) -> sb.append("D").append(p == null ? "" : p));
+        map2.put("date", p -> (t, sb) -> sb.append("DATE").append(p == null ? "" : p));
+        map2.put("dat", p -> (t, sb) -> sb.append("DAT"));
+        buf.setLength(0);
+        Formatter.toConverter("%d%da%dat%date%dates%d{x}%date{y}%", map2).convert(null, buf);
+        assertEquals("DDaDATDATEDATEsDxDATEy%", buf.toString());
+
         // test params
         buf.setLength(0);
         Formatter.toConverter("%i{} - %msg{bar}", Collections.emptyMap()).convert(null, buf);
@@ -136,6 +146,36 @@ class FormatterTest {
         assertEquals("foo\\a - \\\\barb", buf.toString());
     }
 
+    @Test
+    void testFormatFixedArityParams() {
+        assertNull(Formatter.format(null, "foo"));
+        assertEquals("foo", Formatter.format("foo", "bar"));
+        assertEquals("foo bar", Formatter.format("foo {}", "bar"));
+        assertEquals("foo bar {}", Formatter.format("foo {} {}", "bar"));
+        assertEquals("foo null", Formatter.format("foo {}", (Object) null));
+        assertEquals("foo bar baz", Formatter.format("foo {} {}", "bar", "baz"));
+        assertEquals("foo bar", Formatter.format("foo {}", "bar", "baz"));
+        assertEquals("foo 1 2 3", Formatter.format("foo {} {} {}", 1, 2L, (short) 3));
+        assertEquals("foo 1 2 3 [4, 5]", Formatter.format("foo {} {} {} {}", 1, 2, 3, new int[]{4, 5}));
+        // escape
+        assertEquals("foo {} bar \\baz", Formatter.format("foo \\{} {} \\\\{}", "bar", "baz"));
+        assertEquals("{} bar baz qux", Formatter.format("\\{} {} {} {}", "bar", "baz", "qux", "x"));
+    }
+
+    @Test
+    void testFormatPrimitiveParam() {
+        assertNull(Formatter.format(null, 1));
+        assertEquals("foo", Formatter.format("foo", 1));
+        assertEquals("foo true {}", Formatter.format("foo {} {}", true));
+        assertEquals("foo c", Formatter.format("foo {}", 'c'));
+        assertEquals("foo 1", Formatter.format("foo {}", 1));
+        assertEquals("foo 1", Formatter.format("foo {}", 1L));
+        assertEquals("foo 1.1", Formatter.format("foo {}", 1.1f));
+        assertEquals("foo 1.1", Formatter.format("foo {}", 1.1D));
+        assertEquals("{} 1", Formatter.format("\\{} {}", 1L));
+        assertEquals("\\1 {}", Formatter.format("\\\\{} {}", 1L));
+    }
+
     @Test
     void testFormatParams() {
         assertEquals("foo",
@@ -216,4 +256,55 @@ class FormatterTest {
                 Formatter.format("{}{}", a));
     }
 
+    @Test
+    void testFormatByCachedTemplate() {
+        final String[] templates = {
+                "plain text",
+                "foo {} bar {}",
+                "{}{}{}",
+                "foo \\{} {} \\\\{} {}",
+                "foo \\{} bar",
+                "{} foo {} \\{}",
+        };
+        final Object[] args = {"a", 1, 2L, true};
+        for (String template : templates) {
+            for (int len = 0; len <= args.length; len++) {
+                // uncached
+                final String expect = Formatter.format(new String(template), args, len);
+                for (int i = 0; i < 3; i++) {
+                    // parsed and cached at the second time
+                    assertEquals(expect, Formatter.format(template, args, len));
+                }
+            }
+            final String expect1 = Formatter.format(new String(template), "a", 'b');
+            final String expect2 = Formatter.format(new String(template), 1);
+            for (int i = 0; i < 3; i++) {
+                assertEquals(expect1, Formatter.format(template, "a", 'b'));
+                assertEquals(expect2, Formatter.format(template, 1));
+            }
+        }
+        assertEquals("foo {} a \\1 2", Formatter.format("foo \\{} {} \\\\{} {}", args, 3));
+        // the left text after the last argument is appended as it is
+        assertEquals("foo {} a \\\\{} {}", Formatter.format("foo \\{} {} \\\\{} {}", args, 1));
+    }
+
+    @Test
+    void testFormatArrays() {
+        assertEquals("[1, 2] [] [a, b] [true] [1.0] [1, 2] [3] [4.0]",
+                Formatter.format("{} {} {} {} {} {} {} {}",
+                        new Object[]{new int[]{1, 2}, new long[0], new char[]{'a', 'b'}, new boolean[]{true},
+                                new double[]{1.0D}, new byte[]{1, 2}, new short[]{3}, new float[]{4.0F}}));
+
+        assertEquals("[a, [b, c], [[d]]]",
+                Formatter.format("{}", new Object[]{new Object[]{"a", new String[]{"b", "c"},
+                        new Object[]{new Object[]{"d"}}}}));
+
+        final Object[] self = new Object[2];
+        self[0] = "a";
+        self[1] = self;
+        assertEquals("[a, [...]]", Formatter.format("{}", new Object[]{self}));
+
+        final Object[] sibling = {"a"};
+        assertEquals("[[a], [a]]", Formatter.format("{}", new Object[]{new Object[]{sibling, sibling}}));
+    }
 }
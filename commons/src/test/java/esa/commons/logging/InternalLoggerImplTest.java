@@ -132,6 +132,44 @@ class InternalLoggerImplTest {
         verifyError(mock, logger, false);
     }
 
+    @Test
+    void testPrimitiveAndFixedArityArgs() {
+        final LogHandler mock = mock(LogHandler.class);
+        final InternalLogger logger = new InternalLoggerImpl("foo", mock);
+        logger.setLevel(Level.TRACE);
+        final Error e = new Error();
+
+        logger.trace("foo {}", true);
+        verifyLog(mock, Level.TRACE, "foo true", null, true);
+        logger.debug("foo {}", 'c');
+        verifyLog(mock, Level.DEBUG, "foo c", null, true);
+        logger.info("foo {}", 1);
+        verifyLog(mock, Level.INFO, "foo 1", null, true);
+        logger.warn("foo {}", 2L);
+        verifyLog(mock, Level.WARN, "foo 2", null, true);
+        logger.error("foo {}", 1.5f);
+        verifyLog(mock, Level.ERROR, "foo 1.5", null, true);
+        logger.info("bar {}", 2.5D);
+        verifyLog(mock, Level.INFO, "bar 2.5", null, true);
+
+        logger.trace("foo {} {} {}", "a", 'b', 3);
+        verifyLog(mock, Level.TRACE, "foo a b 3", null, true);
+        logger.debug("foo {} {} {} {}", "a", "b", "c", "d");
+        verifyLog(mock, Level.DEBUG, "foo a b c d", null, true);
+        logger.info("foo {} {}", "a", "b", e);
+        verifyLog(mock, Level.INFO, "foo a b", e, true);
+        logger.warn("foo {} {} {}", "a", "b", "c", e);
+        verifyLog(mock, Level.WARN, "foo a b c", e, true);
+        logger.error("foo", e, e);
+        verifyLog(mock, Level.ERROR, "foo", e, true);
+
+        reset(mock);
+        logger.setLevel(Level.OFF);
+        logger.info("foo {}", 1);
+        logger.info("foo {} {} {} {}", "a", "b", "c", "d");
+        verify(mock, never()).handle(argThat(event -> true));
+    }
+
     private void verifyTrace(LogHandler mock, Logger logger, boolean called) {
         logger.trace("foo");
         verifyLog(mock, Level.TRACE, "foo", null, called);
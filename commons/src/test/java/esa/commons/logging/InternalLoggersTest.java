@@ -24,6 +24,8 @@ import java.nio.charset.StandardCharsets;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class InternalLoggersTest {
@@ -46,6 +48,37 @@ class InternalLoggersTest {
                 InternalLoggers.class.getName());
     }
 
+    @Test
+    void testStats() throws Exception {
+        final File file = createTempFile();
+        try {
+            final InternalLogger logger = InternalLoggers.logger("foo", file)
+                    .writeBuffer(16)
+                    .pattern("%msg")
+                    .build();
+            final LogHandlerStats stats = InternalLoggers.stats(file);
+            assertSame(stats, InternalLoggers.stats().get(file));
+            assertNull(InternalLoggers.stats(createTempFile()));
+
+            for (int i = 0; i < 100; i++) {
+                logger.info("info" + i);
+            }
+            assertEquals(100L, stats.enqueued() + stats.dropped());
+            final long deadline = System.currentTimeMillis() + 5000L;
+            while (stats.flushSizes().count() == 0L && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10L);
+            }
+            assertTrue(stats.flushSizes().count() > 0L);
+            assertTrue(stats.flushSizes().sum() > 0L);
+            assertEquals(stats.flushSizes().count(), stats.writeLatencies().count());
+            assertEquals(0L, stats.rollovers().count());
+            assertTrue(stats.queueDepth() >= 0);
+        } finally {
+            InternalLoggers.Manager.LOGGER_HANDLERS.remove(file).stop();
+            file.delete();
+        }
+    }
+
     private static File createTempFile() throws IOException {
         final File target = File.createTempFile("commons-test-", ".log");
         target.deleteOnExit();
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.logging;
+
+import esa.commons.ExceptionUtils;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonEncoderTest {
+
+    @Test
+    void testEncode() {
+        final JsonEncoder encoder = new JsonEncoder();
+        final LogEvent event = new LogEventImpl("foo", Level.INFO, "hello \"world\"\\\n\t\u0001中文😀", null);
+        assertEquals("{\"timestamp\":" + event.timestamp()
+                        + ",\"level\":\"INFO\""
+                        + ",\"thread\":\"" + event.threadName() + "\""
+                        + ",\"logger\":\"foo\""
+                        + ",\"message\":\"hello \\\"world\\\"\\\\\\n\\t\\u0001中文😀\"}\n",
+                new String(encoder.encode(event), StandardCharsets.UTF_8));
+        encoder.stop();
+    }
+
+    @Test
+    void testEncodeWithThrownAndAttachments() {
+        final JsonEncoder encoder = new JsonEncoder();
+        final IllegalStateException ex = new IllegalStateException("bar");
+        InternalLoggerContext.put("traceId", "123");
+        InternalLoggerContext.put("user", null);
+        final LogEvent event;
+        try {
+            event = new LogEventImpl("foo", Level.ERROR, "hello", ex);
+        } finally {
+            InternalLoggerContext.clear();
+        }
+        final String stack = ExceptionUtils.getStackTrace(ex)
+                .replace("\\", "\\\\")
+                .replace("\r", "\\r")
+                .replace("\n", "\\n")
+                .replace("\t", "\\t");
+        assertEquals("{\"timestamp\":" + event.timestamp()
+                        + ",\"level\":\"ERROR\""
+                        + ",\"thread\":\"" + event.threadName() + "\""
+                        + ",\"logger\":\"foo\""
+                        + ",\"message\":\"hello\""
+                        + ",\"thrown\":\"" + stack + "\""
+                        + ",\"attachments\":{\"traceId\":\"123\",\"user\":null}}\n",
+                new String(encoder.encode(event), StandardCharsets.UTF_8));
+
+        // encoded by the cached bytes
+        assertArrayEquals(encoder.encode(event), encoder.encode(event));
+    }
+
+    @Test
+    void testEncodeLargeMessage() {
+        final JsonEncoder encoder = new JsonEncoder();
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            sb.append((char) ('a' + i % 26));
+        }
+        final LogEvent event = new LogEventImpl("foo", Level.INFO, sb.toString(), null);
+        final String encoded = new String(encoder.encode(event), StandardCharsets.UTF_8);
+        assertTrue(encoded.contains(",\"message\":\"" + sb + "\"}"));
+        // encode again after the local buffer has been released
+        assertEquals(encoded.replace(String.valueOf(event.timestamp()), ""),
+                new String(encoder.encode(event), StandardCharsets.UTF_8)
+                        .replace(String.valueOf(event.timestamp()), ""));
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.logging;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LogHandlerStatsImplTest {
+
+    @Test
+    void testCounters() {
+        final LogHandlerStatsImpl stats = new LogHandlerStatsImpl();
+        assertEquals(0, stats.queueDepth());
+        stats.queueDepth(() -> 10);
+        assertEquals(10, stats.queueDepth());
+
+        stats.recordEnqueue(true);
+        stats.recordEnqueue(true);
+        stats.recordEnqueue(false);
+        assertEquals(2L, stats.enqueued());
+        assertEquals(1L, stats.dropped());
+
+        stats.recordFlush(4096L, 1000L);
+        stats.recordFlush(100L, 3000L);
+        assertEquals(2L, stats.flushSizes().count());
+        assertEquals(4196L, stats.flushSizes().sum());
+        assertEquals(4096L, stats.flushSizes().max());
+        assertEquals(2L, stats.writeLatencies().count());
+        assertEquals(4000L, stats.writeLatencies().sum());
+        assertEquals(3000L, stats.writeLatencies().max());
+
+        stats.recordRollover(10L);
+        assertEquals(1L, stats.rollovers().count());
+    }
+
+    @Test
+    void testHistogram() {
+        final LogHandlerStatsImpl.HistogramImpl histogram = new LogHandlerStatsImpl.HistogramImpl();
+        assertEquals(64, histogram.buckets());
+        assertEquals(0L, histogram.upperBound(0));
+        assertEquals(1L, histogram.upperBound(1));
+        assertEquals(3L, histogram.upperBound(2));
+        assertEquals(Long.MAX_VALUE, histogram.upperBound(63));
+
+        histogram.record(0L);
+        histogram.record(-1L);
+        histogram.record(1L);
+        histogram.record(2L);
+        histogram.record(3L);
+        histogram.record(4L);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(2L, histogram.count(0));
+        assertEquals(1L, histogram.count(1));
+        assertEquals(2L, histogram.count(2));
+        assertEquals(1L, histogram.count(3));
+        assertEquals(1L, histogram.count(63));
+        assertEquals(7L, histogram.count());
+        assertEquals(Long.MAX_VALUE, histogram.max());
+    }
+}
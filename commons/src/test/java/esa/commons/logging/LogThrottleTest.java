@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.logging;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class LogThrottleTest {
+
+    @Test
+    void testNoThrottle() {
+        assertNull(LogThrottle.of(0, 0, 0));
+        assertNull(LogThrottle.of(-1, -1, 1));
+    }
+
+    @Test
+    void testRateLimit() {
+        final LogThrottle throttle = LogThrottle.of(10, 0, 0);
+        int accepted = 0;
+        for (int i = 0; i < 100; i++) {
+            if (throttle.tryAcquire(i % 2 == 0 ? "foo" : "bar")) {
+                accepted++;
+            }
+        }
+        // burst of 1 second and maybe some of them were refilled
+        assertTrue(accepted >= 10 && accepted < 20);
+    }
+
+    @Test
+    void testRateLimitPerCallSite() {
+        final String foo = "foo";
+        final String bar = new String("bar");
+        final LogThrottle throttle = LogThrottle.of(0, 5, 0);
+        int acceptedFoo = 0;
+        for (int i = 0; i < 50; i++) {
+            if (throttle.tryAcquire(foo)) {
+                acceptedFoo++;
+            }
+        }
+        assertTrue(acceptedFoo >= 5 && acceptedFoo < 10);
+        assertTrue(throttle.tryAcquire(bar) || System.identityHashCode(foo) == System.identityHashCode(bar));
+    }
+
+    @Test
+    void testSample() {
+        final LogThrottle throttle = LogThrottle.of(0, 0, 3);
+        assertTrue(throttle.tryAcquire("foo"));
+        assertFalse(throttle.tryAcquire("foo"));
+        assertFalse(throttle.tryAcquire("foo"));
+        assertTrue(throttle.tryAcquire("foo"));
+        // not the time to summarize
+        assertNull(throttle.pollSummary());
+    }
+
+    @Test
+    void testThrottledLogger() {
+        final LogHandler handler = mock(LogHandler.class);
+        final InternalLogger logger = new InternalLoggerImpl("foo", handler, LogThrottle.of(0, 0, 10));
+        for (int i = 0; i < 100; i++) {
+            logger.info("foo {}", i);
+        }
+        verify(handler, times(10)).handle(any());
+    }
+}
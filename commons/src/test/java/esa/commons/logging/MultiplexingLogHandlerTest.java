@@ -0,0 +1,241 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.logging;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MultiplexingLogHandlerTest {
+
+    @Test
+    void testSharedWorker() throws InterruptedException {
+        final SharedLogWorker worker = new SharedLogWorker();
+        worker.start();
+
+        final TestAppender foo = new TestAppender();
+        final TestAppender bar = new TestAppender();
+        final TestAppender broken = new TestAppender() {
+            @Override
+            public void append(ByteBuffer data) {
+                throw new Error();
+            }
+        };
+
+        final MultiplexingLogHandler h1 = handler(foo, "foo;", worker);
+        final MultiplexingLogHandler h2 = handler(bar, "bar;", worker);
+        final MultiplexingLogHandler h3 = handler(broken, "broken;", worker);
+        assertEquals(3, worker.channelCount());
+
+        final StringBuilder expectFoo = new StringBuilder();
+        final StringBuilder expectBar = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            h1.handle(new LogEventImpl("foo", Level.INFO, "hello", null));
+            expectFoo.append("foo;");
+            if (i % 10 == 0) {
+                h2.handle(new LogEventImpl("bar", Level.INFO, "hello", null));
+                expectBar.append("bar;");
+            }
+        }
+        // more than a write buffer which will cause an error when appending
+        for (int i = 0; i < 64; i++) {
+            h3.handle(new LogEventImpl("broken", Level.INFO, "hello", null));
+        }
+
+        // the broken one should be closed and the others would be written by the buffer timeout
+        foo.await(expectFoo.length());
+        bar.await(expectBar.length());
+        assertEquals(expectFoo.toString(), foo.toString());
+        assertEquals(expectBar.toString(), bar.toString());
+        assertTrue(broken.closed.get());
+        assertTrue(!foo.closed.get() && !bar.closed.get());
+
+        h1.stop();
+        h2.stop();
+        final long deadline = System.currentTimeMillis() + 5000L;
+        while (worker.channelCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertEquals(0, worker.channelCount());
+        assertTrue(foo.closed.get());
+        assertTrue(bar.closed.get());
+    }
+
+    @Test
+    void testDrainOnStop() throws InterruptedException {
+        final SharedLogWorker worker = new SharedLogWorker();
+        worker.start();
+        final TestAppender appender = new TestAppender();
+        final MultiplexingLogHandler handler = handler(appender, "foo;", worker);
+        final StringBuilder expect = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            handler.handle(new LogEventImpl("foo", Level.INFO, "hello", null));
+            expect.append("foo;");
+        }
+        handler.stop();
+        assertTrue(handler.awaitTermination(5L, TimeUnit.SECONDS));
+        assertEquals(expect.toString(), appender.toString());
+        assertTrue(appender.closed.get());
+        assertEquals(0, worker.channelCount());
+    }
+
+    @Test
+    void testServeOthersWhileStopping() throws InterruptedException {
+        final SharedLogWorker worker = new SharedLogWorker();
+        worker.start();
+        final TestAppender slow = new TestAppender() {
+            @Override
+            public void append(ByteBuffer data) {
+                try {
+                    Thread.sleep(5L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.append(data);
+            }
+        };
+        final AtomicBoolean servedAfterStopped = new AtomicBoolean();
+        final TestAppender other = new TestAppender() {
+            @Override
+            public void append(ByteBuffer data) {
+                servedAfterStopped.set(slow.closed.get());
+                super.append(data);
+            }
+        };
+        final MultiplexingLogHandler stopping = handler(slow, "foo;", worker);
+        final MultiplexingLogHandler running = handler(other, "bar;", worker, true);
+        final StringBuilder expect = new StringBuilder();
+        // takes about 1 second to append
+        for (int i = 0; i < 3000; i++) {
+            stopping.handle(new LogEventImpl("foo", Level.INFO, "hello", null));
+            expect.append("foo;");
+        }
+        stopping.stop();
+        // make sure the worker is draining the stopping one
+        Thread.sleep(400L);
+        // flushed immediately by the error
+        running.handle(new LogEventImpl("bar", Level.ERROR, "hello", null));
+        other.await(4);
+        assertEquals("bar;", other.toString());
+
+        assertTrue(stopping.awaitTermination(5L, TimeUnit.SECONDS));
+        assertEquals(expect.toString(), slow.toString());
+        // the running one has been served while draining the stopping one
+        assertFalse(servedAfterStopped.get());
+        assertEquals(1, worker.channelCount());
+        assertFalse(other.closed.get());
+        running.stop();
+        assertTrue(running.awaitTermination(5L, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testStopWhileAnotherFails() throws InterruptedException {
+        final SharedLogWorker worker = new SharedLogWorker();
+        worker.start();
+        final TestAppender appender = new TestAppender();
+        final TestAppender broken = new TestAppender() {
+            @Override
+            public void append(ByteBuffer data) {
+                throw new Error();
+            }
+        };
+        final MultiplexingLogHandler h1 = handler(appender, "foo;", worker);
+        final MultiplexingLogHandler h2 = handler(broken, "broken;", worker);
+        for (int i = 0; i < 64; i++) {
+            h1.handle(new LogEventImpl("foo", Level.INFO, "hello", null));
+            h2.handle(new LogEventImpl("broken", Level.INFO, "hello", null));
+        }
+        h1.stop();
+        assertTrue(h1.awaitTermination(5L, TimeUnit.SECONDS));
+        assertTrue(h2.awaitTermination(5L, TimeUnit.SECONDS));
+        // the failed one is closed only once and never drained while shutting down the other
+        assertEquals(1, broken.closeCount.get());
+        assertEquals(1, appender.closeCount.get());
+        assertEquals(0, worker.channelCount());
+    }
+
+    @Test
+    void testGetSharedWorker() {
+        final SharedLogWorker worker = SharedLogWorker.get();
+        assertTrue(worker.isAlive());
+        assertTrue(worker.isDaemon());
+        // only one worker by default
+        assertSame(worker, SharedLogWorker.get());
+    }
+
+    private static MultiplexingLogHandler handler(Appender appender, String data, SharedLogWorker worker) {
+        return handler(appender, data, worker, false);
+    }
+
+    private static MultiplexingLogHandler handler(Appender appender,
+                                                  String data,
+                                                  SharedLogWorker worker,
+                                                  boolean flushOnError) {
+        final Encoder encoder = mock(Encoder.class);
+        when(encoder.encode(any())).thenReturn(data.getBytes());
+        return new MultiplexingLogHandler(appender, encoder, 0, 64, new LogHandlerStatsImpl(), -1L, flushOnError,
+                worker);
+    }
+
+    private static class TestAppender implements Appender {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final AtomicBoolean closed = new AtomicBoolean();
+        final AtomicInteger closeCount = new AtomicInteger();
+
+        @Override
+        public synchronized void append(ByteBuffer data) {
+            byte[] bytes = new byte[data.remaining()];
+            data.get(bytes);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public void close() {
+            closed.set(true);
+            closeCount.incrementAndGet();
+        }
+
+        void await(int size) throws InterruptedException {
+            final long deadline = System.currentTimeMillis() + 5000L;
+            while (System.currentTimeMillis() < deadline) {
+                synchronized (this) {
+                    if (out.size() >= size) {
+                        return;
+                    }
+                }
+                Thread.sleep(10L);
+            }
+        }
+
+        @Override
+        public synchronized String toString() {
+            return new String(out.toByteArray());
+        }
+    }
+}
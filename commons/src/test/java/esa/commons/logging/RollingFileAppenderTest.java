@@ -22,10 +22,16 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -101,6 +107,50 @@ class RollingFileAppenderTest {
         assertArrayEquals(bytes, IOUtils.toByteArray(targetWithOutExe));
     }
 
+    @Test
+    void testAppendGathering() throws IOException {
+        final RollingFileAppender appender = RollingFileAppender.newInstance(target, null);
+        appender.append(ByteBuffer.wrap("foo".getBytes()));
+        appender.append(new ByteBuffer[]{ByteBuffer.wrap("bar".getBytes()), ByteBuffer.wrap("baz".getBytes())});
+        appender.append(new ByteBuffer[]{ByteBuffer.wrap("x".getBytes()), ByteBuffer.wrap("qux".getBytes())},
+                1, 1);
+        appender.append(ByteBuffer.wrap("!".getBytes()));
+        appender.close();
+        assertArrayEquals("foobarbazqux!".getBytes(), IOUtils.toByteArray(target));
+    }
+
+    @Test
+    void testCompressRollingFile() throws Exception {
+        final RollingFileAppender.SizedBasedRolling rolling =
+                new RollingFileAppender.SizedBasedRolling(target, 2, 3);
+        final RollingFileAppender appender = RollingFileAppender.newInstance(target, rolling, true);
+        final File rolled = new File(target.getParent(), fileNamePrefix + ".1.log");
+        final File compressed = new File(target.getParent(), fileNamePrefix + ".1.log.gz");
+        try {
+            appender.append(ByteBuffer.wrap("foo".getBytes()));
+            appender.append(ByteBuffer.wrap("bar".getBytes()));
+            appender.close();
+            assertArrayEquals("bar".getBytes(), IOUtils.toByteArray(target));
+
+            // wait for the compression in background which is submitted before
+            RollingFileAppender.compressAsync(new File(dir, fileNamePrefix + ".absent")).get();
+            assertFalse(rolled.exists());
+            assertTrue(compressed.exists());
+            try (InputStream in = new GZIPInputStream(new FileInputStream(compressed))) {
+                assertArrayEquals("foo".getBytes(), IOUtils.toByteArray(in));
+            }
+
+            // compressed file should be treated as a history file
+            final File[] rollingFiles = rolling.getRollingFiles();
+            assertEquals(1, rollingFiles.length);
+            assertEquals(compressed, rollingFiles[0]);
+            assertEquals(1, RollingFileAppender.SizedBasedRolling.extractIndex(compressed, fileNamePrefix, ".log"));
+        } finally {
+            rolled.delete();
+            compressed.delete();
+        }
+    }
+
     @Test
     void testSizeBasedRollingWithSuffix() throws IOException {
 
@@ -216,4 +266,84 @@ class RollingFileAppenderTest {
         }
     }
 
+    @Test
+    void testTimeBasedRolling() throws IOException {
+        final List<File> files = new LinkedList<>();
+        try {
+            final RollingFileAppender.TimeBasedRolling rolling =
+                    new RollingFileAppender.TimeBasedRolling(target, 2, "yyyy-MM-dd");
+            final long now = System.currentTimeMillis();
+            assertTrue(rolling.nextRollover > now);
+            assertTrue(rolling.nextRollover - now <= TimeUnit.DAYS.toMillis(1L) + TimeUnit.HOURS.toMillis(1L));
+            assertNull(rolling.rolloverIfNecessary(target, 0L));
+
+            // time passed
+            rolling.nextRollover = now - 1L;
+            final File r = rolling.rolloverIfNecessary(target, 0L);
+            assertNotNull(r);
+            files.add(r);
+            final String date = new SimpleDateFormat("yyyy-MM-dd").format(new Date());
+            assertEquals(fileNamePrefix + "." + date + ".log", r.getName());
+            assertTrue(rolling.nextRollover > now);
+            assertNull(rolling.rolloverIfNecessary(target, 0L));
+
+            final File older = new File(dir, fileNamePrefix + ".2000-01-01.log.gz");
+            files.add(older);
+            r.createNewFile();
+            older.createNewFile();
+            final File[] rollingFiles = rolling.getRollingFiles();
+            assertEquals(2, rollingFiles.length);
+            assertEquals(older, rollingFiles[0]);
+            assertEquals(r, rollingFiles[1]);
+        } finally {
+            files.forEach(File::delete);
+        }
+    }
+
+    @Test
+    void testTimeAndSizeBasedRolling() throws IOException {
+        final List<File> files = new LinkedList<>();
+        try {
+            final RollingFileAppender.TimeAndSizeBasedRolling rolling =
+                    new RollingFileAppender.TimeAndSizeBasedRolling(target, 5, "yyyyMMddHH", 16);
+            final String date = new SimpleDateFormat("yyyyMMddHH").format(new Date());
+            assertNull(rolling.rolloverIfNecessary(target, 1L));
+
+            final File r = rolling.rolloverIfNecessary(target, 17L);
+            assertNotNull(r);
+            files.add(r);
+            assertEquals(fileNamePrefix + "." + date + ".1.log", r.getName());
+
+            final File r1 = rolling.rolloverIfNecessary(target, 17L);
+            assertNotNull(r1);
+            files.add(r1);
+            assertEquals(fileNamePrefix + "." + date + ".2.log", r1.getName());
+
+            // time passed
+            rolling.nextRollover = System.currentTimeMillis() - 1L;
+            final File r2 = rolling.rolloverIfNecessary(target, 1L);
+            assertNotNull(r2);
+            files.add(r2);
+            final String date1 = new SimpleDateFormat("yyyyMMddHH").format(new Date());
+            assertEquals(fileNamePrefix + "." + date1 + ".1.log", r2.getName());
+            final File r3 = rolling.rolloverIfNecessary(target, 17L);
+            assertNotNull(r3);
+            files.add(r3);
+            assertEquals(fileNamePrefix + "." + date1 + ".2.log", r3.getName());
+
+            final File older = new File(dir, fileNamePrefix + ".2000010100.3.log");
+            files.add(older);
+            older.createNewFile();
+            r.createNewFile();
+            r1.createNewFile();
+            final File[] rollingFiles = rolling.getRollingFiles();
+            assertEquals(3, rollingFiles.length);
+            assertEquals(older, rollingFiles[0]);
+            assertEquals(r, rollingFiles[1]);
+            assertEquals(r1, rollingFiles[2]);
+        } finally {
+            files.forEach(File::delete);
+        }
+    }
+
 }
@@ -17,12 +17,17 @@ package esa.commons.logging;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -60,4 +65,127 @@ class SingleThreadLogHandlerTest {
         assertTrue(closed.get());
     }
 
+    @Test
+    void testGatheringAppend() throws InterruptedException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final AtomicInteger gathered = new AtomicInteger();
+        final Appender appender = new Appender() {
+            @Override
+            public synchronized void append(ByteBuffer data) {
+                byte[] bytes = new byte[data.remaining()];
+                data.get(bytes);
+                out.write(bytes, 0, bytes.length);
+            }
+
+            @Override
+            public void append(ByteBuffer[] srcs, int offset, int length) {
+                gathered.incrementAndGet();
+                Appender.super.append(srcs, offset, length);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        final Encoder encoder = mock(Encoder.class);
+        final StringBuilder expect = new StringBuilder();
+        final SingleThreadLogHandler handler = new SingleThreadLogHandler(appender, encoder, 0, 8);
+        try {
+            for (int i = 0; i < 64; i++) {
+                final LogEvent event = new LogEventImpl("foo", Level.INFO, "hello", null);
+                // some of them are larger than the write buffer
+                final String msg = i % 8 == 0 ? "large message of " + i + ";" : i + ";";
+                expect.append(msg);
+                when(encoder.encode(event)).thenReturn(msg.getBytes());
+                handler.handle(event);
+            }
+
+            final long deadline = System.currentTimeMillis() + 5000L;
+            while (System.currentTimeMillis() < deadline) {
+                synchronized (appender) {
+                    if (out.size() >= expect.length()) {
+                        break;
+                    }
+                }
+                Thread.sleep(10L);
+            }
+            synchronized (appender) {
+                assertEquals(expect.toString(), new String(out.toByteArray()));
+            }
+            assertTrue(gathered.get() > 0);
+        } finally {
+            handler.stop();
+        }
+    }
+
+    @Test
+    void testDrainOnStop() throws InterruptedException {
+        final CollectingAppender appender = new CollectingAppender();
+        final Encoder encoder = mock(Encoder.class);
+        when(encoder.encode(any())).thenReturn("foo;".getBytes());
+        final SingleThreadLogHandler handler =
+                new SingleThreadLogHandler(appender, encoder, 0, 0, new LogHandlerStatsImpl(), 0L, false);
+        final StringBuilder expect = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            handler.handle(new LogEventImpl("foo", Level.INFO, "hello", null));
+            expect.append("foo;");
+        }
+        handler.stop();
+        assertTrue(handler.awaitTermination(5L, TimeUnit.SECONDS));
+        assertEquals(expect.toString(), appender.toString());
+        assertTrue(appender.forced.get() > 0);
+        assertTrue(appender.closed.get());
+    }
+
+    @Test
+    void testFlushOnError() throws InterruptedException {
+        final CollectingAppender appender = new CollectingAppender();
+        final Encoder encoder = mock(Encoder.class);
+        when(encoder.encode(any())).thenAnswer(inv -> (((LogEvent) inv.getArgument(0)).message() + ";").getBytes());
+        final SingleThreadLogHandler handler =
+                new SingleThreadLogHandler(appender, encoder, 0, 0, new LogHandlerStatsImpl(), -1L, true);
+        try {
+            handler.handle(new LogEventImpl("foo", Level.INFO, "info", null));
+            handler.handle(new LogEventImpl("foo", Level.ERROR, "error", null));
+            // flushed without waiting for the buffer timeout
+            final long deadline = System.currentTimeMillis() + 500L;
+            while (appender.toString().isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5L);
+            }
+            assertEquals("info;error;", appender.toString());
+            assertEquals(0, appender.forced.get());
+        } finally {
+            handler.stop();
+        }
+    }
+
+    private static class CollectingAppender implements Appender {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final AtomicInteger forced = new AtomicInteger();
+        final AtomicBoolean closed = new AtomicBoolean();
+
+        @Override
+        public synchronized void append(ByteBuffer data) {
+            byte[] bytes = new byte[data.remaining()];
+            data.get(bytes);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public void force() {
+            forced.incrementAndGet();
+        }
+
+        @Override
+        public void close() {
+            closed.set(true);
+        }
+
+        @Override
+        public synchronized String toString() {
+            return new String(out.toByteArray());
+        }
+    }
 }
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.logging;
+
+import esa.commons.ExceptionUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ThrowableRendererTest {
+
+    @Test
+    void testRenderAsPrintStackTrace() {
+        final ThrowableRenderer renderer = new ThrowableRenderer(0, null);
+        final IllegalStateException cause = new IllegalStateException("cause");
+        final RuntimeException t = new RuntimeException("foo", cause);
+        t.addSuppressed(new IllegalArgumentException("suppressed"));
+        assertEquals(ExceptionUtils.getStackTrace(t), renderer.render(t).text);
+
+        // circular reference
+        cause.initCause(t);
+        assertEquals(ExceptionUtils.getStackTrace(t), renderer.render(t).text);
+
+        final Error noStack = new Error("no stack");
+        noStack.setStackTrace(new StackTraceElement[0]);
+        assertEquals(ExceptionUtils.getStackTrace(noStack), renderer.render(noStack).text);
+    }
+
+    @Test
+    void testCache() {
+        final ThrowableRenderer renderer = new ThrowableRenderer(0, null);
+        ThrowableRenderer.Rendered last = null;
+        for (int i = 0; i < 3; i++) {
+            // identical stack traces
+            final ThrowableRenderer.Rendered rendered = renderer.render(new IllegalStateException("foo"));
+            if (last != null) {
+                assertSame(last, rendered);
+            }
+            last = rendered;
+        }
+        assertNotSame(last, renderer.render(new IllegalStateException("bar")));
+
+        final ThrowableRenderer noCache = new ThrowableRenderer(0, null, 0);
+        final Exception t = new Exception();
+        final ThrowableRenderer.Rendered rendered = noCache.render(t);
+        assertNotSame(rendered, noCache.render(t));
+        assertEquals(rendered.text, noCache.render(t).text);
+    }
+
+    @Test
+    void testMaxDepth() {
+        final Exception t = new Exception("foo", newCause());
+        final String rendered = new ThrowableRenderer(1, null).render(t).text;
+        final String[] lines = rendered.split(System.getProperty("line.separator"));
+        assertEquals("java.lang.Exception: foo", lines[0]);
+        assertTrue(lines[1].startsWith("\tat " + ThrowableRendererTest.class.getName()));
+        assertEquals("\t... " + (t.getStackTrace().length - 1) + " more", lines[2]);
+        assertEquals("Caused by: java.lang.Exception: bar", lines[3]);
+        assertTrue(lines[4].startsWith("\tat " + ThrowableRendererTest.class.getName() + ".newCause"));
+        assertEquals("\t... " + t.getStackTrace().length + " more", lines[5]);
+        assertEquals(6, lines.length);
+    }
+
+    private static Exception newCause() {
+        return new Exception("bar");
+    }
+
+    @Test
+    void testFilterPackages() {
+        final Exception t = new Exception("foo");
+        final String rendered = new ThrowableRenderer(0, Collections.singletonList("org.junit.")).render(t).text;
+        assertFalse(rendered.contains("at org.junit."));
+        assertTrue(rendered.contains(" filtered"));
+        assertTrue(rendered.contains("at " + ThrowableRendererTest.class.getName()));
+    }
+}
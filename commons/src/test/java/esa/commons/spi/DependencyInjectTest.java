@@ -18,6 +18,8 @@ package esa.commons.spi;
 import esa.commons.spi.factory.Inject;
 import esa.commons.spi.inject.ConstructorInjectBean;
 import esa.commons.spi.inject.ConstructorInjectCycleBean;
+import esa.commons.spi.inject.CrossCycleBeanA;
+import esa.commons.spi.inject.CrossCycleBeanB;
 import esa.commons.spi.inject.FiledInjectBean;
 import esa.commons.spi.inject.FiledInjectBean1;
 import esa.commons.spi.inject.MixedInjectBean;
@@ -32,10 +34,15 @@ import java.util.Calendar;
 import java.util.List;
 import java.util.Optional;
 import java.util.Spliterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -89,6 +96,24 @@ public class DependencyInjectTest {
         assertThrows(IllegalStateException.class, () -> cached.getByName("bean1"));
     }
 
+    @Test
+    void testCrossLoaderCycleInjectInParallel() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<CrossCycleBeanA> a = executor.submit(() ->
+                    SpiLoader.getByName(CrossCycleBeanA.class, "a").orElse(null));
+            final Future<CrossCycleBeanB> b = executor.submit(() ->
+                    SpiLoader.getByName(CrossCycleBeanB.class, "b").orElse(null));
+            // would be deadlocked if the beans are created by the two threads at the same time
+            final CrossCycleBeanA beanA = a.get(5L, TimeUnit.SECONDS);
+            final CrossCycleBeanB beanB = b.get(5L, TimeUnit.SECONDS);
+            assertSame(beanB, beanA.getInject());
+            assertSame(beanA, beanB.getInject());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     void testNonException() {
         SpiLoader<NonInjectBean> cached = SpiLoader.cached(NonInjectBean.class);
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.spi;
+
+import esa.commons.spi.feature.FeatureBean;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FeatureIndexTest {
+
+    private static final String[] NONE = new String[0];
+
+    private final FeatureIndex index = new FeatureIndex(Arrays.asList(
+            new SpiLoader.FeatureInfo("a", new String[]{"g1"}, new String[]{"k:v"}, NONE, 0),
+            new SpiLoader.FeatureInfo("b", NONE, NONE, NONE, 0),
+            new SpiLoader.FeatureInfo("c", new String[]{" g1 ", "g2"}, new String[]{"k", "k2: v2"},
+                    new String[]{"x:1"}, 0),
+            new SpiLoader.FeatureInfo("d", new String[]{"g2"}, NONE, new String[]{"k:v"}, 0)));
+
+    @Test
+    void testMatchGroup() {
+        assertEquals(bits(0, 1, 2, 3), index.matchGroup(null, false));
+        assertEquals(bits(0, 1, 2, 3), index.matchGroup(" ", false));
+        assertEquals(bits(0, 2), index.matchGroup("g1", false));
+        assertEquals(bits(0, 1, 2), index.matchGroup(" g1", true));
+        assertEquals(bits(2, 3), index.matchGroup("g2", false));
+        assertEquals(bits(), index.matchGroup("g3", false));
+        assertEquals(bits(1), index.matchGroup("g3", true));
+    }
+
+    @Test
+    void testMatchTags() {
+        assertEquals(bits(0, 1, 2, 3), index.matchTags(null, false));
+        assertEquals(bits(0, 1, 2, 3), index.matchTags(Collections.emptyMap(), false));
+        // match by key only if the value is blank
+        assertEquals(bits(0, 2), index.matchTags(tags("k", ""), false));
+        assertEquals(bits(0, 2), index.matchTags(tags("k", null), false));
+        assertEquals(bits(0), index.matchTags(tags(" k ", " v "), false));
+        assertEquals(bits(0, 1), index.matchTags(tags("k", "v"), true));
+        assertEquals(bits(2), index.matchTags(tags("k2", "v2"), false));
+        assertEquals(bits(), index.matchTags(tags("k2", "v3"), false));
+
+        // exclude tags have a higher priority
+        final Map<String, String> tags = tags("k2", "v2");
+        tags.put("x", "1");
+        assertEquals(bits(), index.matchTags(tags, false));
+        assertEquals(bits(1, 3), index.matchTags(tags, true));
+        assertEquals(bits(1, 3), index.matchTags(tags("x", "2"), true));
+        assertEquals(bits(0, 1, 2), index.matchTags(tags("k", ""), true));
+    }
+
+    @Test
+    void testMemorizedResult() {
+        final SpiLoader<FeatureBean> loader = SpiLoader.cached(FeatureBean.class);
+        final List<FeatureBean> result = loader.getByGroup("consumer");
+        assertEquals(1, result.size());
+        assertSame(result, loader.getByGroup(" consumer"));
+        assertSame(result, loader.getByGroup("consumer", false, true));
+        assertNotSame(result, loader.getByGroup("consumer", true));
+        assertEquals(2, loader.getByGroup("consumer", true).size());
+        assertThrows(UnsupportedOperationException.class, () -> result.add(null));
+
+        final Map<String, String> tags = tags("foo", "bar");
+        final List<FeatureBean> byTags = loader.getByTags(tags, true);
+        assertSame(byTags, loader.getByTags(tags("foo", "bar"), true));
+        // modifying the tags after querying does not affect the memorized result
+        tags.put("foo", "baz");
+        assertSame(byTags, loader.getByTags(tags("foo", "bar"), true));
+    }
+
+    private static Map<String, String> tags(String key, String value) {
+        final Map<String, String> tags = new HashMap<>();
+        tags.put(key, value);
+        return tags;
+    }
+
+    private static BitSet bits(int... indexes) {
+        final BitSet bits = new BitSet();
+        for (int i : indexes) {
+            bits.set(i);
+        }
+        return bits;
+    }
+}
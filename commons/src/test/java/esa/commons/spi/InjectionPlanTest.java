@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.spi;
+
+import esa.commons.spi.factory.Inject;
+import esa.commons.spi.inject.ConstructorInjectBean1;
+import esa.commons.spi.inject.ConstructorInjectBean2;
+import esa.commons.spi.inject.SetMethodInjectBean1;
+import esa.commons.spi.inject.SetMethodInjectBean2;
+import esa.commons.spi.wrapper.SpiInnerImpl1;
+import esa.commons.spi.wrapper.SpiWrapperImpl1;
+import esa.commons.spi.wrapper.TestWrapperSpi;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InjectionPlanTest {
+
+    @Test
+    void testConstructor() throws Throwable {
+        final InjectionPlan plan = InjectionPlan.of(ConstructorInjectBean1.class);
+        assertSame(plan, InjectionPlan.of(ConstructorInjectBean1.class));
+        assertEquals(4, plan.parameters.length);
+        assertEquals(0, plan.parameters[0].defaultValue);
+        assertEquals("", plan.parameters[1].defaultValue);
+        assertEquals(0, plan.parameters[2].defaultValue);
+        assertNull(plan.parameters[0].pair);
+        assertEquals("bean2", plan.parameters[3].pair.getName());
+        assertSame(ConstructorInjectBean2.class, plan.parameters[3].pair.getExtensionType());
+        assertTrue(plan.parameters[3].require);
+
+        final ConstructorInjectBean2 bean2 = new ConstructorInjectBean2();
+        final ConstructorInjectBean1 bean1 =
+                (ConstructorInjectBean1) plan.newInstance(new Object[]{1, "foo", 2, bean2});
+        assertEquals(1, bean1.getAge());
+        assertEquals("foo", bean1.getName());
+        assertEquals(2, bean1.getSalary());
+        assertSame(bean2, bean1.getInject());
+
+        // default constructor
+        assertTrue(InjectionPlan.of(SpiInnerImpl1.class).newInstance(new Object[0]) instanceof SpiInnerImpl1);
+        assertThrows(NoSuchMethodException.class, () -> InjectionPlan.of(Bean.class).newInstance(new Object[0]));
+    }
+
+    @Test
+    void testWrapper() throws Throwable {
+        final TestWrapperSpi delegate = new SpiInnerImpl1();
+        assertTrue(InjectionPlan.of(SpiWrapperImpl1.class).newWrapper(TestWrapperSpi.class, delegate)
+                instanceof SpiWrapperImpl1);
+        assertThrows(IllegalArgumentException.class,
+                () -> InjectionPlan.of(SpiWrapperImpl1.class).newWrapper(TestWrapperSpi.class, null));
+    }
+
+    @Test
+    void testInjections() throws Throwable {
+        final InjectionPlan setterPlan = InjectionPlan.of(SetMethodInjectBean1.class);
+        // primitive types are ignored
+        assertEquals(1, setterPlan.injections.length);
+        assertFalse(setterPlan.injections[0].field);
+        assertEquals("bean2", setterPlan.injections[0].pair.getName());
+        final SetMethodInjectBean1 bean1 = new SetMethodInjectBean1();
+        final SetMethodInjectBean2 bean2 = new SetMethodInjectBean2();
+        setterPlan.injections[0].inject(bean1, bean2);
+        assertSame(bean2, bean1.getInject());
+
+        final InjectionPlan plan = InjectionPlan.of(Bean.class);
+        assertEquals(3, plan.injections.length);
+        final Bean bean = new Bean(null);
+        for (InjectionPlan.Injection injection : plan.injections) {
+            if (injection.field) {
+                injection.inject(bean, "foo");
+            } else {
+                // private setter is inaccessible
+                assertThrows(IllegalAccessException.class, () -> injection.inject(bean, "foo"));
+            }
+        }
+        assertEquals("foo", bean.a);
+        assertEquals("foo", Bean.b);
+    }
+
+    private static class Bean {
+
+        @Inject
+        private String a;
+
+        @Inject
+        private static String b;
+
+        private Bean(String a) {
+            this.a = a;
+        }
+
+        @Inject
+        private void setC(String c) {
+        }
+    }
+}
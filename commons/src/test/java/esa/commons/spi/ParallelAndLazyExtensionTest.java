@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.spi;
+
+import esa.commons.spi.parallel.LazyBean;
+import esa.commons.spi.parallel.LazyBean1;
+import esa.commons.spi.parallel.ParallelBean;
+import esa.commons.spi.parallel.ParallelBean1;
+import esa.commons.spi.parallel.ParallelBean2;
+import esa.commons.spi.parallel.ParallelBean3;
+import esa.commons.spi.parallel.SlowParallelBean1;
+import esa.commons.spi.parallel.SlowParallelBean2;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelAndLazyExtensionTest {
+
+    @Test
+    void testGetAllInParallel() {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final AtomicInteger submitted = new AtomicInteger();
+        try {
+            final List<ParallelBean> all = SpiLoader.getAll(ParallelBean.class, r -> {
+                submitted.incrementAndGet();
+                executor.execute(r);
+            }, false);
+            assertEquals(5, submitted.get());
+            assertEquals(5, all.size());
+            assertTrue(all.get(0) instanceof ParallelBean1);
+            assertTrue(all.get(1) instanceof ParallelBean2);
+            assertTrue(all.get(2) instanceof ParallelBean3);
+            assertTrue(all.get(3) instanceof SlowParallelBean1);
+            assertTrue(all.get(4) instanceof SlowParallelBean2);
+            // the independent extensions have been instantiated at the same time
+            assertEquals(2, SlowParallelBean1.OVERLAPPED.get());
+            // dependencies have been instantiated and injected
+            assertSame(all.get(0), all.get(1).getInject());
+            assertSame(all.get(1), all.get(2).getInject());
+
+            // all the extensions have been instantiated
+            assertEquals(all, SpiLoader.getAll(ParallelBean.class, r -> {
+                submitted.incrementAndGet();
+                r.run();
+            }, false));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testGetLazyByName() {
+        final SpiLoader<LazyBean> loader = SpiLoader.cached(LazyBean.class);
+        assertFalse(loader.getLazyByName("foo").isPresent());
+
+        final LazyBean lazy = SpiLoader.getLazyByName(LazyBean.class, "lazy").orElse(null);
+        assertSame(lazy, loader.getLazyByName("lazy").orElse(null));
+        assertEquals(lazy, lazy);
+        assertNotEquals(0, lazy.hashCode() + 1);
+        assertEquals(0, LazyBean1.CREATED.get());
+
+        assertEquals("hello", lazy.hello());
+        assertEquals(1, LazyBean1.CREATED.get());
+        assertEquals("hello", lazy.hello());
+        assertSame(loader.getByName("lazy").orElse(null), loader.getByName("lazy").orElse(null));
+        assertEquals(1, LazyBean1.CREATED.get());
+    }
+}
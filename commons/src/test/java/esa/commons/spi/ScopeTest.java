@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.spi;
+
+import esa.commons.spi.scope.PooledBean;
+import esa.commons.spi.scope.PrototypeBean;
+import esa.commons.spi.scope.PrototypeSpi;
+import esa.commons.spi.scope.ScopedBean;
+import esa.commons.spi.scope.SingletonBean;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScopeTest {
+
+    @Test
+    void testScopes() {
+        final SpiLoader<ScopedBean> loader = SpiLoader.cached(ScopedBean.class);
+        assertEquals(Scope.SINGLETON, loader.getScope("singleton"));
+        assertEquals(Scope.PROTOTYPE, loader.getScope("prototype"));
+        assertEquals(Scope.POOLED, loader.getScope("pooled"));
+        assertNull(loader.getScope("foo"));
+
+        final ScopedBean singleton = loader.getByName("singleton").orElse(null);
+        assertTrue(singleton instanceof SingletonBean);
+        assertSame(singleton, loader.getByName("singleton").orElse(null));
+
+        final ScopedBean prototype = loader.getByName("prototype").orElse(null);
+        assertTrue(prototype instanceof PrototypeBean);
+        assertNotSame(prototype, loader.getByName("prototype").orElse(null));
+
+        final ScopedBean pooled = loader.getByName("pooled").orElse(null);
+        assertTrue(pooled instanceof PooledBean);
+        assertNotSame(pooled, loader.getByName("pooled").orElse(null));
+        loader.release("pooled", pooled);
+        assertSame(pooled, loader.getByName("pooled").orElse(null));
+        // nothing happens if the extension is not pooled
+        loader.release("prototype", prototype);
+        assertNotSame(prototype, loader.getByName("prototype").orElse(null));
+    }
+
+    @Test
+    void testGetAllWithScopes() {
+        final SpiLoader<ScopedBean> loader = SpiLoader.cached(ScopedBean.class);
+        final List<ScopedBean> all = loader.getAll();
+        assertEquals(3, all.size());
+        final List<ScopedBean> another = loader.getAll();
+        // the result contains unshared extensions is not memorized
+        assertNotSame(all, another);
+        for (int i = 0; i < all.size(); i++) {
+            if (all.get(i) instanceof SingletonBean) {
+                assertSame(all.get(i), another.get(i));
+            } else {
+                assertNotSame(all.get(i), another.get(i));
+            }
+        }
+    }
+
+    @Test
+    void testDefaultScopeOfSpi() {
+        final SpiLoader<PrototypeSpi> loader = SpiLoader.cached(PrototypeSpi.class);
+        assertEquals(Scope.PROTOTYPE, loader.getScope("prototype"));
+        assertNotSame(loader.getByName("prototype").orElse(null), loader.getByName("prototype").orElse(null));
+        assertEquals(Scope.SINGLETON, loader.getScope("singleton"));
+        assertSame(loader.getByName("singleton").orElse(null), loader.getByName("singleton").orElse(null));
+
+        // lazy extension is bound to an instance
+        final PrototypeSpi lazy = loader.getLazyByName("prototype").orElse(null);
+        assertEquals(lazy.toString(), lazy.toString());
+        assertNotSame(lazy, loader.getLazyByName("prototype").orElse(null));
+    }
+
+    @Test
+    void testExtensionPool() {
+        final ExtensionPool<Object> pool = new ExtensionPool<>(3);
+        assertNull(pool.poll());
+        final Object[] objects = new Object[5];
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = new Object();
+            // capacity is rounded up to 4
+            assertEquals(i < 4, pool.offer(objects[i]));
+        }
+        for (int i = 0; i < 4; i++) {
+            assertTrue(pool.poll() != null);
+        }
+        assertNull(pool.poll());
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.spi;
+
+import esa.commons.spi.feature.FeatureBean;
+import esa.commons.spi.feature.FeatureBean1;
+import esa.commons.spi.feature.FeatureBean2;
+import esa.commons.spi.wrapper.SpiInnerImpl1;
+import esa.commons.spi.wrapper.SpiWrapperImpl1;
+import esa.commons.spi.wrapper.SpiWrapperImpl2;
+import esa.commons.spi.wrapper.TestWrapperSpi;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpiIndexTest {
+
+    @Test
+    void testGenerate() throws IOException {
+        final File dir = Files.createTempDirectory("spi-index-").toFile();
+        // without the class which does not exist
+        copy("META-INF/esa/internal/" + TestWrapperSpi.class.getName(), dir, line -> !line.contains("MyClass"));
+        copy("META-INF/services/" + FeatureBean.class.getName(), dir, line -> true);
+        assertEquals(8, SpiIndexGenerator.generate(dir, getClass().getClassLoader()));
+
+        final Map<String, List<SpiIndex.Entry>> entries;
+        final Set<String> uncovered = new HashSet<>();
+        try (BufferedReader reader = Files.newBufferedReader(new File(dir, SpiIndex.INDEX_FILE).toPath())) {
+            entries = SpiIndex.read(reader, uncovered);
+        }
+        assertEquals(2, entries.size());
+        assertTrue(uncovered.isEmpty());
+
+        final List<SpiIndex.Entry> wrappers = entries.get(TestWrapperSpi.class.getName());
+        // the classes which could not be assigned to the SPI are skipped
+        assertEquals(6, wrappers.size());
+        assertEquals("innerImpl1", wrappers.get(0).name);
+        assertEquals(SpiInnerImpl1.class.getName(), wrappers.get(0).className);
+        assertFalse(wrappers.get(0).wrapper);
+        assertEquals("wrapper1", wrappers.get(4).name);
+        assertEquals(SpiWrapperImpl1.class.getName(), wrappers.get(4).className);
+        assertTrue(wrappers.get(4).wrapper);
+        assertEquals(SpiWrapperImpl2.class.getName(), wrappers.get(5).name);
+        assertTrue(wrappers.get(5).wrapper);
+
+        final List<SpiIndex.Entry> beans = entries.get(FeatureBean.class.getName());
+        assertEquals(2, beans.size());
+        assertEquals("bean1", beans.get(0).name);
+        assertEquals(FeatureBean1.class.getName(), beans.get(0).className);
+        assertArrayEquals(new String[]{"consumer"}, beans.get(0).groups);
+        assertEquals("bean2", beans.get(1).name);
+        assertEquals(FeatureBean2.class.getName(), beans.get(1).className);
+        assertEquals(0, beans.get(1).groups.length);
+    }
+
+    @Test
+    void testGenerateWithUnloadableClasses() throws IOException {
+        final File dir = Files.createTempDirectory("spi-index-").toFile();
+        final String wrapperSpi = "META-INF/esa/internal/" + TestWrapperSpi.class.getName();
+        final String beanSpi = "META-INF/services/" + FeatureBean.class.getName();
+        final String missingSpi = "META-INF/services/esa.commons.spi.MissingSpi";
+        copy(wrapperSpi, dir, line -> true);
+        copy(beanSpi, dir, line -> true);
+        copy(beanSpi, new File(dir, missingSpi));
+        // only the SPI file without unloadable classes is indexed
+        assertEquals(2, SpiIndexGenerator.generate(dir, getClass().getClassLoader()));
+
+        final Map<String, List<SpiIndex.Entry>> entries;
+        final Set<String> uncovered = new HashSet<>();
+        try (BufferedReader reader = Files.newBufferedReader(new File(dir, SpiIndex.INDEX_FILE).toPath())) {
+            entries = SpiIndex.read(reader, uncovered);
+        }
+        assertEquals(Collections.singleton(FeatureBean.class.getName()), entries.keySet());
+        assertEquals(new HashSet<>(Arrays.asList(wrapperSpi, missingSpi)), uncovered);
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{dir.toURI().toURL()}, null)) {
+            final SpiIndex index = SpiIndex.get(classLoader);
+            assertFalse(index.isEmpty());
+            assertTrue(index.covers(classLoader.getResource(beanSpi), beanSpi));
+            // the uncovered SPI files would still be scanned
+            assertFalse(index.covers(classLoader.getResource(wrapperSpi), wrapperSpi));
+            assertFalse(index.covers(classLoader.getResource(missingSpi), missingSpi));
+        }
+    }
+
+    @Test
+    void testReadAndWrite() throws IOException {
+        final SpiIndex.Entry entry = new SpiIndex.Entry("a\tb",
+                "foo.Bar",
+                false,
+                -1,
+                new String[]{"x,y", ""},
+                new String[]{"k:v", "k2:\\t"},
+                new String[0],
+                Scope.PROTOTYPE);
+        final StringWriter writer = new StringWriter();
+        SpiIndex.write(writer, Collections.singletonMap("foo.Spi", Collections.singletonList(entry)),
+                Collections.singletonList("META-INF/services/foo\tSpi"));
+        final Set<String> uncovered = new HashSet<>();
+
+        final Map<String, List<SpiIndex.Entry>> read =
+                SpiIndex.read(new BufferedReader(new StringReader(writer.toString())), uncovered);
+        final SpiIndex.Entry e = read.get("foo.Spi").get(0);
+        assertEquals(entry.name, e.name);
+        assertEquals(entry.className, e.className);
+        assertEquals(entry.wrapper, e.wrapper);
+        assertEquals(entry.order, e.order);
+        assertArrayEquals(entry.groups, e.groups);
+        assertArrayEquals(entry.tags, e.tags);
+        assertArrayEquals(entry.excludeTags, e.excludeTags);
+        assertEquals(entry.scope, e.scope);
+        assertEquals(Collections.singleton("META-INF/services/foo\tSpi"), uncovered);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> SpiIndex.read(new BufferedReader(new StringReader("foo")), uncovered));
+        assertThrows(IllegalArgumentException.class,
+                () -> SpiIndex.read(new BufferedReader(new StringReader("esa-spi-index:0\n")), uncovered));
+    }
+
+    @Test
+    void testLoadFromIndex() throws IOException {
+        final Path dir = Files.createTempDirectory("spi-index-");
+        final SpiIndex.Entry entry = new SpiIndex.Entry("indexed",
+                FeatureBean1.class.getName(),
+                false,
+                0,
+                new String[]{"indexed"},
+                new String[0],
+                new String[0],
+                Scope.DEFAULT);
+        final File index = new File(dir.toFile(), SpiIndex.INDEX_FILE);
+        assertTrue(index.getParentFile().mkdirs());
+        try (Writer writer = Files.newBufferedWriter(index.toPath(), StandardCharsets.UTF_8)) {
+            SpiIndex.write(writer, Collections.singletonMap(FeatureBean.class.getName(),
+                    Collections.singletonList(entry)), Collections.emptySet());
+        }
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{dir.toUri().toURL()},
+                getClass().getClassLoader())) {
+            assertFalse(SpiIndex.get(classLoader).isEmpty());
+            final SpiLoader<FeatureBean> loader = new SpiLoader<>(FeatureBean.class, classLoader);
+            assertTrue(loader.getByName("indexed").orElse(null) instanceof FeatureBean1);
+            assertEquals(1, loader.getByGroup("indexed").size());
+            // the SPI files which have not been indexed are still loaded
+            assertTrue(loader.getByName("bean1").orElse(null) instanceof FeatureBean1);
+            assertTrue(loader.getByName("bean2").orElse(null) instanceof FeatureBean2);
+        }
+    }
+
+    @Test
+    void testIgnoreIllegalIndex() throws IOException {
+        final Path dir = Files.createTempDirectory("spi-index-");
+        final File index = new File(dir.toFile(), SpiIndex.INDEX_FILE);
+        assertTrue(index.getParentFile().mkdirs());
+        Files.write(index.toPath(), ("esa-spi-index:" + (SpiIndex.VERSION + 1) + "\n").getBytes());
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{dir.toUri().toURL()},
+                getClass().getClassLoader())) {
+            assertTrue(SpiIndex.get(classLoader).isEmpty());
+            final SpiLoader<FeatureBean> loader = new SpiLoader<>(FeatureBean.class, classLoader);
+            assertTrue(loader.getByName("bean1").isPresent());
+        }
+    }
+
+    private static void copy(String resource, File dir, Predicate<String> filter) throws IOException {
+        final File target = new File(dir, resource);
+        assertTrue(target.getParentFile().mkdirs() || target.getParentFile().isDirectory());
+        final List<String> lines;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                SpiIndexTest.class.getClassLoader().getResourceAsStream(resource), StandardCharsets.UTF_8))) {
+            lines = reader.lines().filter(filter).collect(Collectors.toList());
+        }
+        Files.write(target.toPath(), lines, StandardCharsets.UTF_8);
+    }
+
+    private static void copy(String resource, File target) throws IOException {
+        assertTrue(target.getParentFile().mkdirs() || target.getParentFile().isDirectory());
+        try (InputStream in = SpiIndexTest.class.getClassLoader().getResourceAsStream(resource)) {
+            Files.copy(in, target.toPath());
+        }
+    }
+}
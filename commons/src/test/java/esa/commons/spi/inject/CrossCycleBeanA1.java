@@ -0,0 +1,51 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.spi.inject;
+
+import esa.commons.spi.factory.Inject;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class CrossCycleBeanA1 implements CrossCycleBeanA {
+
+    /**
+     * Both constructors wait for each other for a while, so that they would be run at the same time if the creations
+     * of the beans are not serialized.
+     */
+    public static final CountDownLatch CONSTRUCTING = new CountDownLatch(2);
+
+    @Inject(name = "b")
+    private CrossCycleBeanB beanB;
+
+    public CrossCycleBeanA1() {
+        await();
+    }
+
+    static void await() {
+        CONSTRUCTING.countDown();
+        try {
+            CONSTRUCTING.await(200L, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public Object getInject() {
+        return beanB;
+    }
+}
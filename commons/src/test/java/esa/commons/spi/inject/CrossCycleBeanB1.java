@@ -0,0 +1,33 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.spi.inject;
+
+import esa.commons.spi.factory.Inject;
+
+public class CrossCycleBeanB1 implements CrossCycleBeanB {
+
+    @Inject(name = "a")
+    private CrossCycleBeanA beanA;
+
+    public CrossCycleBeanB1() {
+        CrossCycleBeanA1.await();
+    }
+
+    @Override
+    public Object getInject() {
+        return beanA;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2020 OPPO ESA Stack Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package esa.commons.spi.parallel;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SlowParallelBean1 implements ParallelBean {
+
+    /**
+     * Both of the slow beans could pass only if their constructors are running at the same time.
+     */
+    public static final CountDownLatch CONSTRUCTING = new CountDownLatch(2);
+    public static final AtomicInteger OVERLAPPED = new AtomicInteger();
+
+    public SlowParallelBean1() {
+        await();
+    }
+
+    static void await() {
+        CONSTRUCTING.countDown();
+        try {
+            if (CONSTRUCTING.await(3L, TimeUnit.SECONDS)) {
+                OVERLAPPED.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public Object getInject() {
+        return null;
+    }
+}